@@ -1,19 +1,26 @@
 package com.dataetl.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.scheduling.TaskScheduler;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 
-import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadPoolExecutor;
 
 @Configuration
 public class SchedulerConfig {
 
+    /**
+     * Fires cron triggers and the periodic flushes of ErrorLogWriter. Only dispatches: a
+     * scheduled job runs on the job executor, so a slow job never holds a scheduler thread.
+     */
     @Bean
     public ThreadPoolTaskScheduler taskScheduler() {
         var scheduler = new ThreadPoolTaskScheduler();
-        scheduler.setPoolSize(10);
+        scheduler.setPoolSize(2);
         scheduler.setThreadNamePrefix("etl-scheduler-");
         scheduler.setWaitForTasksToCompleteOnShutdown(true);
         scheduler.setAwaitTerminationSeconds(60);
@@ -22,12 +29,108 @@ public class SchedulerConfig {
     }
 
     /**
-     * Exposes the scheduler's underlying executor as a named bean so that
-     * manual job triggers (CompletableFuture.runAsync) use the same bounded
-     * thread pool as scheduled jobs — instead of the shared ForkJoinPool.commonPool().
+     * Runs job bodies, a new virtual thread per job. Not bounded here — how many jobs run at
+     * once is decided by JobDispatcher, which only hands a job over once it may start. On
+     * shutdown, waits for running jobs to stop after their current chunk.
      */
     @Bean(name = "jobExecutor")
-    public Executor jobExecutor(ThreadPoolTaskScheduler taskScheduler) {
-        return taskScheduler.getScheduledExecutor();
+    public SimpleAsyncTaskExecutor jobExecutor() {
+        var executor = new SimpleAsyncTaskExecutor("etl-job-");
+        executor.setVirtualThreads(true);
+        executor.setTaskTerminationTimeout(60_000);
+        return executor;
+    }
+
+    /**
+     * Threads for the extract and transform stages of STAGED pipelines (the load stage runs
+     * on the job thread itself) and for the per-partition readers of partitioned DB sources.
+     * Every running job holds its threads for its whole duration, so there is no task queue.
+     * The pool is sized for app.etl.jobs.max-concurrent jobs each using two stages and a
+     * reader per connection its source's pool allows, so a job the dispatcher admitted
+     * always gets its threads.
+     */
+    @Bean(name = "pipelineStageExecutor")
+    public ThreadPoolTaskExecutor pipelineStageExecutor(
+            @Value("${app.etl.jobs.max-concurrent:8}") int maxConcurrentJobs,
+            @Value("${app.etl.db.pool-cache.max-pool-size:4}") int maxPartitions) {
+        var executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(4);
+        executor.setMaxPoolSize(Math.max(4, maxConcurrentJobs * (2 + maxPartitions)));
+        executor.setQueueCapacity(0);
+        executor.setThreadNamePrefix("etl-stage-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(60);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Load writer threads of jobs with app.etl.load.writers > 1 (see UpsertWriter), apart from
+     * the stage threads so writers and readers never compete for the same slots. Sized for
+     * every admitted job running its full set of writers; threads are only kept while in use.
+     */
+    @Bean(name = "loadWriterExecutor")
+    public ThreadPoolTaskExecutor loadWriterExecutor(
+            @Value("${app.etl.jobs.max-concurrent:8}") int maxConcurrentJobs,
+            @Value("${app.etl.load.writers:1}") int writers) {
+        int threads = Math.max(1, maxConcurrentJobs * (writers > 1 ? writers : 0));
+        var executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setAllowCoreThreadTimeOut(true);
+        executor.setQueueCapacity(0);
+        executor.setThreadNamePrefix("etl-load-writer-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(60);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Threads that scan and parse the byte ranges of large CSV files, one range per task.
+     * Parsing is CPU-bound, so the pool is sized to the split parallelism; ranges of
+     * concurrent jobs queue behind each other rather than oversubscribing the cores.
+     */
+    @Bean(name = "csvRangeExecutor")
+    public ThreadPoolTaskExecutor csvRangeExecutor(@Value("${app.etl.csv.split.parallelism:0}") int parallelism) {
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        var executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setThreadNamePrefix("etl-csv-range-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(60);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Threads that write the batched error_log entries of all jobs (see ErrorLogWriter). Each
+     * job bounds its own batches in flight; when the queue is full anyway, the reporting
+     * thread writes its batch itself rather than dropping it.
+     */
+    @Bean(name = "errorLogExecutor")
+    public ThreadPoolTaskExecutor errorLogExecutor() {
+        var executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(2);
+        executor.setMaxPoolSize(2);
+        executor.setQueueCapacity(64);
+        executor.setThreadNamePrefix("etl-error-log-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(60);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Work-stealing pool shared by all jobs for the CPU-bound transform step.
+     * Dedicated rather than ForkJoinPool.commonPool() so transform work cannot starve
+     * (or be starved by) unrelated parallel streams. Parallelism 1 disables fan-out.
+     */
+    @Bean(name = "transformPool", destroyMethod = "shutdown")
+    public ForkJoinPool transformPool(@Value("${app.etl.transform.parallelism:0}") int parallelism) {
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        return new ForkJoinPool(threads);
     }
 }
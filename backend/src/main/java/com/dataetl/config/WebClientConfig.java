@@ -16,13 +16,16 @@ public class WebClientConfig {
     public WebClient webClient() {
         var httpClient = HttpClient.create()
             .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, 10_000)
-            .responseTimeout(Duration.ofSeconds(30));
+            .responseTimeout(Duration.ofSeconds(30))
+            // Sends Accept-Encoding: gzip, deflate and inflates compressed bodies as they stream
+            .compress(true);
 
         return WebClient.builder()
             .clientConnector(new ReactorClientHttpConnector(httpClient))
             .codecs(configurer -> configurer
                 .defaultCodecs()
-                .maxInMemorySize(10 * 1024 * 1024)) // 10MB max response
+                // 10MB cap for bodies decoded in memory; extraction streams raw buffers and is not bound by it
+                .maxInMemorySize(10 * 1024 * 1024))
             .build();
     }
 }
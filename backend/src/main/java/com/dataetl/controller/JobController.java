@@ -1,25 +1,31 @@
 package com.dataetl.controller;
 
+import com.dataetl.dto.ErrorLogResponse;
+import com.dataetl.dto.ErrorSummaryResponse;
 import com.dataetl.dto.JobDetailResponse;
 import com.dataetl.dto.JobHistoryResponse;
+import com.dataetl.dto.JobQueueResponse;
 import com.dataetl.dto.PageResponse;
+import com.dataetl.dto.PipelineStatsResponse;
 import com.dataetl.dto.TriggerRequest;
 import com.dataetl.exception.ResourceNotFoundException;
-import com.dataetl.model.enums.TriggerType;
-import com.dataetl.pipeline.EtlOrchestrator;
+import com.dataetl.model.enums.JobLane;
+import com.dataetl.pipeline.PipelineMetricsRegistry;
 import com.dataetl.repository.ErrorLogRepository;
+import com.dataetl.repository.ErrorSummaryRepository;
 import com.dataetl.repository.JobHistoryRepository;
+import com.dataetl.service.ErrorLogWriter;
+import com.dataetl.service.JobDispatcher;
 import jakarta.validation.Valid;
-import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.Map;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.Executor;
 
 @RestController
 @RequestMapping("/api/jobs")
@@ -27,33 +33,87 @@ public class JobController {
 
     private static final int MAX_PAGE_SIZE = 100;
 
-    private final EtlOrchestrator orchestrator;
+    // Seconds a caller is asked to wait after a trigger was rejected for a full queue
+    private static final int RETRY_AFTER_SECONDS = 30;
+
+    private final JobDispatcher jobDispatcher;
     private final JobHistoryRepository jobHistoryRepository;
     private final ErrorLogRepository errorLogRepository;
-    private final Executor jobExecutor;
+    private final ErrorSummaryRepository errorSummaryRepository;
+    private final ErrorLogWriter errorLogWriter;
+    private final PipelineMetricsRegistry pipelineMetrics;
 
-    public JobController(EtlOrchestrator orchestrator,
+    public JobController(JobDispatcher jobDispatcher,
                          JobHistoryRepository jobHistoryRepository,
                          ErrorLogRepository errorLogRepository,
-                         @Qualifier("jobExecutor") Executor jobExecutor) {
-        this.orchestrator = orchestrator;
+                         ErrorSummaryRepository errorSummaryRepository,
+                         ErrorLogWriter errorLogWriter,
+                         PipelineMetricsRegistry pipelineMetrics) {
+        this.jobDispatcher = jobDispatcher;
         this.jobHistoryRepository = jobHistoryRepository;
         this.errorLogRepository = errorLogRepository;
-        this.jobExecutor = jobExecutor;
+        this.errorSummaryRepository = errorSummaryRepository;
+        this.errorLogWriter = errorLogWriter;
+        this.pipelineMetrics = pipelineMetrics;
     }
 
+    /**
+     * Queues a job in the MANUAL lane (or BACKFILL, if requested). Answers 202 with the job's
+     * queue position (0 once it started), 409 if the source is already queued or running,
+     * 429 with Retry-After if the lane's queue is full, 503 while the server is shutting down,
+     * and 500 if the job executor refused to start it.
+     */
     @PostMapping("/trigger")
     public ResponseEntity<Map<String, Object>> trigger(@Valid @RequestBody TriggerRequest request) {
-        // Run on the dedicated etl-scheduler thread pool, not ForkJoinPool.commonPool()
-        CompletableFuture.runAsync(
-            () -> orchestrator.runJob(request.sourceConfigId(), TriggerType.MANUAL),
-            jobExecutor
+        var lane = request.lane() != null ? request.lane() : JobLane.MANUAL;
+        if (lane == JobLane.SCHEDULED) {
+            throw new IllegalArgumentException("lane must be MANUAL or BACKFILL");
+        }
+        var admission = jobDispatcher.dispatch(request.sourceConfigId(), lane);
+        return switch (admission.status()) {
+            case STARTED, QUEUED -> ResponseEntity.accepted().body(Map.of(
+                "message", "Job triggered successfully",
+                "sourceConfigId", request.sourceConfigId(),
+                "status", admission.status().name(),
+                "lane", admission.lane().name(),
+                "position", admission.position()
+            ));
+            case ALREADY_QUEUED, ALREADY_RUNNING -> ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of(
+                "error", "A job for this source is already queued or running",
+                "status", admission.status().name(),
+                "lane", admission.lane().name(),
+                "position", admission.position()
+            ));
+            case REJECTED -> rejected(admission);
+        };
+    }
+
+    /** Only a full queue is the caller's to wait out; the other rejections are the server's. */
+    private static ResponseEntity<Map<String, Object>> rejected(JobDispatcher.Admission admission) {
+        return switch (admission.reason()) {
+            case "queue_full" -> ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(RETRY_AFTER_SECONDS))
+                .body(rejection("Job queue is full — try again later", admission));
+            case "shutting_down" -> ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .body(rejection("Server is shutting down — no new jobs are accepted", admission));
+            default -> ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(rejection("Job could not be started", admission));
+        };
+    }
+
+    private static Map<String, Object> rejection(String error, JobDispatcher.Admission admission) {
+        return Map.of(
+            "error", error,
+            "status", admission.status().name(),
+            "lane", admission.lane().name(),
+            "reason", admission.reason()
         );
-        return ResponseEntity.accepted().body(Map.of(
-            "message", "Job triggered successfully",
-            "sourceConfigId", request.sourceConfigId(),
-            "status", "RUNNING"
-        ));
+    }
+
+    /** Jobs running now and jobs waiting in each lane, in the order they will start. Served from memory. */
+    @GetMapping("/queue")
+    public ResponseEntity<JobQueueResponse> getQueue() {
+        return ResponseEntity.ok(jobDispatcher.snapshot());
     }
 
     @GetMapping
@@ -74,7 +134,43 @@ public class JobController {
     public ResponseEntity<JobDetailResponse> getJobDetail(@PathVariable Long id) {
         var job = jobHistoryRepository.findByIdWithSourceConfig(id)
             .orElseThrow(() -> new ResourceNotFoundException("Job not found: " + id));
-        var errors = errorLogRepository.findByJobIdOrderByOccurredAtDesc(id);
+        // One row per error reason — a running job's summary is still in memory
+        var errors = errorLogWriter.running(id)
+            .map(summary -> summary.stream().map(ErrorSummaryResponse::from).toList())
+            .orElseGet(() -> errorSummaryRepository.findByJobIdOrderByErrorCountDesc(id).stream()
+                .map(ErrorSummaryResponse::from)
+                .toList());
         return ResponseEntity.ok(JobDetailResponse.from(job, errors));
     }
+
+    /**
+     * Every error of a job, newest first — recorded only for sources with
+     * "captureAllErrors" set in their authConfig.
+     */
+    @GetMapping("/{id}/errors")
+    @Transactional(readOnly = true)
+    public ResponseEntity<PageResponse<ErrorLogResponse>> getJobErrors(
+            @PathVariable Long id,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+
+        if (!jobHistoryRepository.existsById(id)) {
+            throw new ResourceNotFoundException("Job not found: " + id);
+        }
+        int clampedSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        var pageable = PageRequest.of(page, clampedSize, Sort.by("occurredAt").descending());
+        var errors = errorLogRepository.findByJobId(id, pageable).map(ErrorLogResponse::from);
+        return ResponseEntity.ok(PageResponse.of(errors));
+    }
+
+    /**
+     * Live stage throughput and queue depth for a running job (or one that finished recently).
+     * Served from memory — no transaction needed.
+     */
+    @GetMapping("/{id}/pipeline")
+    public ResponseEntity<PipelineStatsResponse> getPipelineStats(@PathVariable Long id) {
+        var stats = pipelineMetrics.get(id)
+            .orElseThrow(() -> new ResourceNotFoundException("No pipeline statistics for job: " + id));
+        return ResponseEntity.ok(stats.snapshot());
+    }
 }
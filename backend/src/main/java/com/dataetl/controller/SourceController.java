@@ -92,6 +92,13 @@ public class SourceController {
         sc.setAuthConfig(request.authConfig());
         sc.setScheduleCron(request.scheduleCron());
         if (request.isActive() != null) sc.setIsActive(request.isActive());
+        // The next run must not be answered with 304 for data loaded under the old settings
+        sc.setHttpEtag(null);
+        sc.setHttpLastModified(null);
+        // A checkpoint taken under the old settings may point into a different source
+        sc.setCheckpoint(null);
+        sc.setCheckpointJobId(null);
+        sc.setCheckpointAt(null);
 
         var saved = sourceConfigRepository.save(sc);
 
@@ -0,0 +1,29 @@
+package com.dataetl.dto;
+
+import com.dataetl.model.ErrorSummary;
+import com.dataetl.service.ErrorLogWriter;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+public record ErrorSummaryResponse(
+    String errorReason,
+    long count,
+    OffsetDateTime firstOccurredAt,
+    OffsetDateTime lastOccurredAt,
+    List<String> samples
+) {
+    public static ErrorSummaryResponse from(ErrorSummary es) {
+        return new ErrorSummaryResponse(
+            es.getErrorReason(),
+            es.getErrorCount(),
+            es.getFirstAt(),
+            es.getLastAt(),
+            es.getSamples() != null ? es.getSamples() : List.of()
+        );
+    }
+
+    public static ErrorSummaryResponse from(ErrorLogWriter.ReasonSummary rs) {
+        return new ErrorSummaryResponse(rs.reason(), rs.count(), rs.firstAt(), rs.lastAt(), rs.samples());
+    }
+}
@@ -15,6 +15,9 @@ public record JobHistoryResponse(
     JobStatus status,
     int recordsProcessed,
     int errorCount,
+    int recordsInserted,
+    int recordsUpdated,
+    int recordsUnchanged,
     OffsetDateTime startTime,
     OffsetDateTime endTime,
     TriggerType triggeredBy,
@@ -36,6 +39,9 @@ public record JobHistoryResponse(
             jh.getStatus(),
             jh.getRecordsProcessed(),
             jh.getErrorCount(),
+            jh.getRecordsInserted(),
+            jh.getRecordsUpdated(),
+            jh.getRecordsUnchanged(),
             jh.getStartTime(),
             jh.getEndTime(),
             jh.getTriggeredBy(),
@@ -0,0 +1,30 @@
+package com.dataetl.dto;
+
+import com.dataetl.model.enums.JobLane;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+public record JobQueueResponse(
+    int maxConcurrent,
+    // Why queued jobs are not starting although slots are free ("db_pool", "heap"), or null
+    String waitingFor,
+    List<RunningJob> running,
+    List<QueuedJob> queued
+) {
+    public record RunningJob(
+        Long sourceConfigId,
+        String sourceName,
+        JobLane lane,
+        OffsetDateTime startedAt
+    ) {}
+
+    public record QueuedJob(
+        Long sourceConfigId,
+        String sourceName,
+        JobLane lane,
+        // 1-based position within its lane
+        int position,
+        OffsetDateTime queuedAt
+    ) {}
+}
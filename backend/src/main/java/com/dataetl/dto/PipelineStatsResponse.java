@@ -0,0 +1,35 @@
+package com.dataetl.dto;
+
+import java.util.List;
+
+public record PipelineStatsResponse(
+    Long jobId,
+    String mode,
+    boolean running,
+    long elapsedMs,
+    List<StageStats> stages,
+    List<QueueStats> queues,
+    // Stage with the most busy time — the one to optimise first
+    String bottleneck
+) {
+    public record StageStats(
+        String name,
+        long chunks,
+        long recordsIn,
+        long recordsOut,
+        long busyMs,
+        // Waiting for room downstream (backpressure from a slower stage)
+        long blockedMs,
+        // Waiting for input from upstream (this stage is faster than its producer)
+        long starvedMs,
+        double recordsPerSecond,
+        double utilization
+    ) {}
+
+    public record QueueStats(
+        String name,
+        int depth,
+        int maxDepth,
+        int capacity
+    ) {}
+}
@@ -1,8 +1,11 @@
 package com.dataetl.dto;
 
+import com.dataetl.model.enums.JobLane;
 import jakarta.validation.constraints.NotNull;
 
 public record TriggerRequest(
     @NotNull(message = "sourceConfigId is required")
-    Long sourceConfigId
+    Long sourceConfigId,
+    // MANUAL (default) or BACKFILL — the low-priority lane for long catch-up runs
+    JobLane lane
 ) {}
@@ -0,0 +1,59 @@
+package com.dataetl.model;
+
+import io.hypersistence.utils.hibernate.type.json.JsonType;
+import jakarta.persistence.*;
+import org.hibernate.annotations.Type;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+@Entity
+@Table(name = "error_summary")
+public class ErrorSummary {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "job_id", nullable = false)
+    private Long jobId;
+
+    @Column(name = "error_reason", columnDefinition = "TEXT", nullable = false)
+    private String errorReason;
+
+    @Column(name = "error_count", nullable = false)
+    private long errorCount;
+
+    @Column(name = "first_at")
+    private OffsetDateTime firstAt;
+
+    @Column(name = "last_at")
+    private OffsetDateTime lastAt;
+
+    @Type(JsonType.class)
+    @Column(columnDefinition = "jsonb", nullable = false)
+    private List<String> samples;
+
+    // Getters and setters
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public Long getJobId() { return jobId; }
+    public void setJobId(Long jobId) { this.jobId = jobId; }
+
+    public String getErrorReason() { return errorReason; }
+    public void setErrorReason(String errorReason) { this.errorReason = errorReason; }
+
+    public long getErrorCount() { return errorCount; }
+    public void setErrorCount(long errorCount) { this.errorCount = errorCount; }
+
+    public OffsetDateTime getFirstAt() { return firstAt; }
+    public void setFirstAt(OffsetDateTime firstAt) { this.firstAt = firstAt; }
+
+    public OffsetDateTime getLastAt() { return lastAt; }
+    public void setLastAt(OffsetDateTime lastAt) { this.lastAt = lastAt; }
+
+    public List<String> getSamples() { return samples; }
+    public void setSamples(List<String> samples) { this.samples = samples; }
+}
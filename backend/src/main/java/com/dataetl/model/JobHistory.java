@@ -31,6 +31,15 @@ public class JobHistory {
     @Column(name = "error_count")
     private int errorCount = 0;
 
+    @Column(name = "records_inserted")
+    private int recordsInserted = 0;
+
+    @Column(name = "records_updated")
+    private int recordsUpdated = 0;
+
+    @Column(name = "records_unchanged")
+    private int recordsUnchanged = 0;
+
     @Column(name = "start_time")
     private OffsetDateTime startTime = OffsetDateTime.now();
 
@@ -61,6 +70,15 @@ public class JobHistory {
     public int getErrorCount() { return errorCount; }
     public void setErrorCount(int errorCount) { this.errorCount = errorCount; }
 
+    public int getRecordsInserted() { return recordsInserted; }
+    public void setRecordsInserted(int recordsInserted) { this.recordsInserted = recordsInserted; }
+
+    public int getRecordsUpdated() { return recordsUpdated; }
+    public void setRecordsUpdated(int recordsUpdated) { this.recordsUpdated = recordsUpdated; }
+
+    public int getRecordsUnchanged() { return recordsUnchanged; }
+    public void setRecordsUnchanged(int recordsUnchanged) { this.recordsUnchanged = recordsUnchanged; }
+
     public OffsetDateTime getStartTime() { return startTime; }
     public void setStartTime(OffsetDateTime startTime) { this.startTime = startTime; }
 
@@ -36,6 +36,23 @@ public class SourceConfig {
     @Column(name = "last_run_timestamp")
     private OffsetDateTime lastRunTimestamp;
 
+    // Validators of the last loaded API response — see ApiExtractor
+    @Column(name = "http_etag")
+    private String httpEtag;
+
+    @Column(name = "http_last_modified")
+    private String httpLastModified;
+
+    // Where the next run resumes after a failed job — see RecordCursor#checkpoint
+    @Column(name = "checkpoint")
+    private String checkpoint;
+
+    @Column(name = "checkpoint_job_id")
+    private Long checkpointJobId;
+
+    @Column(name = "checkpoint_at")
+    private OffsetDateTime checkpointAt;
+
     @Column(name = "is_active")
     private Boolean isActive = true;
 
@@ -65,6 +82,21 @@ public class SourceConfig {
     public OffsetDateTime getLastRunTimestamp() { return lastRunTimestamp; }
     public void setLastRunTimestamp(OffsetDateTime lastRunTimestamp) { this.lastRunTimestamp = lastRunTimestamp; }
 
+    public String getHttpEtag() { return httpEtag; }
+    public void setHttpEtag(String httpEtag) { this.httpEtag = httpEtag; }
+
+    public String getHttpLastModified() { return httpLastModified; }
+    public void setHttpLastModified(String httpLastModified) { this.httpLastModified = httpLastModified; }
+
+    public String getCheckpoint() { return checkpoint; }
+    public void setCheckpoint(String checkpoint) { this.checkpoint = checkpoint; }
+
+    public Long getCheckpointJobId() { return checkpointJobId; }
+    public void setCheckpointJobId(Long checkpointJobId) { this.checkpointJobId = checkpointJobId; }
+
+    public OffsetDateTime getCheckpointAt() { return checkpointAt; }
+    public void setCheckpointAt(OffsetDateTime checkpointAt) { this.checkpointAt = checkpointAt; }
+
     public Boolean getIsActive() { return isActive; }
     public void setIsActive(Boolean isActive) { this.isActive = isActive; }
 
@@ -0,0 +1,27 @@
+package com.dataetl.model.enums;
+
+/**
+ * Dispatch queue of a job. Lanes share the job slots by weight, so a burst in one lane slows
+ * the others down but never stops them.
+ */
+public enum JobLane {
+    MANUAL(3),
+    SCHEDULED(2),
+    BACKFILL(1);
+
+    private final int weight;
+
+    JobLane(int weight) {
+        this.weight = weight;
+    }
+
+    /** Relative share of job starts while several lanes have jobs waiting. */
+    public int weight() {
+        return weight;
+    }
+
+    /** How the job is recorded in its history — a backfill is started by hand. */
+    public TriggerType triggerType() {
+        return this == SCHEDULED ? TriggerType.SCHEDULER : TriggerType.MANUAL;
+    }
+}
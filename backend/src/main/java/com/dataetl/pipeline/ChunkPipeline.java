@@ -0,0 +1,263 @@
+package com.dataetl.pipeline;
+
+import com.dataetl.pipeline.extract.RecordCursor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Drives records from an open cursor through transform and load, one chunk at a time.
+ *
+ * SEQUENTIAL runs extract → transform → load for each chunk on the job thread.
+ * STAGED runs the three stages concurrently: extract and transform each get their own
+ * thread, load runs on the job thread, and the stages are connected by bounded queues.
+ * When the loader falls behind, the transform → load queue fills, the transform stage
+ * blocks on put, its input queue fills in turn and the extractor stops reading — a slow
+ * sink throttles the source instead of letting chunks pile up on the heap.
+ *
+ * Each chunk travels with the cursor's checkpoint taken right after it was read, so the
+ * loader learns where a later run could resume once the chunk is committed. A chunk whose
+ * records were all invalid still reaches the loader when it carries a checkpoint.
+ */
+@Component
+public class ChunkPipeline {
+
+    private static final Logger log = LoggerFactory.getLogger(ChunkPipeline.class);
+
+    // How long to wait for stage threads to exit after a failure before giving up on them
+    private static final long STAGE_SHUTDOWN_SECONDS = 30;
+
+    // Poll interval while a finished stage waits for room to enqueue its end marker
+    private static final long END_OFFER_POLL_MILLIS = 100;
+
+    /** Records of one chunk and the cursor's checkpoint after them (null if it has none). */
+    private record Chunk(List<Row> rows, String checkpoint) {
+    }
+
+    // End-of-stream marker — compared by identity, never by equals()
+    private static final Chunk END_OF_STREAM = new Chunk(new ArrayList<>(0), null);
+
+    public enum Mode { SEQUENTIAL, STAGED }
+
+    @FunctionalInterface
+    public interface ChunkTransform {
+        /** Transforms a raw chunk and returns only the valid records. */
+        List<Row> apply(List<Row> rawChunk) throws Exception;
+    }
+
+    @FunctionalInterface
+    public interface ChunkLoader {
+        /**
+         * Loads the valid records of a chunk (possibly none).
+         *
+         * @param checkpoint where a later run resumes once these records are committed, or null
+         */
+        void load(List<Row> validChunk, String checkpoint) throws Exception;
+    }
+
+    private final AsyncTaskExecutor stageExecutor;
+    private final Mode mode;
+    private final int chunkSize;
+    private final int queueCapacity;
+
+    public ChunkPipeline(@Qualifier("pipelineStageExecutor") AsyncTaskExecutor stageExecutor,
+                         @Value("${app.etl.pipeline.mode:STAGED}") Mode mode,
+                         @Value("${app.etl.chunk-size:1000}") int chunkSize,
+                         @Value("${app.etl.pipeline.queue-capacity:4}") int queueCapacity) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("app.etl.chunk-size must be positive, got " + chunkSize);
+        }
+        if (queueCapacity <= 0) {
+            throw new IllegalArgumentException("app.etl.pipeline.queue-capacity must be positive, got " + queueCapacity);
+        }
+        this.stageExecutor = stageExecutor;
+        this.mode = mode;
+        this.chunkSize = chunkSize;
+        this.queueCapacity = queueCapacity;
+    }
+
+    public Mode mode() {
+        return mode;
+    }
+
+    public void run(RecordCursor cursor, ChunkTransform transform, ChunkLoader loader, PipelineStats stats)
+            throws Exception {
+        if (mode == Mode.STAGED) {
+            runStaged(cursor, transform, loader, stats);
+        } else {
+            runSequential(cursor, transform, loader, stats);
+        }
+    }
+
+    private void runSequential(RecordCursor cursor, ChunkTransform transform, ChunkLoader loader,
+                               PipelineStats stats) throws Exception {
+        while (true) {
+            var raw = extractChunk(cursor, stats);
+            if (raw.rows().isEmpty()) {
+                return;
+            }
+            loadChunk(transformChunk(raw, transform, stats), loader, stats);
+        }
+    }
+
+    private void runStaged(RecordCursor cursor, ChunkTransform transform, ChunkLoader loader,
+                           PipelineStats stats) throws Exception {
+        var extracted = new ArrayBlockingQueue<Chunk>(queueCapacity);
+        var transformed = new ArrayBlockingQueue<Chunk>(queueCapacity);
+        var extractedQueue = stats.queue("extract->transform", extracted, queueCapacity);
+        var transformedQueue = stats.queue("transform->load", transformed, queueCapacity);
+
+        var aborted = new AtomicBoolean(false);
+        var extractDone = new CountDownLatch(1);
+        var transformDone = new CountDownLatch(1);
+
+        Future<?> extractTask = stageExecutor.submit(() -> {
+            try {
+                while (true) {
+                    var raw = extractChunk(cursor, stats);
+                    if (raw.rows().isEmpty()) {
+                        break;
+                    }
+                    put(extracted, raw, extractedQueue, stats.stage(PipelineStats.EXTRACT));
+                }
+                return null;
+            } finally {
+                // Always signal downstream, even on failure, so the transform stage can exit
+                offerEnd(extracted, aborted);
+                extractDone.countDown();
+            }
+        });
+
+        Future<?> transformTask = stageExecutor.submit(() -> {
+            try {
+                while (true) {
+                    var raw = take(extracted, stats.stage(PipelineStats.TRANSFORM));
+                    if (raw == END_OF_STREAM) {
+                        break;
+                    }
+                    var valid = transformChunk(raw, transform, stats);
+                    if (!valid.rows().isEmpty() || valid.checkpoint() != null) {
+                        put(transformed, valid, transformedQueue, stats.stage(PipelineStats.TRANSFORM));
+                    }
+                }
+                return null;
+            } finally {
+                offerEnd(transformed, aborted);
+                transformDone.countDown();
+            }
+        });
+
+        try {
+            // Load stage runs on the job thread — it owns the transactional writer calls
+            while (true) {
+                var valid = take(transformed, stats.stage(PipelineStats.LOAD));
+                if (valid == END_OF_STREAM) {
+                    break;
+                }
+                loadChunk(valid, loader, stats);
+            }
+            // Transform first: if it failed, the extractor may be blocked on a full queue
+            // and will only exit once cancelled in the catch block below
+            awaitStage(transformTask);
+            awaitStage(extractTask);
+        } catch (Exception e) {
+            aborted.set(true);
+            extractTask.cancel(true);
+            transformTask.cancel(true);
+            // The cursor is closed by the caller — make sure no stage thread is still reading it
+            if (!extractDone.await(STAGE_SHUTDOWN_SECONDS, TimeUnit.SECONDS)
+                    || !transformDone.await(STAGE_SHUTDOWN_SECONDS, TimeUnit.SECONDS)) {
+                log.warn("{\"event\":\"pipeline_stage_stuck\",\"jobId\":{}}", stats.getJobId());
+            }
+            throw e;
+        }
+    }
+
+    private Chunk extractChunk(RecordCursor cursor, PipelineStats stats) throws Exception {
+        long start = System.nanoTime();
+        var raw = cursor.nextChunk(chunkSize);
+        var checkpoint = raw.isEmpty() ? null : cursor.checkpoint();
+        stats.stage(PipelineStats.EXTRACT).recordWork(raw.size(), raw.size(), System.nanoTime() - start);
+        return new Chunk(raw, checkpoint);
+    }
+
+    private Chunk transformChunk(Chunk raw, ChunkTransform transform,
+                                 PipelineStats stats) throws Exception {
+        long start = System.nanoTime();
+        var valid = transform.apply(raw.rows());
+        stats.stage(PipelineStats.TRANSFORM).recordWork(raw.rows().size(), valid.size(), System.nanoTime() - start);
+        return new Chunk(valid, raw.checkpoint());
+    }
+
+    private void loadChunk(Chunk valid, ChunkLoader loader, PipelineStats stats)
+            throws Exception {
+        if (valid.rows().isEmpty()) {
+            // Nothing to write, but the loader still has to commit the checkpoint in turn
+            if (valid.checkpoint() != null) {
+                loader.load(valid.rows(), valid.checkpoint());
+            }
+            return;
+        }
+        long start = System.nanoTime();
+        loader.load(valid.rows(), valid.checkpoint());
+        stats.stage(PipelineStats.LOAD).recordWork(valid.rows().size(), valid.rows().size(), System.nanoTime() - start);
+    }
+
+    private static void put(BlockingQueue<Chunk> queue, Chunk chunk,
+                            PipelineStats.Queue queueStats, PipelineStats.Stage producer)
+            throws InterruptedException {
+        long start = System.nanoTime();
+        queue.put(chunk);
+        producer.recordBlocked(System.nanoTime() - start);
+        queueStats.sampleDepth();
+    }
+
+    private static Chunk take(BlockingQueue<Chunk> queue,
+                              PipelineStats.Stage consumer) throws InterruptedException {
+        long start = System.nanoTime();
+        var chunk = queue.take();
+        consumer.recordStarved(System.nanoTime() - start);
+        return chunk;
+    }
+
+    /**
+     * Enqueues the end marker. Blocks while the consumer is still draining a full queue,
+     * but gives up once the pipeline has been aborted — a dead consumer never frees space.
+     */
+    private static void offerEnd(BlockingQueue<Chunk> queue, AtomicBoolean aborted) {
+        while (!aborted.get()) {
+            try {
+                if (queue.offer(END_OF_STREAM, END_OFFER_POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                    return;
+                }
+            } catch (InterruptedException e) {
+                // Interrupted by cancellation — loop re-checks the abort flag
+                Thread.interrupted();
+            }
+        }
+    }
+
+    private static void awaitStage(Future<?> task) throws Exception {
+        try {
+            task.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
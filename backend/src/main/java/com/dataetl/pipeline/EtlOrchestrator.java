@@ -2,6 +2,7 @@ package com.dataetl.pipeline;
 
 import com.dataetl.exception.ResourceNotFoundException;
 import com.dataetl.model.JobHistory;
+import com.dataetl.model.SourceConfig;
 import com.dataetl.model.enums.JobStatus;
 import com.dataetl.model.enums.SourceType;
 import com.dataetl.model.enums.TriggerType;
@@ -9,30 +10,56 @@ import com.dataetl.pipeline.extract.ApiExtractor;
 import com.dataetl.pipeline.extract.CsvExtractor;
 import com.dataetl.pipeline.extract.DbExtractor;
 import com.dataetl.pipeline.extract.Extractor;
+import com.dataetl.pipeline.extract.RecordCursor;
+import com.dataetl.pipeline.load.LoadCounts;
 import com.dataetl.pipeline.load.UpsertWriter;
+import com.dataetl.pipeline.transform.TransformContext;
 import com.dataetl.pipeline.transform.TransformPipeline;
 import com.dataetl.repository.JobHistoryRepository;
 import com.dataetl.repository.SourceConfigRepository;
+import com.dataetl.service.ErrorLogWriter;
 import com.dataetl.service.JobHistoryService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
 import org.springframework.stereotype.Service;
 
-import java.util.ArrayList;
+import java.time.Duration;
 import java.util.EnumMap;
+import java.util.List;
 import java.util.Map;
 
+/**
+ * Runs one job: extract → transform → load through {@link ChunkPipeline}, with its history.
+ *
+ * Jobs are resumable. Every committed chunk moves the source's checkpoint (saved at most
+ * every app.etl.checkpoint.interval, and always when the job fails); the next run of a source
+ * whose last job failed opens its extractor at that checkpoint, and a completed job clears it.
+ * On shutdown, running jobs stop after their current chunk and fail with their checkpoint
+ * saved; jobs a crashed process left RUNNING are marked FAILED at startup.
+ */
 @Service
 public class EtlOrchestrator {
 
     private static final Logger log = LoggerFactory.getLogger(EtlOrchestrator.class);
 
     private final Map<SourceType, Extractor> extractors;
+    private final ApiExtractor apiExtractor;
     private final TransformPipeline transformer;
     private final UpsertWriter writer;
     private final JobHistoryService jobHistoryService;
+    private final ErrorLogWriter errorLogWriter;
     private final JobHistoryRepository jobHistoryRepository;
     private final SourceConfigRepository sourceConfigRepository;
+    private final ChunkPipeline chunkPipeline;
+    private final PipelineMetricsRegistry pipelineMetrics;
+    private final long checkpointIntervalNanos;
+    // Set once the application starts shutting down — running jobs stop at their next chunk
+    private volatile boolean stopping = false;
 
     public EtlOrchestrator(ApiExtractor apiExtractor,
                            CsvExtractor csvExtractor,
@@ -40,20 +67,53 @@ public class EtlOrchestrator {
                            TransformPipeline transformer,
                            UpsertWriter writer,
                            JobHistoryService jobHistoryService,
+                           ErrorLogWriter errorLogWriter,
                            JobHistoryRepository jobHistoryRepository,
-                           SourceConfigRepository sourceConfigRepository) {
+                           SourceConfigRepository sourceConfigRepository,
+                           ChunkPipeline chunkPipeline,
+                           PipelineMetricsRegistry pipelineMetrics,
+                           @Value("${app.etl.checkpoint.interval:10s}") Duration checkpointInterval) {
+        if (checkpointInterval.isNegative()) {
+            throw new IllegalArgumentException("app.etl.checkpoint.interval must not be negative");
+        }
         this.transformer = transformer;
         this.writer = writer;
         this.jobHistoryService = jobHistoryService;
+        this.errorLogWriter = errorLogWriter;
         this.jobHistoryRepository = jobHistoryRepository;
         this.sourceConfigRepository = sourceConfigRepository;
+        this.chunkPipeline = chunkPipeline;
+        this.pipelineMetrics = pipelineMetrics;
+        this.checkpointIntervalNanos = checkpointInterval.toNanos();
 
+        this.apiExtractor = apiExtractor;
         this.extractors = new EnumMap<>(SourceType.class);
         this.extractors.put(SourceType.API, apiExtractor);
         this.extractors.put(SourceType.CSV, csvExtractor);
         this.extractors.put(SourceType.DB, dbExtractor);
     }
 
+    /**
+     * A process that stopped without finishing its jobs left them RUNNING, which would block
+     * their sources forever (see the guard in runJob). Assumes one instance per database.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void failInterruptedJobs() {
+        try {
+            int interrupted = jobHistoryService.failInterruptedJobs();
+            if (interrupted > 0) {
+                log.warn("{\"event\":\"jobs_interrupted\",\"count\":{}}", interrupted);
+            }
+        } catch (DataAccessException e) {
+            log.warn("{\"event\":\"jobs_interrupted_check_failed\",\"error\":\"{}\"}", e.getMessage());
+        }
+    }
+
+    @EventListener(ContextClosedEvent.class)
+    public void stopJobs() {
+        stopping = true;
+    }
+
     public void runJob(Long sourceConfigId, TriggerType triggeredBy) {
         var config = sourceConfigRepository.findById(sourceConfigId)
             .orElseThrow(() -> new ResourceNotFoundException("SourceConfig not found: " + sourceConfigId));
@@ -67,6 +127,14 @@ public class EtlOrchestrator {
             return;
         }
 
+        // Guard: scheduled runs of an API source whose host is failing would only wait out retries
+        // holding the host's job permits — skip them until the host's circuit breaker lets a probe through
+        if (triggeredBy == TriggerType.SCHEDULER && config.getType() == SourceType.API
+                && apiExtractor.isSuspended(config)) {
+            log.warn("{\"event\":\"job_skipped\",\"sourceConfigId\":{},\"reason\":\"circuit_open\"}", sourceConfigId);
+            return;
+        }
+
         JobHistory job = jobHistoryService.startJob(config, triggeredBy);
 
         log.info("{\"event\":\"job_start\",\"jobId\":{},\"source\":\"{}\",\"trigger\":\"{}\"}",
@@ -74,7 +142,11 @@ public class EtlOrchestrator {
 
         int processed = 0;
         int errors = 0;
+        var loaded = LoadCounts.NONE;
         var jobStatus = JobStatus.SUCCESS;
+        var stats = pipelineMetrics.start(job.getId(), chunkPipeline.mode());
+        var checkpointer = new Checkpointer(config.getId(), job.getId(), config.getCheckpoint());
+        var errorLog = errorLogWriter.open(config, job.getId());
 
         try {
             var extractor = extractors.get(config.getType());
@@ -82,30 +154,47 @@ public class EtlOrchestrator {
                 throw new IllegalArgumentException("No extractor available for type: " + config.getType());
             }
 
-            var rawRecords = extractor.extract(config);
-            log.info("{\"event\":\"extract_done\",\"jobId\":{},\"rawCount\":{}}", job.getId(), rawRecords.size());
-
-            var validRecords = new ArrayList<Map<String, Object>>();
-
-            // Transform each record individually — bad rows are isolated, not thrown
-            for (var raw : rawRecords) {
-                var result = transformer.transform(raw, config);
-                if (result.isValid()) {
-                    validRecords.add(result.record());
-                    processed++;
+            // Stream the source chunk by chunk — only a bounded number of raw and transformed
+            // chunks is ever on the heap, regardless of how large the source is
+            try (var cursor = open(extractor, config, job)) {
+                if (cursor.unchanged() && triggeredBy == TriggerType.SCHEDULER) {
+                    // The source answered "not modified" — everything it holds is already loaded
+                    log.info("{\"event\":\"job_unchanged\",\"jobId\":{},\"source\":\"{}\"}",
+                        job.getId(), config.getName());
                 } else {
-                    jobHistoryService.logError(job, raw.toString(), result.errorReason());
-                    errors++;
+                    var transformContext = transformer.newContext(config, cursor.schema());
+                    // Opening the load reads the source's stored payload hashes — not needed above
+                    try (var load = writer.open(config, transformContext.recordKey(), checkpointer::committed,
+                            errorLog::add)) {
+                        chunkPipeline.run(
+                            cursor,
+                            rawChunk -> transformChunk(errorLog, transformContext, rawChunk),
+                            (validChunk, checkpoint) -> {
+                                if (stopping) {
+                                    throw new IllegalStateException("Job stopped: the application is shutting down");
+                                }
+                                load.write(validChunk, checkpoint);
+                                checkpointer.saveIfDue();
+                            },
+                            stats
+                        );
+                        load.finish();
+                        loaded = load.counts();
+                    }
+                    cursor.commit();
                 }
             }
+            // Everything is loaded — the next run starts from the beginning
+            checkpointer.clear();
 
-            log.info("{\"event\":\"transform_done\",\"jobId\":{},\"valid\":{},\"invalid\":{}}",
-                job.getId(), processed, errors);
+            // Records the database refused were valid to the transform, but are not loaded
+            processed = (int) (stats.validRecords() - loaded.rejected());
+            errors = (int) (stats.rejectedRecords() + loaded.rejected());
 
-            // Batch upsert all valid records
-            if (!validRecords.isEmpty()) {
-                writer.upsertBatch(validRecords, config);
-            }
+            var stages = stats.snapshot();
+            log.info("{\"event\":\"pipeline_done\",\"jobId\":{},\"mode\":\"{}\",\"valid\":{},\"invalid\":{},\"inserted\":{},\"updated\":{},\"unchanged\":{},\"rejectedOnLoad\":{},\"bottleneck\":\"{}\"}",
+                job.getId(), stages.mode(), processed, errors,
+                loaded.inserted(), loaded.updated(), loaded.unchanged(), loaded.rejected(), stages.bottleneck());
 
             // Determine final job status
             if (errors > 0 && processed > 0) {
@@ -121,13 +210,103 @@ public class EtlOrchestrator {
 
         } catch (Exception ex) {
             jobStatus = JobStatus.FAILED;
-            jobHistoryService.logError(job, null, ex.getMessage());
+            processed = (int) stats.validRecords();
+            errors = (int) stats.rejectedRecords();
+            // The next run resumes after the last chunk this job committed
+            checkpointer.save();
+            errorLog.add(null, ex.getMessage());
             log.error("{\"event\":\"job_failed\",\"jobId\":{},\"source\":\"{}\",\"error\":\"{}\"}",
                 job.getId(), config.getName(), ex.getMessage());
         } finally {
-            jobHistoryService.completeJob(job, jobStatus, processed, errors);
-            log.info("{\"event\":\"job_complete\",\"jobId\":{},\"status\":\"{}\",\"processed\":{},\"errors\":{}}",
-                job.getId(), jobStatus, processed, errors);
+            stats.finish();
+            // The error summary (and every captured error_log entry) is written before the job shows as complete
+            errorLog.close();
+            jobHistoryService.completeJob(job, jobStatus, processed, errors, loaded);
+            log.info("{\"event\":\"job_complete\",\"jobId\":{},\"status\":\"{}\",\"processed\":{},\"errors\":{},\"inserted\":{},\"updated\":{},\"unchanged\":{}}",
+                job.getId(), jobStatus, processed, errors, loaded.inserted(), loaded.updated(), loaded.unchanged());
+        }
+    }
+
+    /** Opens the source at its checkpoint, if its last job left one. */
+    private RecordCursor open(Extractor extractor, SourceConfig config, JobHistory job) throws Exception {
+        var checkpoint = config.getCheckpoint();
+        if (checkpoint == null) {
+            return extractor.open(config);
+        }
+        log.info("{\"event\":\"job_resume\",\"jobId\":{},\"source\":\"{}\",\"fromJobId\":{},\"checkpointAt\":\"{}\"}",
+            job.getId(), config.getName(), config.getCheckpointJobId(), config.getCheckpointAt());
+        try {
+            return extractor.open(config, checkpoint);
+        } catch (Exception e) {
+            // A checkpoint the source cannot be opened at must not fail every later run too
+            jobHistoryService.clearCheckpoint(config.getId());
+            throw e;
+        }
+    }
+
+    /**
+     * Keeps the checkpoint of the latest committed chunk and stores it on the source — at most
+     * once per checkpoint interval while the job runs, and when it fails.
+     */
+    private final class Checkpointer {
+
+        private final Long sourceId;
+        private final Long jobId;
+        // Set by whichever writer thread committed the chunk
+        private volatile String committed;
+        private String saved;
+        private long savedAt = System.nanoTime();
+
+        Checkpointer(Long sourceId, Long jobId, String stored) {
+            this.sourceId = sourceId;
+            this.jobId = jobId;
+            this.saved = stored;
+        }
+
+        void committed(String checkpoint) {
+            committed = checkpoint;
+        }
+
+        /** Stores the latest checkpoint if the interval has passed; called on the load thread. */
+        void saveIfDue() {
+            if (System.nanoTime() - savedAt >= checkpointIntervalNanos) {
+                save();
+            }
+        }
+
+        void save() {
+            var checkpoint = committed;
+            if (checkpoint == null || checkpoint.equals(saved)) {
+                return;
+            }
+            try {
+                jobHistoryService.saveCheckpoint(sourceId, jobId, checkpoint);
+                saved = checkpoint;
+                savedAt = System.nanoTime();
+            } catch (DataAccessException e) {
+                // Only costs reloading some records on the next run — never fail the job for it
+                log.warn("{\"event\":\"checkpoint_save_failed\",\"jobId\":{},\"error\":\"{}\"}", jobId, e.getMessage());
+            }
+        }
+
+        void clear() {
+            if (saved != null) {
+                jobHistoryService.clearCheckpoint(sourceId);
+                saved = null;
+            }
+        }
+    }
+
+    /**
+     * Transforms one raw chunk (fanned across cores by TransformPipeline) and logs each
+     * rejected record. Bad rows are dropped, never thrown. Runs on the transform stage
+     * thread in STAGED mode.
+     */
+    private List<Row> transformChunk(ErrorLogWriter.JobErrors errorLog, TransformContext context, List<Row> rawChunk) {
+        var result = transformer.transformChunk(rawChunk, context);
+        for (var rejected : result.rejected()) {
+            errorLog.add(rejected.raw().toString(), rejected.errorReason());
         }
+        return result.valid();
     }
 }
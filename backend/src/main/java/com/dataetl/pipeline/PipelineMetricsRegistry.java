@@ -0,0 +1,42 @@
+package com.dataetl.pipeline;
+
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * In-memory registry of per-job pipeline statistics.
+ *
+ * Running jobs are always present; statistics of finished jobs are retained for the
+ * most recent {@value #RETAINED_JOBS} jobs so a just-completed run can still be inspected.
+ * Nothing here is persisted — the data is diagnostic and is lost on restart.
+ */
+@Component
+public class PipelineMetricsRegistry {
+
+    private static final int RETAINED_JOBS = 200;
+
+    // Insertion-ordered: the eldest entry is the oldest job. All access is synchronised on the map itself
+    private final Map<Long, PipelineStats> statsByJob = new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, PipelineStats> eldest) {
+            return size() > RETAINED_JOBS && !eldest.getValue().isRunning();
+        }
+    };
+
+    public PipelineStats start(Long jobId, ChunkPipeline.Mode mode) {
+        var stats = new PipelineStats(jobId, mode);
+        synchronized (statsByJob) {
+            statsByJob.put(jobId, stats);
+        }
+        return stats;
+    }
+
+    public Optional<PipelineStats> get(Long jobId) {
+        synchronized (statsByJob) {
+            return Optional.ofNullable(statsByJob.get(jobId));
+        }
+    }
+}
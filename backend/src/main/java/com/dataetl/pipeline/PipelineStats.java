@@ -0,0 +1,167 @@
+package com.dataetl.pipeline;
+
+import com.dataetl.dto.PipelineStatsResponse;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Live, thread-safe counters for one job's pipeline.
+ *
+ * Every stage records how long it spent working (busy), waiting for input from the
+ * stage before it (starved) and waiting for room in the queue after it (blocked).
+ * A stage that is busy most of the time while its neighbours are starved or blocked
+ * is the bottleneck — that is what {@link #snapshot()} reports.
+ */
+public class PipelineStats {
+
+    public static final String EXTRACT = "extract";
+    public static final String TRANSFORM = "transform";
+    public static final String LOAD = "load";
+
+    private final Long jobId;
+    private final ChunkPipeline.Mode mode;
+    private final long startNanos = System.nanoTime();
+    private volatile long endNanos = 0;
+
+    // Insertion-ordered so snapshots always list stages in pipeline order
+    private final Map<String, Stage> stages = new LinkedHashMap<>();
+    private final Map<String, Queue> queues = new LinkedHashMap<>();
+
+    public PipelineStats(Long jobId, ChunkPipeline.Mode mode) {
+        this.jobId = jobId;
+        this.mode = mode;
+        stages.put(EXTRACT, new Stage(EXTRACT));
+        stages.put(TRANSFORM, new Stage(TRANSFORM));
+        stages.put(LOAD, new Stage(LOAD));
+    }
+
+    public Long getJobId() { return jobId; }
+
+    public Stage stage(String name) {
+        return stages.get(name);
+    }
+
+    /**
+     * Registers a bounded queue so its depth shows up in snapshots.
+     * Called before any stage thread starts, so no further synchronisation is needed.
+     */
+    public Queue queue(String name, Collection<?> queue, int capacity) {
+        var q = new Queue(name, queue, capacity);
+        queues.put(name, q);
+        return q;
+    }
+
+    public void finish() {
+        endNanos = System.nanoTime();
+    }
+
+    public boolean isRunning() {
+        return endNanos == 0;
+    }
+
+    /** Records that passed transformation and were handed to the loader. */
+    public long validRecords() {
+        return stages.get(TRANSFORM).recordsOut.get();
+    }
+
+    /** Records rejected by transformation (recordsIn - recordsOut of the transform stage). */
+    public long rejectedRecords() {
+        var transform = stages.get(TRANSFORM);
+        return transform.recordsIn.get() - transform.recordsOut.get();
+    }
+
+    public PipelineStatsResponse snapshot() {
+        long end = isRunning() ? System.nanoTime() : endNanos;
+        long elapsedNanos = Math.max(1, end - startNanos);
+
+        var stageResponses = new ArrayList<PipelineStatsResponse.StageStats>(stages.size());
+        String bottleneck = null;
+        long maxBusy = -1;
+        for (var stage : stages.values()) {
+            long busy = stage.busyNanos.get();
+            if (busy > maxBusy) {
+                maxBusy = busy;
+                bottleneck = stage.name;
+            }
+            double busySeconds = busy / 1e9;
+            stageResponses.add(new PipelineStatsResponse.StageStats(
+                stage.name,
+                stage.chunks.get(),
+                stage.recordsIn.get(),
+                stage.recordsOut.get(),
+                busy / 1_000_000,
+                stage.blockedNanos.get() / 1_000_000,
+                stage.starvedNanos.get() / 1_000_000,
+                busySeconds > 0 ? stage.recordsOut.get() / busySeconds : 0.0,
+                (double) busy / elapsedNanos
+            ));
+        }
+
+        var queueResponses = new ArrayList<PipelineStatsResponse.QueueStats>(queues.size());
+        for (var queue : queues.values()) {
+            queueResponses.add(new PipelineStatsResponse.QueueStats(
+                queue.name, queue.queue.size(), queue.maxDepth.get(), queue.capacity));
+        }
+
+        return new PipelineStatsResponse(
+            jobId,
+            mode.name(),
+            isRunning(),
+            elapsedNanos / 1_000_000,
+            stageResponses,
+            queueResponses,
+            bottleneck
+        );
+    }
+
+    public static final class Stage {
+        private final String name;
+        private final AtomicLong chunks = new AtomicLong();
+        private final AtomicLong recordsIn = new AtomicLong();
+        private final AtomicLong recordsOut = new AtomicLong();
+        private final AtomicLong busyNanos = new AtomicLong();
+        private final AtomicLong blockedNanos = new AtomicLong();
+        private final AtomicLong starvedNanos = new AtomicLong();
+
+        private Stage(String name) {
+            this.name = name;
+        }
+
+        public void recordWork(int in, int out, long nanos) {
+            chunks.incrementAndGet();
+            recordsIn.addAndGet(in);
+            recordsOut.addAndGet(out);
+            busyNanos.addAndGet(nanos);
+        }
+
+        public void recordBlocked(long nanos) {
+            blockedNanos.addAndGet(nanos);
+        }
+
+        public void recordStarved(long nanos) {
+            starvedNanos.addAndGet(nanos);
+        }
+    }
+
+    public static final class Queue {
+        private final String name;
+        private final Collection<?> queue;
+        private final int capacity;
+        private final AtomicInteger maxDepth = new AtomicInteger();
+
+        private Queue(String name, Collection<?> queue, int capacity) {
+            this.name = name;
+            this.queue = queue;
+            this.capacity = capacity;
+        }
+
+        public void sampleDepth() {
+            maxDepth.accumulateAndGet(queue.size(), Math::max);
+        }
+    }
+}
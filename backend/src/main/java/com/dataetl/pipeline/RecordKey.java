@@ -0,0 +1,132 @@
+package com.dataetl.pipeline;
+
+import com.dataetl.model.SourceConfig;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * How one job finds the external ID of a record — resolved once per job from the source's
+ * authConfig "keyColumns", instead of probing a list of candidate names on every record.
+ *
+ * "keyColumns" is a column name, a comma-separated list, or a JSON array; several columns form
+ * a composite key whose values are joined with '|' ('|' and '\' escaped). Each configured
+ * column must be non-blank in every record. Without "keyColumns" the first non-blank of the
+ * conventional ID fields is the key, and a record with none of them has no key: UpsertWriter
+ * derives its ID from its content hash, so reruns of an ID-less source update the same rows.
+ *
+ * Column indexes are looked up once and again only after the schema has grown (API sources
+ * add fields as they meet them). Thread-safe.
+ */
+public final class RecordKey {
+
+    // Conventional ID fields, in priority order
+    static final List<String> DEFAULT_COLUMNS = List.of("id", "_id", "uuid", "record_id", "userId", "key");
+
+    /** Column indexes resolved against the schema at a given width. */
+    private record Resolved(int schemaSize, int[] indexes) {
+    }
+
+    private final RecordSchema schema;
+    private final List<String> columns;
+    private final boolean configured;
+    private volatile Resolved resolved = new Resolved(-1, new int[0]);
+
+    private RecordKey(RecordSchema schema, List<String> columns, boolean configured) {
+        this.schema = schema;
+        this.columns = columns;
+        this.configured = configured;
+    }
+
+    /**
+     * Builds the key of one job.
+     *
+     * @throws IllegalArgumentException if "keyColumns" is set but names no column
+     */
+    public static RecordKey forSource(SourceConfig config, RecordSchema schema) {
+        var options = config.getAuthConfig();
+        var setting = options != null ? options.get("keyColumns") : null;
+        if (setting == null) {
+            return new RecordKey(schema, DEFAULT_COLUMNS, false);
+        }
+        var columns = new ArrayList<String>();
+        if (setting instanceof Collection<?> list) {
+            list.forEach(column -> columns.add(String.valueOf(column).trim()));
+        } else {
+            for (var column : String.valueOf(setting).split(",")) {
+                columns.add(column.trim());
+            }
+        }
+        columns.removeIf(String::isEmpty);
+        if (columns.isEmpty()) {
+            throw new IllegalArgumentException("authConfig keyColumns must name at least one column");
+        }
+        return new RecordKey(schema, List.copyOf(columns), true);
+    }
+
+    /** True when the source configured its key columns — records lacking them are invalid. */
+    public boolean configured() {
+        return configured;
+    }
+
+    public List<String> columns() {
+        return columns;
+    }
+
+    /** The record's key, or null when it has none (a key column missing or blank). */
+    public String extract(Row row) {
+        var indexes = indexes();
+        if (!configured) {
+            for (int index : indexes) {
+                var value = row.get(index);
+                if (value != null) {
+                    var text = String.valueOf(value);
+                    if (!text.isBlank()) {
+                        return text;
+                    }
+                }
+            }
+            return null;
+        }
+        if (indexes.length == 1) {
+            var value = row.get(indexes[0]);
+            var text = value != null ? String.valueOf(value) : null;
+            return text != null && !text.isBlank() ? text : null;
+        }
+        var key = new StringBuilder();
+        for (int i = 0; i < indexes.length; i++) {
+            var value = row.get(indexes[i]);
+            var text = value != null ? String.valueOf(value) : null;
+            if (text == null || text.isBlank()) {
+                return null;
+            }
+            if (i > 0) {
+                key.append('|');
+            }
+            for (int c = 0; c < text.length(); c++) {
+                char ch = text.charAt(c);
+                if (ch == '|' || ch == '\\') {
+                    key.append('\\');
+                }
+                key.append(ch);
+            }
+        }
+        return key.toString();
+    }
+
+    private int[] indexes() {
+        var current = resolved;
+        int size = schema.size();
+        if (current.schemaSize() == size) {
+            return current.indexes();
+        }
+        // Columns the schema does not have yet resolve to -1, which reads as absent
+        var indexes = new int[columns.size()];
+        for (int i = 0; i < indexes.length; i++) {
+            indexes[i] = schema.indexOf(columns.get(i));
+        }
+        resolved = new Resolved(size, indexes);
+        return indexes;
+    }
+}
@@ -0,0 +1,76 @@
+package com.dataetl.pipeline;
+
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
+/**
+ * Field name → column index mapping shared by every {@link Row} of one job.
+ *
+ * Field names are stored once per job instead of once per row. The schema is append-only:
+ * CSV and DB sources fix it up front from the header / result set metadata, while API
+ * sources (heterogeneous JSON objects) and the enrichment step add fields as they meet
+ * them. Indexes never change once assigned, so rows created before a field was added
+ * simply read it as absent.
+ *
+ * Thread-safe: the extract and transform stages add fields concurrently.
+ */
+public final class RecordSchema {
+
+    private final Map<String, Integer> indexByName = new ConcurrentHashMap<>();
+    private volatile String[] names = new String[0];
+    private volatile int[] nameOrder = new int[0];
+
+    /** Returns the index of name, or -1 if the schema has no such field. */
+    public int indexOf(String name) {
+        var index = indexByName.get(name);
+        return index != null ? index : -1;
+    }
+
+    /** Returns the index of name, adding it as a new field if it is not present yet. */
+    public int add(String name) {
+        var index = indexByName.get(name);
+        if (index != null) {
+            return index;
+        }
+        synchronized (this) {
+            index = indexByName.get(name);
+            if (index != null) {
+                return index;
+            }
+            var current = names;
+            var grown = new String[current.length + 1];
+            System.arraycopy(current, 0, grown, 0, current.length);
+            grown[current.length] = name;
+            // Publish the name before the index so any reader that finds the index can resolve it
+            names = grown;
+            indexByName.put(name, current.length);
+            return current.length;
+        }
+    }
+
+    public String name(int index) {
+        return names[index];
+    }
+
+    public int size() {
+        return names.length;
+    }
+
+    /** Field indexes sorted by field name — recomputed only after the schema has grown. */
+    public int[] nameOrder() {
+        var order = nameOrder;
+        var current = names;
+        if (order.length == current.length) {
+            return order;
+        }
+        order = IntStream.range(0, current.length).boxed()
+            .sorted(Comparator.comparing(index -> current[index]))
+            .mapToInt(Integer::intValue)
+            .toArray();
+        // A racing add() may leave this stale again; the next call sees the length differ
+        nameOrder = order;
+        return order;
+    }
+}
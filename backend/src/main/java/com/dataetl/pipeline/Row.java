@@ -0,0 +1,139 @@
+package com.dataetl.pipeline;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * One record as a flat value array addressed through the job's {@link RecordSchema}.
+ *
+ * Replaces the HashMap-per-row representation: a row costs one Object[] instead of a
+ * map with an entry object per field, and field names are not repeated per row. Rows flow
+ * from the extractors through TransformPipeline to UpsertWriter and are only turned into a
+ * map or string at the edges (JSON payload, error log).
+ *
+ * A field can be absent (never set — e.g. a key missing from one JSON object) or present
+ * with a null value (SQL NULL, JSON null); both read as null, but only present fields are
+ * serialized. Not thread-safe: a row is owned by one stage at a time.
+ */
+@JsonSerialize(using = Row.JsonWriter.class)
+public final class Row {
+
+    // Stored for fields that are present with a null value; a plain null slot means absent
+    private static final Object NULL = new Object();
+
+    private final RecordSchema schema;
+    private Object[] values;
+
+    /** Creates an empty row sized to the schema's current width. */
+    public Row(RecordSchema schema) {
+        this.schema = schema;
+        this.values = new Object[schema.size()];
+    }
+
+    public RecordSchema schema() {
+        return schema;
+    }
+
+    /** Number of slots in this row — fields added to the schema later may lie beyond it. */
+    public int width() {
+        return values.length;
+    }
+
+    public boolean has(int index) {
+        return index >= 0 && index < values.length && values[index] != null;
+    }
+
+    public Object get(int index) {
+        if (index < 0 || index >= values.length) {
+            return null;
+        }
+        var value = values[index];
+        return value == NULL ? null : value;
+    }
+
+    public Object get(String name) {
+        return get(schema.indexOf(name));
+    }
+
+    public void set(int index, Object value) {
+        if (index >= values.length) {
+            values = Arrays.copyOf(values, Math.max(index + 1, schema.size()));
+        }
+        values[index] = value != null ? value : NULL;
+    }
+
+    public void set(String name, Object value) {
+        set(schema.add(name), value);
+    }
+
+    /** Edge conversion: present fields as an insertion-ordered map. */
+    public Map<String, Object> toMap() {
+        var map = new LinkedHashMap<String, Object>();
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != null) {
+                map.put(schema.name(i), get(i));
+            }
+        }
+        return map;
+    }
+
+    /** Same shape as Map.toString() — this is what the error log stores as raw data. */
+    @Override
+    public String toString() {
+        var sb = new StringBuilder("{");
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] == null) {
+                continue;
+            }
+            if (sb.length() > 1) {
+                sb.append(", ");
+            }
+            sb.append(schema.name(i)).append('=').append(get(i));
+        }
+        return sb.append('}').toString();
+    }
+
+    /**
+     * Writes a row as a JSON object straight from the value array — no intermediate map.
+     * Fields come in schema order, or sorted by name when the mapper has
+     * ORDER_MAP_ENTRIES_BY_KEYS enabled, like it does for maps. In sorted mode a writer
+     * attribute {@link #SKIP_FIELDS} (a Set of field names) leaves those fields out.
+     */
+    public static final class JsonWriter extends StdSerializer<Row> {
+
+        public static final String SKIP_FIELDS = "row.skip-fields";
+
+        public JsonWriter() {
+            super(Row.class);
+        }
+
+        @Override
+        public void serialize(Row row, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeStartObject(row);
+            if (provider.isEnabled(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS)) {
+                var skip = provider.getAttribute(SKIP_FIELDS) instanceof Set<?> fields ? fields : Set.of();
+                for (int i : row.schema.nameOrder()) {
+                    if (i < row.values.length && row.values[i] != null && !skip.contains(row.schema.name(i))) {
+                        provider.defaultSerializeField(row.schema.name(i), row.get(i), gen);
+                    }
+                }
+            } else {
+                for (int i = 0; i < row.values.length; i++) {
+                    if (row.values[i] != null) {
+                        provider.defaultSerializeField(row.schema.name(i), row.get(i), gen);
+                    }
+                }
+            }
+            gen.writeEndObject();
+        }
+    }
+}
@@ -1,49 +1,215 @@
 package com.dataetl.pipeline.extract;
 
 import com.dataetl.model.SourceConfig;
+import com.dataetl.pipeline.RecordSchema;
+import com.dataetl.pipeline.Row;
+import com.dataetl.service.JobHistoryService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
 import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 import reactor.util.retry.Retry;
 
+import java.io.IOException;
+import java.net.URI;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Stream;
 
+/**
+ * Streams records from an HTTP JSON endpoint.
+ *
+ * The response body is consumed as raw buffers and tokenized incrementally by
+ * {@link JsonRecordParser}, so an export of any size runs in constant memory and the first
+ * records reach the pipeline while the rest is still downloading. gzip/deflate responses are
+ * decompressed by the HTTP client (see WebClientConfig).
+ *
+ * Optional authConfig key "recordPath" (default "$") points at the records inside the body,
+ * e.g. "$.data.items". JSON Lines / NDJSON bodies work without configuration. Paginated
+ * sources are configured under "pagination" — see {@link ApiPaginator}.
+ *
+ * Unpaginated sources are fetched conditionally: the ETag / Last-Modified of the last fully
+ * loaded response are sent back as If-None-Match / If-Modified-Since, and a 304 marks the
+ * cursor unchanged. The body is also kept in {@link ApiResponseCache} so a manual rerun of
+ * an unchanged source replays it without downloading it again.
+ *
+ * Conditional requests and the incremental "since" parameter are mutually exclusive. A
+ * validator only matches the URI it came from, and "since" changes on every run, so a source
+ * with stored validators is requested without it; sources whose server sends no validators
+ * (and paginated ones) keep loading incrementally.
+ *
+ * Sources with cursor or link pagination are resumable: the checkpoint is the URI of the page
+ * being read plus the number of its records already returned. Other sources start over.
+ */
 @Component
 public class ApiExtractor implements Extractor {
 
     private static final Logger log = LoggerFactory.getLogger(ApiExtractor.class);
 
+    // Response body buffers fetched ahead of the parser
+    private static final int STREAM_PREFETCH = 8;
+
+    // Parsed record batches buffered ahead of the job on paginated sources
+    private static final int PAGE_PREFETCH = 32;
+
+    // Read size when replaying a cached response body from disk
+    private static final int CACHE_READ_BYTES = 64 * 1024;
+
     private final WebClient webClient;
+    private final HostRateLimiter rateLimiter;
+    private final HostCircuitBreaker circuitBreaker;
+    private final ApiResponseCache responseCache;
+    private final JobHistoryService jobHistoryService;
 
-    public ApiExtractor(WebClient webClient) {
+    public ApiExtractor(WebClient webClient,
+                        HostRateLimiter rateLimiter,
+                        HostCircuitBreaker circuitBreaker,
+                        ApiResponseCache responseCache,
+                        JobHistoryService jobHistoryService) {
         this.webClient = webClient;
+        this.rateLimiter = rateLimiter;
+        this.circuitBreaker = circuitBreaker;
+        this.responseCache = responseCache;
+        this.jobHistoryService = jobHistoryService;
+    }
+
+    /**
+     * True while the source's host is known to be failing (its circuit is open) — scheduled
+     * runs are skipped rather than spent failing.
+     */
+    public boolean isSuspended(SourceConfig config) {
+        try {
+            var host = URI.create(config.getConnectionString()).getHost();
+            return host != null && circuitBreaker.isOpen(host);
+        } catch (IllegalArgumentException e) {
+            // Malformed URL — let the run fail with the real validation error
+            return false;
+        }
+    }
+
+    @Override
+    public RecordCursor open(SourceConfig config) throws Exception {
+        return open(config, null);
     }
 
     @Override
-    public List<Map<String, Object>> extract(SourceConfig config) throws Exception {
+    public RecordCursor open(SourceConfig config, String checkpoint) throws Exception {
         // Security: block SSRF — reject private IPs, loopback, link-local, metadata endpoints
         SsrfGuard.assertSafeUrl(config.getConnectionString());
 
+        // Validate before any request is made
+        var options = config.getAuthConfig();
+        var recordPath = options != null && options.get("recordPath") != null
+            ? String.valueOf(options.get("recordPath"))
+            : null;
+        var parser = new JsonRecordParser(recordPath, new RecordSchema());
+        var pagination = ApiPaginator.Spec.from(options != null ? options.get("pagination") : null);
+
+        var etag = pagination == null ? config.getHttpEtag() : null;
+        var lastModified = pagination == null ? config.getHttpLastModified() : null;
         var uriBuilder = UriComponentsBuilder.fromUriString(config.getConnectionString());
 
-        // Incremental loading: append 'since' parameter if this source has run before
-        if (config.getLastRunTimestamp() != null) {
+        // Incremental loading: append 'since' parameter if this source has run before — unless
+        // the request is conditional, which needs the same URI as the response it validates
+        if (config.getLastRunTimestamp() != null && etag == null && lastModified == null) {
             uriBuilder.queryParam("since", config.getLastRunTimestamp().toInstant().toString());
         }
 
         var uri = uriBuilder.build().toUri();
+        // A host known to be down fails the job now rather than after a round of retries
+        if (uri.getHost() != null) {
+            circuitBreaker.checkClosed(uri.getHost());
+        }
 
         // V9: Log only the host+path, never query params (may contain API keys in ?api_key=... style URLs)
-        log.info("{\"event\":\"api_extract_start\",\"source\":\"{}\",\"host\":\"{}\",\"path\":\"{}\"}",
-            config.getName(), uri.getHost(), uri.getPath());
+        log.info("{\"event\":\"api_extract_start\",\"source\":\"{}\",\"host\":\"{}\",\"path\":\"{}\",\"pagination\":\"{}\"}",
+            config.getName(), uri.getHost(), uri.getPath(), pagination != null ? pagination.type() : "none");
+
+        if (pagination != null) {
+            var resume = pagination.resumable() ? resumePage(checkpoint, uri) : null;
+            if (resume != null) {
+                log.info("{\"event\":\"api_extract_resume\",\"source\":\"{}\",\"skip\":{}}",
+                    config.getName(), resume.skip());
+            }
+            var pages = new ApiPaginator(pagination, uri, recordPath, parser.schema(),
+                pageUri -> fetch(config, pageUri, null, null), config.getName());
+            var batches = pages.batches(resume != null ? resume.page() : null).toStream(PAGE_PREFETCH);
+            return new PagedCursor(config, parser.schema(), batches, pagination.resumable(),
+                resume != null ? resume.skip() : 0);
+        }
+
+        // No overall deadline: each attempt times out on its own, but waiting for the host's
+        // rate limiter can legitimately take as long as its Retry-After
+        var entity = fetch(config, uri, etag, lastModified).block();
+
+        if (entity == null) {
+            return new ApiCursor(config, parser, Stream.empty());
+        }
 
+        if (entity.getStatusCode().value() == 304) {
+            if (entity.getBody() != null) {
+                entity.getBody().subscribe(DataBufferUtils::release, error -> { });
+            }
+            // Nothing changed since the last loaded response — replay it from disk if it is still there
+            var cached = responseCache.lookup(config.getId(), etag, lastModified);
+            log.info("{\"event\":\"api_not_modified\",\"source\":\"{}\",\"cached\":{}}",
+                config.getName(), cached != null);
+            var replay = cached != null
+                ? DataBufferUtils.read(cached, DefaultDataBufferFactory.sharedInstance, CACHE_READ_BYTES)
+                    .doOnDiscard(DataBuffer.class, DataBufferUtils::release)
+                    .toStream(STREAM_PREFETCH)
+                : Stream.<DataBuffer>empty();
+            var cursor = new ApiCursor(config, parser, replay);
+            cursor.unchanged = true;
+            return cursor;
+        }
+
+        if (entity.getBody() == null) {
+            return new ApiCursor(config, parser, Stream.empty());
+        }
+
+        // Idle timeout between buffers replaces the old whole-response timeout; toStream applies
+        // bounded prefetch so the HTTP body is only read as fast as the job consumes it.
+        // Buffers dropped on cancel are released so pooled Netty memory is not leaked.
+        var buffers = entity.getBody()
+            .timeout(Duration.ofSeconds(30))
+            .doOnDiscard(DataBuffer.class, DataBufferUtils::release)
+            .toStream(STREAM_PREFETCH);
+        var cursor = new ApiCursor(config, parser, buffers);
+        cursor.etag = entity.getHeaders().getETag();
+        cursor.lastModified = entity.getHeaders().getFirst(HttpHeaders.LAST_MODIFIED);
+        if (config.getId() != null && (cursor.etag != null || cursor.lastModified != null)) {
+            cursor.cacheEntry = responseCache.begin(config.getId(), cursor.etag, cursor.lastModified);
+        }
+        return cursor;
+    }
+
+    /**
+     * Sends one authenticated GET; completes with the response once status and headers are in.
+     * Non-null validators make it a conditional request that may be answered with 304.
+     */
+    private Mono<ResponseEntity<Flux<DataBuffer>>> fetch(SourceConfig config, URI uri,
+                                                         String etag, String lastModified) {
         var requestSpec = webClient.get().uri(uri);
+        if (etag != null) {
+            requestSpec = requestSpec.header(HttpHeaders.IF_NONE_MATCH, etag);
+        }
+        if (lastModified != null) {
+            requestSpec = requestSpec.header(HttpHeaders.IF_MODIFIED_SINCE, lastModified);
+        }
 
         // Apply authentication from authConfig JSONB
         // Supports: {"type":"bearer","token":"..."} and {"type":"apikey","header":"X-API-Key","value":"..."}
@@ -59,17 +225,246 @@ public class ApiExtractor implements Extractor {
             }
         }
 
-        var response = requestSpec
-            .retrieve()
-            .bodyToMono(new ParameterizedTypeReference<List<Map<String, Object>>>() {})
+        // toEntityFlux completes as soon as the status line and headers arrive; the body then
+        // streams as raw buffers, so retries only cover the connect/status phase and never
+        // replay half-consumed bodies. Every attempt passes the host's circuit breaker and then
+        // waits for its rate limiter, which also absorbs Retry-After on 429/503. Backoff delays
+        // run on Reactor's timer; once the circuit is open — whether this request's failure or
+        // another job's opened it — the error is not retried and no backoff is waited out.
+        var request = requestSpec;
+        var host = uri.getHost();
+        return Mono.defer(() -> {
+                var call = circuitBreaker.admit(host);
+                return rateLimiter.acquire(host)
+                    .flatMap(permit -> request
+                        .retrieve()
+                        .toEntityFlux(DataBuffer.class)
+                        .timeout(Duration.ofSeconds(30))
+                        .doOnNext(entity -> permit.complete(entity.getStatusCode(), entity.getHeaders()))
+                        .doOnError(e -> {
+                            if (e instanceof WebClientResponseException response) {
+                                permit.complete(response.getStatusCode(), response.getHeaders());
+                            } else {
+                                permit.abandon();
+                            }
+                        })
+                        .doOnCancel(permit::abandon))
+                    .doOnNext(entity -> call.succeeded())
+                    .doOnError(call::failed)
+                    .doOnCancel(call::abandoned);
+            })
             .retryWhen(Retry.backoff(3, Duration.ofSeconds(2))
+                .filter(error -> isRetryable(error) && !circuitBreaker.isOpen(host))
                 .doBeforeRetry(sig -> log.warn("{\"event\":\"api_retry\",\"source\":\"{}\",\"attempt\":{}}",
-                    config.getName(), sig.totalRetriesInARow() + 1)))
-            .block(Duration.ofSeconds(30));
+                    config.getName(), sig.totalRetriesInARow() + 1)));
+    }
+
+    /** Where a resumed paginated source starts: a page, and how many of its records to skip. */
+    private record Resume(URI page, int skip) {
+    }
+
+    private static Resume resumePage(String checkpoint, URI base) {
+        var map = Checkpoints.read(checkpoint, "api");
+        if (map == null || !(map.get("page") instanceof String page)
+            || !(map.get("skip") instanceof Number skip) || skip.intValue() < 0) {
+            return null;
+        }
+        try {
+            var uri = URI.create(page);
+            // The page gets the source's credentials — never send them anywhere else
+            return ApiPaginator.sameOrigin(uri, base) ? new Resume(uri, skip.intValue()) : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
 
-        var records = response != null ? response : List.<Map<String, Object>>of();
-        log.info("{\"event\":\"api_extract_done\",\"source\":\"{}\",\"records\":{}}",
-            config.getName(), records.size());
-        return records;
+    /** Open circuits and client errors other than 429 come out the same however often they are retried. */
+    private static boolean isRetryable(Throwable error) {
+        if (error instanceof CircuitOpenException) {
+            return false;
+        }
+        return !(error instanceof WebClientResponseException response)
+            || !response.getStatusCode().is4xxClientError()
+            || response.getStatusCode().value() == 429;
+    }
+
+    /**
+     * Cursor over the record batches of a paginated source. Pages are fetched and parsed on
+     * the HTTP client's threads; toStream's bounded prefetch stops fetching while the job is
+     * behind.
+     */
+    private static final class PagedCursor implements RecordCursor {
+
+        private final SourceConfig config;
+        private final RecordSchema schema;
+        private final Stream<ApiPaginator.Batch> batches;
+        private final Iterator<ApiPaginator.Batch> iterator;
+        private final boolean resumable;
+        // Records of the first page a resumed run already loaded
+        private int skip;
+        // Rows of the current batch not yet returned
+        private List<Row> pending = List.of();
+        // Page of the current batch and the offset in it of the first pending row
+        private URI page;
+        private int offset;
+        private long total = 0;
+        private boolean closed = false;
+
+        PagedCursor(SourceConfig config, RecordSchema schema, Stream<ApiPaginator.Batch> batches,
+                    boolean resumable, int skip) {
+            this.config = config;
+            this.schema = schema;
+            this.batches = batches;
+            this.iterator = batches.iterator();
+            this.resumable = resumable;
+            this.skip = skip;
+        }
+
+        @Override
+        public RecordSchema schema() {
+            return schema;
+        }
+
+        @Override
+        public List<Row> nextChunk(int maxRecords) {
+            var chunk = new ArrayList<Row>(Math.min(maxRecords, 1024));
+            while (chunk.size() < maxRecords) {
+                if (pending.isEmpty()) {
+                    if (!iterator.hasNext()) {
+                        break;
+                    }
+                    var batch = iterator.next();
+                    if (page != null && !page.equals(batch.page())) {
+                        // Past the first page — nothing more to skip
+                        skip = 0;
+                    }
+                    pending = batch.rows();
+                    page = batch.page();
+                    offset = batch.offset();
+                    int skipped = Math.min(pending.size(), Math.max(skip - offset, 0));
+                    pending = pending.subList(skipped, pending.size());
+                    offset += skipped;
+                }
+                int take = Math.min(pending.size(), maxRecords - chunk.size());
+                chunk.addAll(pending.subList(0, take));
+                pending = pending.subList(take, pending.size());
+                offset += take;
+            }
+            total += chunk.size();
+            return chunk;
+        }
+
+        @Override
+        public String checkpoint() {
+            if (!resumable || page == null) {
+                return null;
+            }
+            var map = new LinkedHashMap<String, Object>();
+            map.put("type", "api");
+            map.put("page", page.toString());
+            map.put("skip", offset);
+            return Checkpoints.write(map);
+        }
+
+        @Override
+        public void close() {
+            if (closed) return;
+            closed = true;
+            // Cancels in-flight page requests and releases their connections
+            batches.close();
+            log.info("{\"event\":\"api_extract_done\",\"source\":\"{}\",\"records\":{}}",
+                config.getName(), total);
+        }
+    }
+
+    private final class ApiCursor implements RecordCursor {
+
+        private final SourceConfig config;
+        private final JsonRecordParser parser;
+        private final Stream<DataBuffer> buffers;
+        private final Iterator<DataBuffer> iterator;
+        // Validators of this response, persisted on commit
+        private String etag;
+        private String lastModified;
+        private boolean unchanged = false;
+        // Disk copy of the body being written as it streams, or null
+        private ApiResponseCache.Entry cacheEntry;
+        private long total = 0;
+        private boolean ended = false;
+        private boolean closed = false;
+
+        ApiCursor(SourceConfig config, JsonRecordParser parser, Stream<DataBuffer> buffers) {
+            this.config = config;
+            this.parser = parser;
+            this.buffers = buffers;
+            this.iterator = buffers.iterator();
+        }
+
+        @Override
+        public RecordSchema schema() {
+            return parser.schema();
+        }
+
+        @Override
+        public List<Row> nextChunk(int maxRecords) throws IOException {
+            var chunk = new ArrayList<Row>(Math.min(maxRecords, 1024));
+            while (chunk.size() < maxRecords) {
+                // JSON objects may differ in keys — new keys extend the job's schema
+                var row = parser.next();
+                if (row != null) {
+                    chunk.add(row);
+                } else if (ended) {
+                    break;
+                } else if (iterator.hasNext()) {
+                    var buffer = iterator.next();
+                    try {
+                        var bytes = new byte[buffer.readableByteCount()];
+                        buffer.read(bytes);
+                        parser.feed(bytes);
+                        if (cacheEntry != null) {
+                            cacheEntry.write(bytes);
+                        }
+                    } finally {
+                        DataBufferUtils.release(buffer);
+                    }
+                } else {
+                    parser.endOfInput();
+                    ended = true;
+                    if (cacheEntry != null) {
+                        cacheEntry.complete();
+                    }
+                }
+            }
+            total += chunk.size();
+            return chunk;
+        }
+
+        @Override
+        public boolean unchanged() {
+            return unchanged;
+        }
+
+        @Override
+        public void commit() {
+            // Only a fully loaded response may answer for the next run's conditional request
+            if (!unchanged && config.getId() != null
+                    && (!Objects.equals(etag, config.getHttpEtag())
+                        || !Objects.equals(lastModified, config.getHttpLastModified()))) {
+                jobHistoryService.updateHttpValidators(config.getId(), etag, lastModified);
+            }
+        }
+
+        @Override
+        public void close() {
+            if (closed) return;
+            closed = true;
+            if (cacheEntry != null && !ended) {
+                cacheEntry.discard();
+            }
+            // Cancels the upstream subscription — releases the connection if the body is unread
+            buffers.close();
+            log.info("{\"event\":\"api_extract_done\",\"source\":\"{}\",\"records\":{}}",
+                config.getName(), total);
+        }
     }
 }
@@ -0,0 +1,380 @@
+package com.dataetl.pipeline.extract;
+
+import com.dataetl.pipeline.RecordSchema;
+import com.dataetl.pipeline.Row;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.util.UriComponentsBuilder;
+import org.springframework.web.util.UriUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * Walks the pages of a paginated API source and streams their records as they arrive.
+ *
+ * Configured per source under authConfig "pagination":
+ * <pre>
+ * {"type": "offset", "pageSize": 100, "limitParam": "limit", "offsetParam": "offset",
+ *  "totalPath": "$.total" | "totalHeader": "X-Total-Count", "concurrency": 4}
+ * {"type": "page", "pageSize": 100, "pageParam": "page", "sizeParam": "per_page", "firstPage": 1, ...}
+ * {"type": "cursor", "cursorParam": "cursor", "cursorPath": "$.meta.next_cursor"}
+ * {"type": "link"}   (follows the Link: &lt;...&gt;; rel="next" response header)
+ * </pre>
+ * offset/page: once the total record count is known (from a header, or from the first page's
+ * body) the remaining pages are fetched concurrently, at most "concurrency" at a time, and
+ * their records are emitted in arrival order. Without a total, pages are fetched in turn until
+ * one comes back short.
+ *
+ * cursor/link: each page names the next one, so pages are fetched in turn — but the next
+ * request is sent as soon as its cursor or link is seen, while the current page is still being
+ * parsed. "maxPages" (default 10000) guards against endless cursors. A cursor/link walk can
+ * also start from a page an earlier run stopped at (see {@link #batches(URI)}).
+ */
+final class ApiPaginator {
+
+    private static final Logger log = LoggerFactory.getLogger(ApiPaginator.class);
+
+    static final int MAX_CONCURRENCY = 16;
+
+    private static final Pattern LINK = Pattern.compile("<([^>]*)>([^<]*)");
+    private static final Pattern REL_NEXT = Pattern.compile("rel\\s*=\\s*\"?[^\"]*\\bnext\\b");
+
+    enum Type { OFFSET, PAGE, CURSOR, LINK }
+
+    /** Records parsed from one network buffer, with the page they came from and their offset in it. */
+    record Batch(List<Row> rows, URI page, int offset) {}
+
+    record Spec(Type type, int pageSize, String limitParam, String offsetParam, String pageParam,
+                String sizeParam, int firstPage, String totalPath, String totalHeader,
+                String cursorParam, String cursorPath, int concurrency, int maxPages) {
+
+        /** Parses the authConfig "pagination" object; null means the source is not paginated. */
+        static Spec from(Object value) {
+            if (value == null) {
+                return null;
+            }
+            if (!(value instanceof Map<?, ?> options)) {
+                throw new IllegalArgumentException("API pagination must be an object");
+            }
+            Type type;
+            try {
+                type = Type.valueOf(String.valueOf(options.get("type")).trim().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException(
+                    "API pagination type must be one of offset, page, cursor, link — got: " + options.get("type"));
+            }
+            var spec = new Spec(type,
+                intOption(options, "pageSize", 100, 1, Integer.MAX_VALUE),
+                stringOption(options, "limitParam", "limit"),
+                stringOption(options, "offsetParam", "offset"),
+                stringOption(options, "pageParam", "page"),
+                stringOption(options, "sizeParam", "per_page"),
+                intOption(options, "firstPage", 1, 0, Integer.MAX_VALUE),
+                stringOption(options, "totalPath", null),
+                stringOption(options, "totalHeader", null),
+                stringOption(options, "cursorParam", "cursor"),
+                stringOption(options, "cursorPath", null),
+                intOption(options, "concurrency", 4, 1, MAX_CONCURRENCY),
+                intOption(options, "maxPages", 10_000, 1, Integer.MAX_VALUE));
+            if (type == Type.CURSOR && spec.cursorPath == null) {
+                throw new IllegalArgumentException("API cursor pagination requires 'cursorPath', e.g. $.meta.next_cursor");
+            }
+            // Fail on malformed paths before any request is sent
+            JsonRecordParser.parsePath(spec.totalPath);
+            JsonRecordParser.parsePath(spec.cursorPath);
+            return spec;
+        }
+
+        /** True when a walk can start from any page it has seen — each page names the next. */
+        boolean resumable() {
+            return type == Type.CURSOR || type == Type.LINK;
+        }
+
+        private static int intOption(Map<?, ?> options, String key, int fallback, int min, int max) {
+            var value = options.get(key);
+            if (value == null) {
+                return fallback;
+            }
+            try {
+                int parsed = Integer.parseInt(String.valueOf(value).trim());
+                if (parsed < min || parsed > max) {
+                    throw new IllegalArgumentException(
+                        "API pagination " + key + " must be between " + min + " and " + max + ", got: " + value);
+                }
+                return parsed;
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("API pagination " + key + " must be an integer, got: " + value);
+            }
+        }
+
+        private static String stringOption(Map<?, ?> options, String key, String fallback) {
+            var value = options.get(key);
+            return value == null || String.valueOf(value).isBlank() ? fallback : String.valueOf(value).trim();
+        }
+    }
+
+    private final Spec spec;
+    private final URI base;
+    private final String recordPath;
+    private final RecordSchema schema;
+    private final Function<URI, Mono<ResponseEntity<Flux<DataBuffer>>>> fetch;
+    private final String sourceName;
+    private final AtomicInteger pagesFetched = new AtomicInteger();
+
+    /**
+     * @param base  first page URI, already carrying the source's own query (and since) params
+     * @param fetch sends one authenticated GET; completes once status and headers are in
+     */
+    ApiPaginator(Spec spec, URI base, String recordPath, RecordSchema schema,
+                 Function<URI, Mono<ResponseEntity<Flux<DataBuffer>>>> fetch, String sourceName) {
+        this.spec = spec;
+        this.base = base;
+        this.recordPath = recordPath;
+        this.schema = schema;
+        this.fetch = fetch;
+        this.sourceName = sourceName;
+    }
+
+    /** Records of all pages, a list per network buffer. Cold: nothing is sent until subscribed. */
+    Flux<List<Row>> rows() {
+        return batches(null).map(Batch::rows);
+    }
+
+    /**
+     * Records of all pages with where they came from.
+     *
+     * @param start page to start from instead of the base URI — cursor/link pagination only
+     */
+    Flux<Batch> batches(URI start) {
+        if (start != null && !spec.resumable()) {
+            throw new IllegalArgumentException("API " + spec.type + " pagination cannot start from a given page");
+        }
+        var pages = switch (spec.type) {
+            case OFFSET, PAGE -> numbered();
+            case CURSOR, LINK -> chained(fetchPage(start != null ? start : base, null), 1);
+        };
+        return pages.doFinally(signal -> log.info("{\"event\":\"api_pages_done\",\"source\":\"{}\",\"pages\":{},\"signal\":\"{}\"}",
+            sourceName, pagesFetched.get(), signal));
+    }
+
+    private Flux<Batch> numbered() {
+        return fetchPage(numberedUri(0), null).flatMapMany(first -> Flux.merge(
+            first.rows,
+            first.total.asMono()
+                .flatMapMany(total -> {
+                    long pages = Math.min((total + spec.pageSize - 1) / spec.pageSize, spec.maxPages);
+                    log.info("{\"event\":\"api_pages_planned\",\"source\":\"{}\",\"total\":{},\"pages\":{},\"concurrency\":{}}",
+                        sourceName, total, pages, spec.concurrency);
+                    return Flux.range(1, (int) Math.max(pages - 1, 0))
+                        .flatMap(index -> fetchPage(numberedUri(index), null).flatMapMany(page -> page.rows),
+                            spec.concurrency);
+                })
+                // No total available — walk the pages until one comes back short
+                .switchIfEmpty(Flux.defer(() -> untilShort(first, 1)))));
+    }
+
+    private Flux<Batch> untilShort(Page previous, int index) {
+        if (previous.records.get() < spec.pageSize || index >= spec.maxPages) {
+            return Flux.empty();
+        }
+        return fetchPage(numberedUri(index), null)
+            .flatMapMany(page -> page.rows.concatWith(Flux.defer(() -> untilShort(page, index + 1))));
+    }
+
+    private Flux<Batch> chained(Mono<Page> pageMono, int index) {
+        return pageMono.flatMapMany(page -> {
+            if (index >= spec.maxPages) {
+                return page.rows;
+            }
+            // Send the next request as soon as its URI is known (response headers for LINK, the
+            // cursor field for CURSOR) so it overlaps parsing of this page
+            var nextPage = page.next.asMono().flatMap(uri -> fetchPage(uri, page)).cache();
+            nextPage.subscribe(next -> { }, error -> { });
+            return page.rows
+                .concatWith(Flux.defer(() -> chained(nextPage, index + 1)))
+                .doOnCancel(() -> nextPage.subscribe(Page::discard, error -> { }));
+        });
+    }
+
+    /** Auth headers go with every request, so only URIs of the base URI's origin are ever requested. */
+    static boolean sameOrigin(URI uri, URI base) {
+        return Objects.equals(uri.getScheme(), base.getScheme())
+            && Objects.equals(uri.getHost(), base.getHost())
+            && uri.getPort() == base.getPort();
+    }
+
+    private URI numberedUri(int index) {
+        var builder = UriComponentsBuilder.fromUri(base);
+        if (spec.type == Type.OFFSET) {
+            builder.replaceQueryParam(spec.offsetParam, (long) index * spec.pageSize)
+                .replaceQueryParam(spec.limitParam, spec.pageSize);
+        } else {
+            builder.replaceQueryParam(spec.pageParam, (long) spec.firstPage + index)
+                .replaceQueryParam(spec.sizeParam, spec.pageSize);
+        }
+        return builder.build(true).toUri();
+    }
+
+    private Mono<Page> fetchPage(URI uri, Page previous) {
+        return fetch.apply(uri).map(entity -> {
+            pagesFetched.incrementAndGet();
+            return new Page(uri, entity, previous);
+        });
+    }
+
+    /** One response: its records (parsed as the body streams) plus what it says about other pages. */
+    private final class Page {
+
+        final URI uri;
+        final Flux<DataBuffer> body;
+        final String cursor;
+        final JsonRecordParser parser;
+        final Flux<Batch> rows;
+        // Resolved (with a value or empty) while or after the body is parsed
+        final Sinks.One<URI> next = Sinks.one();
+        final Sinks.One<Long> total = Sinks.one();
+        final AtomicInteger records = new AtomicInteger();
+        final AtomicBoolean consumed = new AtomicBoolean();
+
+        Page(URI uri, ResponseEntity<Flux<DataBuffer>> entity, Page previous) {
+            this.uri = uri;
+            this.body = entity.getBody() != null ? entity.getBody() : Flux.empty();
+            this.cursor = previous != null ? previous.nextCursor() : null;
+            var captures = new ArrayList<String>(2);
+            if (spec.totalPath != null) captures.add(spec.totalPath);
+            if (spec.type == Type.CURSOR) captures.add(spec.cursorPath);
+            try {
+                this.parser = new JsonRecordParser(recordPath, captures, schema);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+
+            if (spec.type == Type.LINK) {
+                var link = nextLink(entity.getHeaders());
+                if (link != null) next.tryEmitValue(link); else next.tryEmitEmpty();
+            }
+            if (spec.totalHeader != null) {
+                var header = entity.getHeaders().getFirst(spec.totalHeader);
+                if (header != null) {
+                    total.tryEmitValue(parseTotal(header));
+                }
+            }
+
+            this.rows = Flux.defer(() -> {
+                    consumed.set(true);
+                    return body;
+                })
+                .timeout(Duration.ofSeconds(30))
+                .doOnDiscard(DataBuffer.class, DataBufferUtils::release)
+                .concatMap(buffer -> Mono.fromCallable(() -> parse(buffer)))
+                .concatWith(Mono.fromCallable(this::finish))
+                .doFinally(signal -> {
+                    // Whatever was not found by now is not coming
+                    next.tryEmitEmpty();
+                    total.tryEmitEmpty();
+                });
+        }
+
+        private Batch parse(DataBuffer buffer) throws IOException {
+            try {
+                var bytes = new byte[buffer.readableByteCount()];
+                buffer.read(bytes);
+                parser.feed(bytes);
+            } finally {
+                DataBufferUtils.release(buffer);
+            }
+            var batch = drain();
+            resolveCaptures();
+            return batch;
+        }
+
+        private Batch finish() throws IOException {
+            parser.endOfInput();
+            var batch = drain();
+            resolveCaptures();
+            return batch;
+        }
+
+        /** The records parsed so far, or null if there are none. */
+        private Batch drain() throws IOException {
+            var batch = new ArrayList<Row>();
+            for (Row row; (row = parser.next()) != null; ) {
+                batch.add(row);
+            }
+            if (batch.isEmpty()) {
+                return null;
+            }
+            return new Batch(batch, uri, records.getAndAdd(batch.size()));
+        }
+
+        private void resolveCaptures() {
+            if (spec.totalPath != null && parser.captured(spec.totalPath) != null) {
+                total.tryEmitValue(parseTotal(parser.captured(spec.totalPath)));
+            }
+            if (spec.type == Type.CURSOR) {
+                var token = nextCursor();
+                if (token != null && !token.equals(cursor)) {
+                    next.tryEmitValue(UriComponentsBuilder.fromUri(base)
+                        .replaceQueryParam(spec.cursorParam, UriUtils.encodeQueryParam(token, StandardCharsets.UTF_8))
+                        .build(true).toUri());
+                }
+            }
+        }
+
+        private String nextCursor() {
+            var token = parser.captured(spec.cursorPath);
+            return token == null || String.valueOf(token).isBlank() ? null : String.valueOf(token);
+        }
+
+        private URI nextLink(HttpHeaders headers) {
+            for (var header : headers.getOrEmpty(HttpHeaders.LINK)) {
+                var matcher = LINK.matcher(header);
+                while (matcher.find()) {
+                    if (REL_NEXT.matcher(matcher.group(2)).find()) {
+                        var link = uri.resolve(matcher.group(1).trim());
+                        // Auth headers go with every request — never follow a link to another origin
+                        if (!sameOrigin(link, base)) {
+                            throw new IllegalArgumentException("API Link header points to another origin: "
+                                + link.getScheme() + "://" + link.getHost());
+                        }
+                        return link;
+                    }
+                }
+            }
+            return null;
+        }
+
+        private long parseTotal(Object value) {
+            try {
+                return Long.parseLong(String.valueOf(value).trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("API pagination total is not a number: " + value);
+            }
+        }
+
+        /** Releases the connection of a page that will never be read. */
+        void discard() {
+            if (consumed.compareAndSet(false, true)) {
+                body.subscribe(DataBufferUtils::release, error -> { }).dispose();
+            }
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package com.dataetl.pipeline.extract;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Properties;
+
+/**
+ * Local disk copy of the last full response body of each API source, keyed by the source
+ * and the response's validators (ETag / Last-Modified).
+ *
+ * When a manual rerun is answered with 304, the body is replayed from here instead of being
+ * downloaded again. Bodies are written while they stream to the parser and only become
+ * visible once complete. The directory is bounded by max-bytes: after each write the least
+ * recently written bodies are deleted until the total fits; a body larger than the bound is
+ * not cached at all. max-bytes 0 disables the cache.
+ */
+@Component
+public class ApiResponseCache {
+
+    private static final Logger log = LoggerFactory.getLogger(ApiResponseCache.class);
+
+    private static final String BODY_SUFFIX = ".body";
+    private static final String META_SUFFIX = ".meta";
+
+    private final Path directory;
+    private final long maxBytes;
+
+    public ApiResponseCache(@Value("${app.etl.api.response-cache.dir:${java.io.tmpdir}/etl-api-cache}") Path directory,
+                            @Value("${app.etl.api.response-cache.max-bytes:268435456}") long maxBytes) {
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException("app.etl.api.response-cache.max-bytes must not be negative");
+        }
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+    }
+
+    /** The cached body of the source if it was stored under exactly these validators. */
+    Path lookup(long sourceId, String etag, String lastModified) {
+        if (maxBytes == 0) {
+            return null;
+        }
+        var body = directory.resolve("source-" + sourceId + BODY_SUFFIX);
+        var meta = directory.resolve("source-" + sourceId + META_SUFFIX);
+        try (var in = Files.newInputStream(meta)) {
+            var properties = new Properties();
+            properties.load(in);
+            if (Objects.equals(properties.getProperty("etag"), etag)
+                    && Objects.equals(properties.getProperty("lastModified"), lastModified)
+                    && Files.size(body) == Long.parseLong(properties.getProperty("size", "-1"))) {
+                return body;
+            }
+        } catch (IOException | NumberFormatException e) {
+            // Nothing cached, or a half-written entry — treat as a miss
+        }
+        return null;
+    }
+
+    /** Starts caching a new body for the source; null if the cache is disabled or unusable. */
+    Entry begin(long sourceId, String etag, String lastModified) {
+        if (maxBytes == 0) {
+            return null;
+        }
+        try {
+            Files.createDirectories(directory);
+            var temp = Files.createTempFile(directory, "source-" + sourceId + "-", ".tmp");
+            return new Entry(sourceId, etag, lastModified, temp, Files.newOutputStream(temp));
+        } catch (IOException e) {
+            log.warn("{\"event\":\"api_cache_unavailable\",\"dir\":\"{}\",\"error\":\"{}\"}", directory, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * A body being written. Writes after the size bound is exceeded are dropped and the entry
+     * is discarded on {@link #complete}. Not thread-safe — one reader feeds it.
+     */
+    final class Entry {
+
+        private final long sourceId;
+        private final String etag;
+        private final String lastModified;
+        private final Path temp;
+        private final OutputStream out;
+        private long size = 0;
+        private boolean failed = false;
+        private boolean closed = false;
+
+        private Entry(long sourceId, String etag, String lastModified, Path temp, OutputStream out) {
+            this.sourceId = sourceId;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.temp = temp;
+            this.out = out;
+        }
+
+        void write(byte[] bytes) {
+            if (failed || closed) return;
+            size += bytes.length;
+            if (size > maxBytes) {
+                failed = true;
+                return;
+            }
+            try {
+                out.write(bytes);
+            } catch (IOException e) {
+                failed = true;
+            }
+        }
+
+        /** Publishes the body if it was written in full, then evicts down to the size bound. */
+        void complete() {
+            if (closed) return;
+            closed = true;
+            try {
+                out.close();
+                if (failed) {
+                    Files.deleteIfExists(temp);
+                    return;
+                }
+                var body = directory.resolve("source-" + sourceId + BODY_SUFFIX);
+                var meta = directory.resolve("source-" + sourceId + META_SUFFIX);
+                // Meta goes last and lookup checks the size, so a crash in between is a miss
+                Files.deleteIfExists(meta);
+                Files.move(temp, body, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                var properties = new Properties();
+                if (etag != null) properties.setProperty("etag", etag);
+                if (lastModified != null) properties.setProperty("lastModified", lastModified);
+                properties.setProperty("size", String.valueOf(size));
+                try (var metaOut = Files.newOutputStream(meta)) {
+                    properties.store(metaOut, null);
+                }
+                evict();
+            } catch (IOException e) {
+                log.warn("{\"event\":\"api_cache_write_failed\",\"sourceId\":{},\"error\":\"{}\"}", sourceId, e.getMessage());
+                discard();
+            }
+        }
+
+        /** Drops a body that did not arrive in full. */
+        void discard() {
+            closed = true;
+            try {
+                out.close();
+                Files.deleteIfExists(temp);
+            } catch (IOException ignored) {
+                // A stray temp file is never looked up — it only costs disk space
+            }
+        }
+    }
+
+    private synchronized void evict() throws IOException {
+        var bodies = new ArrayList<Path>();
+        try (var files = Files.list(directory)) {
+            files.filter(path -> path.getFileName().toString().endsWith(BODY_SUFFIX)).forEach(bodies::add);
+        }
+        bodies.sort(Comparator.comparing(ApiResponseCache::modifiedAt).reversed());
+        long total = 0;
+        List<Path> evicted = new ArrayList<>();
+        for (var body : bodies) {
+            total += Files.size(body);
+            if (total > maxBytes) {
+                evicted.add(body);
+            }
+        }
+        for (var body : evicted) {
+            var name = body.getFileName().toString();
+            Files.deleteIfExists(directory.resolve(name.substring(0, name.length() - BODY_SUFFIX.length()) + META_SUFFIX));
+            Files.deleteIfExists(body);
+        }
+        if (!evicted.isEmpty()) {
+            log.info("{\"event\":\"api_cache_evicted\",\"entries\":{}}", evicted.size());
+        }
+    }
+
+    private static long modifiedAt(Path path) {
+        try {
+            return Files.getLastModifiedTime(path).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+}
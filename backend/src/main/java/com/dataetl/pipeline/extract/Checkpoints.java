@@ -0,0 +1,41 @@
+package com.dataetl.pipeline.extract;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.util.Map;
+
+/**
+ * Reads and writes the checkpoint strings of the cursors: small JSON objects whose "type"
+ * names the extractor that wrote them. A checkpoint that does not parse, or belongs to
+ * another extractor, reads as null — the job then starts from the beginning.
+ */
+final class Checkpoints {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final TypeReference<Map<String, Object>> MAP = new TypeReference<>() {};
+
+    private Checkpoints() {
+    }
+
+    static String write(Map<String, Object> checkpoint) {
+        try {
+            return MAPPER.writeValueAsString(checkpoint);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Checkpoint is not serializable", e);
+        }
+    }
+
+    static Map<String, Object> read(String checkpoint, String type) {
+        if (checkpoint == null) {
+            return null;
+        }
+        try {
+            var map = MAPPER.readValue(checkpoint, MAP);
+            return map != null && type.equals(map.get("type")) ? map : null;
+        } catch (JsonProcessingException e) {
+            return null;
+        }
+    }
+}
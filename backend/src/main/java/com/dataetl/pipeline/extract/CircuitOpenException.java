@@ -0,0 +1,14 @@
+package com.dataetl.pipeline.extract;
+
+/**
+ * Thrown instead of sending a request to an API host whose circuit is open
+ * (see {@link HostCircuitBreaker}).
+ */
+public class CircuitOpenException extends RuntimeException {
+
+    public CircuitOpenException(String host, long retryInSeconds) {
+        super(retryInSeconds > 0
+            ? "API host " + host + " is failing — requests suspended for another " + retryInSeconds + "s"
+            : "API host " + host + " is failing — waiting for a probe request to succeed");
+    }
+}
@@ -1,43 +1,309 @@
 package com.dataetl.pipeline.extract;
 
 import com.dataetl.model.SourceConfig;
-import com.opencsv.CSVReaderHeaderAware;
+import com.dataetl.pipeline.RecordSchema;
+import com.dataetl.pipeline.Row;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
 import org.springframework.stereotype.Component;
 
-import java.io.FileReader;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Map;
 
+/**
+ * Reads CSV sources with {@link MappedCsvParser} — the file is memory-mapped and parsed
+ * at the byte level.
+ *
+ * Per-source options live in authConfig (all optional):
+ * {"delimiter": ";", "encoding": "ISO-8859-1", "columns": ["id", "name", "updated"]}.
+ * When "columns" is set only those columns are decoded and loaded; the others are skipped
+ * without ever being turned into Strings.
+ *
+ * Files larger than app.etl.csv.split.threshold-bytes are cut into record-aligned byte ranges
+ * ({@link CsvRangeSplitter}) that are parsed concurrently, one range per thread, and merged
+ * into the job's single cursor. Chunks from different ranges interleave, so for split files
+ * the order in which duplicate external IDs reach the upsert is not guaranteed.
+ *
+ * The checkpoint is the byte offset each range has been read up to. A resumed job continues
+ * every range from its offset, provided the file still has the size and modification time
+ * it had when the checkpoint was taken; otherwise it starts over.
+ */
 @Component
 public class CsvExtractor implements Extractor {
 
     private static final Logger log = LoggerFactory.getLogger(CsvExtractor.class);
 
+    private final AsyncTaskExecutor rangeExecutor;
+    private final long splitThresholdBytes;
+    private final int splitParallelism;
+    private final int chunkSize;
+
+    public CsvExtractor(@Qualifier("csvRangeExecutor") AsyncTaskExecutor rangeExecutor,
+                        @Value("${app.etl.csv.split.threshold-bytes:67108864}") long splitThresholdBytes,
+                        @Value("${app.etl.csv.split.parallelism:0}") int splitParallelism,
+                        @Value("${app.etl.chunk-size:1000}") int chunkSize) {
+        this.rangeExecutor = rangeExecutor;
+        this.splitThresholdBytes = splitThresholdBytes;
+        this.splitParallelism = splitParallelism > 0 ? splitParallelism : Runtime.getRuntime().availableProcessors();
+        this.chunkSize = chunkSize;
+    }
+
     @Override
-    public List<Map<String, Object>> extract(SourceConfig config) throws Exception {
+    public RecordCursor open(SourceConfig config) throws Exception {
+        return open(config, null);
+    }
+
+    @Override
+    public RecordCursor open(SourceConfig config, String checkpoint) throws Exception {
         var filePath = config.getConnectionString();
 
         // Security: block path traversal (e.g., ../../etc/passwd).
         // File must reside within the allowed sample-data directory.
         SsrfGuard.assertSafeFilePath(filePath);
+        return open(Path.of(filePath), config, checkpoint);
+    }
+
+    /** Opens a file that has already passed the path check. */
+    RecordCursor open(Path path, SourceConfig config, String checkpoint) throws Exception {
+        var options = config.getAuthConfig();
+        byte delimiter = parseDelimiter(options != null ? options.get("delimiter") : null);
+        Charset charset = parseEncoding(options != null ? options.get("encoding") : null);
+        var columns = options != null ? options.get("columns") : null;
+
+        var channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            var file = new FileVersion(channel.size(), Files.getLastModifiedTime(path).toMillis());
+            var parser = new MappedCsvParser(channel, 0, Long.MAX_VALUE, delimiter, charset);
+            var header = parser.readAll();
+            var layout = new Layout(header != null ? header : List.of(), columns);
+
+            var resumed = resumeRanges(checkpoint, file, parser.position());
+            List<CsvRangeSplitter.Range> ranges;
+            if (resumed != null) {
+                ranges = resumed;
+            } else if (file.size() > splitThresholdBytes && splitParallelism > 1) {
+                ranges = CsvRangeSplitter.split(channel, parser.position(), splitParallelism, rangeExecutor);
+            } else {
+                ranges = List.of(new CsvRangeSplitter.Range(parser.position(), file.size()));
+            }
+
+            log.info("{\"event\":\"csv_extract_start\",\"source\":\"{}\",\"encoding\":\"{}\",\"bytes\":{},\"ranges\":{},\"resumed\":{}}",
+                config.getName(), charset.name(), file.size(), ranges.size(), resumed != null);
+
+            if (ranges.size() > 1) {
+                return openSplit(config, channel, layout, ranges, delimiter, charset, file);
+            }
+            var range = ranges.get(0);
+            if (range.start() != parser.position()) {
+                parser = new MappedCsvParser(channel, range.start(), range.end(), delimiter, charset);
+            }
+            return new CsvCursor(config, channel, parser, layout, file);
+        } catch (Exception e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private RecordCursor openSplit(SourceConfig config, FileChannel channel, Layout layout,
+                                   List<CsvRangeSplitter.Range> ranges, byte delimiter, Charset charset,
+                                   FileVersion file) {
+        var parts = new ArrayList<ParallelCursor.PartOpener>(ranges.size());
+        var starts = new long[ranges.size()];
+        for (int i = 0; i < ranges.size(); i++) {
+            var range = ranges.get(i);
+            starts[i] = range.start();
+            parts.add(() -> {
+                var parser = new MappedCsvParser(channel, range.start(), range.end(), delimiter, charset);
+                return new ParallelCursor.Part() {
+                    @Override
+                    public boolean read(List<Row> chunk, int maxRecords) throws Exception {
+                        if (layout.read(parser, chunk, maxRecords)) {
+                            return true;
+                        }
+                        // A correct boundary makes the last record end exactly where the next range starts
+                        if (parser.position() != range.end()) {
+                            throw new IOException("CSV range " + range.start() + "-" + range.end()
+                                + " did not end on a record boundary — the file likely has a quote inside an unquoted field");
+                        }
+                        return false;
+                    }
+
+                    @Override
+                    public long position() {
+                        return parser.position();
+                    }
+                };
+            });
+        }
+        return new ParallelCursor(layout.schema, parts, rangeExecutor, chunkSize, total -> {
+            channel.close();
+            log.info("{\"event\":\"csv_extract_done\",\"source\":\"{}\",\"records\":{},\"ranges\":{}}",
+                config.getName(), total, ranges.size());
+        }, starts, positions -> {
+            var resume = new ArrayList<CsvRangeSplitter.Range>(positions.length);
+            for (int i = 0; i < positions.length; i++) {
+                resume.add(new CsvRangeSplitter.Range(positions[i], ranges.get(i).end()));
+            }
+            return checkpoint(file, resume);
+        });
+    }
 
-        log.info("{\"event\":\"csv_extract_start\",\"source\":\"{}\"}", config.getName());
+    /** Size and modification time of the file a checkpoint was taken from. */
+    private record FileVersion(long size, long modified) {
+    }
 
-        var records = new ArrayList<Map<String, Object>>();
+    private static String checkpoint(FileVersion file, List<CsvRangeSplitter.Range> ranges) {
+        var map = new LinkedHashMap<String, Object>();
+        map.put("type", "csv");
+        map.put("size", file.size());
+        map.put("modified", file.modified());
+        map.put("ranges", ranges.stream().map(range -> List.of(range.start(), range.end())).toList());
+        return Checkpoints.write(map);
+    }
 
-        try (var reader = new CSVReaderHeaderAware(new FileReader(filePath))) {
-            Map<String, String> row;
-            while ((row = reader.readMap()) != null) {
-                // Copy to Map<String, Object> for uniform handling downstream
-                records.add(new HashMap<>(row));
+    /**
+     * The ranges left to read after checkpoint, or null if the job must start over: no
+     * checkpoint, or the file changed since it was taken.
+     */
+    private static List<CsvRangeSplitter.Range> resumeRanges(String checkpoint, FileVersion file, long dataStart) {
+        var map = Checkpoints.read(checkpoint, "csv");
+        if (map == null
+            || !(map.get("size") instanceof Number size) || size.longValue() != file.size()
+            || !(map.get("modified") instanceof Number modified) || modified.longValue() != file.modified()
+            || !(map.get("ranges") instanceof List<?> list) || list.isEmpty()) {
+            return null;
+        }
+        var ranges = new ArrayList<CsvRangeSplitter.Range>(list.size());
+        for (var entry : list) {
+            if (!(entry instanceof List<?> pair) || pair.size() != 2
+                || !(pair.get(0) instanceof Number start) || !(pair.get(1) instanceof Number end)
+                || start.longValue() < dataStart || start.longValue() > end.longValue() || end.longValue() > file.size()) {
+                return null;
             }
+            ranges.add(new CsvRangeSplitter.Range(start.longValue(), end.longValue()));
         }
+        return ranges;
+    }
 
-        log.info("{\"event\":\"csv_extract_done\",\"source\":\"{}\",\"records\":{}}", config.getName(), records.size());
-        return records;
+    private static byte parseDelimiter(Object value) {
+        if (value == null) {
+            return ',';
+        }
+        var s = String.valueOf(value);
+        if (s.length() != 1 || s.charAt(0) > 0x7F || s.charAt(0) == '"' || s.charAt(0) == '\r' || s.charAt(0) == '\n') {
+            throw new IllegalArgumentException("CSV delimiter must be a single ASCII character other than quote or line break, got: '" + s + "'");
+        }
+        return (byte) s.charAt(0);
+    }
+
+    private static Charset parseEncoding(Object value) {
+        if (value == null) {
+            return StandardCharsets.UTF_8;
+        }
+        try {
+            return Charset.forName(String.valueOf(value));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown CSV encoding: " + value);
+        }
+    }
+
+    /** Header-derived mapping from CSV column to schema index, shared by all readers of a file. */
+    private static final class Layout {
+
+        private final RecordSchema schema = new RecordSchema();
+        private final int headerWidth;
+        // Schema index of each CSV column — a repeated header maps to the same field (last value wins)
+        private final int[] columnIndex;
+        // Columns to decode; the rest are skipped at byte level
+        private final boolean[] wanted;
+
+        Layout(List<String> header, Object selectedColumns) {
+            this.headerWidth = header.size();
+            this.columnIndex = new int[headerWidth];
+            this.wanted = new boolean[headerWidth];
+
+            var selected = selectedColumns instanceof Collection<?> c ? new HashSet<>(c) : null;
+            for (int i = 0; i < headerWidth; i++) {
+                var name = header.get(i);
+                wanted[i] = selected == null || selected.contains(name);
+                columnIndex[i] = wanted[i] ? schema.add(name) : -1;
+            }
+        }
+
+        /** Parses up to maxRecords rows from parser into chunk. Returns false once the parser is exhausted. */
+        boolean read(MappedCsvParser parser, List<Row> chunk, int maxRecords) throws IOException {
+            while (chunk.size() < maxRecords) {
+                // One Object[] per row; wanted fields are decoded straight into it
+                var row = new Row(schema);
+                int fields = parser.readRecord(wanted, (column, value) -> row.set(columnIndex[column], value));
+                if (fields < 0) {
+                    return false;
+                }
+                if (fields != headerWidth) {
+                    throw new IOException("Error on record number " + parser.recordsRead()
+                        + ": The number of data elements is not the same as the number of header elements");
+                }
+                chunk.add(row);
+            }
+            return true;
+        }
+    }
+
+    private static final class CsvCursor implements RecordCursor {
+
+        private final SourceConfig config;
+        private final FileChannel channel;
+        private final MappedCsvParser parser;
+        private final Layout layout;
+        private final FileVersion file;
+        private long total = 0;
+        private boolean closed = false;
+
+        CsvCursor(SourceConfig config, FileChannel channel, MappedCsvParser parser, Layout layout, FileVersion file) {
+            this.config = config;
+            this.channel = channel;
+            this.parser = parser;
+            this.layout = layout;
+            this.file = file;
+        }
+
+        @Override
+        public RecordSchema schema() {
+            return layout.schema;
+        }
+
+        @Override
+        public List<Row> nextChunk(int maxRecords) throws Exception {
+            var chunk = new ArrayList<Row>(maxRecords);
+            layout.read(parser, chunk, maxRecords);
+            total += chunk.size();
+            return chunk;
+        }
+
+        @Override
+        public String checkpoint() {
+            return CsvExtractor.checkpoint(file, List.of(new CsvRangeSplitter.Range(parser.position(), file.size())));
+        }
+
+        @Override
+        public void close() throws Exception {
+            if (closed) return;
+            closed = true;
+            channel.close();
+            log.info("{\"event\":\"csv_extract_done\",\"source\":\"{}\",\"records\":{}}", config.getName(), total);
+        }
     }
 }
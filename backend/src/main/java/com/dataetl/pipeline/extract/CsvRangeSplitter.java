@@ -0,0 +1,112 @@
+package com.dataetl.pipeline.extract;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+/**
+ * Cuts the data section of a CSV file into byte ranges that each start on a record boundary,
+ * so every range can be parsed by its own {@link MappedCsvParser}.
+ *
+ * A line feed is only a record boundary if it lies outside quotes, i.e. if an even number of
+ * quote bytes precede it. Counting from the start of the file would be a serial pass, so the
+ * file is cut into equal segments that are scanned in parallel: each scan counts the quotes in
+ * its segment and remembers its first line feed at even and at odd local quote parity.
+ * A prefix sum over the counts then gives the parity each segment starts with, which picks the
+ * right candidate. Doubled quotes ("") flip parity twice and need no special handling.
+ *
+ * This relies on quotes only appearing around fields, as RFC 4180 requires; a stray quote
+ * inside an unquoted field shifts the parity. The extractor detects the resulting misaligned
+ * range when its parser overruns the range end, and fails the job rather than loading
+ * misparsed rows.
+ */
+final class CsvRangeSplitter {
+
+    record Range(long start, long end) {}
+
+    private record SegmentScan(long quotes, long firstLfEven, long firstLfOdd) {}
+
+    private CsvRangeSplitter() {}
+
+    /**
+     * Splits [dataStart, file size) into at most {@code parts} ranges. Segments without a
+     * usable boundary (e.g. one long multi-line quoted field) merge into the previous range,
+     * so fewer ranges than requested may come back.
+     */
+    static List<Range> split(FileChannel channel, long dataStart, int parts, Executor executor) throws IOException {
+        long fileSize = channel.size();
+        long length = fileSize - dataStart;
+        if (parts <= 1 || length <= 0) {
+            return List.of(new Range(dataStart, fileSize));
+        }
+
+        long segmentLength = (length + parts - 1) / parts;
+        var scans = new ArrayList<CompletableFuture<SegmentScan>>(parts);
+        for (int i = 0; i < parts; i++) {
+            long from = Math.min(dataStart + i * segmentLength, fileSize);
+            long to = Math.min(from + segmentLength, fileSize);
+            scans.add(CompletableFuture.supplyAsync(() -> scan(channel, from, to), executor));
+        }
+
+        var ranges = new ArrayList<Range>(parts);
+        long rangeStart = dataStart;
+        long quotesBefore = 0;
+        for (int i = 0; i < parts; i++) {
+            var scan = join(scans.get(i));
+            // Segment 0 starts at dataStart, which is already a boundary
+            if (i > 0) {
+                long lf = (quotesBefore & 1) == 0 ? scan.firstLfEven : scan.firstLfOdd;
+                if (lf >= 0 && lf + 1 < fileSize) {
+                    ranges.add(new Range(rangeStart, lf + 1));
+                    rangeStart = lf + 1;
+                }
+            }
+            quotesBefore += scan.quotes;
+        }
+        ranges.add(new Range(rangeStart, fileSize));
+        return ranges;
+    }
+
+    private static SegmentScan scan(FileChannel channel, long from, long to) {
+        long quotes = 0;
+        long firstLfEven = -1;
+        long firstLfOdd = -1;
+        try {
+            for (long windowStart = from; windowStart < to; windowStart += MappedCsvParser.WINDOW_BYTES) {
+                int windowLength = (int) Math.min(MappedCsvParser.WINDOW_BYTES, to - windowStart);
+                var window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, windowLength);
+                for (int i = 0; i < windowLength; i++) {
+                    byte b = window.get(i);
+                    if (b == '"') {
+                        quotes++;
+                    } else if (b == '\n') {
+                        if ((quotes & 1) == 0) {
+                            if (firstLfEven < 0) firstLfEven = windowStart + i;
+                        } else if (firstLfOdd < 0) {
+                            firstLfOdd = windowStart + i;
+                        }
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to scan CSV bytes " + from + "-" + to, e);
+        }
+        return new SegmentScan(quotes, firstLfEven, firstLfOdd);
+    }
+
+    private static SegmentScan join(CompletableFuture<SegmentScan> future) throws IOException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException io) {
+                throw io.getCause();
+            }
+            throw e;
+        }
+    }
+}
@@ -1,23 +1,86 @@
 package com.dataetl.pipeline.extract;
 
 import com.dataetl.model.SourceConfig;
+import com.dataetl.pipeline.RecordSchema;
+import com.dataetl.pipeline.Row;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
 import org.springframework.stereotype.Component;
 
-import java.sql.DriverManager;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.regex.Pattern;
 
+/**
+ * Streams a SELECT from an external database.
+ *
+ * Connections come from {@link SourcePoolCache}, so repeated runs of a source reuse warm
+ * connections. The query runs in a read-only transaction with a positive fetch size, which
+ * makes the PostgreSQL driver use a server-side cursor: rows arrive fetch-size at a time as
+ * the pipeline pulls chunks, instead of the whole result set being buffered before the
+ * first row is returned.
+ *
+ * Optional partitioned mode for large sources — authConfig:
+ * {"query": "...", "splitColumn": "id", "parallelism": 4}. The query is split into key ranges
+ * on the numeric or timestamp split column ({@link DbRangePartitioner}) and each range is read
+ * on its own connection and thread; the streams merge into the job's single cursor. Capped at
+ * the per-source pool size divided by app.etl.jobs.max-per-database, so every job admitted
+ * for the same URL gets a connection for each of its ranges.
+ *
+ * Resumable mode — authConfig: {"query": "...", "checkpointColumn": "id"}. The query is read
+ * in checkpoint column order and the checkpoint is the column value of the last row read; a
+ * resumed job reads rows from that value on (the rows sharing it are read again, so the column
+ * need not be unique) plus rows where it is NULL. Partitioned sources always start over, so
+ * checkpointColumn is rejected together with splitColumn and a parallelism above 1.
+ */
 @Component
 public class DbExtractor implements Extractor {
 
     private static final Logger log = LoggerFactory.getLogger(DbExtractor.class);
 
+    // Type names from a checkpoint are spliced into a CAST, so only plain names are accepted
+    private static final Pattern TYPE_NAME = Pattern.compile("[A-Za-z_][A-Za-z0-9_ ]*");
+
+    private final SourcePoolCache pools;
+    private final AsyncTaskExecutor partitionExecutor;
+    private final int fetchSize;
+    private final int chunkSize;
+    private final int maxPartitions;
+
+    public DbExtractor(SourcePoolCache pools,
+                       @Qualifier("pipelineStageExecutor") AsyncTaskExecutor partitionExecutor,
+                       @Value("${app.etl.db.fetch-size:1000}") int fetchSize,
+                       @Value("${app.etl.chunk-size:1000}") int chunkSize,
+                       @Value("${app.etl.jobs.max-per-database:2}") int maxPerDatabase) {
+        if (fetchSize <= 0) {
+            throw new IllegalArgumentException("app.etl.db.fetch-size must be positive, got " + fetchSize);
+        }
+        if (maxPerDatabase <= 0) {
+            throw new IllegalArgumentException("app.etl.jobs.max-per-database must be positive, got " + maxPerDatabase);
+        }
+        this.pools = pools;
+        this.partitionExecutor = partitionExecutor;
+        this.fetchSize = fetchSize;
+        this.chunkSize = chunkSize;
+        // A part that cannot get a connection fails once the pool's connection timeout expires
+        this.maxPartitions = Math.max(1, pools.maxPoolSize() / maxPerDatabase);
+    }
+
     @Override
-    public List<Map<String, Object>> extract(SourceConfig config) throws Exception {
+    public RecordCursor open(SourceConfig config) throws Exception {
+        return open(config, null);
+    }
+
+    @Override
+    public RecordCursor open(SourceConfig config, String checkpoint) throws Exception {
         var jdbcUrl = config.getConnectionString();
 
         // Query is stored in authConfig: {"query": "SELECT id, name, ... FROM table"}
@@ -50,34 +113,304 @@ public class DbExtractor implements Extractor {
             finalQuery += hasWhere ? " AND updated_at > ?" : " WHERE updated_at > ?";
         }
 
-        log.info("{\"event\":\"db_extract_start\",\"source\":\"{}\",\"hasTimestampFilter\":{}}",
-            config.getName(), config.getLastRunTimestamp() != null);
+        // Bound as a string exactly like before — the database casts it against updated_at
+        String since = config.getLastRunTimestamp() != null
+            ? config.getLastRunTimestamp().toInstant().toString()
+            : null;
+
+        var splitColumn = config.getAuthConfig().get("splitColumn");
+        int parallelism = parseParallelism(config.getAuthConfig().get("parallelism"));
+        var checkpointColumn = config.getAuthConfig().get("checkpointColumn");
+        if (splitColumn != null && parallelism > 1) {
+            // Ranges read concurrently have no single position to resume from
+            if (checkpointColumn != null) {
+                throw new IllegalArgumentException(
+                    "DB source cannot combine 'checkpointColumn' with 'splitColumn' — partitioned reads are not resumable");
+            }
+            return openPartitioned(config, finalQuery, since, String.valueOf(splitColumn),
+                Math.min(parallelism, maxPartitions));
+        }
+
+        if (checkpointColumn != null) {
+            DbRangePartitioner.validateColumn("checkpointColumn", String.valueOf(checkpointColumn));
+        }
+        var resume = checkpointColumn != null ? resumeAfter(checkpoint, String.valueOf(checkpointColumn)) : null;
 
-        var records = new ArrayList<Map<String, Object>>();
+        log.info("{\"event\":\"db_extract_start\",\"source\":\"{}\",\"hasTimestampFilter\":{},\"resumed\":{}}",
+            config.getName(), since != null, resume != null);
 
-        try (var conn = DriverManager.getConnection(jdbcUrl);
-             var stmt = conn.prepareStatement(finalQuery)) {
+        if (checkpointColumn != null) {
+            // Ordered by the checkpoint column so its last value read marks everything before it
+            finalQuery = "SELECT * FROM (" + finalQuery + ") AS etl_src"
+                + (resume != null ? " WHERE " + checkpointColumn + " >= CAST(? AS " + resume.sqlType()
+                    + ") OR " + checkpointColumn + " IS NULL" : "")
+                + " ORDER BY " + checkpointColumn;
+        }
 
-            if (config.getLastRunTimestamp() != null) {
-                stmt.setString(1, config.getLastRunTimestamp().toInstant().toString());
+        var lease = pools.borrow(jdbcUrl);
+        try {
+            var stmt = prepareStreaming(lease.connection(), finalQuery);
+            int param = 1;
+            if (since != null) {
+                stmt.setString(param++, since);
             }
+            if (resume != null) {
+                stmt.setString(param, resume.after());
+            }
+            var rows = new ResultRows(new RecordSchema(), stmt.executeQuery());
+            var key = checkpointColumn != null ? rows.keyColumn(String.valueOf(checkpointColumn)) : null;
+            return new DbCursor(config, lease, rows, key, resume != null ? resume.after() : null);
+        } catch (Exception e) {
+            releaseAfterFailure(lease, e);
+            throw e;
+        }
+    }
 
-            try (var rs = stmt.executeQuery()) {
-                var meta = rs.getMetaData();
-                var colCount = meta.getColumnCount();
+    private RecordCursor openPartitioned(SourceConfig config, String query, String since,
+                                         String splitColumn, int parallelism) throws Exception {
+        DbRangePartitioner.validateColumn(splitColumn);
+        var jdbcUrl = config.getConnectionString();
+        // Wrapping keeps the user's WHERE (and the incremental filter) intact inside the derived table
+        var source = "(" + query + ") AS etl_src";
+        var schema = new RecordSchema();
 
-                while (rs.next()) {
-                    var row = new LinkedHashMap<String, Object>();
-                    for (int i = 1; i <= colCount; i++) {
-                        row.put(meta.getColumnLabel(i), rs.getObject(i));
+        List<DbRangePartitioner.Partition> partitions;
+        var lease = pools.borrow(jdbcUrl);
+        try {
+            var conn = lease.connection();
+            beginReadOnly(conn);
+            partitions = DbRangePartitioner.partition(conn, source, since, splitColumn, parallelism);
+            // Register the columns up front so the schema is complete before the transform adds its fields
+            try (var stmt = conn.prepareStatement("SELECT * FROM " + source)) {
+                var meta = stmt.getMetaData();
+                for (int i = 1; meta != null && i <= meta.getColumnCount(); i++) {
+                    schema.add(meta.getColumnLabel(i));
+                }
+            }
+        } finally {
+            release(lease);
+        }
+
+        log.info("{\"event\":\"db_extract_start\",\"source\":\"{}\",\"hasTimestampFilter\":{},\"splitColumn\":\"{}\",\"partitions\":{}}",
+            config.getName(), since != null, splitColumn, partitions.size());
+
+        var parts = new ArrayList<ParallelCursor.PartOpener>(partitions.size());
+        for (var partition : partitions) {
+            parts.add(() -> {
+                var partLease = pools.borrow(jdbcUrl);
+                try {
+                    var stmt = prepareStreaming(partLease.connection(),
+                        "SELECT * FROM " + source + " WHERE " + partition.predicate());
+                    int param = 1;
+                    if (since != null) {
+                        stmt.setString(param++, since);
+                    }
+                    for (var bound : partition.bounds()) {
+                        stmt.setObject(param++, bound);
                     }
-                    records.add(row);
+                    var rows = new ResultRows(schema, stmt.executeQuery());
+                    return new ParallelCursor.Part() {
+                        @Override
+                        public boolean read(List<Row> chunk, int maxRecords) throws SQLException {
+                            return rows.read(chunk, maxRecords);
+                        }
+
+                        @Override
+                        public void close() throws SQLException {
+                            release(partLease);
+                        }
+                    };
+                } catch (Exception e) {
+                    releaseAfterFailure(partLease, e);
+                    throw e;
                 }
+            });
+        }
+        return new ParallelCursor(schema, parts, partitionExecutor, chunkSize, total ->
+            log.info("{\"event\":\"db_extract_done\",\"source\":\"{}\",\"records\":{},\"partitions\":{}}",
+                config.getName(), total, partitions.size()));
+    }
+
+    /** The checkpoint column of a resumable query: its result set index and SQL type name. */
+    private record KeyColumn(String name, int index, String sqlType) {
+    }
+
+    /** Where a resumed query starts: rows whose checkpoint column is at least after. */
+    private record Resume(String sqlType, String after) {
+    }
+
+    private static Resume resumeAfter(String checkpoint, String column) {
+        var map = Checkpoints.read(checkpoint, "db");
+        if (map == null || !column.equals(map.get("column"))
+            || !(map.get("sqlType") instanceof String sqlType) || !TYPE_NAME.matcher(sqlType).matches()
+            || !(map.get("after") instanceof String after)) {
+            return null;
+        }
+        return new Resume(sqlType, after);
+    }
+
+    private static int parseParallelism(Object value) {
+        if (value == null) {
+            return 1;
+        }
+        try {
+            return Integer.parseInt(String.valueOf(value).trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("DB source parallelism must be an integer, got: " + value);
+        }
+    }
+
+    private PreparedStatement prepareStreaming(Connection conn, String sql) throws SQLException {
+        beginReadOnly(conn);
+        var stmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        stmt.setFetchSize(fetchSize);
+        return stmt;
+    }
+
+    private static void beginReadOnly(Connection conn) throws SQLException {
+        // Server-side cursors only stream inside a transaction
+        conn.setAutoCommit(false);
+        conn.setReadOnly(true);
+    }
+
+    /**
+     * Ends the read-only transaction and hands the connection back to its pool. The pool
+     * resets autoCommit/readOnly on return.
+     */
+    private static void release(SourcePoolCache.Lease lease) throws SQLException {
+        try {
+            lease.connection().rollback();
+        } finally {
+            lease.close();
+        }
+    }
+
+    private static void releaseAfterFailure(SourcePoolCache.Lease lease, Exception failure) {
+        try {
+            release(lease);
+        } catch (SQLException releaseFailure) {
+            failure.addSuppressed(releaseFailure);
+        }
+    }
+
+    /** Maps result rows onto the schema, resolving column labels once per query instead of once per row. */
+    private static final class ResultRows {
+
+        private final RecordSchema schema;
+        private final ResultSet rs;
+        // Schema index of each result column (1-based JDBC column i maps to columnIndex[i - 1])
+        private final int[] columnIndex;
+        private boolean exhausted = false;
+
+        ResultRows(RecordSchema schema, ResultSet rs) throws SQLException {
+            this.schema = schema;
+            this.rs = rs;
+            var meta = rs.getMetaData();
+            this.columnIndex = new int[meta.getColumnCount()];
+            for (int i = 0; i < columnIndex.length; i++) {
+                columnIndex[i] = schema.add(meta.getColumnLabel(i + 1));
+            }
+        }
+
+        /**
+         * Looks up the checkpoint column among the result columns.
+         *
+         * @throws IllegalArgumentException if the query has no such column
+         */
+        KeyColumn keyColumn(String name) throws SQLException {
+            var meta = rs.getMetaData();
+            for (int i = 0; i < columnIndex.length; i++) {
+                if (name.equals(meta.getColumnLabel(i + 1))) {
+                    return new KeyColumn(name, columnIndex[i], meta.getColumnTypeName(i + 1));
+                }
+            }
+            throw new IllegalArgumentException("DB source checkpointColumn '" + name + "' is not a column of the query");
+        }
+
+        /** Appends up to maxRecords rows to chunk. Returns false once the result set is exhausted. */
+        boolean read(List<Row> chunk, int maxRecords) throws SQLException {
+            while (!exhausted && chunk.size() < maxRecords) {
+                if (!rs.next()) {
+                    exhausted = true;
+                    break;
+                }
+                var row = new Row(schema);
+                for (int i = 0; i < columnIndex.length; i++) {
+                    row.set(columnIndex[i], rs.getObject(i + 1));
+                }
+                chunk.add(row);
             }
+            return !exhausted;
+        }
+    }
+
+    /**
+     * Holds the leased connection and result set open between chunks; rows are pulled from
+     * the ResultSet only as the caller asks for them.
+     */
+    private static final class DbCursor implements RecordCursor {
+
+        private final SourceConfig config;
+        private final SourcePoolCache.Lease lease;
+        private final ResultRows rows;
+        private final KeyColumn key;
+        // Checkpoint column value of the last row read that had one
+        private String lastKey;
+        private long total = 0;
+        private boolean closed = false;
+
+        DbCursor(SourceConfig config, SourcePoolCache.Lease lease, ResultRows rows, KeyColumn key, String resumedAfter) {
+            this.config = config;
+            this.lease = lease;
+            this.rows = rows;
+            this.key = key;
+            this.lastKey = resumedAfter;
+        }
+
+        @Override
+        public RecordSchema schema() {
+            return rows.schema;
         }
 
-        log.info("{\"event\":\"db_extract_done\",\"source\":\"{}\",\"records\":{}}",
-            config.getName(), records.size());
-        return records;
+        @Override
+        public List<Row> nextChunk(int maxRecords) throws SQLException {
+            var chunk = new ArrayList<Row>(maxRecords);
+            rows.read(chunk, maxRecords);
+            total += chunk.size();
+            if (key != null) {
+                // NULLs sort last, so a NULL key leaves the checkpoint on the last non-NULL value
+                for (int i = chunk.size() - 1; i >= 0; i--) {
+                    var value = chunk.get(i).get(key.index());
+                    if (value != null) {
+                        lastKey = String.valueOf(value);
+                        break;
+                    }
+                }
+            }
+            return chunk;
+        }
+
+        @Override
+        public String checkpoint() {
+            if (key == null || lastKey == null) {
+                return null;
+            }
+            var map = new LinkedHashMap<String, Object>();
+            map.put("type", "db");
+            map.put("column", key.name());
+            map.put("sqlType", key.sqlType());
+            map.put("after", lastKey);
+            return Checkpoints.write(map);
+        }
+
+        @Override
+        public void close() throws SQLException {
+            if (closed) return;
+            closed = true;
+            // Returning the connection to the pool closes its statement and result set
+            release(lease);
+            log.info("{\"event\":\"db_extract_done\",\"source\":\"{}\",\"records\":{}}",
+                config.getName(), total);
+        }
     }
 }
@@ -0,0 +1,184 @@
+package com.dataetl.pipeline.extract;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Picks the cut points that split a DB source's query into key ranges on a split column.
+ *
+ * Cut points are quantiles of the split column, computed by PostgreSQL's percentile_disc
+ * over a random sample of the source query's keys, so every range holds about the same
+ * number of rows even when the keys are skewed (e.g. dense recent IDs after a sparse
+ * history). The sample keeps the sort bounded: ORDER BY random() LIMIT n is a top-n heap,
+ * not a sort of the whole source. Other databases, and PostgreSQL versions without the
+ * aggregate, use MIN/MAX with evenly spaced cuts — correct, but only balanced for evenly
+ * distributed keys.
+ *
+ * Ranges are half-open and the outer ones unbounded: (-inf, c1) plus NULLs, [c1, c2), ...,
+ * [cN, +inf). Rows that appear between sampling and reading still land in exactly one range.
+ */
+final class DbRangePartitioner {
+
+    // Split columns are spliced into SQL, so only plain identifiers are accepted
+    private static final Pattern IDENTIFIER = Pattern.compile("[A-Za-z_][A-Za-z0-9_]*");
+
+    // Keys sampled for the quantiles — a few hundred per range for any sensible parallelism
+    private static final int SAMPLE_ROWS = 10_000;
+
+    // SQLSTATEs meaning the quantile query is not available here: feature_not_supported,
+    // undefined_function. Anything else (timeout, permissions, a bad query) is a real error.
+    private static final Set<String> UNSUPPORTED_STATES = Set.of("0A000", "42883");
+
+    /** One key range: a WHERE predicate on the split column and its bind values, in order. */
+    record Partition(String predicate, List<Object> bounds) {}
+
+    private DbRangePartitioner() {}
+
+    static void validateColumn(String column) {
+        validateColumn("splitColumn", column);
+    }
+
+    /** @param option the authConfig option that named the column, for the error message */
+    static void validateColumn(String option, String column) {
+        if (column == null || !IDENTIFIER.matcher(column).matches()) {
+            throw new IllegalArgumentException(
+                "DB source " + option + " must be a plain column name (letters, digits, underscore), got: " + column);
+        }
+    }
+
+    /**
+     * Computes the key ranges for {@code parallelism} readers.
+     *
+     * @param source      the source query wrapped as a derived table, e.g. "(SELECT ...) AS etl_src"
+     * @param sourceParam bind value the source query needs (incremental timestamp), or null
+     */
+    static List<Partition> partition(Connection conn, String source, Object sourceParam,
+                                     String column, int parallelism) throws SQLException {
+        var cuts = quantileCuts(conn, source, sourceParam, column, parallelism);
+        var distinct = new ArrayList<>();
+        for (var cut : cuts) {
+            if (cut != null && (distinct.isEmpty() || !Objects.equals(distinct.get(distinct.size() - 1), cut))) {
+                distinct.add(cut);
+            }
+        }
+        if (distinct.isEmpty()) {
+            // Empty source or a single key value — nothing to split
+            return List.of(new Partition("1 = 1", List.of()));
+        }
+
+        var partitions = new ArrayList<Partition>(distinct.size() + 1);
+        partitions.add(new Partition("(" + column + " < ? OR " + column + " IS NULL)", List.of(distinct.get(0))));
+        for (int i = 1; i < distinct.size(); i++) {
+            partitions.add(new Partition(column + " >= ? AND " + column + " < ?",
+                List.of(distinct.get(i - 1), distinct.get(i))));
+        }
+        partitions.add(new Partition(column + " >= ?", List.of(distinct.get(distinct.size() - 1))));
+        return partitions;
+    }
+
+    private static List<Object> quantileCuts(Connection conn, String source, Object sourceParam,
+                                             String column, int parallelism) throws SQLException {
+        if (!"PostgreSQL".equals(conn.getMetaData().getDatabaseProductName())) {
+            return evenCuts(conn, source, sourceParam, column, parallelism);
+        }
+        var fractions = new StringBuilder();
+        for (int i = 1; i < parallelism; i++) {
+            if (i > 1) fractions.append(',');
+            fractions.append(BigDecimal.valueOf(i).divide(BigDecimal.valueOf(parallelism), 6, RoundingMode.HALF_UP));
+        }
+        // TABLESAMPLE only applies to base tables, not to the derived table the query is wrapped in
+        var sql = "SELECT percentile_disc(ARRAY[" + fractions + "]) WITHIN GROUP (ORDER BY " + column + ")"
+            + " FROM (SELECT " + column + " FROM " + source + " WHERE " + column + " IS NOT NULL"
+            + " ORDER BY random() LIMIT ?) AS etl_sample";
+        var savepoint = conn.setSavepoint();
+        try (var stmt = conn.prepareStatement(sql)) {
+            int param = bind(stmt, sourceParam);
+            stmt.setInt(param, SAMPLE_ROWS);
+            try (var rs = stmt.executeQuery()) {
+                rs.next();
+                var array = rs.getArray(1);
+                if (array == null) {
+                    return List.of();
+                }
+                var cuts = new ArrayList<>();
+                for (var cut : (Object[]) array.getArray()) {
+                    cuts.add(requireSplittable(cut, column));
+                }
+                return cuts;
+            }
+        } catch (SQLException e) {
+            if (!UNSUPPORTED_STATES.contains(e.getSQLState())) {
+                throw e;
+            }
+            // No ordered-set aggregates on this server — interpolate between MIN and MAX
+            conn.rollback(savepoint);
+            return evenCuts(conn, source, sourceParam, column, parallelism);
+        }
+    }
+
+    private static List<Object> evenCuts(Connection conn, String source, Object sourceParam,
+                                         String column, int parallelism) throws SQLException {
+        try (var stmt = conn.prepareStatement("SELECT MIN(" + column + "), MAX(" + column + ") FROM " + source)) {
+            bind(stmt, sourceParam);
+            try (var rs = stmt.executeQuery()) {
+                rs.next();
+                var min = rs.getObject(1);
+                var max = rs.getObject(2);
+                if (min == null || max == null) {
+                    return List.of();
+                }
+                var cuts = new ArrayList<>();
+                for (int i = 1; i < parallelism; i++) {
+                    cuts.add(interpolate(requireSplittable(min, column), requireSplittable(max, column), i, parallelism));
+                }
+                return cuts;
+            }
+        }
+    }
+
+    private static Object interpolate(Object min, Object max, int step, int steps) {
+        if (min instanceof Timestamp lo && max instanceof Timestamp hi) {
+            return new Timestamp(lo.getTime() + (hi.getTime() - lo.getTime()) * step / steps);
+        }
+        if (min instanceof Date lo && max instanceof Date hi) {
+            return new Date(lo.getTime() + (hi.getTime() - lo.getTime()) * step / steps);
+        }
+        var lo = new BigDecimal(min.toString());
+        var hi = new BigDecimal(max.toString());
+        var cut = lo.add(hi.subtract(lo).multiply(BigDecimal.valueOf(step))
+            .divide(BigDecimal.valueOf(steps), 10, RoundingMode.FLOOR));
+        // Keep integer keys integral so the bound compares like the column does
+        if (min instanceof Integer || min instanceof Long || min instanceof Short || min instanceof BigInteger) {
+            return cut.setScale(0, RoundingMode.FLOOR).longValueExact();
+        }
+        return cut;
+    }
+
+    private static Object requireSplittable(Object value, String column) {
+        if (value == null || value instanceof Number || value instanceof Timestamp || value instanceof Date) {
+            return value;
+        }
+        throw new IllegalArgumentException(
+            "DB source splitColumn '" + column + "' must be numeric or a timestamp, got " + value.getClass().getSimpleName());
+    }
+
+    /** Binds the source query's parameter, if any; returns the next parameter index. */
+    private static int bind(PreparedStatement stmt, Object sourceParam) throws SQLException {
+        if (sourceParam != null) {
+            stmt.setObject(1, sourceParam);
+            return 2;
+        }
+        return 1;
+    }
+}
@@ -2,19 +2,29 @@ package com.dataetl.pipeline.extract;
 
 import com.dataetl.model.SourceConfig;
 
-import java.util.List;
-import java.util.Map;
-
 public interface Extractor {
 
     /**
-     * Extracts raw records from the configured source.
-     * Returns each record as a Map of field name to value.
+     * Opens a streaming cursor over the configured source.
+     * Records are read lazily in bounded chunks via {@link RecordCursor#nextChunk(int)};
+     * nothing beyond the current chunk is held in memory.
      * Supports incremental loading via SourceConfig.lastRunTimestamp.
      *
      * @param config the source configuration
-     * @return list of raw records (never null, may be empty)
-     * @throws Exception if extraction fails (caller handles retry/error logging)
+     * @return an open cursor (never null) — the caller must close it
+     * @throws Exception if the source cannot be opened (caller handles retry/error logging)
+     */
+    RecordCursor open(SourceConfig config) throws Exception;
+
+    /**
+     * Opens a cursor that continues after an earlier run's checkpoint (see
+     * {@link RecordCursor#checkpoint()}). An extractor that cannot use the checkpoint — it
+     * does not support resuming, or the source changed since — starts from the beginning;
+     * loading records again is harmless, since every write is an upsert.
+     *
+     * @param checkpoint a checkpoint of this source, or null to start from the beginning
      */
-    List<Map<String, Object>> extract(SourceConfig config) throws Exception;
+    default RecordCursor open(SourceConfig config, String checkpoint) throws Exception {
+        return open(config);
+    }
 }
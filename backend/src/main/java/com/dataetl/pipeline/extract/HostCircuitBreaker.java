@@ -0,0 +1,190 @@
+package com.dataetl.pipeline.extract;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Per-host circuit breaker for API sources, shared by every source and job that calls the host.
+ *
+ * CLOSED: requests go through; failure-threshold consecutive failures open the circuit.
+ * OPEN: requests fail at once with {@link CircuitOpenException} and scheduled runs of the
+ * host's sources are skipped, so a vendor outage does not tie up scheduler threads in retry
+ * backoff. After open-duration the circuit is HALF_OPEN.
+ * HALF_OPEN: exactly one request is let through as a probe; its success closes the circuit,
+ * its failure opens it for another open-duration. Other requests fail fast meanwhile.
+ *
+ * Only 5xx responses and requests that got no response (connect errors, timeouts) count as
+ * failures. Any other response — 4xx and 429 included — proves the host is up.
+ *
+ * State is published as the etl.api.circuit.state gauge (0 closed, 1 half-open, 2 open).
+ */
+@Component
+public class HostCircuitBreaker {
+
+    private static final Logger log = LoggerFactory.getLogger(HostCircuitBreaker.class);
+
+    enum State { CLOSED, HALF_OPEN, OPEN }
+
+    private final MeterRegistry meterRegistry;
+    private final int failureThreshold;
+    private final long openNanos;
+    private final ConcurrentHashMap<String, Circuit> hosts = new ConcurrentHashMap<>();
+
+    public HostCircuitBreaker(MeterRegistry meterRegistry,
+                              @Value("${app.etl.api.circuit-breaker.failure-threshold:5}") int failureThreshold,
+                              @Value("${app.etl.api.circuit-breaker.open-duration:60s}") Duration openDuration) {
+        if (failureThreshold <= 0 || openDuration.isNegative() || openDuration.isZero()) {
+            throw new IllegalArgumentException("app.etl.api.circuit-breaker values must be positive");
+        }
+        this.meterRegistry = meterRegistry;
+        this.failureThreshold = failureThreshold;
+        this.openNanos = openDuration.toNanos();
+    }
+
+    /** True while the host's circuit is open and its cool-down has not yet elapsed. */
+    public boolean isOpen(String host) {
+        return circuit(host).state(System.nanoTime()) == State.OPEN;
+    }
+
+    /**
+     * Fails fast if the host's circuit is open, without taking the half-open probe — for
+     * callers about to start a series of requests.
+     *
+     * @throws CircuitOpenException if the circuit is open
+     */
+    void checkClosed(String host) {
+        circuit(host).check(System.nanoTime());
+    }
+
+    /**
+     * Admits one request to the host.
+     *
+     * @throws CircuitOpenException if the circuit is open, or half-open with its probe in flight
+     */
+    Call admit(String host) {
+        return circuit(host).admit(System.nanoTime());
+    }
+
+    Circuit circuit(String host) {
+        return hosts.computeIfAbsent(host.toLowerCase(Locale.ROOT), Circuit::new);
+    }
+
+    /** Outcome of one admitted request. Only the first report counts. */
+    final class Call {
+
+        private final Circuit circuit;
+        private final boolean probe;
+        private final AtomicBoolean done = new AtomicBoolean();
+
+        private Call(Circuit circuit, boolean probe) {
+            this.circuit = circuit;
+            this.probe = probe;
+        }
+
+        void succeeded() {
+            if (done.compareAndSet(false, true)) {
+                circuit.record(true, probe, System.nanoTime());
+            }
+        }
+
+        /** Counts the error against the host only if it says the host is unhealthy. */
+        void failed(Throwable error) {
+            if (done.compareAndSet(false, true)) {
+                boolean hostUp = error instanceof WebClientResponseException response
+                    && !response.getStatusCode().is5xxServerError();
+                circuit.record(hostUp, probe, System.nanoTime());
+            }
+        }
+
+        /** Cancelled before an outcome — says nothing about the host, but frees the probe. */
+        void abandoned() {
+            if (done.compareAndSet(false, true) && probe) {
+                circuit.releaseProbe();
+            }
+        }
+    }
+
+    final class Circuit {
+
+        private final String host;
+        private State state = State.CLOSED;
+        private int consecutiveFailures = 0;
+        private long openedAt;
+        private boolean probeInFlight = false;
+
+        private Circuit(String host) {
+            this.host = host;
+            Gauge.builder("etl.api.circuit.state", this, circuit -> circuit.state(System.nanoTime()).ordinal())
+                .description("Circuit state: 0 closed, 1 half-open, 2 open").tag("host", host).register(meterRegistry);
+        }
+
+        synchronized State state(long now) {
+            if (state == State.OPEN && now - openedAt >= openNanos) {
+                state = State.HALF_OPEN;
+            }
+            return state;
+        }
+
+        synchronized void check(long now) {
+            if (state(now) == State.OPEN) {
+                throw new CircuitOpenException(host, TimeUnit.NANOSECONDS.toSeconds(openNanos - (now - openedAt)) + 1);
+            }
+        }
+
+        synchronized Call admit(long now) {
+            switch (state(now)) {
+                case CLOSED -> {
+                    return new Call(this, false);
+                }
+                case HALF_OPEN -> {
+                    if (!probeInFlight) {
+                        probeInFlight = true;
+                        log.info("{\"event\":\"api_circuit_probe\",\"host\":\"{}\"}", host);
+                        return new Call(this, true);
+                    }
+                    throw new CircuitOpenException(host, 0);
+                }
+                default -> throw new CircuitOpenException(host,
+                    TimeUnit.NANOSECONDS.toSeconds(openNanos - (now - openedAt)) + 1);
+            }
+        }
+
+        synchronized void record(boolean success, boolean probe, long now) {
+            if (probe) {
+                probeInFlight = false;
+            }
+            if (success) {
+                consecutiveFailures = 0;
+                if (state != State.CLOSED) {
+                    state = State.CLOSED;
+                    log.info("{\"event\":\"api_circuit_closed\",\"host\":\"{}\"}", host);
+                }
+                return;
+            }
+            consecutiveFailures++;
+            // A failed probe reopens at once; a closed circuit opens at the threshold. Failures of
+            // requests admitted before the circuit opened do not extend the cool-down.
+            if (probe || (state == State.CLOSED && consecutiveFailures >= failureThreshold)) {
+                state = State.OPEN;
+                openedAt = now;
+                log.warn("{\"event\":\"api_circuit_opened\",\"host\":\"{}\",\"failures\":{},\"openSeconds\":{}}",
+                    host, consecutiveFailures, TimeUnit.NANOSECONDS.toSeconds(openNanos));
+            }
+        }
+
+        synchronized void releaseProbe() {
+            probeInFlight = false;
+        }
+    }
+}
@@ -0,0 +1,286 @@
+package com.dataetl.pipeline.extract;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Request admission for API sources, one limiter per host, shared by every source and job
+ * that calls the host.
+ *
+ * A request needs a token and a concurrency slot:
+ * - Tokens refill at requests-per-second up to burst. While the host has announced a quota
+ *   (X-RateLimit-Remaining / X-RateLimit-Reset, or the unprefixed RateLimit-* draft headers)
+ *   the refill rate drops to what spreads the remaining quota over the rest of its window.
+ * - The slot limit adapts AIMD-style: +1/limit per successful response while the limit is
+ *   fully used, halved (at most once a second) on 429 or 503. It settles just under the
+ *   concurrency the host sustains, which at a stable latency is the sustainable request rate.
+ * - Retry-After, or a quota of 0, pauses the host until the given time (capped at max-pause).
+ *
+ * A slot is held from sending the request until its response headers arrive; streaming the
+ * body does not count, since that pace is set by the job reading it.
+ *
+ * Per-host state is published as etl.api.limiter.* gauges tagged with the host.
+ */
+@Component
+public class HostRateLimiter {
+
+    private static final Logger log = LoggerFactory.getLogger(HostRateLimiter.class);
+
+    private static final double DECREASE_FACTOR = 0.5;
+    private static final long DECREASE_COOLDOWN_NANOS = TimeUnit.SECONDS.toNanos(1);
+    // X-RateLimit-Reset values above this are epoch seconds, below it seconds from now
+    private static final long EPOCH_RESET_THRESHOLD = 1_000_000_000L;
+
+    private final MeterRegistry meterRegistry;
+    private final double requestsPerSecond;
+    private final int burst;
+    private final int initialConcurrency;
+    private final int maxConcurrency;
+    private final Duration maxPause;
+    private final ConcurrentHashMap<String, HostLimit> hosts = new ConcurrentHashMap<>();
+
+    public HostRateLimiter(MeterRegistry meterRegistry,
+                           @Value("${app.etl.api.rate-limit.requests-per-second:10}") double requestsPerSecond,
+                           @Value("${app.etl.api.rate-limit.burst:20}") int burst,
+                           @Value("${app.etl.api.rate-limit.initial-concurrency:4}") int initialConcurrency,
+                           @Value("${app.etl.api.rate-limit.max-concurrency:32}") int maxConcurrency,
+                           @Value("${app.etl.api.rate-limit.max-pause:5m}") Duration maxPause) {
+        if (requestsPerSecond <= 0 || burst <= 0 || initialConcurrency <= 0 || maxConcurrency < initialConcurrency) {
+            throw new IllegalArgumentException(
+                "app.etl.api.rate-limit values must be positive and max-concurrency >= initial-concurrency");
+        }
+        this.meterRegistry = meterRegistry;
+        this.requestsPerSecond = requestsPerSecond;
+        this.burst = burst;
+        this.initialConcurrency = initialConcurrency;
+        this.maxConcurrency = maxConcurrency;
+        this.maxPause = maxPause;
+    }
+
+    /**
+     * Completes with a permit once the host has a token and a free slot. Cancelling the Mono
+     * gives up the wait; a permit that was handed out must be completed or abandoned.
+     */
+    Mono<Permit> acquire(String host) {
+        return limit(host).acquire();
+    }
+
+    HostLimit limit(String host) {
+        return hosts.computeIfAbsent(host.toLowerCase(Locale.ROOT), HostLimit::new);
+    }
+
+    /** Admission to send one request. Completing or abandoning it frees the slot; repeats are ignored. */
+    final class Permit {
+
+        private final HostLimit host;
+        private final AtomicBoolean done = new AtomicBoolean();
+
+        private Permit(HostLimit host) {
+            this.host = host;
+        }
+
+        /** Frees the slot and feeds the response status and rate-limit headers to the limiter. */
+        void complete(HttpStatusCode status, HttpHeaders headers) {
+            if (done.compareAndSet(false, true)) {
+                host.release(status, headers, System.nanoTime());
+            }
+        }
+
+        /** Frees the slot without a response to learn from (cancelled, network error). */
+        void abandon() {
+            if (done.compareAndSet(false, true)) {
+                host.release(null, null, System.nanoTime());
+            }
+        }
+    }
+
+    final class HostLimit {
+
+        private final String host;
+        private final Counter throttled;
+        private double tokens = burst;
+        private long refilledAt = System.nanoTime();
+        private double limit = initialConcurrency;
+        private int inFlight = 0;
+        private long pausedUntil = refilledAt;
+        private long lastDecreaseAt = Long.MIN_VALUE;
+        // Rate that spreads the host's announced remaining quota over its window, until quotaUntil
+        private double quotaRate = Double.POSITIVE_INFINITY;
+        private long quotaUntil = refilledAt;
+        // Requests waiting for a slot; all are woken when one frees up and race for it again
+        private List<Sinks.Empty<Void>> waiters = new ArrayList<>();
+
+        private HostLimit(String host) {
+            this.host = host;
+            this.throttled = Counter.builder("etl.api.limiter.throttled")
+                .description("429/503 responses received from the host")
+                .tag("host", host).register(meterRegistry);
+            Gauge.builder("etl.api.limiter.concurrency", this, HostLimit::concurrencyLimit)
+                .description("Adaptive concurrency limit").tag("host", host).register(meterRegistry);
+            Gauge.builder("etl.api.limiter.in-flight", this, HostLimit::inFlight)
+                .description("Requests awaiting response headers").tag("host", host).register(meterRegistry);
+            Gauge.builder("etl.api.limiter.rate", this, hostLimit -> hostLimit.rate(System.nanoTime()))
+                .description("Token refill rate in requests per second").tag("host", host).register(meterRegistry);
+            Gauge.builder("etl.api.limiter.paused-seconds", this, hostLimit -> hostLimit.pausedFor(System.nanoTime()) / 1e9)
+                .description("Time until the host accepts requests again").tag("host", host).register(meterRegistry);
+        }
+
+        private Mono<Permit> acquire() {
+            return Mono.defer(() -> {
+                Sinks.Empty<Void> waiter = null;
+                long wait;
+                synchronized (this) {
+                    wait = tryAcquire(System.nanoTime());
+                    if (wait < 0) {
+                        waiter = Sinks.empty();
+                        waiters.add(waiter);
+                    }
+                }
+                if (wait == 0) {
+                    return Mono.just(new Permit(this));
+                }
+                var ready = waiter != null ? waiter.asMono() : Mono.delay(Duration.ofNanos(wait)).then();
+                return ready.then(acquire());
+            });
+        }
+
+        /** 0 if a token and slot were taken, -1 if every slot is busy, else nanoseconds to wait. */
+        synchronized long tryAcquire(long now) {
+            if (now < pausedUntil) {
+                return pausedUntil - now;
+            }
+            if (inFlight >= (int) limit) {
+                return -1;
+            }
+            double rate = rate(now);
+            tokens = Math.min(burst, tokens + (now - refilledAt) / 1e9 * rate);
+            refilledAt = now;
+            if (tokens < 1) {
+                return Math.max(1, (long) Math.ceil((1 - tokens) / rate * 1e9));
+            }
+            tokens -= 1;
+            inFlight++;
+            return 0;
+        }
+
+        void release(HttpStatusCode status, HttpHeaders headers, long now) {
+            List<Sinks.Empty<Void>> woken;
+            synchronized (this) {
+                if (status != null) {
+                    adapt(status, headers, now);
+                }
+                inFlight--;
+                woken = waiters;
+                waiters = new ArrayList<>();
+            }
+            woken.forEach(Sinks.Empty::tryEmitEmpty);
+        }
+
+        private void adapt(HttpStatusCode status, HttpHeaders headers, long now) {
+            if (status.value() == 429 || status.value() == 503) {
+                throttled.increment();
+                if (lastDecreaseAt == Long.MIN_VALUE || now - lastDecreaseAt >= DECREASE_COOLDOWN_NANOS) {
+                    lastDecreaseAt = now;
+                    limit = Math.max(1, limit * DECREASE_FACTOR);
+                }
+            } else if (status.is2xxSuccessful() || status.is3xxRedirection()) {
+                // Only grow while the current limit is actually in use — idle headroom proves nothing
+                if (inFlight >= (int) limit) {
+                    limit = Math.min(maxConcurrency, limit + 1 / limit);
+                }
+            }
+
+            var retryAfter = retryAfterNanos(headers.getFirst(HttpHeaders.RETRY_AFTER));
+            if (retryAfter > 0) {
+                pause(now, retryAfter);
+            }
+            var remaining = header(headers, "X-RateLimit-Remaining", "RateLimit-Remaining");
+            var reset = header(headers, "X-RateLimit-Reset", "RateLimit-Reset");
+            if (remaining != null && reset != null) {
+                try {
+                    long left = Long.parseLong(remaining.trim());
+                    long resetIn = resetNanos(Long.parseLong(reset.trim()));
+                    if (left <= 0) {
+                        pause(now, resetIn);
+                    } else if (resetIn > 0) {
+                        quotaRate = left / (resetIn / 1e9);
+                        quotaUntil = now + resetIn;
+                    }
+                } catch (NumberFormatException ignored) {
+                    // Non-numeric quota headers are not worth failing a request over
+                }
+            }
+
+            if (status.value() == 429 || status.value() == 503) {
+                log.warn("{\"event\":\"api_throttled\",\"host\":\"{}\",\"status\":{},\"limit\":{},\"pausedMs\":{}}",
+                    host, status.value(), (int) limit, TimeUnit.NANOSECONDS.toMillis(pausedFor(now)));
+            }
+        }
+
+        private void pause(long now, long nanos) {
+            pausedUntil = Math.max(pausedUntil, now + Math.min(nanos, maxPause.toNanos()));
+        }
+
+        private long retryAfterNanos(String value) {
+            if (value == null || value.isBlank()) {
+                return 0;
+            }
+            try {
+                return TimeUnit.SECONDS.toNanos(Long.parseLong(value.trim()));
+            } catch (NumberFormatException e) {
+                try {
+                    var at = ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME);
+                    return TimeUnit.MILLISECONDS.toNanos(at.toInstant().toEpochMilli() - System.currentTimeMillis());
+                } catch (DateTimeParseException ignored) {
+                    return 0;
+                }
+            }
+        }
+
+        private long resetNanos(long reset) {
+            long seconds = reset > EPOCH_RESET_THRESHOLD ? reset - System.currentTimeMillis() / 1000 : reset;
+            return TimeUnit.SECONDS.toNanos(Math.max(seconds, 0));
+        }
+
+        private static String header(HttpHeaders headers, String name, String alternative) {
+            var value = headers.getFirst(name);
+            return value != null ? value : headers.getFirst(alternative);
+        }
+
+        synchronized double rate(long now) {
+            return now < quotaUntil ? Math.min(requestsPerSecond, quotaRate) : requestsPerSecond;
+        }
+
+        synchronized long pausedFor(long now) {
+            return Math.max(0, pausedUntil - now);
+        }
+
+        synchronized double concurrencyLimit() {
+            return limit;
+        }
+
+        synchronized int inFlight() {
+            return inFlight;
+        }
+    }
+}
@@ -0,0 +1,286 @@
+package com.dataetl.pipeline.extract;
+
+import com.dataetl.pipeline.RecordSchema;
+import com.dataetl.pipeline.Row;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Incremental JSON-to-Row parser for API response bodies.
+ *
+ * Bytes are pushed in as they arrive from the network ({@link #feed}) and records are pulled
+ * out one at a time ({@link #next}); the parser never holds more than the record being built
+ * and the unparsed tail of the last buffer, so body size does not bound memory.
+ *
+ * Records are the objects found at the record path: "$" (the default) means the root value,
+ * "$.data.items" the value of field items inside field data. If that value is an array each
+ * element object is a record, if it is an object it is one record. The body may hold several
+ * root values in a row — JSON Lines / NDJSON needs no special mode, each line is a root value.
+ * Nested objects and arrays inside a record become Maps and Lists, with the same Java types
+ * Jackson's untyped binding produces.
+ *
+ * Scalars outside the records can be captured by path as well (pagination cursors, totals);
+ * they are available from {@link #captured} as soon as the parser has passed them.
+ */
+final class JsonRecordParser {
+
+    private static final JsonFactory JSON = new JsonFactory();
+
+    private enum Kind {
+        /** Object on the way to the record path or a captured value. */
+        NAVIGATE,
+        /** Array at the record path — each element object is a record. */
+        RECORDS,
+        /** Container that is neither on the path nor inside a record. */
+        SKIP,
+        /** Top level of a record being built. */
+        RECORD,
+        /** Nested object inside a record. */
+        OBJECT,
+        /** Nested array inside a record. */
+        ARRAY
+    }
+
+    private static final class Frame {
+        final Kind kind;
+        // NAVIGATE only: field names leading to this object
+        final List<String> at;
+        Row row;
+        Map<String, Object> map;
+        List<Object> list;
+        String field;
+
+        Frame(Kind kind, List<String> at) {
+            this.kind = kind;
+            this.at = at;
+        }
+    }
+
+    private static final List<String> ROOT = List.of();
+
+    private final List<String> path;
+    private final List<List<String>> capturePaths;
+    private final Map<List<String>, Object> captured = new HashMap<>();
+    private final RecordSchema schema;
+    private final JsonParser parser;
+    private final ByteArrayFeeder feeder;
+    private final Deque<Frame> stack = new ArrayDeque<>();
+    private Row completed;
+
+    JsonRecordParser(String recordPath, RecordSchema schema) throws IOException {
+        this(recordPath, List.of(), schema);
+    }
+
+    JsonRecordParser(String recordPath, List<String> capturePaths, RecordSchema schema) throws IOException {
+        this.path = parsePath(recordPath);
+        this.capturePaths = capturePaths.stream().map(JsonRecordParser::parsePath).toList();
+        this.schema = schema;
+        this.parser = JSON.createNonBlockingByteArrayParser();
+        this.feeder = (ByteArrayFeeder) parser.getNonBlockingInputFeeder();
+    }
+
+    RecordSchema schema() {
+        return schema;
+    }
+
+    /**
+     * The scalar seen at a capture path ("$.meta.next_cursor"), or null if the parser has not
+     * passed it (yet) or it was JSON null.
+     */
+    Object captured(String capturePath) {
+        return captured.get(parsePath(capturePath));
+    }
+
+    /** Splits "$.data.items" into its field names; null, "" and "$" mean the root. */
+    static List<String> parsePath(String recordPath) {
+        if (recordPath == null || recordPath.isBlank() || recordPath.trim().equals("$")) {
+            return ROOT;
+        }
+        var trimmed = recordPath.trim();
+        if (trimmed.startsWith("$.")) {
+            trimmed = trimmed.substring(2);
+        }
+        var segments = trimmed.split("\\.", -1);
+        for (var segment : segments) {
+            if (segment.isEmpty() || segment.contains("[") || segment.contains("*")) {
+                throw new IllegalArgumentException(
+                    "API JSON paths must be dotted field paths like $.data.items, got: " + recordPath);
+            }
+        }
+        return List.of(segments);
+    }
+
+    /**
+     * Hands the next bytes of the body to the parser — only once {@link #next} has returned
+     * null for the previous input. The array must not be modified afterwards.
+     */
+    void feed(byte[] bytes) throws IOException {
+        feeder.feedInput(bytes, 0, bytes.length);
+    }
+
+    void endOfInput() {
+        feeder.endOfInput();
+    }
+
+    /**
+     * Returns the next complete record, or null if the fed input is used up (feed more) or
+     * the body has ended.
+     */
+    Row next() throws IOException {
+        while (true) {
+            var token = parser.nextToken();
+            if (token == null || token == JsonToken.NOT_AVAILABLE) {
+                if (token == null && !stack.isEmpty()) {
+                    throw new IOException("API response body ended inside a JSON value");
+                }
+                return null;
+            }
+            handle(token);
+            if (completed != null) {
+                var row = completed;
+                completed = null;
+                return row;
+            }
+        }
+    }
+
+    private void handle(JsonToken token) throws IOException {
+        var top = stack.peek();
+
+        if (token == JsonToken.FIELD_NAME) {
+            top.field = parser.currentName();
+            return;
+        }
+        if (token == JsonToken.END_OBJECT || token == JsonToken.END_ARRAY) {
+            endContainer(stack.pop());
+            return;
+        }
+
+        // A value starts — where it goes depends on the enclosing frame
+        boolean start = token == JsonToken.START_OBJECT || token == JsonToken.START_ARRAY;
+        if (top == null || top.kind == Kind.NAVIGATE) {
+            var valuePath = top == null ? ROOT : append(top.at, top.field);
+            if (valuePath.equals(path)) {
+                if (token == JsonToken.START_ARRAY) {
+                    stack.push(new Frame(Kind.RECORDS, null));
+                } else {
+                    startRecordOrSkip(token);
+                }
+            } else if (!start) {
+                if (capturePaths.contains(valuePath)) {
+                    captured.put(valuePath, scalar(token));
+                }
+            } else if (token == JsonToken.START_OBJECT && leadsSomewhere(valuePath)) {
+                stack.push(new Frame(Kind.NAVIGATE, valuePath));
+            } else {
+                stack.push(new Frame(Kind.SKIP, null));
+            }
+            return;
+        }
+        if (top.kind == Kind.RECORDS) {
+            // Scalars in a record array carry nothing
+            if (start) {
+                startRecordOrSkip(token);
+            }
+            return;
+        }
+        if (top.kind == Kind.SKIP) {
+            if (start) {
+                stack.push(new Frame(Kind.SKIP, null));
+            }
+            return;
+        }
+
+        // Inside a record: build the value
+        if (token == JsonToken.START_OBJECT) {
+            var frame = new Frame(Kind.OBJECT, null);
+            frame.map = new LinkedHashMap<>();
+            stack.push(frame);
+        } else if (token == JsonToken.START_ARRAY) {
+            var frame = new Frame(Kind.ARRAY, null);
+            frame.list = new ArrayList<>();
+            stack.push(frame);
+        } else {
+            addValue(top, scalar(token));
+        }
+    }
+
+    private void startRecordOrSkip(JsonToken token) {
+        if (token == JsonToken.START_OBJECT) {
+            var frame = new Frame(Kind.RECORD, null);
+            frame.row = new Row(schema);
+            stack.push(frame);
+        } else {
+            stack.push(new Frame(Kind.SKIP, null));
+        }
+    }
+
+    /** True if the record path or a capture path runs through valuePath. */
+    private boolean leadsSomewhere(List<String> valuePath) {
+        if (isPrefix(valuePath, path)) {
+            return true;
+        }
+        for (var capturePath : capturePaths) {
+            if (isPrefix(valuePath, capturePath)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isPrefix(List<String> prefix, List<String> of) {
+        return prefix.size() < of.size() && of.subList(0, prefix.size()).equals(prefix);
+    }
+
+    private static List<String> append(List<String> at, String field) {
+        var next = new ArrayList<String>(at.size() + 1);
+        next.addAll(at);
+        next.add(field);
+        return next;
+    }
+
+    private void endContainer(Frame frame) {
+        switch (frame.kind) {
+            case RECORD -> completed = frame.row;
+            case OBJECT -> addValue(stack.peek(), frame.map);
+            case ARRAY -> addValue(stack.peek(), frame.list);
+            default -> { }
+        }
+    }
+
+    private static void addValue(Frame parent, Object value) {
+        switch (parent.kind) {
+            case RECORD -> parent.row.set(parent.field, value);
+            case OBJECT -> parent.map.put(parent.field, value);
+            case ARRAY -> parent.list.add(value);
+            default -> throw new IllegalStateException("Value outside a record: " + parent.kind);
+        }
+    }
+
+    private Object scalar(JsonToken token) throws IOException {
+        return switch (token) {
+            case VALUE_STRING -> parser.getText();
+            case VALUE_NUMBER_INT -> switch (parser.getNumberType()) {
+                case INT -> parser.getIntValue();
+                case LONG -> parser.getLongValue();
+                default -> parser.getBigIntegerValue();
+            };
+            case VALUE_NUMBER_FLOAT -> parser.getDoubleValue();
+            case VALUE_TRUE -> Boolean.TRUE;
+            case VALUE_FALSE -> Boolean.FALSE;
+            case VALUE_NULL -> null;
+            default -> throw new IOException("Unexpected JSON token " + token + " in API response");
+        };
+    }
+}
@@ -0,0 +1,240 @@
+package com.dataetl.pipeline.extract;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * RFC-4180 CSV parser that works directly on the bytes of a memory-mapped file.
+ *
+ * Delimiters, quotes and line ends are found by scanning the mapped bytes; a field is only
+ * copied and decoded into a String when the caller asked for its column, so skipped columns
+ * cost a byte scan and nothing else. The file is mapped in windows of at most
+ * {@value #WINDOW_BYTES} bytes, so files larger than 2 GB (the limit of a single mapping)
+ * work too.
+ *
+ * Supports quoted fields containing delimiters, doubled quotes ("") and embedded line breaks,
+ * CRLF / LF / CR line endings and a leading UTF-8 byte order mark. Blank lines are skipped.
+ * Encodings must be ASCII-compatible (UTF-8, ISO-8859-x, windows-125x, ...): the structural
+ * characters have to be single bytes for byte-level scanning to be correct.
+ *
+ * A parser reads the records that <em>start</em> inside [start, end); a record that begins
+ * before end is read to completion even if it runs past it. The channel belongs to the
+ * caller, which closes it. Not thread-safe.
+ */
+final class MappedCsvParser {
+
+    static final long WINDOW_BYTES = 128L * 1024 * 1024;
+
+    private static final byte QUOTE = '"';
+    private static final byte CR = '\r';
+    private static final byte LF = '\n';
+
+    /** Receives the decoded value of every wanted field of a record. */
+    @FunctionalInterface
+    interface FieldSink {
+        void accept(int column, String value);
+    }
+
+    private final FileChannel channel;
+    private final long fileSize;
+    private final long end;
+    private final byte delimiter;
+    private final Charset charset;
+
+    private MappedByteBuffer window;
+    private long windowStart = 0;
+    private int windowLength = 0;
+
+    // File offset of the next unread byte
+    private long pos;
+    private long recordsRead = 0;
+    // Bytes of the field being decoded, reused across fields
+    private byte[] scratch = new byte[256];
+    private int scratchLength = 0;
+
+    MappedCsvParser(FileChannel channel, long start, long end, byte delimiter, Charset charset) throws IOException {
+        if (!isAsciiCompatible(charset)) {
+            throw new IllegalArgumentException("CSV encoding " + charset.name()
+                + " is not supported — use UTF-8 or another ASCII-compatible encoding");
+        }
+        this.channel = channel;
+        this.fileSize = channel.size();
+        this.end = Math.min(end, fileSize);
+        this.delimiter = delimiter;
+        this.charset = charset;
+        this.pos = start;
+        if (start == 0) {
+            skipByteOrderMark();
+        }
+    }
+
+    /** File offset where the next record starts (or would start) — usable as a resume point. */
+    long position() {
+        return pos;
+    }
+
+    long recordsRead() {
+        return recordsRead;
+    }
+
+    /** Reads one record and decodes every field. Returns null when no record starts before end. */
+    List<String> readAll() throws IOException {
+        var fields = new ArrayList<String>();
+        return readRecord(null, (column, value) -> fields.add(value)) < 0 ? null : fields;
+    }
+
+    /**
+     * Parses the next record. Fields whose column is marked in {@code wanted} (or all fields
+     * when wanted is null) are decoded and passed to sink; the rest are skipped undecoded.
+     *
+     * @return number of fields in the record, or -1 when no further record starts before end
+     */
+    int readRecord(boolean[] wanted, FieldSink sink) throws IOException {
+        // Blank lines carry no record
+        while (pos < end && isLineEnd(byteAt(pos))) {
+            pos++;
+        }
+        if (pos >= end) {
+            return -1;
+        }
+        recordsRead++;
+
+        int column = 0;
+        while (true) {
+            boolean decode = wanted == null || (column < wanted.length && wanted[column]);
+            if (pos < fileSize && byteAt(pos) == QUOTE) {
+                readQuoted(decode);
+            } else {
+                readUnquoted(decode);
+            }
+            if (decode) {
+                sink.accept(column, new String(scratch, 0, scratchLength, charset));
+            }
+            column++;
+
+            if (pos >= fileSize) {
+                return column;
+            }
+            byte b = byteAt(pos++);
+            if (b == delimiter) {
+                continue;
+            }
+            // Line end: CRLF counts as one terminator
+            if (b == CR && pos < fileSize && byteAt(pos) == LF) {
+                pos++;
+            }
+            return column;
+        }
+    }
+
+    private void readUnquoted(boolean decode) {
+        long fieldStart = pos;
+        while (pos < fileSize) {
+            byte b = byteAt(pos);
+            if (b == delimiter || b == LF || b == CR) {
+                break;
+            }
+            pos++;
+        }
+        if (!decode) {
+            return;
+        }
+        int length = (int) (pos - fieldStart);
+        ensureScratch(length);
+        if (length == 0) {
+            // Empty field — nothing to copy
+        } else if (fieldStart >= windowStart && pos <= windowStart + windowLength) {
+            // Whole field inside the current window — one bulk copy
+            window.get((int) (fieldStart - windowStart), scratch, 0, length);
+        } else {
+            for (int i = 0; i < length; i++) {
+                scratch[i] = byteAt(fieldStart + i);
+            }
+        }
+        scratchLength = length;
+    }
+
+    private void readQuoted(boolean decode) throws IOException {
+        long quoteStart = pos;
+        pos++; // opening quote
+        int length = 0;
+        while (true) {
+            if (pos >= fileSize) {
+                throw new IOException("Unterminated quoted field starting at byte " + quoteStart
+                    + " (record " + recordsRead + ")");
+            }
+            byte b = byteAt(pos++);
+            if (b == QUOTE) {
+                if (pos < fileSize && byteAt(pos) == QUOTE) {
+                    pos++; // "" is an escaped quote
+                } else {
+                    break;
+                }
+            }
+            if (decode) {
+                ensureScratch(length + 1);
+                scratch[length++] = b;
+            }
+        }
+        if (pos < fileSize) {
+            byte next = byteAt(pos);
+            if (next != delimiter && next != LF && next != CR) {
+                throw new IOException("Unexpected character after closing quote at byte " + pos
+                    + " (record " + recordsRead + ")");
+            }
+        }
+        scratchLength = length;
+    }
+
+    private byte byteAt(long offset) {
+        long relative = offset - windowStart;
+        if (relative < 0 || relative >= windowLength) {
+            remap(offset);
+            relative = 0;
+        }
+        return window.get((int) relative);
+    }
+
+    private void remap(long offset) {
+        try {
+            long length = Math.min(WINDOW_BYTES, fileSize - offset);
+            window = channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+            windowStart = offset;
+            windowLength = (int) length;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to map CSV file at byte " + offset, e);
+        }
+    }
+
+    private void ensureScratch(int length) {
+        if (length > scratch.length) {
+            scratch = Arrays.copyOf(scratch, Math.max(length, scratch.length * 2));
+        }
+    }
+
+    private void skipByteOrderMark() {
+        if (fileSize >= 3 && byteAt(0) == (byte) 0xEF && byteAt(1) == (byte) 0xBB && byteAt(2) == (byte) 0xBF) {
+            pos = 3;
+        } else if (fileSize >= 2 && ((byteAt(0) == (byte) 0xFE && byteAt(1) == (byte) 0xFF)
+                || (byteAt(0) == (byte) 0xFF && byteAt(1) == (byte) 0xFE))) {
+            throw new IllegalArgumentException("UTF-16 CSV files are not supported — convert the file to UTF-8");
+        }
+    }
+
+    private static boolean isLineEnd(byte b) {
+        return b == LF || b == CR;
+    }
+
+    /** True if the structural characters encode to the same single bytes as in ASCII. */
+    static boolean isAsciiCompatible(Charset charset) {
+        var probe = ",;|\t\"\r\n";
+        return Arrays.equals(probe.getBytes(StandardCharsets.US_ASCII), probe.getBytes(charset));
+    }
+}
@@ -0,0 +1,207 @@
+package com.dataetl.pipeline.extract;
+
+import com.dataetl.pipeline.RecordSchema;
+import com.dataetl.pipeline.Row;
+import org.springframework.core.task.AsyncTaskExecutor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Merges several independently readable parts of one source (CSV byte ranges, DB key ranges)
+ * into a single cursor.
+ *
+ * Each part is opened and read on its own executor thread; chunks reach the caller through
+ * one bounded queue, so readers block (and stop reading) while the pipeline is behind.
+ * Chunks from different parts interleave in arrival order. The first part failure is
+ * rethrown from nextChunk.
+ *
+ * Parts that report a {@link Part#position()} make the cursor resumable: its checkpoint is
+ * the position of every part after its last chunk returned so far.
+ */
+final class ParallelCursor implements RecordCursor {
+
+    /** One slice of the source. Opened and read on a reader thread. */
+    interface Part extends AutoCloseable {
+        /** Appends up to maxRecords rows to chunk. Returns false once the part is exhausted. */
+        boolean read(List<Row> chunk, int maxRecords) throws Exception;
+
+        /** Where the part would resume after the rows read so far; read after each read(). */
+        default long position() {
+            return -1;
+        }
+
+        @Override
+        default void close() throws Exception {}
+    }
+
+    @FunctionalInterface
+    interface PartOpener {
+        Part open() throws Exception;
+    }
+
+    /** Turns the positions of all parts into the cursor's checkpoint. */
+    @FunctionalInterface
+    interface CheckpointFormat {
+        String format(long[] positions);
+    }
+
+    /** Releases resources shared by all parts (e.g. the file channel); runs once from close(). */
+    @FunctionalInterface
+    interface CloseHook {
+        void close(long recordsReturned) throws Exception;
+    }
+
+    // Poll interval while a reader waits for room in the merge queue
+    private static final long OFFER_POLL_MILLIS = 100;
+
+    /** Rows read by one part, with the part's position after them. */
+    private record Chunk(int part, List<Row> rows, long position) {
+    }
+
+    // End-of-stream marker — compared by identity, never by equals()
+    private static final Chunk END_OF_STREAM = new Chunk(-1, List.of(), -1);
+
+    private final RecordSchema schema;
+    private final int chunkSize;
+    private final CloseHook onClose;
+    private final CheckpointFormat checkpointFormat;
+    // Position of each part after its last fully returned chunk — read and written by the caller
+    private final long[] positions;
+    private final BlockingQueue<Chunk> chunks;
+    private final AtomicInteger running;
+    private final AtomicReference<Exception> failure = new AtomicReference<>();
+    private final List<Future<?>> readers = new ArrayList<>();
+    private volatile boolean closed = false;
+    // Rows handed out by a reader but not yet returned (only when maxRecords < chunkSize)
+    private List<Row> pending = List.of();
+    private Chunk pendingChunk;
+    private boolean exhausted = false;
+    private long total = 0;
+
+    ParallelCursor(RecordSchema schema, List<PartOpener> parts, AsyncTaskExecutor executor,
+                   int chunkSize, CloseHook onClose) {
+        this(schema, parts, executor, chunkSize, onClose, null, null);
+    }
+
+    /**
+     * @param startPositions   where each part starts reading, for a resumable cursor
+     * @param checkpointFormat builds the checkpoint from the part positions
+     */
+    ParallelCursor(RecordSchema schema, List<PartOpener> parts, AsyncTaskExecutor executor,
+                   int chunkSize, CloseHook onClose, long[] startPositions, CheckpointFormat checkpointFormat) {
+        this.schema = schema;
+        this.chunkSize = chunkSize;
+        this.onClose = onClose;
+        this.checkpointFormat = checkpointFormat;
+        this.positions = startPositions != null ? startPositions.clone() : null;
+        this.chunks = new ArrayBlockingQueue<>(parts.size() * 2);
+        this.running = new AtomicInteger(parts.size());
+        for (int i = 0; i < parts.size(); i++) {
+            int index = i;
+            var part = parts.get(i);
+            readers.add(executor.submit(() -> readPart(index, part)));
+        }
+    }
+
+    private void readPart(int index, PartOpener opener) {
+        try (var part = opener.open()) {
+            boolean more = true;
+            while (more && !closed) {
+                var rows = new ArrayList<Row>(chunkSize);
+                more = part.read(rows, chunkSize);
+                if (!rows.isEmpty() && !offer(new Chunk(index, rows, part.position()))) {
+                    return;
+                }
+            }
+        } catch (Exception e) {
+            failure.compareAndSet(null, e);
+        } finally {
+            if (running.decrementAndGet() == 0 || failure.get() != null) {
+                offer(END_OF_STREAM);
+            }
+        }
+    }
+
+    /** Enqueues a chunk, waiting for room until the cursor is closed. */
+    private boolean offer(Chunk chunk) {
+        while (!closed) {
+            try {
+                if (chunks.offer(chunk, OFFER_POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                    return true;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public RecordSchema schema() {
+        return schema;
+    }
+
+    @Override
+    public List<Row> nextChunk(int maxRecords) throws Exception {
+        while (pending.isEmpty() && !exhausted) {
+            var chunk = chunks.take();
+            if (failure.get() != null) {
+                exhausted = true;
+                throw failure.get();
+            }
+            if (chunk == END_OF_STREAM) {
+                exhausted = true;
+            } else {
+                pending = chunk.rows();
+                pendingChunk = chunk;
+            }
+        }
+        List<Row> chunk;
+        if (pending.size() <= maxRecords) {
+            chunk = pending;
+            pending = List.of();
+            // Only a part's fully returned chunks move its position
+            if (pendingChunk != null && positions != null) {
+                positions[pendingChunk.part()] = pendingChunk.position();
+            }
+            pendingChunk = null;
+        } else {
+            chunk = new ArrayList<>(pending.subList(0, maxRecords));
+            pending = pending.subList(maxRecords, pending.size());
+        }
+        total += chunk.size();
+        return chunk;
+    }
+
+    @Override
+    public String checkpoint() {
+        if (positions == null || checkpointFormat == null) {
+            return null;
+        }
+        for (long position : positions) {
+            if (position < 0) {
+                return null;
+            }
+        }
+        return checkpointFormat.format(positions.clone());
+    }
+
+    @Override
+    public void close() throws Exception {
+        if (closed) return;
+        closed = true;
+        // No interrupts: an interrupted file mapping call closes the channel under the other
+        // readers, and JDBC drivers handle interrupts poorly. Readers see the flag after their
+        // current chunk, close their part and exit.
+        readers.forEach(reader -> reader.cancel(false));
+        onClose.close(total);
+    }
+}
@@ -0,0 +1,66 @@
+package com.dataetl.pipeline.extract;
+
+import com.dataetl.pipeline.RecordSchema;
+import com.dataetl.pipeline.Row;
+
+import java.util.List;
+
+/**
+ * Forward-only, closeable view over an open source.
+ *
+ * Extractors return a cursor instead of a materialised list so that a job only ever
+ * holds one chunk of raw records at a time — peak heap is bounded by the chunk size,
+ * not by the size of the source. The cursor owns the underlying resource (file handle,
+ * JDBC result set, HTTP response body) and must always be closed, even on failure.
+ */
+public interface RecordCursor extends AutoCloseable {
+
+    /**
+     * The schema every row from this cursor is addressed through. CSV and DB cursors know
+     * all fields up front; API cursors add fields as new JSON keys appear.
+     */
+    RecordSchema schema();
+
+    /**
+     * Reads the next chunk of raw records.
+     *
+     * @param maxRecords upper bound on the chunk size (must be positive)
+     * @return up to maxRecords records; an empty list means the source is exhausted
+     * @throws Exception if reading fails (caller handles error logging)
+     */
+    List<Row> nextChunk(int maxRecords) throws Exception;
+
+    /**
+     * True if the source reported that nothing changed since the last successful run (an HTTP
+     * 304). Scheduled runs then end as a no-op; the cursor may still replay a cached copy of
+     * the previous data for a manual rerun.
+     */
+    default boolean unchanged() {
+        return false;
+    }
+
+    /**
+     * Where a later run can resume if this one stops after the chunk just returned, or null
+     * if the cursor cannot resume (the next run then starts over). Opaque to the caller: it
+     * is stored once the chunk's records are committed and handed back to
+     * {@link Extractor#open(com.dataetl.model.SourceConfig, String)}. Called by the thread
+     * reading the cursor, right after nextChunk.
+     */
+    default String checkpoint() {
+        return null;
+    }
+
+    /**
+     * Called once every record has been read and loaded. Cursors that remember what they
+     * read — e.g. the validators of an HTTP response — persist it here, so a failed run is
+     * never mistaken for a completed one.
+     */
+    default void commit() throws Exception {
+    }
+
+    /**
+     * Releases the underlying resource. Safe to call more than once.
+     */
+    @Override
+    void close() throws Exception;
+}
@@ -0,0 +1,176 @@
+package com.dataetl.pipeline.extract;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Connection pools for external DB sources, one per JDBC URL.
+ *
+ * Scheduled DB sources used to open a fresh connection per run, paying for TCP, TLS and
+ * authentication every time. Pools are kept in an LRU map bounded by max-sources; the least
+ * recently used pool is evicted when a new URL arrives. Pools keep no idle minimum, so a
+ * rarely used source holds no open connections after idle-timeout.
+ *
+ * A pool that is evicted while connections are leased out is only closed when the last
+ * lease is returned — eviction never aborts a running extraction.
+ */
+@Component
+public class SourcePoolCache {
+
+    private static final Logger log = LoggerFactory.getLogger(SourcePoolCache.class);
+
+    private final int maxSources;
+    private final int maxPoolSize;
+    private final Duration idleTimeout;
+    private final Duration connectionTimeout;
+    private final AtomicInteger poolSequence = new AtomicInteger();
+
+    // Access-ordered: iteration starts at the least recently used pool
+    private final LinkedHashMap<String, Pool> pools = new LinkedHashMap<>(16, 0.75f, true);
+
+    public SourcePoolCache(@Value("${app.etl.db.pool-cache.max-sources:16}") int maxSources,
+                           @Value("${app.etl.db.pool-cache.max-pool-size:4}") int maxPoolSize,
+                           @Value("${app.etl.db.pool-cache.idle-timeout:10m}") Duration idleTimeout,
+                           @Value("${app.etl.db.pool-cache.connection-timeout:30s}") Duration connectionTimeout) {
+        if (maxSources <= 0 || maxPoolSize <= 0) {
+            throw new IllegalArgumentException("app.etl.db.pool-cache sizes must be positive");
+        }
+        this.maxSources = maxSources;
+        this.maxPoolSize = maxPoolSize;
+        this.idleTimeout = idleTimeout;
+        this.connectionTimeout = connectionTimeout;
+    }
+
+    /** A borrowed connection. Closing the lease returns the connection to its pool. */
+    public final class Lease implements AutoCloseable {
+
+        private final Pool pool;
+        private final Connection connection;
+        private boolean released = false;
+
+        private Lease(Pool pool, Connection connection) {
+            this.pool = pool;
+            this.connection = connection;
+        }
+
+        public Connection connection() {
+            return connection;
+        }
+
+        @Override
+        public void close() throws SQLException {
+            if (released) return;
+            released = true;
+            try {
+                connection.close();
+            } finally {
+                release(pool);
+            }
+        }
+    }
+
+    private static final class Pool {
+        final HikariDataSource dataSource;
+        int leases = 0;
+        boolean evicted = false;
+
+        Pool(HikariDataSource dataSource) {
+            this.dataSource = dataSource;
+        }
+    }
+
+    /** Connections per source pool — the most a single source can have open at once. */
+    public int maxPoolSize() {
+        return maxPoolSize;
+    }
+
+    /** Borrows a connection for jdbcUrl, creating (and possibly evicting) a pool as needed. */
+    public Lease borrow(String jdbcUrl) throws SQLException {
+        Pool pool;
+        List<Pool> idleEvicted = List.of();
+        synchronized (this) {
+            pool = pools.get(jdbcUrl);
+            if (pool == null) {
+                pool = new Pool(createDataSource(jdbcUrl));
+                pools.put(jdbcUrl, pool);
+                idleEvicted = evictOverflow();
+            }
+            pool.leases++;
+        }
+        idleEvicted.forEach(evicted -> evicted.dataSource.close());
+        try {
+            // Outside the lock: waiting for a connection must not block other sources
+            return new Lease(pool, pool.dataSource.getConnection());
+        } catch (SQLException | RuntimeException e) {
+            release(pool);
+            throw e;
+        }
+    }
+
+    private HikariDataSource createDataSource(String jdbcUrl) {
+        var hikari = new HikariConfig();
+        hikari.setJdbcUrl(jdbcUrl);
+        // The URL can carry credentials — the pool name must not contain it
+        hikari.setPoolName("etl-source-" + poolSequence.incrementAndGet());
+        hikari.setMaximumPoolSize(maxPoolSize);
+        hikari.setMinimumIdle(0);
+        hikari.setIdleTimeout(idleTimeout.toMillis());
+        hikari.setConnectionTimeout(connectionTimeout.toMillis());
+        // Fail at borrow time with the real error instead of at pool construction
+        hikari.setInitializationFailTimeout(-1);
+        var dataSource = new HikariDataSource(hikari);
+        log.info("{\"event\":\"source_pool_created\",\"pool\":\"{}\"}", dataSource.getPoolName());
+        return dataSource;
+    }
+
+    /** Drops least recently used pools beyond max-sources; returns those that can be closed now. */
+    private List<Pool> evictOverflow() {
+        var idle = new ArrayList<Pool>();
+        var iterator = pools.entrySet().iterator();
+        while (pools.size() > maxSources && iterator.hasNext()) {
+            var pool = iterator.next().getValue();
+            iterator.remove();
+            pool.evicted = true;
+            log.info("{\"event\":\"source_pool_evicted\",\"pool\":\"{}\",\"leases\":{}}",
+                pool.dataSource.getPoolName(), pool.leases);
+            if (pool.leases == 0) {
+                idle.add(pool);
+            }
+        }
+        return idle;
+    }
+
+    private void release(Pool pool) {
+        boolean closePool;
+        synchronized (this) {
+            pool.leases--;
+            closePool = pool.evicted && pool.leases == 0;
+        }
+        if (closePool) {
+            pool.dataSource.close();
+        }
+    }
+
+    @PreDestroy
+    public void closeAll() {
+        List<Pool> open;
+        synchronized (this) {
+            open = new ArrayList<>(pools.values());
+            pools.clear();
+        }
+        open.forEach(pool -> pool.dataSource.close());
+    }
+}
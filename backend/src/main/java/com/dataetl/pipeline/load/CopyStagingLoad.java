@@ -0,0 +1,276 @@
+package com.dataetl.pipeline.load;
+
+import com.dataetl.model.SourceConfig;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+
+/**
+ * Bulk path of {@link UpsertWriter}: rows are streamed with COPY FROM STDIN into a temp
+ * staging table and merged into unified_data with one set-based upsert.
+ *
+ * The load holds one connection of its own for its whole life. Each merge round is one
+ * transaction — the staging table is created ON COMMIT DROP, COPY runs until mergeRows rows
+ * are staged, then the merge and the commit. A load closed without {@link #finish} rolls back
+ * the round in progress; earlier rounds stay committed, like earlier chunks of a batched job.
+ *
+ * The merge runs under a savepoint. If a record breaks it with a data or constraint error,
+ * the merge is rolled back to the savepoint — the staged rows survive — and the round is
+ * bisected by staging sequence, each range merged under its own savepoint, down to the single
+ * rows, which go to the {@link Rejects} listener. The rest of the round commits.
+ */
+final class CopyStagingLoad implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(CopyStagingLoad.class);
+
+    private static final String CREATE_STAGING = """
+        CREATE TEMP TABLE etl_staging (
+            seq          BIGSERIAL,
+            external_id  TEXT NOT NULL,
+            payload      TEXT NOT NULL,
+            payload_hash TEXT NOT NULL
+        ) ON COMMIT DROP
+        """;
+
+    private static final String COPY_SQL = "COPY etl_staging (external_id, payload, payload_hash) FROM STDIN";
+
+    // Duplicate external IDs would make ON CONFLICT touch a row twice — keep the last staged one.
+    // Rows whose stored hash and source name match are left alone; the counts are those of
+    // UpsertWriter.UPSERT_SQL.
+    private static final String MERGE_SQL = """
+        WITH upserted AS (
+            INSERT INTO unified_data
+                (source_config_id, external_id, source_type, source_name, payload, payload_hash, ingested_at, updated_at)
+            SELECT ?, s.external_id, ?, ?, CAST(s.payload AS jsonb), decode(s.payload_hash, 'hex'), NOW(), NOW()
+            FROM (
+                SELECT DISTINCT ON (external_id) external_id, payload, payload_hash
+                FROM etl_staging
+                WHERE seq BETWEEN ? AND ?
+                ORDER BY external_id, seq DESC
+            ) s
+            ON CONFLICT (source_config_id, external_id)
+            DO UPDATE SET
+                payload = EXCLUDED.payload,
+                payload_hash = EXCLUDED.payload_hash,
+                source_name = EXCLUDED.source_name,
+                updated_at = NOW()
+            WHERE unified_data.payload_hash IS DISTINCT FROM EXCLUDED.payload_hash
+                OR unified_data.source_name IS DISTINCT FROM EXCLUDED.source_name
+            RETURNING (xmax = 0) AS inserted
+        )
+        SELECT COUNT(*) FILTER (WHERE inserted), COUNT(*) FILTER (WHERE NOT inserted) FROM upserted
+        """;
+
+    // Before a round is bisected: a duplicate the full merge would have skipped must not be
+    // merged, and blamed, on its own once it lands in a different range than its successor
+    private static final String DROP_SUPERSEDED = """
+        DELETE FROM etl_staging s
+        WHERE EXISTS (SELECT 1 FROM etl_staging l WHERE l.external_id = s.external_id AND l.seq > s.seq)
+        """;
+
+    private static final String STAGED_SEQS_SQL = "SELECT seq FROM etl_staging ORDER BY seq";
+    private static final String STAGED_ROW_SQL = "SELECT external_id, payload FROM etl_staging WHERE seq = ?";
+
+    /** Receives each staged row the merge refused. */
+    @FunctionalInterface
+    interface Rejects {
+        void rejected(String externalId, String payload, String reason);
+    }
+
+    private final Connection connection;
+    private final SourceConfig config;
+    private final int mergeRows;
+    private final Rejects onRejected;
+    private final StringBuilder line = new StringBuilder(256);
+    private CopyIn copy;
+    private int staged = 0;
+    private long merged = 0;
+    private long inserted = 0;
+    private long updated = 0;
+    private long rejected = 0;
+    private boolean finished = false;
+
+    /** Takes ownership of the connection; it is closed with the load. */
+    CopyStagingLoad(Connection connection, SourceConfig config, int mergeRows, Rejects onRejected)
+            throws SQLException {
+        this.connection = connection;
+        this.config = config;
+        this.mergeRows = mergeRows;
+        this.onRejected = onRejected;
+        try {
+            connection.setAutoCommit(false);
+        } catch (SQLException e) {
+            connection.close();
+            throw e;
+        }
+    }
+
+    static boolean supports(Connection connection) throws SQLException {
+        return connection.isWrapperFor(PGConnection.class);
+    }
+
+    /**
+     * Streams one row into the staging table and merges once the round is full.
+     *
+     * @return true if the row completed a round — every row added so far is committed
+     */
+    boolean add(String externalId, String payloadJson, String payloadHashHex) throws SQLException {
+        if (copy == null) {
+            try (var stmt = connection.createStatement()) {
+                stmt.execute(CREATE_STAGING);
+            }
+            copy = connection.unwrap(PGConnection.class).getCopyAPI().copyIn(COPY_SQL);
+        }
+        line.setLength(0);
+        appendField(line, externalId);
+        line.append('\t');
+        appendField(line, payloadJson);
+        line.append('\t').append(payloadHashHex).append('\n');
+        var bytes = line.toString().getBytes(StandardCharsets.UTF_8);
+        copy.writeToCopy(bytes, 0, bytes.length);
+        if (++staged >= mergeRows) {
+            merge();
+            return true;
+        }
+        return false;
+    }
+
+    /** Merges what is still staged and commits; returns the counts of every round. */
+    LoadCounts finish() throws SQLException {
+        if (copy != null) {
+            merge();
+        }
+        finished = true;
+        return new LoadCounts(inserted, updated, merged - inserted - updated - rejected, rejected);
+    }
+
+    private void merge() throws SQLException {
+        copy.endCopy();
+        copy = null;
+        var savepoint = connection.setSavepoint();
+        LoadCounts counts;
+        try {
+            counts = mergeRange(Long.MIN_VALUE, Long.MAX_VALUE);
+            connection.releaseSavepoint(savepoint);
+        } catch (SQLException e) {
+            if (!UpsertWriter.isRecordError(e)) {
+                throw e;
+            }
+            connection.rollback(savepoint);
+            log.warn("{\"event\":\"bulk_merge_isolating\",\"source\":\"{}\",\"records\":{},\"error\":\"{}\"}",
+                config.getName(), staged, e.getMessage());
+            counts = bisect(e);
+            log.info("{\"event\":\"bulk_merge_isolated\",\"source\":\"{}\",\"records\":{},\"inserted\":{},\"updated\":{},\"rejected\":{}}",
+                config.getName(), staged, counts.inserted(), counts.updated(), counts.rejected());
+        }
+        connection.commit();
+        inserted += counts.inserted();
+        updated += counts.updated();
+        rejected += counts.rejected();
+        merged += staged;
+        staged = 0;
+    }
+
+    /** Merges the staged rows whose sequence lies in [from, to]; only inserts and updates are counted. */
+    private LoadCounts mergeRange(long from, long to) throws SQLException {
+        try (var stmt = connection.prepareStatement(MERGE_SQL)) {
+            stmt.setLong(1, config.getId());
+            stmt.setString(2, config.getType().name());
+            stmt.setString(3, config.getName());
+            stmt.setLong(4, from);
+            stmt.setLong(5, to);
+            try (var rs = stmt.executeQuery()) {
+                rs.next();
+                return new LoadCounts(rs.getLong(1), rs.getLong(2), 0);
+            }
+        }
+    }
+
+    /** Splits a round whose merge failed on a record; the whole round is known to fail already. */
+    private LoadCounts bisect(SQLException failure) throws SQLException {
+        long[] seqs;
+        try (var stmt = connection.createStatement()) {
+            stmt.executeUpdate(DROP_SUPERSEDED);
+            var found = new ArrayList<Long>(staged);
+            try (var rs = stmt.executeQuery(STAGED_SEQS_SQL)) {
+                while (rs.next()) {
+                    found.add(rs.getLong(1));
+                }
+            }
+            seqs = found.stream().mapToLong(Long::longValue).toArray();
+        }
+        if (seqs.length == 1) {
+            return reject(seqs[0], failure.getMessage());
+        }
+        int half = seqs.length / 2;
+        return isolate(seqs, 0, half).plus(isolate(seqs, half, seqs.length));
+    }
+
+    /** Merges seqs[from, to) under a savepoint of its own, halving the range while it fails. */
+    private LoadCounts isolate(long[] seqs, int from, int to) throws SQLException {
+        var savepoint = connection.setSavepoint();
+        try {
+            var counts = mergeRange(seqs[from], seqs[to - 1]);
+            connection.releaseSavepoint(savepoint);
+            return counts;
+        } catch (SQLException e) {
+            if (!UpsertWriter.isRecordError(e)) {
+                throw e;
+            }
+            connection.rollback(savepoint);
+            if (to - from == 1) {
+                return reject(seqs[from], e.getMessage());
+            }
+            int half = (from + to) >>> 1;
+            return isolate(seqs, from, half).plus(isolate(seqs, half, to));
+        }
+    }
+
+    private LoadCounts reject(long seq, String reason) throws SQLException {
+        if (onRejected != null) {
+            try (var stmt = connection.prepareStatement(STAGED_ROW_SQL)) {
+                stmt.setLong(1, seq);
+                try (var rs = stmt.executeQuery()) {
+                    rs.next();
+                    onRejected.rejected(rs.getString(1), rs.getString(2), reason);
+                }
+            }
+        }
+        return new LoadCounts(0, 0, 0, 1);
+    }
+
+    @Override
+    public void close() throws SQLException {
+        try {
+            if (!finished) {
+                if (copy != null && copy.isActive()) {
+                    copy.cancelCopy();
+                }
+                connection.rollback();
+            }
+            connection.setAutoCommit(true);
+        } finally {
+            connection.close();
+        }
+    }
+
+    /** COPY text format: backslash, tab, newline and carriage return are escaped. */
+    static void appendField(StringBuilder out, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\' -> out.append("\\\\");
+                case '\t' -> out.append("\\t");
+                case '\n' -> out.append("\\n");
+                case '\r' -> out.append("\\r");
+                default -> out.append(c);
+            }
+        }
+    }
+}
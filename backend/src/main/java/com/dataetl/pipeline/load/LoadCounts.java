@@ -0,0 +1,25 @@
+package com.dataetl.pipeline.load;
+
+/**
+ * What a load did with the records it was given. Every record lands in exactly one count:
+ * unchanged covers records whose content hash matched the stored row, and duplicates
+ * superseded by a later record with the same external ID; rejected covers records the
+ * database refused (logged to error_log, see {@link UpsertWriter}).
+ */
+public record LoadCounts(long inserted, long updated, long unchanged, long rejected) {
+
+    public static final LoadCounts NONE = new LoadCounts(0, 0, 0, 0);
+
+    public LoadCounts(long inserted, long updated, long unchanged) {
+        this(inserted, updated, unchanged, 0);
+    }
+
+    public LoadCounts plus(LoadCounts other) {
+        return new LoadCounts(inserted + other.inserted, updated + other.updated,
+            unchanged + other.unchanged, rejected + other.rejected);
+    }
+
+    public long total() {
+        return inserted + updated + unchanged + rejected;
+    }
+}
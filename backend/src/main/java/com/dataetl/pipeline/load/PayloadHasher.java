@@ -0,0 +1,67 @@
+package com.dataetl.pipeline.load;
+
+import com.dataetl.pipeline.Row;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Set;
+
+/**
+ * Canonical payload text of a row and its content hash.
+ *
+ * Fields — and the keys of nested objects — are written sorted by name, so a record hashes
+ * the same however the source ordered its fields on a given run. jsonb does not keep key
+ * order, so the sorted text is also what gets stored. The hash is SHA-256 of that text,
+ * taken before the unhashed fields (values that differ on every run, like the ingestion
+ * timestamp) are appended to it.
+ */
+final class PayloadHasher {
+
+    /** Payload text to store and the hash of its content. */
+    record Hashed(String payload, byte[] hash) {
+    }
+
+    private final ObjectMapper canonicalMapper;
+    private final ObjectWriter hashedFieldsWriter;
+    private final Set<String> unhashedFields;
+
+    PayloadHasher(ObjectMapper objectMapper, Set<String> unhashedFields) {
+        this.canonicalMapper = objectMapper.copy().enable(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS);
+        this.hashedFieldsWriter = canonicalMapper.writer().withAttribute(Row.JsonWriter.SKIP_FIELDS, unhashedFields);
+        this.unhashedFields = unhashedFields;
+    }
+
+    Hashed write(Row row) throws JsonProcessingException {
+        var hashed = hashedFieldsWriter.writeValueAsString(row);
+        var hash = hash(hashed);
+        StringBuilder payload = null;
+        for (var name : unhashedFields) {
+            int index = row.schema().indexOf(name);
+            if (!row.has(index)) {
+                continue;
+            }
+            if (payload == null) {
+                payload = new StringBuilder(hashed.length() + 64).append(hashed, 0, hashed.length() - 1);
+            }
+            if (payload.length() > 1) {
+                payload.append(',');
+            }
+            payload.append(canonicalMapper.writeValueAsString(name)).append(':')
+                .append(canonicalMapper.writeValueAsString(row.get(index)));
+        }
+        return new Hashed(payload != null ? payload.append('}').toString() : hashed, hash);
+    }
+
+    static byte[] hash(String payload) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(payload.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -1,96 +1,850 @@
 package com.dataetl.pipeline.load;
 
 import com.dataetl.model.SourceConfig;
+import com.dataetl.pipeline.RecordKey;
+import com.dataetl.pipeline.Row;
+import com.dataetl.pipeline.transform.TransformPipeline;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import jakarta.persistence.EntityManager;
-import jakarta.persistence.PersistenceContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.UUID;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
+/**
+ * Writes valid records into unified_data, upserting on (source_config_id, external_id).
+ *
+ * A job writes through a {@link LoadSession}. Its chunks go out as batched upserts until the
+ * job has written more than app.etl.load.bulk.threshold-rows; from then on the rest of the
+ * job is streamed with COPY into a staging table and merged set-based (see
+ * {@link CopyStagingLoad}). Small jobs keep per-chunk commits; very large jobs stop paying
+ * for per-row parameter handling and per-statement index maintenance.
+ *
+ * app.etl.load.writers > 1 spreads a job's rows over that many writer threads, partitioned
+ * by external ID, each on its own connection — see {@link LoadSession}.
+ *
+ * External IDs come from the job's {@link RecordKey}; a record without a key is identified
+ * by its content hash ("content:" + 128 bits of hex), so reruns of an ID-less source
+ * update the rows they wrote before instead of inserting another copy.
+ *
+ * Each row is stored with payload_hash, the SHA-256 of its canonical payload (see
+ * {@link PayloadHasher}). A session loads the source's hashes when it opens and drops
+ * records whose hash matches before they are sent; the upsert itself only rewrites rows
+ * whose stored hash or source name differs, which also covers sources too large for the
+ * in-memory index (app.etl.load.hash-index.max-rows). Unchanged records cost no dead tuple
+ * and no WAL.
+ *
+ * Chunks are numbered as they are written; a session reports each chunk's checkpoint once
+ * that chunk and every one before it are committed (see {@link LoadSession}).
+ *
+ * One bad record does not fail its chunk. Records the database is known to refuse (an
+ * external ID over 512 characters, a NUL character jsonb cannot hold) are rejected before
+ * they are sent. A batched upsert runs inside a savepoint; if a record still breaks it with a
+ * data or constraint error, the batch is rolled back to the savepoint and bisected, each half
+ * under its own savepoint, until the failing records are isolated. Rejected records go to the
+ * session's {@link RejectListener}; the rest of the chunk commits. Healthy chunks pay one
+ * savepoint per transaction. A COPY round's merge is bisected the same way, over the rows
+ * still in its staging table.
+ */
 @Service
 public class UpsertWriter {
 
     private static final Logger log = LoggerFactory.getLogger(UpsertWriter.class);
+
+    // Rows per statement — bounds the size of the bound arrays, not the round trips per chunk
     private static final int BATCH_SIZE = 500;
 
-    @PersistenceContext
-    private EntityManager entityManager;
-
-    private final ObjectMapper objectMapper;
-
-    public UpsertWriter(ObjectMapper objectMapper) {
-        this.objectMapper = objectMapper;
-    }
-
-    @Transactional
-    public void upsertBatch(List<Map<String, Object>> records, SourceConfig config) {
-        int count = 0;
-        for (var record : records) {
-            var externalId = extractExternalId(record);
-            try {
-                var payloadJson = objectMapper.writeValueAsString(record);
-
-                entityManager.createNativeQuery("""
-                    INSERT INTO unified_data
-                        (source_config_id, external_id, source_type, source_name, payload, ingested_at, updated_at)
-                    VALUES
-                        (:sourceId, :extId, :sourceType, :sourceName, CAST(:payload AS jsonb), NOW(), NOW())
-                    ON CONFLICT (source_config_id, external_id)
-                    DO UPDATE SET
-                        payload = CAST(EXCLUDED.payload AS jsonb),
-                        updated_at = NOW()
-                    """)
-                    .setParameter("sourceId", config.getId())
-                    .setParameter("extId", externalId)
-                    .setParameter("sourceType", config.getType().name())
-                    .setParameter("sourceName", config.getName())
-                    .setParameter("payload", payloadJson)
-                    .executeUpdate();
-
-                count++;
-
-                // Flush and clear Hibernate's L1 cache every BATCH_SIZE records
-                // This is critical to prevent OOM with large datasets (e.g., 100k records)
-                if (count % BATCH_SIZE == 0) {
-                    entityManager.flush();
-                    entityManager.clear();
-                    log.info("{\"event\":\"batch_flush\",\"source\":\"{}\",\"flushed\":{}}",
-                        config.getName(), count);
+    // unified_data.external_id is VARCHAR(512)
+    private static final int MAX_EXTERNAL_ID_LENGTH = 512;
+
+    // Parts queued per writer thread before the load stage blocks
+    private static final int WRITER_QUEUE_CAPACITY = 2;
+    private static final long END_OFFER_POLL_MILLIS = 100;
+    private static final long WRITER_SHUTDOWN_SECONDS = 30;
+
+    // Queue markers — compared by identity, never by equals()
+    private static final Part FINISH = new Part(List.of(), -1);
+    private static final Part ABORT = new Part(List.of(), -1);
+
+    // One statement upserts a whole batch: the rows travel as parallel text arrays that
+    // unnest() turns back into a row set. One round trip per BATCH_SIZE rows instead of per row.
+    // A row whose stored hash and source name match is skipped by the WHERE and not returned; of the rows
+    // returned, xmax = 0 marks a fresh insert (an updated row version carries the updater's xid).
+    private static final String UPSERT_SQL = """
+        WITH upserted AS (
+            INSERT INTO unified_data
+                (source_config_id, external_id, source_type, source_name, payload, payload_hash, ingested_at, updated_at)
+            SELECT ?, t.external_id, ?, ?, CAST(t.payload AS jsonb), decode(t.payload_hash, 'hex'), NOW(), NOW()
+            FROM unnest(CAST(? AS text[]), CAST(? AS text[]), CAST(? AS text[])) AS t(external_id, payload, payload_hash)
+            ON CONFLICT (source_config_id, external_id)
+            DO UPDATE SET
+                payload = EXCLUDED.payload,
+                payload_hash = EXCLUDED.payload_hash,
+                source_name = EXCLUDED.source_name,
+                updated_at = NOW()
+            WHERE unified_data.payload_hash IS DISTINCT FROM EXCLUDED.payload_hash
+                OR unified_data.source_name IS DISTINCT FROM EXCLUDED.source_name
+            RETURNING (xmax = 0) AS inserted
+        )
+        SELECT COUNT(*) FILTER (WHERE inserted), COUNT(*) FILTER (WHERE NOT inserted) FROM upserted
+        """;
+
+    private static final String HASH_COUNT_SQL = "SELECT COUNT(*) FROM unified_data WHERE source_config_id = ?";
+    // Rows stored under an earlier name of the source are left out, so a rename reaches them
+    private static final String HASH_INDEX_SQL = """
+        SELECT external_id, payload_hash FROM unified_data
+        WHERE source_config_id = ? AND payload_hash IS NOT NULL AND source_name IS NOT DISTINCT FROM ?
+        """;
+    private static final int HASH_INDEX_FETCH_SIZE = 10_000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final PayloadHasher hasher;
+    private final AsyncTaskExecutor writerExecutor;
+    private final int writers;
+    private final long bulkThresholdRows;
+    private final int bulkMergeRows;
+    private final long hashIndexMaxRows;
+
+    public UpsertWriter(JdbcTemplate jdbcTemplate,
+                        TransactionTemplate transactionTemplate,
+                        ObjectMapper objectMapper,
+                        @Qualifier("loadWriterExecutor") AsyncTaskExecutor writerExecutor,
+                        @Value("${app.etl.load.writers:1}") int writers,
+                        @Value("${app.etl.load.bulk.threshold-rows:100000}") long bulkThresholdRows,
+                        @Value("${app.etl.load.bulk.merge-rows:500000}") int bulkMergeRows,
+                        @Value("${app.etl.load.hash-index.max-rows:1000000}") long hashIndexMaxRows,
+                        @Value("${app.etl.jobs.max-concurrent:8}") int maxConcurrentJobs,
+                        @Value("${app.etl.jobs.admission.pool-reserve:2}") int poolReserve) {
+        if (writers <= 0) {
+            throw new IllegalArgumentException("app.etl.load.writers must be positive, got " + writers);
+        }
+        if (bulkThresholdRows < 0 || bulkMergeRows <= 0) {
+            throw new IllegalArgumentException(
+                "app.etl.load.bulk.threshold-rows must not be negative and merge-rows must be positive");
+        }
+        if (hashIndexMaxRows < 0) {
+            throw new IllegalArgumentException("app.etl.load.hash-index.max-rows must not be negative");
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        // The ingestion timestamp changes on every run — it must not make every row look changed
+        this.hasher = new PayloadHasher(objectMapper, Set.of(TransformPipeline.INGESTED_AT_FIELD));
+        this.writerExecutor = writerExecutor;
+        this.writers = writersPerJob(jdbcTemplate, writers, maxConcurrentJobs, poolReserve);
+        this.bulkThresholdRows = bulkThresholdRows;
+        this.bulkMergeRows = bulkMergeRows;
+        this.hashIndexMaxRows = hashIndexMaxRows;
+    }
+
+    /**
+     * Starts writing one job's records. Close the session in all cases; call
+     * {@link LoadSession#finish} once every chunk has been written.
+     */
+    public LoadSession open(SourceConfig config, RecordKey recordKey) {
+        return open(config, recordKey, null, null);
+    }
+
+    /**
+     * @param onCommitted receives the checkpoint of the latest chunk committed together with
+     *                    all chunks before it; called by the thread that committed it
+     * @param onRejected  receives each record the database refused; called by the writing thread
+     */
+    public LoadSession open(SourceConfig config, RecordKey recordKey, Consumer<String> onCommitted,
+                            RejectListener onRejected) {
+        return new LoadSession(config, recordKey, writers, loadHashIndex(config), onCommitted, onRejected);
+    }
+
+    /** Receives the records a load could not write; they are counted as rejected, not loaded. */
+    @FunctionalInterface
+    public interface RejectListener {
+        void rejected(String payload, String reason);
+    }
+
+    /**
+     * External ID → full payload hash of every row the source has in unified_data, or null when
+     * the index is disabled or the source has more rows than it may hold. Read-only once
+     * built, so the writer threads share it.
+     */
+    private Map<String, byte[]> loadHashIndex(SourceConfig config) {
+        if (hashIndexMaxRows == 0) {
+            return null;
+        }
+        long start = System.nanoTime();
+        Long rows = jdbcTemplate.queryForObject(HASH_COUNT_SQL, Long.class, config.getId());
+        if (rows == null || rows > hashIndexMaxRows) {
+            log.info("{\"event\":\"hash_index_skipped\",\"source\":\"{}\",\"rows\":{},\"maxRows\":{}}",
+                config.getName(), rows, hashIndexMaxRows);
+            return null;
+        }
+        var index = new HashMap<String, byte[]>((int) (rows / 0.75f) + 1);
+        if (rows > 0) {
+            // PostgreSQL only honours the fetch size inside a transaction
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.query(conn -> {
+                var stmt = conn.prepareStatement(HASH_INDEX_SQL);
+                stmt.setFetchSize(HASH_INDEX_FETCH_SIZE);
+                stmt.setLong(1, config.getId());
+                stmt.setString(2, config.getName());
+                return stmt;
+            }, rs -> {
+                index.put(rs.getString(1), rs.getBytes(2));
+            }));
+        }
+        log.info("{\"event\":\"hash_index_loaded\",\"source\":\"{}\",\"rows\":{},\"ms\":{}}",
+            config.getName(), index.size(), (System.nanoTime() - start) / 1_000_000);
+        return index;
+    }
+
+    /**
+     * Configured writers, capped at a job's share of the main pool: its configured size less
+     * the connections admission keeps free, split across every job that may run at once. Not
+     * the pool's current activity, which says nothing about the jobs admitted a moment later.
+     */
+    private static int writersPerJob(JdbcTemplate jdbcTemplate, int writers, int maxConcurrentJobs, int poolReserve) {
+        if (writers <= 1 || !(jdbcTemplate.getDataSource() instanceof HikariDataSource hikari)) {
+            return writers;
+        }
+        int share = Math.max(1, (hikari.getMaximumPoolSize() - poolReserve) / Math.max(1, maxConcurrentJobs));
+        if (share < writers) {
+            log.info("{\"event\":\"load_writers_capped\",\"configured\":{},\"writers\":{},\"poolSize\":{},\"maxConcurrentJobs\":{}}",
+                writers, share, hikari.getMaximumPoolSize(), maxConcurrentJobs);
+            return share;
+        }
+        return writers;
+    }
+
+    /**
+     * One job's writes, fed by one thread (the load stage).
+     *
+     * With a single writer every chunk is written on the calling thread. With N writers each
+     * chunk is split by hash(external_id) mod N and the parts are queued to N worker threads,
+     * each with its own connection and transactions. A given external ID always lands on the
+     * same worker, in arrival order, so workers never contend for a row and the last duplicate
+     * still wins.
+     *
+     * Records are hashed and checked against the hash index by whichever thread writes them.
+     *
+     * Each chunk gets a sequence number. Writers commit parts of different chunks in their own
+     * order, so a chunk only counts as committed once all of its parts and all earlier chunks
+     * are; only then is its checkpoint reported.
+     */
+    public final class LoadSession implements AutoCloseable {
+
+        private final SourceConfig config;
+        private final RecordKey recordKey;
+        // Rows written by all partitions — decides when the job switches to bulk loading
+        private final AtomicLong written = new AtomicLong();
+        private final Commits commits;
+        private final Partition inline;
+        private final List<Writer> workers;
+        private long nextSeq = 0;
+        private boolean finished = false;
+
+        private LoadSession(SourceConfig config, RecordKey recordKey, int writerCount, Map<String, byte[]> hashIndex,
+                            Consumer<String> onCommitted, RejectListener onRejected) {
+            this.config = config;
+            this.recordKey = recordKey;
+            this.commits = new Commits(onCommitted);
+            if (writerCount == 1) {
+                this.inline = new Partition(config, recordKey, written, hashIndex, commits, onRejected);
+                this.workers = List.of();
+            } else {
+                this.inline = null;
+                var started = new ArrayList<Writer>(writerCount);
+                try {
+                    for (int i = 0; i < writerCount; i++) {
+                        started.add(new Writer(i, new Partition(config, recordKey, written, hashIndex, commits,
+                            onRejected)));
+                    }
+                } catch (RuntimeException e) {
+                    // Executor out of threads — stop the writers that did start
+                    started.forEach(Writer::abort);
+                    throw e;
+                }
+                this.workers = started;
+            }
+        }
+
+        public void write(List<Row> records) throws Exception {
+            write(records, null);
+        }
+
+        /**
+         * Writes one chunk.
+         *
+         * @param checkpoint reported to the session's listener once the chunk is committed
+         */
+        public void write(List<Row> records, String checkpoint) throws Exception {
+            long seq = nextSeq++;
+            if (inline != null) {
+                commits.expect(seq, 1, checkpoint);
+                inline.write(records, seq);
+                return;
+            }
+            var parts = new ArrayList<List<Row>>(workers.size());
+            for (int i = 0; i < workers.size(); i++) {
+                parts.add(new ArrayList<>(records.size() / workers.size() + 16));
+            }
+            for (var record : records) {
+                parts.get(Math.floorMod(partitionHash(record, recordKey.extract(record)), workers.size())).add(record);
+            }
+            int nonEmpty = (int) parts.stream().filter(part -> !part.isEmpty()).count();
+            // Registered before any part is queued, so no writer can report it first
+            commits.expect(seq, nonEmpty, checkpoint);
+            for (int i = 0; i < workers.size(); i++) {
+                if (!parts.get(i).isEmpty()) {
+                    workers.get(i).submit(new Part(parts.get(i), seq));
+                }
+            }
+        }
+
+        /**
+         * Writes out everything queued or staged; fails if any writer failed. A writer that has
+         * failed already stops the others instead — their staged rows are not merged.
+         */
+        public void finish() throws Exception {
+            finished = true;
+            if (inline != null) {
+                inline.finish();
+                return;
+            }
+            if (workers.stream().anyMatch(worker -> worker.stopped)) {
+                workers.forEach(Writer::abort);
+            } else {
+                workers.forEach(worker -> worker.submitEnd(FINISH));
+            }
+            Exception failure = null;
+            for (var worker : workers) {
+                try {
+                    worker.await();
+                } catch (Exception e) {
+                    if (failure == null) failure = e; else failure.addSuppressed(e);
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        }
+
+        /** Inserted, updated and unchanged records; complete once {@link #finish} returned. */
+        public LoadCounts counts() {
+            if (inline != null) {
+                return inline.counts();
+            }
+            var counts = LoadCounts.NONE;
+            for (var worker : workers) {
+                counts = counts.plus(worker.partition.counts());
+            }
+            return counts;
+        }
+
+        @Override
+        public void close() throws Exception {
+            if (inline != null) {
+                inline.close();
+                return;
+            }
+            if (!finished) {
+                workers.forEach(Writer::abort);
+            }
+        }
+
+        /** A worker thread draining its queue into its own partition. */
+        private final class Writer {
+
+            private final int index;
+            private final Partition partition;
+            private final BlockingQueue<Part> queue = new ArrayBlockingQueue<>(WRITER_QUEUE_CAPACITY);
+            private final Future<?> task;
+            private volatile boolean stopped = false;
+            private long rows = 0;
+            private long busyNanos = 0;
+
+            Writer(int index, Partition partition) {
+                this.index = index;
+                this.partition = partition;
+                this.task = writerExecutor.submit(this::run);
+            }
+
+            private Void run() throws Exception {
+                try (partition) {
+                    while (true) {
+                        var part = queue.take();
+                        if (part == FINISH) {
+                            long start = System.nanoTime();
+                            partition.finish();
+                            busyNanos += System.nanoTime() - start;
+                            break;
+                        }
+                        if (part == ABORT) {
+                            break;
+                        }
+                        long start = System.nanoTime();
+                        partition.write(part.rows(), part.seq());
+                        busyNanos += System.nanoTime() - start;
+                        rows += part.rows().size();
+                    }
+                } finally {
+                    stopped = true;
+                    log.info("{\"event\":\"load_writer_done\",\"source\":\"{}\",\"writer\":{},\"rows\":{},\"busyMs\":{},\"rowsPerSecond\":{}}",
+                        config.getName(), index, rows, busyNanos / 1_000_000,
+                        busyNanos > 0 ? rows * 1_000_000_000L / busyNanos : 0);
+                }
+                return null;
+            }
+
+            /** Queues a part; blocks while the writer is behind, fails if it has died. */
+            void submit(Part part) throws Exception {
+                while (stopped || !queue.offer(part, END_OFFER_POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                    if (stopped) {
+                        await();
+                        throw new IllegalStateException("Load writer " + index + " stopped");
+                    }
+                }
+            }
+
+            void submitEnd(Part marker) {
+                try {
+                    while (!stopped && !queue.offer(marker, END_OFFER_POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                        // Writer still draining a full queue
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            /** Drops queued parts and stops the writer, rolling back what it had not committed. */
+            void abort() {
+                queue.clear();
+                submitEnd(ABORT);
+                try {
+                    task.get(WRITER_SHUTDOWN_SECONDS, TimeUnit.SECONDS);
+                } catch (Exception e) {
+                    // The job is failing already — the writer's own error is secondary
+                }
+            }
+
+            void await() throws Exception {
+                try {
+                    task.get();
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof Exception cause) {
+                        throw cause;
+                    }
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /** The rows of one chunk routed to one writer. */
+    private record Part(List<Row> rows, long seq) {
+    }
+
+    /**
+     * Which chunks a session has committed. A chunk is expected with the number of parts it
+     * was split into; it is done once each part reports in, and committed once it and every
+     * earlier chunk are done.
+     */
+    static final class Commits {
+
+        private final Consumer<String> listener;
+        // Chunks not yet committed: sequence → parts still outstanding and the chunk's checkpoint
+        private final TreeMap<Long, Pending> pending = new TreeMap<>();
+
+        private static final class Pending {
+            int parts;
+            final String checkpoint;
+
+            Pending(int parts, String checkpoint) {
+                this.parts = parts;
+                this.checkpoint = checkpoint;
+            }
+        }
+
+        Commits(Consumer<String> listener) {
+            this.listener = listener;
+        }
+
+        synchronized void expect(long seq, int parts, String checkpoint) {
+            pending.put(seq, new Pending(parts, checkpoint));
+            advance();
+        }
+
+        synchronized void committed(long seq) {
+            var chunk = pending.get(seq);
+            if (chunk != null) {
+                chunk.parts--;
+                advance();
+            }
+        }
+
+        private void advance() {
+            String checkpoint = null;
+            while (!pending.isEmpty() && pending.firstEntry().getValue().parts <= 0) {
+                var chunk = pending.pollFirstEntry().getValue();
+                if (chunk.checkpoint != null) {
+                    checkpoint = chunk.checkpoint;
+                }
+            }
+            if (checkpoint != null && listener != null) {
+                listener.accept(checkpoint);
+            }
+        }
+    }
+
+    /**
+     * The rows of one writer: batched upserts, one transaction per call, until the job has
+     * written more than the bulk threshold, then COPY through a staging table. Records found
+     * unchanged in the hash index are counted and dropped before either.
+     */
+    private final class Partition implements AutoCloseable {
+
+        private final SourceConfig config;
+        private final RecordKey recordKey;
+        private final AtomicLong jobWritten;
+        private final Map<String, byte[]> hashIndex;
+        private final Commits commits;
+        private final RejectListener onRejected;
+        // Chunks with rows staged for a merge that has not run yet
+        private final List<Long> staged = new ArrayList<>();
+        private long written = 0;
+        private LoadCounts counts = LoadCounts.NONE;
+        private CopyStagingLoad bulk;
+        // Set once the database turned out not to support COPY — stay on batched upserts
+        private boolean bulkUnavailable = false;
+
+        Partition(SourceConfig config, RecordKey recordKey, AtomicLong jobWritten, Map<String, byte[]> hashIndex,
+                  Commits commits, RejectListener onRejected) {
+            this.config = config;
+            this.recordKey = recordKey;
+            this.jobWritten = jobWritten;
+            this.hashIndex = hashIndex;
+            this.commits = commits;
+            this.onRejected = onRejected;
+        }
+
+        void write(List<Row> records, long seq) throws SQLException {
+            var changed = new ArrayList<HashedRow>(records.size());
+            long rejected = 0;
+            for (var record : records) {
+                var row = hash(record, recordKey, config);
+                var refusal = refusal(row);
+                if (refusal != null) {
+                    reject(row, refusal, onRejected);
+                    rejected++;
+                    continue;
+                }
+                // The whole hash: dropping a record on a partial match would lose a real change
+                var known = hashIndex != null ? hashIndex.get(row.externalId()) : null;
+                if (known == null || !Arrays.equals(known, row.hash())) {
+                    changed.add(row);
+                }
+            }
+            counts = counts.plus(new LoadCounts(0, 0, records.size() - changed.size() - rejected, rejected));
+            if (changed.isEmpty()) {
+                commits.committed(seq);
+                return;
+            }
+            if (bulk == null && !bulkUnavailable && bulkThresholdRows > 0
+                    && jobWritten.get() + changed.size() > bulkThresholdRows) {
+                bulk = openBulk(config, onRejected);
+                bulkUnavailable = bulk == null;
+            }
+            if (bulk != null) {
+                staged.add(seq);
+                for (var row : changed) {
+                    if (bulk.add(row.externalId(), row.payload(), HexFormat.of().formatHex(row.hash()))) {
+                        // A merge committed everything staged so far — this chunk only if it was its last row
+                        boolean chunkDone = row == changed.get(changed.size() - 1);
+                        commitStaged(chunkDone ? staged.size() : staged.size() - 1);
+                    }
+                }
+            } else {
+                counts = counts.plus(transactionTemplate.execute(status -> upsertRows(changed, config, onRejected)));
+                commits.committed(seq);
+            }
+            written += changed.size();
+            jobWritten.addAndGet(changed.size());
+        }
+
+        private void commitStaged(int chunks) {
+            var done = staged.subList(0, chunks);
+            done.forEach(commits::committed);
+            done.clear();
+        }
+
+        /** Merges anything still staged. Without it, close() discards the unmerged rows. */
+        void finish() throws SQLException {
+            if (bulk != null) {
+                var merged = bulk.finish();
+                commitStaged(staged.size());
+                counts = counts.plus(merged);
+                log.info("{\"event\":\"bulk_load_complete\",\"source\":\"{}\",\"merged\":{},\"total\":{}}",
+                    config.getName(), merged.total(), written);
+            }
+        }
+
+        LoadCounts counts() {
+            return counts;
+        }
+
+        @Override
+        public void close() throws SQLException {
+            if (bulk != null) {
+                bulk.close();
+                bulk = null;
+            }
+        }
+    }
+
+    private CopyStagingLoad openBulk(SourceConfig config, RejectListener onRejected) throws SQLException {
+        var dataSource = jdbcTemplate.getDataSource();
+        var connection = dataSource.getConnection();
+        try {
+            if (!CopyStagingLoad.supports(connection)) {
+                connection.close();
+                log.warn("{\"event\":\"bulk_load_unavailable\",\"source\":\"{}\",\"reason\":\"not_postgresql\"}",
+                    config.getName());
+                return null;
+            }
+        } catch (SQLException e) {
+            connection.close();
+            throw e;
+        }
+        log.info("{\"event\":\"bulk_load_start\",\"source\":\"{}\",\"thresholdRows\":{}}",
+            config.getName(), bulkThresholdRows);
+        return new CopyStagingLoad(connection, config, bulkMergeRows,
+            (externalId, payload, reason) -> reject(new HashedRow(externalId, payload, null), reason, onRejected));
+    }
+
+    /**
+     * Upserts records in the current transaction, under a savepoint: a record that breaks a
+     * statement is isolated and rejected instead of failing the others.
+     */
+    private LoadCounts upsertRows(List<HashedRow> records, SourceConfig config, RejectListener onRejected) {
+        if (records.isEmpty()) {
+            return LoadCounts.NONE;
+        }
+        try {
+            return jdbcTemplate.execute((ConnectionCallback<LoadCounts>) conn -> {
+                var savepoint = conn.setSavepoint();
+                try {
+                    var counts = LoadCounts.NONE;
+                    int statements = 0;
+                    for (int from = 0; from < records.size(); from += BATCH_SIZE) {
+                        counts = counts.plus(upsertStatement(conn, records.subList(from, Math.min(from + BATCH_SIZE, records.size())), config));
+                        statements++;
+                    }
+                    conn.releaseSavepoint(savepoint);
+                    log.info("{\"event\":\"upsert_complete\",\"source\":\"{}\",\"total\":{},\"inserted\":{},\"updated\":{},\"statements\":{}}",
+                        config.getName(), records.size(), counts.inserted(), counts.updated(), statements);
+                    return counts;
+                } catch (SQLException e) {
+                    if (!isRecordError(e)) {
+                        throw e;
+                    }
+                    conn.rollback(savepoint);
+                    log.warn("{\"event\":\"upsert_isolating\",\"source\":\"{}\",\"records\":{},\"error\":\"{}\"}",
+                        config.getName(), records.size(), e.getMessage());
+                    var counts = LoadCounts.NONE;
+                    for (int from = 0; from < records.size(); from += BATCH_SIZE) {
+                        counts = counts.plus(isolate(conn, records.subList(from, Math.min(from + BATCH_SIZE, records.size())),
+                            config, onRejected));
+                    }
+                    log.info("{\"event\":\"upsert_isolated\",\"source\":\"{}\",\"total\":{},\"inserted\":{},\"updated\":{},\"rejected\":{}}",
+                        config.getName(), records.size(), counts.inserted(), counts.updated(), counts.rejected());
+                    return counts;
                 }
+            });
+        } catch (Exception e) {
+            log.error("{\"event\":\"upsert_error\",\"source\":\"{}\",\"records\":{},\"error\":\"{}\"}",
+                config.getName(), records.size(), e.getMessage());
+            throw new RuntimeException("Upsert failed for a batch of " + records.size() + " records: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Upserts records under a savepoint of their own; if one of them breaks the statement,
+     * rolls back to it and retries each half, down to single records, which are rejected.
+     */
+    private LoadCounts isolate(Connection conn, List<HashedRow> records, SourceConfig config,
+                               RejectListener onRejected) throws SQLException {
+        var savepoint = conn.setSavepoint();
+        try {
+            var counts = upsertStatement(conn, records, config);
+            conn.releaseSavepoint(savepoint);
+            return counts;
+        } catch (SQLException e) {
+            if (!isRecordError(e)) {
+                throw e;
+            }
+            conn.rollback(savepoint);
+            if (records.size() == 1) {
+                reject(records.get(0), e.getMessage(), onRejected);
+                return new LoadCounts(0, 0, 0, 1);
+            }
+            int half = records.size() / 2;
+            return isolate(conn, records.subList(0, half), config, onRejected)
+                .plus(isolate(conn, records.subList(half, records.size()), config, onRejected));
+        }
+    }
+
+    /**
+     * One upsert statement for up to BATCH_SIZE records. Package-private so tests on a
+     * database without ON CONFLICT can stand in for it.
+     */
+    LoadCounts upsertStatement(Connection conn, List<HashedRow> batch, SourceConfig config) throws SQLException {
+        // ON CONFLICT cannot touch the same row twice in one statement, so duplicate IDs
+        // within a batch collapse to the last occurrence — the same row the old one-by-one
+        // upserts ended with
+        var latest = new LinkedHashMap<String, HashedRow>(batch.size() * 2);
+        for (var row : batch) {
+            latest.put(row.externalId(), row);
+        }
+        var externalIds = new String[latest.size()];
+        var payloads = new String[latest.size()];
+        var hashes = new String[latest.size()];
+        int i = 0;
+        for (var row : latest.values()) {
+            externalIds[i] = row.externalId();
+            payloads[i] = row.payload();
+            hashes[i] = HexFormat.of().formatHex(row.hash());
+            i++;
+        }
+        try (var stmt = conn.prepareStatement(UPSERT_SQL)) {
+            stmt.setLong(1, config.getId());
+            stmt.setString(2, config.getType().name());
+            stmt.setString(3, config.getName());
+            stmt.setArray(4, conn.createArrayOf("text", externalIds));
+            stmt.setArray(5, conn.createArrayOf("text", payloads));
+            stmt.setArray(6, conn.createArrayOf("text", hashes));
+            try (var rs = stmt.executeQuery()) {
+                rs.next();
+                long inserted = rs.getLong(1);
+                long updated = rs.getLong(2);
+                return new LoadCounts(inserted, updated, batch.size() - inserted - updated);
+            }
+        }
+    }
+
+    /**
+     * True for errors some record caused — data exceptions (SQLSTATE class 22: value too long,
+     * invalid JSON, bad encoding) and constraint violations (class 23). Anything else (lost
+     * connection, missing table) would fail every half of a bisection just the same.
+     */
+    static boolean isRecordError(SQLException e) {
+        var state = e.getSQLState();
+        return state != null && (state.startsWith("22") || state.startsWith("23"));
+    }
 
-            } catch (Exception e) {
-                log.error("{\"event\":\"upsert_error\",\"source\":\"{}\",\"externalId\":\"{}\",\"error\":\"{}\"}",
-                    config.getName(), externalId, e.getMessage());
-                throw new RuntimeException("Upsert failed for record " + externalId + ": " + e.getMessage(), e);
+    /** Why the database would refuse a record, or null if it looks storable. */
+    static String refusal(String externalId, String payload) {
+        if (externalId.codePointCount(0, externalId.length()) > MAX_EXTERNAL_ID_LENGTH) {
+            return "External ID is longer than " + MAX_EXTERNAL_ID_LENGTH + " characters";
+        }
+        // The serializer escapes NUL as backslash + "u0000", which jsonb rejects. Only an odd
+        // run of backslashes makes it that escape rather than an escaped backslash before "u0000"
+        for (int at = payload.indexOf("\\u0000"); at >= 0; at = payload.indexOf("\\u0000", at + 1)) {
+            int backslashes = 0;
+            for (int i = at; i >= 0 && payload.charAt(i) == '\\'; i--) {
+                backslashes++;
+            }
+            if ((backslashes & 1) == 1) {
+                return "Payload contains a NUL character, which PostgreSQL jsonb cannot store";
             }
         }
+        return null;
+    }
+
+    private static String refusal(HashedRow row) {
+        return refusal(row.externalId(), row.payload());
+    }
+
+    private void reject(HashedRow row, String reason, RejectListener onRejected) {
+        log.warn("{\"event\":\"record_rejected\",\"externalId\":\"{}\",\"reason\":\"{}\"}",
+            abbreviate(row.externalId()), reason);
+        if (onRejected != null) {
+            onRejected.rejected(row.payload(), "Load failed: " + reason);
+        }
+    }
+
+    private static String abbreviate(String text) {
+        return text.length() <= 64 ? text : text.substring(0, 64) + "…";
+    }
+
+    /** A record ready to send: its external ID, canonical payload and content hash. */
+    record HashedRow(String externalId, String payload, byte[] hash) {
+    }
 
-        // Final flush for remaining records
-        entityManager.flush();
-        entityManager.clear();
+    private HashedRow hash(Row record, RecordKey recordKey, SourceConfig config) {
+        var externalId = recordKey.extract(record);
+        var hashed = serialize(record, externalId, config);
+        return new HashedRow(externalId != null ? externalId : contentId(hashed.hash()),
+            hashed.payload(), hashed.hash());
+    }
 
-        log.info("{\"event\":\"upsert_complete\",\"source\":\"{}\",\"total\":{}}", config.getName(), count);
+    /**
+     * ID of a record without a key: 128 bits of its content hash. Rerunning the source yields
+     * the same ID; identical records collapse into one row, since nothing tells them apart.
+     */
+    private static String contentId(byte[] hash) {
+        return "content:" + HexFormat.of().formatHex(hash, 0, 16);
     }
 
-    private String extractExternalId(Map<String, Object> record) {
-        // Try common identifier field names in priority order
-        for (var key : List.of("id", "_id", "uuid", "record_id", "userId", "key")) {
-            var value = record.get(key);
-            if (value != null && !String.valueOf(value).isBlank()) {
-                return String.valueOf(value);
+    /**
+     * Routes a record to a writer. Records that end up with the same external ID must share a
+     * writer, so keyless records are routed by their values — minus the per-run timestamp,
+     * like the content hash their ID comes from.
+     */
+    private static int partitionHash(Row record, String externalId) {
+        if (externalId != null) {
+            return externalId.hashCode();
+        }
+        int ingestedAt = record.schema().indexOf(TransformPipeline.INGESTED_AT_FIELD);
+        int hash = 1;
+        for (int i = 0; i < record.width(); i++) {
+            if (i != ingestedAt && record.has(i)) {
+                hash = 31 * hash + Objects.hashCode(record.get(i));
             }
         }
-        // Fallback: UUID v4 — Java's hashCode() is only 32-bit (~4B values) and can silently
-        // collide, causing records to overwrite each other. UUID is effectively collision-free.
-        // Note: each run of the same record without an ID field will generate a new UUID,
-        // meaning it inserts a new row rather than upsert. This is intentional — without an
-        // identifier we cannot determine if two records represent the same entity.
-        return UUID.randomUUID().toString();
+        return hash;
+    }
+
+    private PayloadHasher.Hashed serialize(Row record, String externalId, SourceConfig config) {
+        try {
+            // Row serializes itself field by field — no intermediate map per record
+            return hasher.write(record);
+        } catch (JsonProcessingException e) {
+            log.error("{\"event\":\"upsert_error\",\"source\":\"{}\",\"externalId\":\"{}\",\"error\":\"{}\"}",
+                config.getName(), externalId, e.getMessage());
+            throw new RuntimeException("Upsert failed for record " + externalId + ": " + e.getMessage(), e);
+        }
     }
 }
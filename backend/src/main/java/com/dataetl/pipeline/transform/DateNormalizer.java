@@ -0,0 +1,289 @@
+package com.dataetl.pipeline.transform;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Rewrites date-looking strings to ISO 8601 (yyyy-MM-dd) without regexes or exceptions.
+ *
+ * Recognises the same inputs as the former DateTimeFormatter chain
+ * (MM/dd/yyyy, dd-MM-yyyy, yyyy-MM-dd, M/d/yyyy, d/M/yyyy, tried in that order, with
+ * SMART resolution — e.g. 02/30/2021 clamps to 2021-02-28) using a single scan of the
+ * characters and plain integer checks.
+ *
+ * One instance lives for one job and learns per column: during the first
+ * {@code sampleSize} non-blank values of a column it counts which format each value
+ * satisfies, then locks the column to the format that fits most values. After that only
+ * the locked format is tried (values it rejects still fall back to the full chain), so an
+ * ambiguous value such as 03/04/2020 follows the rest of its column. Columns that never
+ * held a date-shaped value during sampling only get the cheap shape check; the first
+ * date-shaped value to arrive later (after a run of "N/A" or "pending") starts the sampling
+ * over, so the column still learns its format. Blank values are not
+ * samples: a sparse column is judged by the values it does hold. Results for repeated
+ * strings are served from a per-column LRU memo of at most {@code memoSize} entries, so a
+ * column whose dates keep changing still gets hits on its recent values.
+ *
+ * Thread-safe: slices of one chunk are transformed concurrently and share this instance.
+ */
+public final class DateNormalizer {
+
+    /** Supported layouts, in the legacy precedence order for slash dates. */
+    enum Format {
+        MONTH_FIRST_SLASH,   // MM/dd/yyyy and M/d/yyyy
+        DAY_FIRST_DASH,      // dd-MM-yyyy
+        ISO_DASH,            // yyyy-MM-dd
+        DAY_FIRST_SLASH      // d/M/yyyy
+    }
+
+    private static final Format[] FORMATS = Format.values();
+
+    // Memo value meaning "looked like a date but could not be parsed — leave it alone"
+    private static final String UNPARSEABLE = new String("<unparseable>");
+
+    private final int sampleSize;
+    private final int memoSize;
+    private final Map<String, ColumnState> columns = new ConcurrentHashMap<>();
+
+    public DateNormalizer(int sampleSize, int memoSize) {
+        this.sampleSize = sampleSize;
+        this.memoSize = memoSize;
+    }
+
+    /**
+     * Returns the ISO form of value, or null when value is not a date that should be rewritten.
+     */
+    public String normalize(String column, String value) {
+        var state = columns.computeIfAbsent(column, c -> new ColumnState(memoSize));
+        if (state.skip) {
+            if (!looksLikeDate(value)) {
+                return null;
+            }
+            state.reopen();
+        }
+
+        var locked = state.locked;
+        if (locked == null) {
+            return learn(state, value);
+        }
+
+        var memoized = state.memo != null ? state.memo.get(value) : null;
+        if (memoized != null) {
+            return memoized == UNPARSEABLE ? null : memoized;
+        }
+        var result = parse(value, locked);
+        if (result == null && looksLikeDate(value)) {
+            // Locked format rejected it — keep the legacy behaviour for outliers
+            result = parseAny(value);
+        }
+        if (state.memo != null) {
+            state.memo.put(value, result != null ? result : UNPARSEABLE);
+        }
+        return result;
+    }
+
+    private String learn(ColumnState state, String value) {
+        if (value.isBlank()) {
+            return null;
+        }
+        String result = null;
+        if (looksLikeDate(value)) {
+            state.dateShaped.incrementAndGet();
+            for (var format : FORMATS) {
+                var parsed = parse(value, format);
+                if (parsed != null) {
+                    state.votes.incrementAndGet(format.ordinal());
+                    if (result == null) {
+                        result = parsed; // first match in precedence order, as before
+                    }
+                }
+            }
+        }
+        if (state.samples.incrementAndGet() == sampleSize) {
+            lock(state);
+        }
+        return result;
+    }
+
+    private static void lock(ColumnState state) {
+        if (state.dateShaped.get() == 0) {
+            state.skip = true;
+            return;
+        }
+        // Most votes wins; ties go to the earlier format, matching the legacy precedence
+        Format best = FORMATS[0];
+        for (var format : FORMATS) {
+            if (state.votes.get(format.ordinal()) > state.votes.get(best.ordinal())) {
+                best = format;
+            }
+        }
+        state.locked = best;
+    }
+
+    /** Full legacy chain: first format that accepts the value. */
+    static String parseAny(String value) {
+        for (var format : FORMATS) {
+            var parsed = parse(value, format);
+            if (parsed != null) {
+                return parsed;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Same acceptance as the old DATE_PATTERN: digits{1,4} [/-] digits{1,2} [/-] digits{2,4}.
+     */
+    static boolean looksLikeDate(String s) {
+        int len = s.length();
+        if (len < 6 || len > 12) {
+            return false;
+        }
+        int i = 0;
+        int start = 0;
+        while (i < len && isDigit(s.charAt(i))) i++;
+        if (i - start < 1 || i - start > 4 || i == len || !isSeparator(s.charAt(i))) return false;
+        start = ++i;
+        while (i < len && isDigit(s.charAt(i))) i++;
+        if (i - start < 1 || i - start > 2 || i == len || !isSeparator(s.charAt(i))) return false;
+        start = ++i;
+        while (i < len && isDigit(s.charAt(i))) i++;
+        return i == len && i - start >= 2 && i - start <= 4;
+    }
+
+    /**
+     * Parses value with exactly one format. Returns the ISO string or null — never throws.
+     */
+    static String parse(String s, Format format) {
+        int len = s.length();
+        // Every format needs a 4-digit year: shortest is 1/1/2020, longest 0012/31/2020
+        if (len < 8 || len > 12) {
+            return null;
+        }
+        char sep = format == Format.MONTH_FIRST_SLASH || format == Format.DAY_FIRST_SLASH ? '/' : '-';
+
+        // Three digit groups separated by sep; record value and width of each
+        int i = 0;
+        int g1 = 0, w1 = 0, g2 = 0, w2 = 0, g3 = 0, w3 = 0;
+        while (i < len && isDigit(s.charAt(i))) { g1 = g1 * 10 + (s.charAt(i) - '0'); w1++; i++; }
+        if (w1 == 0 || w1 > 4 || i == len || s.charAt(i) != sep) return null;
+        i++;
+        while (i < len && isDigit(s.charAt(i))) { g2 = g2 * 10 + (s.charAt(i) - '0'); w2++; i++; }
+        if (w2 == 0 || w2 > 2 || i == len || s.charAt(i) != sep) return null;
+        i++;
+        while (i < len && isDigit(s.charAt(i))) { g3 = g3 * 10 + (s.charAt(i) - '0'); w3++; i++; }
+        if (i != len || w3 == 0 || w3 > 4) return null;
+
+        int year, month, day;
+        switch (format) {
+            case MONTH_FIRST_SLASH -> {
+                if (w3 != 4) return null;
+                month = g1; day = g2; year = g3;
+            }
+            case DAY_FIRST_SLASH -> {
+                if (w3 != 4) return null;
+                day = g1; month = g2; year = g3;
+            }
+            case DAY_FIRST_DASH -> {
+                if (w1 != 2 || w2 != 2 || w3 != 4) return null;
+                day = g1; month = g2; year = g3;
+            }
+            case ISO_DASH -> {
+                if (w1 != 4 || w2 != 2 || w3 != 2) return null;
+                year = g1; month = g2; day = g3;
+            }
+            default -> {
+                return null;
+            }
+        }
+
+        // yyyy is year-of-era: 0000 is rejected. SMART resolution clamps day 29–31 to month end.
+        if (year < 1 || month < 1 || month > 12 || day < 1 || day > 31) {
+            return null;
+        }
+        day = Math.min(day, lengthOfMonth(year, month));
+
+        var iso = new char[10];
+        iso[0] = (char) ('0' + year / 1000);
+        iso[1] = (char) ('0' + year / 100 % 10);
+        iso[2] = (char) ('0' + year / 10 % 10);
+        iso[3] = (char) ('0' + year % 10);
+        iso[4] = '-';
+        iso[5] = (char) ('0' + month / 10);
+        iso[6] = (char) ('0' + month % 10);
+        iso[7] = '-';
+        iso[8] = (char) ('0' + day / 10);
+        iso[9] = (char) ('0' + day % 10);
+        return new String(iso);
+    }
+
+    private static int lengthOfMonth(int year, int month) {
+        return switch (month) {
+            case 2 -> (year % 4 == 0 && (year % 100 != 0 || year % 400 == 0)) ? 29 : 28;
+            case 4, 6, 9, 11 -> 30;
+            default -> 31;
+        };
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isSeparator(char c) {
+        return c == '/' || c == '-';
+    }
+
+    private static final class ColumnState {
+        private final AtomicInteger samples = new AtomicInteger();
+        private final AtomicInteger dateShaped = new AtomicInteger();
+        private final AtomicIntegerArray votes = new AtomicIntegerArray(FORMATS.length);
+        // Null when memoisation is off
+        private final Memo memo;
+        private volatile Format locked;
+        private volatile boolean skip;
+
+        private ColumnState(int memoSize) {
+            this.memo = memoSize > 0 ? new Memo(memoSize) : null;
+        }
+
+        /** Samples the column again; no format got a vote, since none of its samples was date-shaped. */
+        private synchronized void reopen() {
+            if (skip) {
+                samples.set(0);
+                dateShaped.set(0);
+                skip = false;
+            }
+        }
+    }
+
+    /** Least recently used value → result pairs of one column. */
+    private static final class Memo {
+
+        // Access-ordered: the eldest entry is the one used least recently. All access is
+        // synchronised on the map itself
+        private final Map<String, String> entries;
+
+        private Memo(int maxSize) {
+            this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                    return size() > maxSize;
+                }
+            };
+        }
+
+        String get(String value) {
+            synchronized (entries) {
+                return entries.get(value);
+            }
+        }
+
+        void put(String value, String result) {
+            synchronized (entries) {
+                entries.put(value, result);
+            }
+        }
+    }
+}
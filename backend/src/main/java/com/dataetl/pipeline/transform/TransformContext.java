@@ -0,0 +1,42 @@
+package com.dataetl.pipeline.transform;
+
+import com.dataetl.model.SourceConfig;
+import com.dataetl.pipeline.RecordKey;
+
+/**
+ * Per-job transform state, created once per run by {@link TransformPipeline#newContext}.
+ * Holds what the pipeline learns about a source while it runs (e.g. per-column date formats),
+ * so that knowledge is never shared between jobs or sources.
+ */
+public final class TransformContext {
+
+    private final SourceConfig config;
+    private final RecordKey recordKey;
+    private final DateNormalizer dateNormalizer;
+    private final int sourceNameIndex;
+    private final int sourceTypeIndex;
+    private final int ingestedAtIndex;
+
+    TransformContext(SourceConfig config, RecordKey recordKey, DateNormalizer dateNormalizer,
+                     int sourceNameIndex, int sourceTypeIndex, int ingestedAtIndex) {
+        this.config = config;
+        this.recordKey = recordKey;
+        this.dateNormalizer = dateNormalizer;
+        this.sourceNameIndex = sourceNameIndex;
+        this.sourceTypeIndex = sourceTypeIndex;
+        this.ingestedAtIndex = ingestedAtIndex;
+    }
+
+    public SourceConfig config() { return config; }
+
+    /** The job's key extractor — validation checks it here, the loader derives IDs with it. */
+    public RecordKey recordKey() { return recordKey; }
+
+    DateNormalizer dateNormalizer() { return dateNormalizer; }
+
+    int sourceNameIndex() { return sourceNameIndex; }
+
+    int sourceTypeIndex() { return sourceTypeIndex; }
+
+    int ingestedAtIndex() { return ingestedAtIndex; }
+}
@@ -1,112 +1,238 @@
 package com.dataetl.pipeline.transform;
 
 import com.dataetl.model.SourceConfig;
+import com.dataetl.pipeline.RecordKey;
+import com.dataetl.pipeline.RecordSchema;
+import com.dataetl.pipeline.Row;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.time.LocalDate;
 import java.time.OffsetDateTime;
-import java.time.format.DateTimeFormatter;
-import java.time.format.DateTimeParseException;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.Map;
-import java.util.regex.Pattern;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
 
 @Service
 public class TransformPipeline {
 
-    // Ordered list of date patterns to attempt parsing
-    private static final List<DateTimeFormatter> DATE_FORMATTERS = List.of(
-        DateTimeFormatter.ofPattern("MM/dd/yyyy"),
-        DateTimeFormatter.ofPattern("dd-MM-yyyy"),
-        DateTimeFormatter.ofPattern("yyyy-MM-dd"),
-        DateTimeFormatter.ofPattern("M/d/yyyy"),
-        DateTimeFormatter.ofPattern("d/M/yyyy")
-    );
-
-    // Matches strings that look like dates (basic heuristic)
-    private static final Pattern DATE_PATTERN =
-        Pattern.compile("\\d{1,4}[/\\-]\\d{1,2}[/\\-]\\d{2,4}");
+    /** Enrichment field stamped with the time of each run — the only field that changes on its own. */
+    public static final String INGESTED_AT_FIELD = "_ingested_at";
 
     public record TransformResult(
-        Map<String, Object> record,
+        Row record,
         String errorReason
     ) {
         public boolean isValid() { return record != null; }
     }
 
-    public TransformResult transform(Map<String, Object> rawRecord, SourceConfig config) {
+    /** A record that failed transformation, kept with its raw form for error reporting. */
+    public record Rejected(
+        Row raw,
+        String errorReason
+    ) {}
+
+    /** Outcome of transforming one chunk: valid records for the loader plus per-record rejections. */
+    public record ChunkResult(
+        List<Row> valid,
+        List<Rejected> rejected
+    ) {}
+
+    private final ForkJoinPool transformPool;
+    private final boolean parallel;
+    private final boolean preserveOrder;
+    private final int minSliceSize;
+    private final int dateSampleSize;
+    private final int dateMemoSize;
+
+    public TransformPipeline(@Qualifier("transformPool") ForkJoinPool transformPool,
+                             @Value("${app.etl.transform.preserve-order:true}") boolean preserveOrder,
+                             @Value("${app.etl.transform.min-slice-size:256}") int minSliceSize,
+                             @Value("${app.etl.transform.date-sample-size:100}") int dateSampleSize,
+                             @Value("${app.etl.transform.date-memo-size:4096}") int dateMemoSize) {
+        if (minSliceSize <= 0) {
+            throw new IllegalArgumentException("app.etl.transform.min-slice-size must be positive, got " + minSliceSize);
+        }
+        this.transformPool = transformPool;
+        this.parallel = transformPool.getParallelism() > 1;
+        this.preserveOrder = preserveOrder;
+        this.minSliceSize = minSliceSize;
+        this.dateSampleSize = dateSampleSize;
+        this.dateMemoSize = dateMemoSize;
+    }
+
+    /**
+     * Starts per-job transform state. Call once per run, after the cursor is open, and pass
+     * it to every chunk. Registers the enrichment fields in the job's schema up front so rows
+     * created from here on already have room for them.
+     *
+     * @throws IllegalArgumentException if the source's keyColumns setting is invalid
+     */
+    public TransformContext newContext(SourceConfig config, RecordSchema schema) {
+        return new TransformContext(
+            config,
+            RecordKey.forSource(config, schema),
+            new DateNormalizer(dateSampleSize, dateMemoSize),
+            schema.add("_source_name"),
+            schema.add("_source_type"),
+            schema.add(INGESTED_AT_FIELD)
+        );
+    }
+
+    /**
+     * Transforms a whole chunk. Large chunks are split into slices and fanned across the
+     * shared work-stealing transform pool; each record is still transformed in isolation,
+     * so one bad row never affects its neighbours and every rejection keeps its reason.
+     *
+     * With preserve-order enabled (the default) valid records come back in input order —
+     * the loader relies on that when the same external ID appears twice in a source, so the
+     * last occurrence wins. Without it, slices publish their results as they finish.
+     */
+    public ChunkResult transformChunk(List<Row> rawChunk, TransformContext context) {
+        if (!parallel || rawChunk.size() < 2 * minSliceSize) {
+            var result = new ChunkResult(new ArrayList<>(rawChunk.size()), new ArrayList<>());
+            transformSlice(rawChunk, context, result);
+            return result;
+        }
+        if (preserveOrder) {
+            return transformPool.invoke(new OrderedSlice(rawChunk, context));
+        }
+        var shared = new ChunkResult(
+            Collections.synchronizedList(new ArrayList<>(rawChunk.size())),
+            Collections.synchronizedList(new ArrayList<>()));
+        transformPool.invoke(new UnorderedSlice(rawChunk, context, shared));
+        return shared;
+    }
+
+    private void transformSlice(List<Row> slice, TransformContext context, ChunkResult into) {
+        for (var raw : slice) {
+            var result = transform(raw, context);
+            if (result.isValid()) {
+                into.valid().add(result.record());
+            } else {
+                into.rejected().add(new Rejected(raw, result.errorReason()));
+            }
+        }
+    }
+
+    /** Splits in halves and concatenates left-then-right, so results keep input order. */
+    private final class OrderedSlice extends RecursiveTask<ChunkResult> {
+        private final List<Row> slice;
+        private final TransformContext context;
+
+        OrderedSlice(List<Row> slice, TransformContext context) {
+            this.slice = slice;
+            this.context = context;
+        }
+
+        @Override
+        protected ChunkResult compute() {
+            if (slice.size() < 2 * minSliceSize) {
+                var result = new ChunkResult(new ArrayList<>(slice.size()), new ArrayList<>());
+                transformSlice(slice, context, result);
+                return result;
+            }
+            int mid = slice.size() / 2;
+            var right = new OrderedSlice(slice.subList(mid, slice.size()), context);
+            right.fork();
+            var left = new OrderedSlice(slice.subList(0, mid), context).compute();
+            var rightResult = right.join();
+            left.valid().addAll(rightResult.valid());
+            left.rejected().addAll(rightResult.rejected());
+            return left;
+        }
+    }
+
+    /** Splits in halves; leaves append straight into the shared result as they finish. */
+    private final class UnorderedSlice extends RecursiveAction {
+        private final List<Row> slice;
+        private final TransformContext context;
+        private final ChunkResult shared;
+
+        UnorderedSlice(List<Row> slice, TransformContext context, ChunkResult shared) {
+            this.slice = slice;
+            this.context = context;
+            this.shared = shared;
+        }
+
+        @Override
+        protected void compute() {
+            if (slice.size() < 2 * minSliceSize) {
+                var local = new ChunkResult(new ArrayList<>(slice.size()), new ArrayList<>());
+                transformSlice(slice, context, local);
+                shared.valid().addAll(local.valid());
+                shared.rejected().addAll(local.rejected());
+                return;
+            }
+            int mid = slice.size() / 2;
+            invokeAll(
+                new UnorderedSlice(slice.subList(0, mid), context, shared),
+                new UnorderedSlice(slice.subList(mid, slice.size()), context, shared));
+        }
+    }
+
+    public TransformResult transform(Row rawRecord, TransformContext context) {
         // Step 1: Validate
-        var validationError = validate(rawRecord);
+        var validationError = validate(rawRecord, context.recordKey());
         if (validationError != null) {
             return new TransformResult(null, validationError);
         }
 
+        // Steps 2 and 3 rewrite the row in place — the raw form is only needed for rejected rows
         // Step 2: Normalize dates
-        var normalized = normalizeDates(rawRecord);
+        normalizeDates(rawRecord, context.dateNormalizer());
 
         // Step 3: Enrich with metadata
-        var enriched = enrich(normalized, config);
+        enrich(rawRecord, context);
 
-        return new TransformResult(enriched, null);
+        return new TransformResult(rawRecord, null);
     }
 
-    private String validate(Map<String, Object> record) {
-        // Check for at least one identifier field
-        boolean hasId = false;
-        for (var key : List.of("id", "_id", "uuid", "record_id", "key", "userId")) {
-            var value = record.get(key);
+    private String validate(Row record, RecordKey key) {
+        // Configured key columns are required; without them a record may have no ID field at all
+        // and the loader identifies it by its content
+        boolean hasKey = key.extract(record) != null;
+        if (!hasKey && key.configured()) {
+            return "Missing value for key column(s) " + String.join(", ", key.columns());
+        }
+
+        // Check that record is not entirely empty
+        int nonBlankValues = 0;
+        for (int i = 0; i < record.width(); i++) {
+            var value = record.get(i);
             if (value != null && !String.valueOf(value).isBlank()) {
-                hasId = true;
-                break;
+                nonBlankValues++;
             }
         }
-        if (!hasId) {
-            return "Missing required identifier field (id, _id, uuid, or record_id)";
+        if (!hasKey && nonBlankValues == 0) {
+            return "Record contains no data";
         }
-
-        // Check that record is not entirely empty
-        var nonBlankValues = record.values().stream()
-            .filter(v -> v != null && !String.valueOf(v).isBlank())
-            .count();
-        if (nonBlankValues <= 1) {
+        if (hasKey && nonBlankValues <= (key.configured() ? key.columns().size() : 1)) {
             return "Record contains insufficient data (only identifier field present)";
         }
 
         return null;
     }
 
-    private Map<String, Object> normalizeDates(Map<String, Object> record) {
-        var result = new HashMap<>(record);
-        for (var entry : record.entrySet()) {
-            var value = entry.getValue();
-            if (value instanceof String s && DATE_PATTERN.matcher(s).matches()) {
-                var parsed = tryParseDate(s);
-                if (parsed != null) {
-                    result.put(entry.getKey(), parsed);
+    private void normalizeDates(Row record, DateNormalizer dates) {
+        var schema = record.schema();
+        for (int i = 0; i < record.width(); i++) {
+            if (record.get(i) instanceof String s) {
+                var iso = dates.normalize(schema.name(i), s);
+                if (iso != null) {
+                    record.set(i, iso); // ISO 8601: yyyy-MM-dd
                 }
             }
         }
-        return result;
-    }
-
-    private String tryParseDate(String value) {
-        for (var formatter : DATE_FORMATTERS) {
-            try {
-                var date = LocalDate.parse(value.trim(), formatter);
-                return date.toString(); // ISO 8601: yyyy-MM-dd
-            } catch (DateTimeParseException ignored) {
-                // Try next format
-            }
-        }
-        return null; // Could not parse — leave original value
     }
 
-    private Map<String, Object> enrich(Map<String, Object> record, SourceConfig config) {
-        var result = new HashMap<>(record);
-        result.put("_source_name", config.getName());
-        result.put("_source_type", config.getType().name());
-        result.put("_ingested_at", OffsetDateTime.now().toString());
-        return result;
+    private void enrich(Row record, TransformContext context) {
+        // Field indexes were registered once per job in newContext()
+        record.set(context.sourceNameIndex(), context.config().getName());
+        record.set(context.sourceTypeIndex(), context.config().getType().name());
+        record.set(context.ingestedAtIndex(), OffsetDateTime.now().toString());
     }
 }
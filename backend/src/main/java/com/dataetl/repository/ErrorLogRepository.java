@@ -1,13 +1,13 @@
 package com.dataetl.repository;
 
 import com.dataetl.model.ErrorLog;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 
-import java.util.List;
-
 public interface ErrorLogRepository extends JpaRepository<ErrorLog, Long> {
 
-    List<ErrorLog> findByJobIdOrderByOccurredAtDesc(Long jobId);
+    Page<ErrorLog> findByJobId(Long jobId, Pageable pageable);
 
     long countByJobId(Long jobId);
 }
@@ -0,0 +1,11 @@
+package com.dataetl.repository;
+
+import com.dataetl.model.ErrorSummary;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+
+public interface ErrorSummaryRepository extends JpaRepository<ErrorSummary, Long> {
+
+    List<ErrorSummary> findByJobIdOrderByErrorCountDesc(Long jobId);
+}
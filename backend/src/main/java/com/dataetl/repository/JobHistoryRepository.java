@@ -5,8 +5,11 @@ import com.dataetl.model.enums.JobStatus;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.time.OffsetDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -32,4 +35,10 @@ public interface JobHistoryRepository extends JpaRepository<JobHistory, Long> {
     Optional<JobHistory> findTopBySourceConfigIdAndStatusOrderByStartTimeDesc(
         Long sourceConfigId, JobStatus status
     );
+
+    // Jobs left RUNNING by a process that stopped without finishing them
+    @Modifying
+    @Query("UPDATE JobHistory j SET j.status = :failed, j.endTime = :now WHERE j.status = :running")
+    int failRunningJobs(@Param("running") JobStatus running, @Param("failed") JobStatus failed,
+                        @Param("now") OffsetDateTime now);
 }
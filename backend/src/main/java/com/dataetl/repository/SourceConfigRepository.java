@@ -19,4 +19,13 @@ public interface SourceConfigRepository extends JpaRepository<SourceConfig, Long
     @Modifying
     @Query("UPDATE SourceConfig s SET s.lastRunTimestamp = :timestamp WHERE s.id = :id")
     void updateLastRunTimestamp(@Param("id") Long id, @Param("timestamp") OffsetDateTime timestamp);
+
+    @Modifying
+    @Query("UPDATE SourceConfig s SET s.httpEtag = :etag, s.httpLastModified = :lastModified WHERE s.id = :id")
+    void updateHttpValidators(@Param("id") Long id, @Param("etag") String etag, @Param("lastModified") String lastModified);
+
+    @Modifying
+    @Query("UPDATE SourceConfig s SET s.checkpoint = :checkpoint, s.checkpointJobId = :jobId, s.checkpointAt = :at WHERE s.id = :id")
+    void updateCheckpoint(@Param("id") Long id, @Param("checkpoint") String checkpoint,
+                          @Param("jobId") Long jobId, @Param("at") OffsetDateTime at);
 }
@@ -1,8 +1,7 @@
 package com.dataetl.service;
 
 import com.dataetl.model.SourceConfig;
-import com.dataetl.model.enums.TriggerType;
-import com.dataetl.pipeline.EtlOrchestrator;
+import com.dataetl.model.enums.JobLane;
 import com.dataetl.repository.SourceConfigRepository;
 import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
@@ -21,17 +20,17 @@ public class DynamicSchedulerService {
     private static final Logger log = LoggerFactory.getLogger(DynamicSchedulerService.class);
 
     private final TaskScheduler taskScheduler;
-    private final EtlOrchestrator orchestrator;
+    private final JobDispatcher jobDispatcher;
     private final SourceConfigRepository sourceConfigRepository;
 
     // ConcurrentHashMap is required: multiple threads can interact with this map
     private final Map<Long, ScheduledFuture<?>> scheduledTasks = new ConcurrentHashMap<>();
 
     public DynamicSchedulerService(TaskScheduler taskScheduler,
-                                   EtlOrchestrator orchestrator,
+                                   JobDispatcher jobDispatcher,
                                    SourceConfigRepository sourceConfigRepository) {
         this.taskScheduler = taskScheduler;
-        this.orchestrator = orchestrator;
+        this.jobDispatcher = jobDispatcher;
         this.sourceConfigRepository = sourceConfigRepository;
     }
 
@@ -60,7 +59,8 @@ public class DynamicSchedulerService {
             var future = taskScheduler.schedule(
                 () -> {
                     log.info("{\"event\":\"scheduled_trigger\",\"source\":\"{}\"}",config.getName());
-                    orchestrator.runJob(config.getId(), TriggerType.SCHEDULER);
+                    // Only queue the job — it runs on its own thread, not on the scheduler's
+                    jobDispatcher.dispatch(config.getId(), JobLane.SCHEDULED);
                 },
                 trigger
             );
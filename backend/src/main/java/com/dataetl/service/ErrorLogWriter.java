@@ -0,0 +1,379 @@
+package com.dataetl.service;
+
+import com.dataetl.model.SourceConfig;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Records the errors of each job: a summary per error reason, and — for sources that opt in —
+ * every single error in error_log.
+ *
+ * Each error is counted under its reason, together with its first and last occurrence and a
+ * uniform sample of at most app.etl.error-log.samples-per-reason raw records (reservoir
+ * sampling: a reason that fails a million records still keeps only a handful). A job keeps at
+ * most {@value #MAX_REASONS} distinct reasons; errors with further reasons are counted under
+ * {@value #OTHER_REASON}. The summary of a running job is served from memory and written to
+ * error_summary when the job closes its {@link JobErrors}, so a job's detail is a few rows
+ * however many of its records failed.
+ *
+ * A source whose authConfig sets "captureAllErrors": true also gets one error_log row per
+ * error. Those are buffered per job and written as one batched INSERT once
+ * app.etl.error-log.batch-size of them are buffered, every app.etl.error-log.flush-interval,
+ * and when the job closes. A job's batches are written in order, a few at a time at most: a job
+ * that reports errors faster than they can be written waits for its batches instead of piling
+ * them up on the heap. The interval flush runs on the shared task scheduler and never waits —
+ * it skips its tick while the job's batches are backed up. A batch that cannot be written is logged and dropped — error_log is
+ * diagnostics, so losing it never fails the job.
+ */
+@Service
+public class ErrorLogWriter {
+
+    private static final Logger log = LoggerFactory.getLogger(ErrorLogWriter.class);
+
+    private static final String INSERT_SQL =
+        "INSERT INTO error_log (job_id, raw_data, error_reason, occurred_at) VALUES (?, ?, ?, ?)";
+
+    private static final String INSERT_SUMMARY_SQL = """
+        INSERT INTO error_summary (job_id, error_reason, error_count, first_at, last_at, samples)
+        VALUES (?, ?, ?, ?, ?, CAST(? AS jsonb))
+        """;
+
+    // Batches of one job handed to the executor and not yet written
+    private static final int MAX_PENDING_BATCHES = 4;
+
+    // Distinct reasons summarised per job — reasons that quote record values could be unbounded
+    static final int MAX_REASONS = 100;
+    static final String OTHER_REASON = "Other errors";
+    static final String UNKNOWN_REASON = "Unknown error";
+
+    // Longer reasons are cut: the reason is a map key and a summary row, not a record dump
+    private static final int MAX_REASON_LENGTH = 1000;
+
+    /** The errors of one reason, as far as a job has seen them. */
+    public record ReasonSummary(String reason, long count, OffsetDateTime firstAt, OffsetDateTime lastAt,
+                                List<String> samples) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Executor executor;
+    private final TaskScheduler scheduler;
+    private final ObjectMapper objectMapper;
+    private final int batchSize;
+    private final Duration flushInterval;
+    private final int samplesPerReason;
+    private final Map<Long, JobErrors> running = new ConcurrentHashMap<>();
+
+    public ErrorLogWriter(JdbcTemplate jdbcTemplate,
+                          @Qualifier("errorLogExecutor") Executor executor,
+                          TaskScheduler scheduler,
+                          ObjectMapper objectMapper,
+                          @Value("${app.etl.error-log.batch-size:500}") int batchSize,
+                          @Value("${app.etl.error-log.flush-interval:2s}") Duration flushInterval,
+                          @Value("${app.etl.error-log.samples-per-reason:5}") int samplesPerReason) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("app.etl.error-log.batch-size must be positive, got " + batchSize);
+        }
+        if (flushInterval.isNegative() || flushInterval.isZero()) {
+            throw new IllegalArgumentException("app.etl.error-log.flush-interval must be positive");
+        }
+        if (samplesPerReason < 0) {
+            throw new IllegalArgumentException("app.etl.error-log.samples-per-reason must not be negative, got "
+                + samplesPerReason);
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.executor = executor;
+        this.scheduler = scheduler;
+        this.objectMapper = objectMapper;
+        this.batchSize = batchSize;
+        this.flushInterval = flushInterval;
+        this.samplesPerReason = samplesPerReason;
+    }
+
+    /** Starts recording the errors of one job. Close it before the job is marked complete. */
+    public JobErrors open(SourceConfig config, Long jobId) {
+        var errors = new JobErrors(jobId, capturesAllErrors(config));
+        running.put(jobId, errors);
+        return errors;
+    }
+
+    /** The error summary of a job that is still running, most frequent reason first. */
+    public Optional<List<ReasonSummary>> running(Long jobId) {
+        var errors = running.get(jobId);
+        return errors != null ? Optional.of(errors.summary()) : Optional.empty();
+    }
+
+    private static boolean capturesAllErrors(SourceConfig config) {
+        var option = config.getAuthConfig() != null ? config.getAuthConfig().get("captureAllErrors") : null;
+        return option != null && Boolean.parseBoolean(option.toString().trim());
+    }
+
+    private record Entry(String rawData, String errorReason, OffsetDateTime occurredAt) {
+    }
+
+    /** The errors of one reason. Guarded by the {@link JobErrors} that owns it. */
+    private final class Tally {
+
+        private final OffsetDateTime firstAt;
+        private final List<String> samples = new ArrayList<>();
+        private OffsetDateTime lastAt;
+        private long count = 0;
+        // Errors of this reason that came with a raw record — the population being sampled
+        private long sampled = 0;
+
+        private Tally(OffsetDateTime firstAt) {
+            this.firstAt = firstAt;
+        }
+
+        private void add(String rawData, OffsetDateTime at) {
+            count++;
+            lastAt = at;
+            if (rawData == null) {
+                return;
+            }
+            sampled++;
+            if (samples.size() < samplesPerReason) {
+                samples.add(rawData);
+            } else {
+                // Algorithm R: the n-th record replaces a random sample with probability k/n
+                long slot = ThreadLocalRandom.current().nextLong(sampled);
+                if (slot < samplesPerReason) {
+                    samples.set((int) slot, rawData);
+                }
+            }
+        }
+
+        private ReasonSummary summary(String reason) {
+            return new ReasonSummary(reason, count, firstAt, lastAt, List.copyOf(samples));
+        }
+    }
+
+    /** The errors of one job. Thread-safe: every pipeline stage reports into it. */
+    public final class JobErrors implements AutoCloseable {
+
+        private final Long jobId;
+        private final boolean captureAll;
+        private final Semaphore pending = new Semaphore(MAX_PENDING_BATCHES);
+        // Held from taking a permit to chaining the batch — never while holding the monitor,
+        // which the writing thread needs to finish a batch and release its permit
+        private final ReentrantLock order = new ReentrantLock();
+        private final ScheduledFuture<?> timer;
+        private final Map<String, Tally> reasons = new LinkedHashMap<>();
+        private List<Entry> buffer = new ArrayList<>();
+        // The last batch handed to the executor; the next one is chained behind it. Guarded by order
+        private CompletableFuture<Void> tail = CompletableFuture.completedFuture(null);
+        private long written = 0;
+        private long dropped = 0;
+        private boolean closed = false;
+
+        private JobErrors(Long jobId, boolean captureAll) {
+            this.jobId = jobId;
+            this.captureAll = captureAll;
+            this.timer = captureAll
+                ? scheduler.scheduleAtFixedRate(this::tick, Instant.now().plus(flushInterval), flushInterval)
+                : null;
+        }
+
+        public void add(String rawData, String errorReason) {
+            var now = OffsetDateTime.now();
+            boolean full;
+            synchronized (this) {
+                if (closed) {
+                    // A stage thread still winding down after the job failed
+                    dropped++;
+                    return;
+                }
+                tally(errorReason).add(rawData, now);
+                if (!captureAll) {
+                    return;
+                }
+                buffer.add(new Entry(rawData, errorReason, now));
+                full = buffer.size() >= batchSize;
+            }
+            if (full) {
+                flush();
+            }
+        }
+
+        private Tally tally(String errorReason) {
+            String reason = errorReason == null || errorReason.isBlank() ? UNKNOWN_REASON : errorReason;
+            if (reason.length() > MAX_REASON_LENGTH) {
+                reason = reason.substring(0, MAX_REASON_LENGTH);
+            }
+            var tally = reasons.get(reason);
+            if (tally == null && reasons.size() >= MAX_REASONS) {
+                reason = OTHER_REASON;
+                tally = reasons.get(reason);
+            }
+            if (tally == null) {
+                tally = new Tally(OffsetDateTime.now());
+                reasons.put(reason, tally);
+            }
+            return tally;
+        }
+
+        /** The reasons seen so far, most frequent first. */
+        public synchronized List<ReasonSummary> summary() {
+            return reasons.entrySet().stream()
+                .map(reason -> reason.getValue().summary(reason.getKey()))
+                .sorted(Comparator.comparingLong(ReasonSummary::count).reversed())
+                .toList();
+        }
+
+        /**
+         * Hands whatever is buffered to the executor. Blocks the calling thread while this job
+         * already has enough batches in flight.
+         */
+        public void flush() {
+            order.lock();
+            try {
+                pending.acquireUninterruptibly();
+                submit();
+            } finally {
+                order.unlock();
+            }
+        }
+
+        /** The timer's flush: runs on the shared scheduler, so it skips the tick rather than wait. */
+        private void tick() {
+            if (!order.tryLock()) {
+                return;
+            }
+            try {
+                if (pending.tryAcquire()) {
+                    submit();
+                }
+            } finally {
+                order.unlock();
+            }
+        }
+
+        /**
+         * Takes the buffer and chains it behind the batches already handed over. Called with
+         * {@link #order} held and a permit taken, so batches reach the executor in the order
+         * they were taken from the buffer.
+         */
+        private void submit() {
+            List<Entry> batch;
+            synchronized (this) {
+                batch = buffer;
+                buffer = new ArrayList<>();
+            }
+            if (batch.isEmpty()) {
+                pending.release();
+                return;
+            }
+            tail = tail.thenRunAsync(() -> {
+                try {
+                    write(batch);
+                } finally {
+                    pending.release();
+                }
+            }, executor);
+        }
+
+        private void write(List<Entry> batch) {
+            try {
+                jdbcTemplate.batchUpdate(INSERT_SQL, batch, batch.size(), (stmt, entry) -> {
+                    stmt.setLong(1, jobId);
+                    stmt.setString(2, entry.rawData());
+                    stmt.setString(3, entry.errorReason());
+                    stmt.setObject(4, entry.occurredAt());
+                });
+                synchronized (this) {
+                    written += batch.size();
+                }
+            } catch (RuntimeException e) {
+                // Never let the chain complete exceptionally — the batches behind it would not run
+                synchronized (this) {
+                    dropped += batch.size();
+                }
+                log.warn("{\"event\":\"error_log_write_failed\",\"jobId\":{},\"entries\":{},\"error\":\"{}\"}",
+                    jobId, batch.size(), e.getMessage());
+            }
+        }
+
+        private void writeSummary(List<ReasonSummary> summary) {
+            try {
+                jdbcTemplate.batchUpdate(INSERT_SUMMARY_SQL, summary, summary.size(), (stmt, reason) -> {
+                    stmt.setLong(1, jobId);
+                    stmt.setString(2, reason.reason());
+                    stmt.setLong(3, reason.count());
+                    stmt.setObject(4, reason.firstAt());
+                    stmt.setObject(5, reason.lastAt());
+                    stmt.setString(6, samplesJson(reason.samples()));
+                });
+            } catch (RuntimeException e) {
+                log.warn("{\"event\":\"error_summary_write_failed\",\"jobId\":{},\"reasons\":{},\"error\":\"{}\"}",
+                    jobId, summary.size(), e.getMessage());
+            }
+        }
+
+        private String samplesJson(List<String> samples) {
+            try {
+                return objectMapper.writeValueAsString(samples);
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException("Error samples are not serializable", e);
+            }
+        }
+
+        /**
+         * Writes the job's summary and whatever error_log entries are still buffered, and waits
+         * until all of it is written.
+         */
+        @Override
+        public void close() {
+            synchronized (this) {
+                if (closed) return;
+                closed = true;
+            }
+            if (timer != null) {
+                timer.cancel(false);
+            }
+            flush();
+            CompletableFuture<Void> last;
+            order.lock();
+            try {
+                last = tail;
+            } finally {
+                order.unlock();
+            }
+            last.join();
+            var summary = summary();
+            if (!summary.isEmpty()) {
+                writeSummary(summary);
+            }
+            // Only now: until the summary is stored, the job's detail is served from memory
+            running.remove(jobId, this);
+            synchronized (this) {
+                if (!summary.isEmpty() || dropped > 0) {
+                    log.info("{\"event\":\"error_log_done\",\"jobId\":{},\"reasons\":{},\"errors\":{},\"written\":{},\"dropped\":{}}",
+                        jobId, summary.size(), summary.stream().mapToLong(ReasonSummary::count).sum(), written, dropped);
+                }
+            }
+        }
+    }
+}
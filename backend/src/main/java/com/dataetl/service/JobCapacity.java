@@ -0,0 +1,80 @@
+package com.dataetl.service;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryType;
+
+/**
+ * Whether the process has room to start another job right now, judged by the main connection
+ * pool and the heap. Jobs are only started while both have headroom; queued jobs wait otherwise.
+ *
+ * The heap is measured as the tenured generation after its last collection — garbage that the
+ * next young collection frees would make the budget flap. On an idle heap no collection runs,
+ * and that figure would hold admission back long after the jobs that filled the heap are gone;
+ * current usage, which can only overstate what is live, is taken when it is lower.
+ */
+@Component
+public class JobCapacity {
+
+    private final DataSource dataSource;
+    private final int poolReserve;
+    private final double heapBudget;
+
+    public JobCapacity(DataSource dataSource,
+                       @Value("${app.etl.jobs.admission.pool-reserve:2}") int poolReserve,
+                       @Value("${app.etl.jobs.admission.heap-budget:0.75}") double heapBudget) {
+        if (poolReserve < 0) {
+            throw new IllegalArgumentException("app.etl.jobs.admission.pool-reserve must not be negative");
+        }
+        if (heapBudget <= 0 || heapBudget > 1) {
+            throw new IllegalArgumentException("app.etl.jobs.admission.heap-budget must be in (0, 1], got " + heapBudget);
+        }
+        this.dataSource = dataSource;
+        this.poolReserve = poolReserve;
+        this.heapBudget = heapBudget;
+    }
+
+    /** Why no job may start now, or null if one may. */
+    public String shortage() {
+        if (dataSource instanceof HikariDataSource hikari) {
+            var pool = hikari.getHikariPoolMXBean();
+            if (pool != null && (pool.getThreadsAwaitingConnection() > 0
+                    || pool.getActiveConnections() >= hikari.getMaximumPoolSize() - poolReserve)) {
+                return "db_pool";
+            }
+        }
+        if (heapUsed() > heapBudget) {
+            return "heap";
+        }
+        return null;
+    }
+
+    /** Fraction of the heap still live, as far as the last old-generation collection tells. */
+    static double heapUsed() {
+        long used = 0;
+        long max = 0;
+        for (var pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            // Only tenured pools support both thresholds; eden and survivor spaces do not
+            if (pool.getType() != MemoryType.HEAP || !pool.isUsageThresholdSupported()
+                    || !pool.isCollectionUsageThresholdSupported()) {
+                continue;
+            }
+            var collected = pool.getCollectionUsage();
+            var current = pool.getUsage();
+            if (collected == null || current.getMax() <= 0) {
+                continue;
+            }
+            used += Math.min(collected.getUsed(), current.getUsed());
+            max += current.getMax();
+        }
+        if (max == 0) {
+            var runtime = Runtime.getRuntime();
+            return (double) (runtime.totalMemory() - runtime.freeMemory()) / runtime.maxMemory();
+        }
+        return (double) used / max;
+    }
+}
@@ -0,0 +1,354 @@
+package com.dataetl.service;
+
+import com.dataetl.dto.JobQueueResponse;
+import com.dataetl.exception.ResourceNotFoundException;
+import com.dataetl.model.SourceConfig;
+import com.dataetl.model.enums.JobLane;
+import com.dataetl.model.enums.SourceType;
+import com.dataetl.pipeline.EtlOrchestrator;
+import com.dataetl.repository.SourceConfigRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Service;
+
+import java.net.URI;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * Admits jobs into bounded per-lane queues and starts them on the job executor, a thread per job.
+ *
+ * The cron scheduler and the trigger endpoint only dispatch. A job joins its lane (MANUAL,
+ * SCHEDULED or BACKFILL) unless the lane already holds app.etl.jobs.queue.&lt;lane&gt;-capacity
+ * jobs — then it is rejected, and the trigger endpoint answers 429. A source is queued or
+ * running once at most: its checkpoint belongs to that one job.
+ *
+ * A queued job starts once all of these allow it:
+ * - a global slot: app.etl.jobs.max-concurrent jobs run at once
+ * - a slot of the resource it reads: app.etl.jobs.max-per-database per DB source URL,
+ *   app.etl.jobs.max-per-host per API host — CSV sources read local files and need none
+ * - {@link JobCapacity}: the main connection pool and the heap have headroom
+ * Lanes take turns by weight (stride scheduling, see {@link JobLane#weight()}). Within a lane
+ * jobs start in order, except that a job whose resource is busy lets the ones behind it pass.
+ *
+ * Jobs are started when one is admitted or one finishes; while JobCapacity holds them back,
+ * the queue is checked again every app.etl.jobs.admission.recheck-interval.
+ */
+@Service
+public class JobDispatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(JobDispatcher.class);
+
+    /** The outcome of dispatching a job. Position is 1-based within the lane, 0 if not queued. */
+    public record Admission(Status status, JobLane lane, int position, String reason) {
+
+        public enum Status { STARTED, QUEUED, ALREADY_QUEUED, ALREADY_RUNNING, REJECTED }
+    }
+
+    private record Queued(Long sourceConfigId, String sourceName, String resource, JobLane lane,
+                          OffsetDateTime queuedAt) {
+    }
+
+    private record Running(Long sourceConfigId, String sourceName, String resource, JobLane lane,
+                           OffsetDateTime startedAt) {
+    }
+
+    private final EtlOrchestrator orchestrator;
+    private final SourceConfigRepository sourceConfigRepository;
+    private final Executor jobExecutor;
+    private final TaskScheduler scheduler;
+    private final JobCapacity capacity;
+    private final int maxConcurrent;
+    private final int maxPerDatabase;
+    private final int maxPerHost;
+    private final Map<JobLane, Integer> laneCapacity = new EnumMap<>(JobLane.class);
+    private final Duration recheckInterval;
+
+    // All guarded by this
+    private final Map<JobLane, ArrayDeque<Queued>> queues = new EnumMap<>(JobLane.class);
+    // Stride scheduling: the lane with the lowest pass starts next and advances by 1 / weight
+    private final Map<JobLane, Double> passes = new EnumMap<>(JobLane.class);
+    private double virtualTime = 0;
+    private final Map<Long, Running> running = new LinkedHashMap<>();
+    private final Map<String, Integer> resourceUse = new HashMap<>();
+    private String waitingFor;
+    private boolean recheckScheduled = false;
+
+    private volatile boolean stopping = false;
+
+    public JobDispatcher(EtlOrchestrator orchestrator,
+                         SourceConfigRepository sourceConfigRepository,
+                         @Qualifier("jobExecutor") Executor jobExecutor,
+                         TaskScheduler scheduler,
+                         JobCapacity capacity,
+                         @Value("${app.etl.jobs.max-concurrent:8}") int maxConcurrent,
+                         @Value("${app.etl.jobs.max-per-database:2}") int maxPerDatabase,
+                         @Value("${app.etl.jobs.max-per-host:4}") int maxPerHost,
+                         @Value("${app.etl.jobs.queue.manual-capacity:20}") int manualCapacity,
+                         @Value("${app.etl.jobs.queue.scheduled-capacity:100}") int scheduledCapacity,
+                         @Value("${app.etl.jobs.queue.backfill-capacity:20}") int backfillCapacity,
+                         @Value("${app.etl.jobs.admission.recheck-interval:2s}") Duration recheckInterval) {
+        if (maxConcurrent <= 0 || maxPerDatabase <= 0 || maxPerHost <= 0) {
+            throw new IllegalArgumentException("app.etl.jobs limits must be positive");
+        }
+        if (manualCapacity < 0 || scheduledCapacity < 0 || backfillCapacity < 0) {
+            throw new IllegalArgumentException("app.etl.jobs.queue capacities must not be negative");
+        }
+        if (recheckInterval.isNegative() || recheckInterval.isZero()) {
+            throw new IllegalArgumentException("app.etl.jobs.admission.recheck-interval must be positive");
+        }
+        this.orchestrator = orchestrator;
+        this.sourceConfigRepository = sourceConfigRepository;
+        this.jobExecutor = jobExecutor;
+        this.scheduler = scheduler;
+        this.capacity = capacity;
+        this.maxConcurrent = maxConcurrent;
+        this.maxPerDatabase = maxPerDatabase;
+        this.maxPerHost = maxPerHost;
+        this.recheckInterval = recheckInterval;
+        laneCapacity.put(JobLane.MANUAL, manualCapacity);
+        laneCapacity.put(JobLane.SCHEDULED, scheduledCapacity);
+        laneCapacity.put(JobLane.BACKFILL, backfillCapacity);
+        for (var lane : JobLane.values()) {
+            queues.put(lane, new ArrayDeque<>());
+            passes.put(lane, 0.0);
+        }
+    }
+
+    @EventListener(ContextClosedEvent.class)
+    public synchronized void stopDispatching() {
+        stopping = true;
+        int dropped = queues.values().stream().mapToInt(ArrayDeque::size).sum();
+        queues.values().forEach(ArrayDeque::clear);
+        if (dropped > 0) {
+            log.warn("{\"event\":\"job_queue_dropped\",\"jobs\":{}}", dropped);
+        }
+    }
+
+    /**
+     * Queues a job for the source in the given lane and starts it if it may run now.
+     *
+     * @throws ResourceNotFoundException if the source does not exist
+     */
+    public Admission dispatch(Long sourceConfigId, JobLane lane) {
+        var config = sourceConfigRepository.findById(sourceConfigId)
+            .orElseThrow(() -> new ResourceNotFoundException("SourceConfig not found: " + sourceConfigId));
+        synchronized (this) {
+            if (stopping) {
+                return reject(config, lane, "shutting_down");
+            }
+            if (running.containsKey(sourceConfigId)) {
+                log.warn("{\"event\":\"job_skipped\",\"sourceConfigId\":{},\"reason\":\"already_running\"}", sourceConfigId);
+                return new Admission(Admission.Status.ALREADY_RUNNING, running.get(sourceConfigId).lane(), 0, "already_running");
+            }
+            for (var queued : queues.entrySet()) {
+                int position = position(queued.getValue(), sourceConfigId);
+                if (position > 0) {
+                    log.warn("{\"event\":\"job_skipped\",\"sourceConfigId\":{},\"reason\":\"already_queued\"}", sourceConfigId);
+                    return new Admission(Admission.Status.ALREADY_QUEUED, queued.getKey(), position, "already_queued");
+                }
+            }
+            var queue = queues.get(lane);
+            if (queue.size() >= laneCapacity.get(lane)) {
+                return reject(config, lane, "queue_full");
+            }
+            if (queue.isEmpty()) {
+                // A lane that sat idle does not get to catch up on the turns it did not need
+                passes.put(lane, Math.max(passes.get(lane), virtualTime));
+            }
+            queue.addLast(new Queued(sourceConfigId, config.getName(), resourceOf(config), lane, OffsetDateTime.now()));
+            pump();
+
+            if (running.containsKey(sourceConfigId)) {
+                return new Admission(Admission.Status.STARTED, lane, 0, null);
+            }
+            int position = position(queue, sourceConfigId);
+            if (position == 0) {
+                // Neither running nor queued: the executor refused to start it
+                return reject(config, lane, "start_failed");
+            }
+            log.info("{\"event\":\"job_queued\",\"sourceConfigId\":{},\"lane\":\"{}\",\"position\":{},\"waitingFor\":\"{}\"}",
+                sourceConfigId, lane, position, waitingFor != null ? waitingFor : "slot");
+            return new Admission(Admission.Status.QUEUED, lane, position, waitingFor);
+        }
+    }
+
+    /** Jobs running and waiting right now, for the API. */
+    public synchronized JobQueueResponse snapshot() {
+        var runningJobs = running.values().stream()
+            .map(job -> new JobQueueResponse.RunningJob(job.sourceConfigId(), job.sourceName(), job.lane(), job.startedAt()))
+            .toList();
+        var queuedJobs = new ArrayList<JobQueueResponse.QueuedJob>();
+        for (var queue : queues.values()) {
+            int position = 0;
+            for (var job : queue) {
+                queuedJobs.add(new JobQueueResponse.QueuedJob(
+                    job.sourceConfigId(), job.sourceName(), job.lane(), ++position, job.queuedAt()));
+            }
+        }
+        return new JobQueueResponse(maxConcurrent, waitingFor, runningJobs, queuedJobs);
+    }
+
+    private Admission reject(SourceConfig config, JobLane lane, String reason) {
+        log.warn("{\"event\":\"job_rejected\",\"sourceConfigId\":{},\"lane\":\"{}\",\"reason\":\"{}\"}",
+            config.getId(), lane, reason);
+        return new Admission(Admission.Status.REJECTED, lane, 0, reason);
+    }
+
+    /** Starts queued jobs while there are slots and capacity for them. */
+    private synchronized void pump() {
+        while (!stopping && running.size() < maxConcurrent) {
+            var next = next();
+            if (next == null) {
+                waitingFor = null;
+                return;
+            }
+            var shortage = capacity.shortage();
+            if (shortage != null) {
+                if (!shortage.equals(waitingFor)) {
+                    log.info("{\"event\":\"job_admission_paused\",\"reason\":\"{}\",\"queued\":{}}",
+                        shortage, queues.values().stream().mapToInt(ArrayDeque::size).sum());
+                }
+                waitingFor = shortage;
+                scheduleRecheck();
+                return;
+            }
+            waitingFor = null;
+            if (!start(next)) {
+                // The executor refused a thread — the next job would fare no better
+                return;
+            }
+        }
+    }
+
+    /** The first startable job of the lane whose turn it is; ties go to the lane declared first. */
+    private Queued next() {
+        Queued best = null;
+        for (var lane : JobLane.values()) {
+            var candidate = firstStartable(queues.get(lane));
+            if (candidate != null && (best == null || passes.get(lane) < passes.get(best.lane()))) {
+                best = candidate;
+            }
+        }
+        return best;
+    }
+
+    private Queued firstStartable(ArrayDeque<Queued> queue) {
+        for (var job : queue) {
+            if (job.resource() == null || resourceUse.getOrDefault(job.resource(), 0) < resourceLimit(job.resource())) {
+                return job;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Moves a job from its queue to running and hands it to the executor. If the executor
+     * refuses it, the job's slots are given back and it is dropped; no history row exists
+     * yet, the orchestrator only creates one once the job runs.
+     */
+    private boolean start(Queued job) {
+        var lane = job.lane();
+        queues.get(lane).remove(job);
+        virtualTime = passes.get(lane);
+        passes.put(lane, virtualTime + 1.0 / lane.weight());
+        var started = new Running(job.sourceConfigId(), job.sourceName(), job.resource(), lane, OffsetDateTime.now());
+        running.put(job.sourceConfigId(), started);
+        if (job.resource() != null) {
+            resourceUse.merge(job.resource(), 1, Integer::sum);
+        }
+        log.info("{\"event\":\"job_dispatched\",\"sourceConfigId\":{},\"lane\":\"{}\",\"queuedMs\":{}}",
+            job.sourceConfigId(), lane, Duration.between(job.queuedAt(), started.startedAt()).toMillis());
+        try {
+            jobExecutor.execute(() -> run(started));
+            return true;
+        } catch (RuntimeException e) {
+            release(started);
+            log.error("{\"event\":\"job_dispatch_failed\",\"sourceConfigId\":{},\"error\":\"{}\"}",
+                job.sourceConfigId(), e.getMessage());
+            return false;
+        }
+    }
+
+    private void run(Running job) {
+        try {
+            orchestrator.runJob(job.sourceConfigId(), job.lane().triggerType());
+        } catch (RuntimeException e) {
+            // runJob records its own failures — this is a job that could not even be started
+            log.error("{\"event\":\"job_dispatch_failed\",\"sourceConfigId\":{},\"error\":\"{}\"}",
+                job.sourceConfigId(), e.getMessage());
+        } finally {
+            finished(job);
+        }
+    }
+
+    private synchronized void finished(Running job) {
+        release(job);
+        pump();
+    }
+
+    private void release(Running job) {
+        running.remove(job.sourceConfigId());
+        if (job.resource() != null) {
+            resourceUse.computeIfPresent(job.resource(), (resource, used) -> used > 1 ? used - 1 : null);
+        }
+    }
+
+    private void scheduleRecheck() {
+        if (recheckScheduled) {
+            return;
+        }
+        recheckScheduled = true;
+        scheduler.schedule(() -> {
+            synchronized (this) {
+                recheckScheduled = false;
+                pump();
+            }
+        }, Instant.now().plus(recheckInterval));
+    }
+
+    private int resourceLimit(String resource) {
+        return resource.startsWith("db:") ? maxPerDatabase : maxPerHost;
+    }
+
+    private static int position(ArrayDeque<Queued> queue, Long sourceConfigId) {
+        int position = 0;
+        for (var job : queue) {
+            position++;
+            if (job.sourceConfigId().equals(sourceConfigId)) {
+                return position;
+            }
+        }
+        return 0;
+    }
+
+    /** The external resource a job of the source reads, or null if it needs no resource slot. */
+    static String resourceOf(SourceConfig config) {
+        if (config.getType() == SourceType.DB) {
+            return "db:" + config.getConnectionString();
+        }
+        if (config.getType() == SourceType.API) {
+            try {
+                var host = URI.create(config.getConnectionString()).getHost();
+                return host != null ? "api:" + host.toLowerCase() : null;
+            } catch (IllegalArgumentException e) {
+                // Malformed URL — let the run fail with the real validation error
+                return null;
+            }
+        }
+        return null;
+    }
+}
@@ -1,11 +1,10 @@
 package com.dataetl.service;
 
-import com.dataetl.model.ErrorLog;
 import com.dataetl.model.JobHistory;
 import com.dataetl.model.SourceConfig;
 import com.dataetl.model.enums.JobStatus;
 import com.dataetl.model.enums.TriggerType;
-import com.dataetl.repository.ErrorLogRepository;
+import com.dataetl.pipeline.load.LoadCounts;
 import com.dataetl.repository.JobHistoryRepository;
 import com.dataetl.repository.SourceConfigRepository;
 import org.springframework.stereotype.Service;
@@ -18,14 +17,11 @@ import java.time.OffsetDateTime;
 public class JobHistoryService {
 
     private final JobHistoryRepository jobHistoryRepository;
-    private final ErrorLogRepository errorLogRepository;
     private final SourceConfigRepository sourceConfigRepository;
 
     public JobHistoryService(JobHistoryRepository jobHistoryRepository,
-                             ErrorLogRepository errorLogRepository,
                              SourceConfigRepository sourceConfigRepository) {
         this.jobHistoryRepository = jobHistoryRepository;
-        this.errorLogRepository = errorLogRepository;
         this.sourceConfigRepository = sourceConfigRepository;
     }
 
@@ -41,27 +37,42 @@ public class JobHistoryService {
     }
 
     @Transactional(propagation = Propagation.REQUIRES_NEW)
-    public void completeJob(JobHistory job, JobStatus status, int processed, int errors) {
+    public void completeJob(JobHistory job, JobStatus status, int processed, int errors, LoadCounts loaded) {
         job.setStatus(status);
         job.setRecordsProcessed(processed);
         job.setErrorCount(errors);
+        job.setRecordsInserted((int) loaded.inserted());
+        job.setRecordsUpdated((int) loaded.updated());
+        job.setRecordsUnchanged((int) loaded.unchanged());
         job.setEndTime(OffsetDateTime.now());
         jobHistoryRepository.save(job);
     }
 
-    @Transactional(propagation = Propagation.REQUIRES_NEW)
-    public void logError(JobHistory job, String rawData, String errorReason) {
-        var error = new ErrorLog();
-        error.setJob(job);
-        error.setRawData(rawData);
-        error.setErrorReason(errorReason);
-        error.setOccurredAt(OffsetDateTime.now());
-        errorLogRepository.save(error);
-    }
-
     // Runs in its own transaction — safe to call from async threads with no ambient transaction
     @Transactional(propagation = Propagation.REQUIRES_NEW)
     public void updateLastRunTimestamp(Long sourceConfigId) {
         sourceConfigRepository.updateLastRunTimestamp(sourceConfigId, OffsetDateTime.now());
     }
+
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void updateHttpValidators(Long sourceConfigId, String etag, String lastModified) {
+        sourceConfigRepository.updateHttpValidators(sourceConfigId, etag, lastModified);
+    }
+
+    // Called as the job's chunks commit, so the checkpoint never runs ahead of the loaded records
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void saveCheckpoint(Long sourceConfigId, Long jobId, String checkpoint) {
+        sourceConfigRepository.updateCheckpoint(sourceConfigId, checkpoint, jobId, OffsetDateTime.now());
+    }
+
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void clearCheckpoint(Long sourceConfigId) {
+        sourceConfigRepository.updateCheckpoint(sourceConfigId, null, null, null);
+    }
+
+    /** Marks the jobs a stopped process left RUNNING as FAILED; returns how many there were. */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public int failInterruptedJobs() {
+        return jobHistoryRepository.failRunningJobs(JobStatus.RUNNING, JobStatus.FAILED, OffsetDateTime.now());
+    }
 }
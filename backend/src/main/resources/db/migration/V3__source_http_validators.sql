@@ -0,0 +1,9 @@
+-- =============================================================================
+-- V3: HTTP validators of the last successfully loaded API response per source.
+-- Sent back as If-None-Match / If-Modified-Since so an unchanged source answers
+-- 304 and the run ends without downloading or upserting anything.
+-- =============================================================================
+
+ALTER TABLE source_config
+    ADD COLUMN http_etag          TEXT,
+    ADD COLUMN http_last_modified VARCHAR(64);
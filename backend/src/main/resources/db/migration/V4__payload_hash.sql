@@ -0,0 +1,14 @@
+-- =============================================================================
+-- V4: Content hash of each loaded payload, and the per-job write breakdown.
+-- A record whose hash matches the stored one is not rewritten, so unchanged rows
+-- of snapshot sources no longer produce dead tuples and WAL on every run.
+-- =============================================================================
+
+-- SHA-256 of the canonical payload text; NULL for rows loaded before V4
+ALTER TABLE unified_data
+    ADD COLUMN payload_hash BYTEA;
+
+ALTER TABLE job_history
+    ADD COLUMN records_inserted  INT NOT NULL DEFAULT 0,
+    ADD COLUMN records_updated   INT NOT NULL DEFAULT 0,
+    ADD COLUMN records_unchanged INT NOT NULL DEFAULT 0;
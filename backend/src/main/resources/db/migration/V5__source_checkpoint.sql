@@ -0,0 +1,11 @@
+-- =============================================================================
+-- V5: Resume point of each source's last failed or interrupted job.
+-- Saved as the job commits its chunks and cleared when a job completes, so the
+-- next run after a failure continues where the committed records end.
+-- =============================================================================
+
+-- Opaque to the database — written and read by the source's extractor
+ALTER TABLE source_config
+    ADD COLUMN checkpoint        TEXT,
+    ADD COLUMN checkpoint_job_id BIGINT,
+    ADD COLUMN checkpoint_at     TIMESTAMPTZ;
@@ -0,0 +1,30 @@
+-- =============================================================================
+-- V6: Per-job error summary — one row per distinct error reason instead of one
+-- error_log row per rejected record. error_log keeps only the jobs of sources
+-- that opt into full capture (authConfig "captureAllErrors": true).
+-- =============================================================================
+
+CREATE TABLE error_summary (
+    id              BIGSERIAL PRIMARY KEY,
+    job_id          BIGINT NOT NULL REFERENCES job_history(id) ON DELETE CASCADE,
+    error_reason    TEXT NOT NULL,
+    error_count     BIGINT NOT NULL,
+    first_at        TIMESTAMP WITH TIME ZONE,
+    last_at         TIMESTAMP WITH TIME ZONE,
+    -- JSON array of raw records: a uniform sample of the records that failed for this reason
+    samples         JSONB NOT NULL DEFAULT '[]'
+);
+
+CREATE INDEX idx_error_summary_job_id ON error_summary(job_id);
+
+-- Summarise the jobs that ran before — their first few raw records become the samples
+INSERT INTO error_summary (job_id, error_reason, error_count, first_at, last_at, samples)
+SELECT job_id,
+       COALESCE(error_reason, 'Unknown error'),
+       COUNT(*),
+       MIN(occurred_at),
+       MAX(occurred_at),
+       COALESCE(to_jsonb((array_agg(raw_data ORDER BY occurred_at) FILTER (WHERE raw_data IS NOT NULL))[1:5]), '[]')
+FROM error_log
+WHERE job_id IS NOT NULL
+GROUP BY job_id, COALESCE(error_reason, 'Unknown error');
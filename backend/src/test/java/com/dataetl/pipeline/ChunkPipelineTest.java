@@ -0,0 +1,160 @@
+package com.dataetl.pipeline;
+
+import com.dataetl.pipeline.extract.RecordCursor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@Timeout(20)
+class ChunkPipelineTest {
+
+    private ThreadPoolTaskExecutor executor;
+
+    @BeforeEach
+    void setUp() {
+        executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(2);
+        executor.setQueueCapacity(0);
+        executor.initialize();
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    void transformFailureEndsTheJob() {
+        var failure = new IllegalStateException("bad chunk");
+        var transformed = new AtomicInteger();
+        var cursor = new CountingCursor(Integer.MAX_VALUE);
+
+        var thrown = assertThrows(IllegalStateException.class, () -> staged(4).run(cursor, raw -> {
+            if (transformed.incrementAndGet() == 3) {
+                throw failure;
+            }
+            return raw;
+        }, (valid, checkpoint) -> { }, stats()));
+
+        assertSame(failure, thrown);
+        assertFalse(cursor.reading.get(), "the extractor must have stopped reading");
+    }
+
+    @Test
+    void loaderFailureStopsTheStagesBeforeTheCursorIsClosed() throws Exception {
+        var failure = new IllegalStateException("database down");
+        var cursor = new CountingCursor(Integer.MAX_VALUE);
+
+        // Closed by the caller, like EtlOrchestrator does
+        var thrown = assertThrows(IllegalStateException.class, () -> {
+            try (cursor) {
+                staged(2).run(cursor, raw -> raw, (valid, checkpoint) -> {
+                    throw failure;
+                }, stats());
+            }
+        });
+
+        assertSame(failure, thrown);
+        assertTrue(cursor.closed.get());
+        int reads = cursor.reads.get();
+        Thread.sleep(200);
+        assertEquals(reads, cursor.reads.get(), "no stage may read the cursor once it is closed");
+        assertFalse(cursor.readAfterClose.get());
+    }
+
+    @Test
+    void slowLoaderBlocksTheExtractor() throws Exception {
+        var release = new CountDownLatch(1);
+        var loaded = new AtomicInteger();
+        var cursor = new CountingCursor(20);
+        var pipeline = staged(1);
+
+        var run = new Thread(() -> {
+            try {
+                pipeline.run(cursor, raw -> raw, (valid, checkpoint) -> {
+                    release.await();
+                    loaded.incrementAndGet();
+                }, stats());
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        run.start();
+
+        // One chunk in the loader, one in each queue and one held by each blocked stage
+        Thread.sleep(300);
+        assertEquals(5, cursor.reads.get());
+        Thread.sleep(200);
+        assertEquals(5, cursor.reads.get(), "the extractor must wait for the loader");
+
+        release.countDown();
+        run.join(TimeUnit.SECONDS.toMillis(10));
+        assertEquals(20, loaded.get());
+    }
+
+    private ChunkPipeline staged(int queueCapacity) {
+        return new ChunkPipeline(executor, ChunkPipeline.Mode.STAGED, 10, queueCapacity);
+    }
+
+    private static PipelineStats stats() {
+        return new PipelineStats(1L, ChunkPipeline.Mode.STAGED);
+    }
+
+    /** Returns the given number of one-row chunks and records how it is used. */
+    private static final class CountingCursor implements RecordCursor {
+
+        private final RecordSchema schema = new RecordSchema();
+        private final int chunks;
+        private final AtomicInteger reads = new AtomicInteger();
+        private final AtomicBoolean reading = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private final AtomicBoolean readAfterClose = new AtomicBoolean();
+
+        CountingCursor(int chunks) {
+            this.chunks = chunks;
+        }
+
+        @Override
+        public RecordSchema schema() {
+            return schema;
+        }
+
+        @Override
+        public List<Row> nextChunk(int maxRecords) {
+            reading.set(true);
+            try {
+                if (closed.get()) {
+                    readAfterClose.set(true);
+                }
+                int chunk = reads.incrementAndGet();
+                if (chunk > chunks) {
+                    return List.of();
+                }
+                var row = new Row(schema);
+                row.set("id", chunk);
+                return List.of(row);
+            } finally {
+                reading.set(false);
+            }
+        }
+
+        @Override
+        public void close() {
+            closed.set(true);
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package com.dataetl.pipeline;
+
+import com.dataetl.model.JobHistory;
+import com.dataetl.model.SourceConfig;
+import com.dataetl.model.enums.JobStatus;
+import com.dataetl.model.enums.SourceType;
+import com.dataetl.model.enums.TriggerType;
+import com.dataetl.pipeline.extract.ApiExtractor;
+import com.dataetl.pipeline.extract.CsvExtractor;
+import com.dataetl.pipeline.extract.DbExtractor;
+import com.dataetl.pipeline.extract.RecordCursor;
+import com.dataetl.pipeline.load.LoadCounts;
+import com.dataetl.pipeline.load.UpsertWriter;
+import com.dataetl.pipeline.transform.TransformPipeline;
+import com.dataetl.repository.JobHistoryRepository;
+import com.dataetl.repository.SourceConfigRepository;
+import com.dataetl.service.ErrorLogWriter;
+import com.dataetl.service.JobHistoryService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Checkpoint handling of {@link EtlOrchestrator}: a CSV source whose cursor returns one-row
+ * chunks checkpointed "chunk-N", loaded by a writer that commits every chunk at once.
+ */
+class EtlOrchestratorTest {
+
+    private static final long SOURCE_ID = 1L;
+    private static final long JOB_ID = 9L;
+
+    private final ForkJoinPool pool = new ForkJoinPool(2);
+    private final CsvExtractor csvExtractor = mock(CsvExtractor.class);
+    private final UpsertWriter writer = mock(UpsertWriter.class);
+    private final JobHistoryService jobHistoryService = mock(JobHistoryService.class);
+    private final SourceConfigRepository sourceConfigRepository = mock(SourceConfigRepository.class);
+    private final SourceConfig config = new SourceConfig();
+
+    @BeforeEach
+    void setUp() {
+        config.setId(SOURCE_ID);
+        config.setName("orchestrated");
+        config.setType(SourceType.CSV);
+        when(sourceConfigRepository.findById(SOURCE_ID)).thenReturn(Optional.of(config));
+
+        var job = new JobHistory();
+        job.setId(JOB_ID);
+        when(jobHistoryService.startJob(any(), any())).thenReturn(job);
+
+        // Every chunk commits as soon as it is written
+        when(writer.open(any(), any(), any(), any())).thenAnswer(call -> {
+            Consumer<String> committed = call.getArgument(2);
+            var session = mock(UpsertWriter.LoadSession.class);
+            doAnswer(write -> {
+                committed.accept(write.getArgument(1));
+                return null;
+            }).when(session).write(anyList(), any());
+            when(session.counts()).thenReturn(LoadCounts.NONE);
+            return session;
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdown();
+    }
+
+    @Test
+    void failedJobSavesTheCheckpointOfItsLastCommittedChunk() throws Exception {
+        when(csvExtractor.open(config)).thenReturn(new ChunkCursor(3, true));
+
+        orchestrator(Duration.ofHours(1)).runJob(SOURCE_ID, TriggerType.MANUAL);
+
+        // Not due while the job ran, saved once it failed
+        verify(jobHistoryService).saveCheckpoint(SOURCE_ID, JOB_ID, "chunk-3");
+        verify(jobHistoryService, never()).clearCheckpoint(anyLong());
+        verify(jobHistoryService).completeJob(any(), eq(JobStatus.FAILED), anyInt(), anyInt(), any());
+    }
+
+    @Test
+    void checkpointThatCannotBeSavedDoesNotHideTheJobFailure() throws Exception {
+        when(csvExtractor.open(config)).thenReturn(new ChunkCursor(3, true));
+        doThrow(new DataAccessResourceFailureException("database down"))
+            .when(jobHistoryService).saveCheckpoint(anyLong(), anyLong(), anyString());
+
+        orchestrator(Duration.ofHours(1)).runJob(SOURCE_ID, TriggerType.MANUAL);
+
+        verify(jobHistoryService).completeJob(any(), eq(JobStatus.FAILED), anyInt(), anyInt(), any());
+    }
+
+    @Test
+    void resumedJobThatCompletesClearsTheCheckpoint() throws Exception {
+        config.setCheckpoint("chunk-1");
+        when(csvExtractor.open(config, "chunk-1")).thenReturn(new ChunkCursor(3, false));
+
+        orchestrator(Duration.ofHours(1)).runJob(SOURCE_ID, TriggerType.MANUAL);
+
+        verify(csvExtractor, never()).open(config);
+        verify(jobHistoryService).clearCheckpoint(SOURCE_ID);
+        verify(jobHistoryService).completeJob(any(), eq(JobStatus.SUCCESS), anyInt(), anyInt(), any());
+    }
+
+    @Test
+    void completedJobClearsTheCheckpointsItSavedOnTheWay() throws Exception {
+        when(csvExtractor.open(config)).thenReturn(new ChunkCursor(3, false));
+
+        // Due after every chunk
+        orchestrator(Duration.ZERO).runJob(SOURCE_ID, TriggerType.MANUAL);
+
+        verify(jobHistoryService).saveCheckpoint(SOURCE_ID, JOB_ID, "chunk-3");
+        verify(jobHistoryService).clearCheckpoint(SOURCE_ID);
+    }
+
+    @Test
+    void completedJobWithoutCheckpointLeavesTheSourceAlone() throws Exception {
+        when(csvExtractor.open(config)).thenReturn(new ChunkCursor(3, false));
+
+        orchestrator(Duration.ofHours(1)).runJob(SOURCE_ID, TriggerType.MANUAL);
+
+        verify(jobHistoryService, never()).saveCheckpoint(anyLong(), anyLong(), anyString());
+        verify(jobHistoryService, never()).clearCheckpoint(anyLong());
+        verify(jobHistoryService).completeJob(any(), eq(JobStatus.SUCCESS), anyInt(), anyInt(), any());
+    }
+
+    @Test
+    void checkpointTheSourceCannotBeOpenedAtIsCleared() throws Exception {
+        config.setCheckpoint("chunk-1");
+        when(csvExtractor.open(config, "chunk-1")).thenThrow(new IOException("file is gone"));
+
+        orchestrator(Duration.ofHours(1)).runJob(SOURCE_ID, TriggerType.MANUAL);
+
+        verify(jobHistoryService).clearCheckpoint(SOURCE_ID);
+        verify(jobHistoryService, never()).saveCheckpoint(anyLong(), anyLong(), anyString());
+        verify(jobHistoryService).completeJob(any(), eq(JobStatus.FAILED), anyInt(), anyInt(), any());
+    }
+
+    @Test
+    void interruptedJobsAreFailedAtStartupWithoutFailingTheStartup() {
+        var orchestrator = orchestrator(Duration.ofHours(1));
+        when(jobHistoryService.failInterruptedJobs()).thenReturn(2);
+        orchestrator.failInterruptedJobs();
+
+        // A database that is not reachable yet must not stop the application from starting
+        when(jobHistoryService.failInterruptedJobs()).thenThrow(new DataAccessResourceFailureException("database down"));
+        orchestrator.failInterruptedJobs();
+
+        verify(jobHistoryService, times(2)).failInterruptedJobs();
+    }
+
+    private EtlOrchestrator orchestrator(Duration checkpointInterval) {
+        var errorLogWriter = mock(ErrorLogWriter.class);
+        when(errorLogWriter.open(any(), any())).thenReturn(mock(ErrorLogWriter.JobErrors.class));
+        return new EtlOrchestrator(
+            mock(ApiExtractor.class),
+            csvExtractor,
+            mock(DbExtractor.class),
+            new TransformPipeline(pool, true, 2, 100, 4096),
+            writer,
+            jobHistoryService,
+            errorLogWriter,
+            mock(JobHistoryRepository.class),
+            sourceConfigRepository,
+            new ChunkPipeline(null, ChunkPipeline.Mode.SEQUENTIAL, 10, 1),
+            new PipelineMetricsRegistry(),
+            checkpointInterval);
+    }
+
+    /** Returns the given number of one-row chunks, then ends or fails. */
+    private static final class ChunkCursor implements RecordCursor {
+
+        private final RecordSchema schema = new RecordSchema();
+        private final int chunks;
+        private final boolean fail;
+        private int read;
+
+        ChunkCursor(int chunks, boolean fail) {
+            this.chunks = chunks;
+            this.fail = fail;
+        }
+
+        @Override
+        public RecordSchema schema() {
+            return schema;
+        }
+
+        @Override
+        public List<Row> nextChunk(int maxRecords) throws Exception {
+            if (read == chunks) {
+                if (fail) {
+                    throw new IOException("connection reset");
+                }
+                return List.of();
+            }
+            read++;
+            var row = new Row(schema);
+            row.set("id", read);
+            row.set("name", "item-" + read);
+            return List.of(row);
+        }
+
+        @Override
+        public String checkpoint() {
+            return "chunk-" + read;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.dataetl.pipeline;
+
+import com.dataetl.model.SourceConfig;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RecordKeyTest {
+
+    @Test
+    void defaultKeyTakesTheFirstConventionalIdFieldAndSeesFieldsAddedLater() {
+        var schema = new RecordSchema();
+        var key = RecordKey.forSource(source(null), schema);
+        var row = new Row(schema);
+        row.set("name", "widget");
+
+        assertFalse(key.configured());
+        assertNull(key.extract(row));
+        row.set("uuid", "  ");
+        row.set("record_id", 42);
+        assertEquals("42", key.extract(row));
+        row.set("id", "A-1");
+        assertEquals("A-1", key.extract(row));
+    }
+
+    @Test
+    void compositeKeyJoinsEveryColumnAndEscapesTheSeparator() {
+        var schema = new RecordSchema();
+        var key = RecordKey.forSource(source(List.of("region", "order_no")), schema);
+        var row = new Row(schema);
+        row.set("order_no", 1042);
+        row.set("id", "ignored");
+
+        assertTrue(key.configured());
+        assertNull(key.extract(row), "a missing key column leaves the record without a key");
+        row.set("region", "EU|west\\2");
+        assertEquals("EU\\|west\\\\2|1042", key.extract(row));
+        assertEquals(key.extract(row), RecordKey.forSource(source("region, order_no"), schema).extract(row));
+    }
+
+    @Test
+    void rejectsEmptyKeyColumns() {
+        assertThrows(IllegalArgumentException.class, () -> RecordKey.forSource(source(" , "), new RecordSchema()));
+    }
+
+    private static SourceConfig source(Object keyColumns) {
+        var config = new SourceConfig();
+        config.setName("orders");
+        if (keyColumns != null) {
+            config.setAuthConfig(Map.of("keyColumns", keyColumns));
+        }
+        return config;
+    }
+}
@@ -0,0 +1,112 @@
+package com.dataetl.pipeline;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class RecordSchemaTest {
+
+    @Test
+    void fieldsKeepTheIndexTheyWereFirstGiven() {
+        var schema = new RecordSchema();
+        assertEquals(0, schema.add("name"));
+        assertEquals(1, schema.add("id"));
+        assertEquals(0, schema.add("name"));
+        assertEquals(-1, schema.indexOf("price"));
+        assertEquals("id", schema.name(1));
+        assertEquals(2, schema.size());
+    }
+
+    @Test
+    void nameOrderIsRecomputedOnlyAfterTheSchemaGrew() {
+        var schema = new RecordSchema();
+        schema.add("name");
+        schema.add("id");
+        var order = schema.nameOrder();
+        assertArrayEquals(new int[]{1, 0}, order);
+        assertSame(order, schema.nameOrder());
+
+        schema.add("amount");
+        assertArrayEquals(new int[]{2, 1, 0}, schema.nameOrder());
+    }
+
+    @Test
+    void concurrentAddsGiveEveryNameOneDenseIndexAndASortedOrder() throws Exception {
+        var schema = new RecordSchema();
+        var names = new ArrayList<String>();
+        for (int i = 0; i < 1000; i++) {
+            names.add(String.format("field-%04d", i));
+        }
+        var start = new CountDownLatch(1);
+        var adding = new ArrayList<Thread>();
+        var finished = new AtomicInteger();
+        for (int t = 0; t < 4; t++) {
+            var mine = new ArrayList<>(names);
+            Collections.shuffle(mine, new Random(t));
+            adding.add(new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (var name : mine) {
+                    int index = schema.add(name);
+                    // Whoever finds an index can resolve it
+                    assertEquals(name, schema.name(index));
+                }
+                finished.incrementAndGet();
+            }));
+        }
+        // A serializer asks for the sorted order while the fields are being added
+        var unsorted = new AtomicBoolean();
+        var done = new AtomicBoolean();
+        var ordering = new Thread(() -> {
+            while (!done.get()) {
+                var order = schema.nameOrder();
+                for (int i = 1; i < order.length; i++) {
+                    if (schema.name(order[i - 1]).compareTo(schema.name(order[i])) >= 0) {
+                        unsorted.set(true);
+                    }
+                }
+            }
+        });
+        ordering.start();
+        adding.forEach(Thread::start);
+        start.countDown();
+        for (var thread : adding) {
+            thread.join();
+        }
+        done.set(true);
+        ordering.join();
+
+        assertEquals(names.size(), schema.size());
+        assertEquals(4, finished.get(), "an adding thread failed");
+        var distinct = new HashSet<Integer>();
+        for (var name : names) {
+            distinct.add(schema.indexOf(name));
+        }
+        assertEquals(names.size(), distinct.size());
+        assertEquals(0, Collections.min(distinct));
+        assertEquals(names.size() - 1, Collections.max(distinct));
+        assertFalse(unsorted.get(), "every nameOrder seen during the adds must be sorted");
+
+        // The order read after the last add covers every field
+        var order = schema.nameOrder();
+        assertEquals(names.size(), order.length);
+        for (int i = 0; i < order.length; i++) {
+            assertEquals(names.get(i), schema.name(order[i]));
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.dataetl.pipeline;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RowTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void nullValueIsPresentWhileAnUnsetFieldIsAbsent() throws Exception {
+        var schema = new RecordSchema();
+        var row = new Row(schema);
+        row.set("id", 7);
+        row.set("note", null);
+        schema.add("missing");
+
+        assertTrue(row.has(schema.indexOf("note")));
+        assertNull(row.get("note"));
+        assertFalse(row.has(schema.indexOf("missing")));
+        assertNull(row.get("missing"));
+        assertFalse(row.has(-1));
+        assertNull(row.get("unknown"));
+
+        var expected = new LinkedHashMap<String, Object>();
+        expected.put("id", 7);
+        expected.put("note", null);
+        assertEquals(expected, row.toMap());
+        assertEquals("{id=7, note=null}", row.toString());
+        assertEquals("{\"id\":7,\"note\":null}", objectMapper.writeValueAsString(row));
+    }
+
+    @Test
+    void setGrowsTheRowToTheSchemaItsFieldsWereAddedTo() {
+        var schema = new RecordSchema();
+        var row = new Row(schema);
+        row.set("a", 1);
+        assertEquals(1, row.width());
+
+        // Fields added elsewhere since: setting the last one makes room for all of them at once
+        schema.add("b");
+        schema.add("c");
+        row.set(schema.add("d"), 4);
+        assertEquals(4, row.width());
+        assertFalse(row.has(schema.indexOf("b")));
+
+        // A row created now already has a slot for every field
+        assertEquals(4, new Row(schema).width());
+    }
+
+    @Test
+    void rowsKeepTheirValuesWhileAnotherStageExtendsTheSchema() throws Exception {
+        var schema = new RecordSchema();
+        var start = new CountDownLatch(1);
+        var rows = new Row[2];
+        var threads = new ArrayList<Thread>();
+        for (int t = 0; t < rows.length; t++) {
+            int owner = t;
+            threads.add(new Thread(() -> {
+                var row = new Row(schema);
+                rows[owner] = row;
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                // Each thread adds its own fields and some shared ones, in its own order
+                for (int i = 0; i < 500; i++) {
+                    row.set("own-" + owner + "-" + i, i);
+                    row.set("shared-" + (owner == 0 ? i : 499 - i), owner);
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        start.countDown();
+        for (var thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(1500, schema.size());
+        for (int owner = 0; owner < rows.length; owner++) {
+            var row = rows[owner];
+            assertTrue(row.width() <= schema.size());
+            for (int i = 0; i < 500; i++) {
+                assertEquals(i, row.get("own-" + owner + "-" + i));
+                assertEquals(owner, row.get("shared-" + i));
+            }
+            assertFalse(row.has(schema.indexOf("own-" + (1 - owner) + "-0")));
+        }
+    }
+
+    @Test
+    void jsonWriterKeepsSchemaOrderForThePayloadAndSortsForTheHash() throws Exception {
+        var schema = new RecordSchema();
+        var row = new Row(schema);
+        row.set("name", "widget");
+        row.set("id", 7);
+        row.set("_ingested_at", "2026-01-01T00:00:00Z");
+        row.set("tags", Map.of("b", 2));
+        schema.add("absent");
+
+        assertEquals("{\"name\":\"widget\",\"id\":7,\"_ingested_at\":\"2026-01-01T00:00:00Z\",\"tags\":{\"b\":2}}",
+            objectMapper.writeValueAsString(row));
+
+        var sorted = objectMapper.copy().enable(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS);
+        assertEquals("{\"_ingested_at\":\"2026-01-01T00:00:00Z\",\"id\":7,\"name\":\"widget\",\"tags\":{\"b\":2}}",
+            sorted.writeValueAsString(row));
+        // The hash input leaves the skipped fields out
+        assertEquals("{\"id\":7,\"name\":\"widget\",\"tags\":{\"b\":2}}",
+            sorted.writer().withAttribute(Row.JsonWriter.SKIP_FIELDS, Set.of("_ingested_at")).writeValueAsString(row));
+    }
+}
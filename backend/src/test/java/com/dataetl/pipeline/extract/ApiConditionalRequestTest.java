@@ -0,0 +1,155 @@
+package com.dataetl.pipeline.extract;
+
+import com.dataetl.model.SourceConfig;
+import com.dataetl.model.enums.SourceType;
+import com.dataetl.pipeline.Row;
+import com.dataetl.service.JobHistoryService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+class ApiConditionalRequestTest {
+
+    private static final String BODY = "[{\"id\":1,\"name\":\"a\"},{\"id\":2,\"name\":\"b\"}]";
+    private static final String ETAG = "\"v1\"";
+
+    @TempDir
+    Path cacheDir;
+
+    private final AtomicInteger downloads = new AtomicInteger();
+    private final List<URI> requests = new CopyOnWriteArrayList<>();
+    private final JobHistoryService jobHistoryService = mock(JobHistoryService.class);
+
+    @Test
+    void unchangedSourceIsAnswered304AndReplayedFromTheCache() throws Exception {
+        var extractor = extractor(1024 * 1024);
+        var config = source();
+
+        try (var cursor = extractor.open(config)) {
+            assertFalse(cursor.unchanged());
+            assertEquals(List.of(1, 2), ids(cursor));
+            cursor.commit();
+        }
+        verify(jobHistoryService).updateHttpValidators(7L, ETAG, null);
+        assertEquals(1, downloads.get());
+
+        config.setHttpEtag(ETAG);
+        try (var cursor = extractor.open(config)) {
+            assertTrue(cursor.unchanged());
+            assertEquals(List.of(1, 2), ids(cursor));
+        }
+        assertEquals(1, downloads.get(), "the second run must not download the body again");
+    }
+
+    @Test
+    void storedValidatorsReplaceTheSinceParameter() throws Exception {
+        var extractor = extractor(1024 * 1024);
+        var config = source();
+        config.setLastRunTimestamp(OffsetDateTime.of(2024, 5, 1, 0, 0, 0, 0, ZoneOffset.UTC));
+
+        try (var cursor = extractor.open(config)) {
+            assertEquals(List.of(1, 2), ids(cursor));
+            cursor.commit();
+        }
+        assertEquals("since=2024-05-01T00:00:00Z", requests.get(0).getQuery());
+
+        // Same URI on every run from now on, so the validators can match
+        config.setHttpEtag(ETAG);
+        config.setLastRunTimestamp(OffsetDateTime.of(2024, 5, 2, 0, 0, 0, 0, ZoneOffset.UTC));
+        try (var cursor = extractor.open(config)) {
+            assertTrue(cursor.unchanged());
+        }
+        assertNull(requests.get(1).getQuery());
+        assertEquals(1, downloads.get());
+    }
+
+    @Test
+    void cacheDropsBodiesOverItsBound() throws Exception {
+        var cache = new ApiResponseCache(cacheDir, 10);
+        var small = cache.begin(1, ETAG, null);
+        small.write("[1,2,3]".getBytes(StandardCharsets.UTF_8));
+        small.complete();
+        assertTrue(Files.exists(cache.lookup(1, ETAG, null)));
+        assertNull(cache.lookup(1, "\"other\"", null));
+
+        var large = cache.begin(2, ETAG, null);
+        large.write("[1,2,3,4,5,6]".getBytes(StandardCharsets.UTF_8));
+        large.complete();
+        assertNull(cache.lookup(2, ETAG, null), "a body over the bound is not cached");
+
+        // A newer body that does not fit beside the old one evicts it
+        Files.setLastModifiedTime(cache.lookup(1, ETAG, null), FileTime.fromMillis(0));
+        var newer = cache.begin(3, ETAG, null);
+        newer.write("[7,8,9]".getBytes(StandardCharsets.UTF_8));
+        newer.complete();
+        assertNull(cache.lookup(1, ETAG, null));
+        assertTrue(Files.exists(cache.lookup(3, ETAG, null)));
+    }
+
+    private ApiExtractor extractor(long cacheBytes) {
+        var webClient = WebClient.builder()
+            .exchangeFunction(request -> {
+                requests.add(request.url());
+                if (ETAG.equals(request.headers().getFirst(HttpHeaders.IF_NONE_MATCH))) {
+                    return Mono.just(ClientResponse.create(HttpStatus.NOT_MODIFIED).build());
+                }
+                downloads.incrementAndGet();
+                var bytes = BODY.getBytes(StandardCharsets.UTF_8);
+                return Mono.just(ClientResponse.create(HttpStatus.OK)
+                    .header(HttpHeaders.ETAG, ETAG)
+                    .body(Flux.just(DefaultDataBufferFactory.sharedInstance.wrap(bytes)))
+                    .build());
+            })
+            .build();
+        var registry = new SimpleMeterRegistry();
+        return new ApiExtractor(webClient,
+            new HostRateLimiter(registry, 100, 100, 4, 4, Duration.ofMinutes(1)),
+            new HostCircuitBreaker(registry, 5, Duration.ofMinutes(1)),
+            new ApiResponseCache(cacheDir, cacheBytes),
+            jobHistoryService);
+    }
+
+    private static SourceConfig source() {
+        var config = new SourceConfig();
+        config.setId(7L);
+        config.setName("conditional");
+        config.setType(SourceType.API);
+        config.setConnectionString("https://1.1.1.1/items");
+        return config;
+    }
+
+    private static List<Object> ids(RecordCursor cursor) throws Exception {
+        var ids = new ArrayList<Object>();
+        for (List<Row> chunk; !(chunk = cursor.nextChunk(100)).isEmpty(); ) {
+            chunk.forEach(row -> ids.add(row.get("id")));
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,170 @@
+package com.dataetl.pipeline.extract;
+
+import com.dataetl.model.SourceConfig;
+import com.dataetl.model.enums.SourceType;
+import com.dataetl.pipeline.Row;
+import com.dataetl.service.JobHistoryService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Checkpoints of paginated API sources: three link-paginated pages of four records, each
+ * page sent as two network buffers so that it reaches the cursor as two batches.
+ */
+@Timeout(20)
+class ApiPagedResumeTest {
+
+    private static final String BASE = "https://1.1.1.1/items";
+    private static final int PAGES = 3;
+    private static final int PER_PAGE = 4;
+
+    @TempDir
+    Path cacheDir;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final List<URI> requests = new CopyOnWriteArrayList<>();
+
+    @Test
+    void checkpointIsThePageAndHowManyOfItsRecordsWereReturned() throws Exception {
+        try (var cursor = extractor().open(source("link"))) {
+            assertEquals(List.of(1, 2, 3), ids(cursor.nextChunk(3)));
+            assertCheckpoint(BASE, 3, cursor.checkpoint());
+
+            // Past the end of the first page
+            assertEquals(List.of(4, 5, 6), ids(cursor.nextChunk(3)));
+            assertCheckpoint(BASE + "?page=2", 2, cursor.checkpoint());
+        }
+    }
+
+    @Test
+    void resumedRunSkipsReturnedRecordsAcrossBatchesOfItsFirstPage() throws Exception {
+        // Three records already loaded: the whole first batch of page 2 and one of its second
+        var checkpoint = "{\"type\":\"api\",\"page\":\"" + BASE + "?page=2\",\"skip\":3}";
+        try (var cursor = extractor().open(source("link"), checkpoint)) {
+            // The skip is spent on page 2 only — page 3 is returned in full
+            assertEquals(List.of(8, 9, 10, 11, 12), readAll(cursor));
+        }
+        assertEquals(URI.create(BASE + "?page=2"), requests.get(0));
+    }
+
+    @Test
+    void checkpointPageOnAnotherOriginIsIgnored() throws Exception {
+        for (var page : List.of("https://203.0.113.9/items?page=2", "http://1.1.1.1/items?page=2",
+                                "https://1.1.1.1:8443/items?page=2")) {
+            requests.clear();
+            var checkpoint = "{\"type\":\"api\",\"page\":\"" + page + "\",\"skip\":1}";
+            try (var cursor = extractor().open(source("link"), checkpoint)) {
+                assertEquals(range(1, PAGES * PER_PAGE), readAll(cursor), page);
+            }
+            assertTrue(requests.stream().allMatch(uri -> uri.toString().startsWith(BASE)), requests.toString());
+        }
+    }
+
+    @Test
+    void sourcesWithoutResumablePaginationStartOverAndWriteNoCheckpoint() throws Exception {
+        var checkpoint = "{\"type\":\"api\",\"page\":\"" + BASE + "?page=2\",\"skip\":3}";
+        try (var cursor = extractor().open(source("page"), checkpoint)) {
+            assertEquals(List.of(1, 2, 3), ids(cursor.nextChunk(3)));
+            assertNull(cursor.checkpoint());
+        }
+        assertEquals(URI.create(BASE + "?page=1&per_page=" + PER_PAGE), requests.get(0));
+    }
+
+    private void assertCheckpoint(String page, int skip, String checkpoint) throws Exception {
+        var map = objectMapper.readTree(checkpoint);
+        assertEquals("api", map.get("type").asText());
+        assertEquals(page, map.get("page").asText());
+        assertEquals(skip, map.get("skip").asInt());
+    }
+
+    private ApiExtractor extractor() {
+        var webClient = WebClient.builder()
+            .exchangeFunction(request -> {
+                requests.add(request.url());
+                var param = request.url().getQuery() != null
+                    ? request.url().getQuery().replaceAll(".*\\bpage=(\\d+).*", "$1")
+                    : "1";
+                int page = Integer.parseInt(param);
+                if (page > PAGES) {
+                    return Mono.just(ClientResponse.create(HttpStatus.OK).body("[]").build());
+                }
+                // Split the page after its second record
+                int first = (page - 1) * PER_PAGE + 1;
+                var head = new StringBuilder("[");
+                var tail = new StringBuilder();
+                for (int id = first; id < first + PER_PAGE; id++) {
+                    var target = id < first + 2 ? head : tail;
+                    target.append("{\"id\":").append(id).append(id < first + PER_PAGE - 1 ? "}," : "}");
+                }
+                tail.append(']');
+                var response = ClientResponse.create(HttpStatus.OK)
+                    .body(Flux.just(head, tail).map(part -> DefaultDataBufferFactory.sharedInstance
+                        .wrap(part.toString().getBytes(StandardCharsets.UTF_8))));
+                if (page < PAGES) {
+                    response.header(HttpHeaders.LINK, "<" + BASE + "?page=" + (page + 1) + ">; rel=\"next\"");
+                }
+                return Mono.just(response.build());
+            })
+            .build();
+        var registry = new SimpleMeterRegistry();
+        return new ApiExtractor(webClient,
+            new HostRateLimiter(registry, 100, 100, 4, 4, Duration.ofMinutes(1)),
+            new HostCircuitBreaker(registry, 5, Duration.ofMinutes(1)),
+            new ApiResponseCache(cacheDir, 1024 * 1024),
+            mock(JobHistoryService.class));
+    }
+
+    private static SourceConfig source(String pagination) {
+        var config = new SourceConfig();
+        config.setId(7L);
+        config.setName("paged");
+        config.setType(SourceType.API);
+        config.setConnectionString(BASE);
+        config.setAuthConfig(Map.of("pagination", Map.of("type", pagination, "pageSize", PER_PAGE)));
+        return config;
+    }
+
+    private static List<Integer> readAll(RecordCursor cursor) throws Exception {
+        var ids = new ArrayList<Integer>();
+        for (List<Row> chunk; !(chunk = cursor.nextChunk(100)).isEmpty(); ) {
+            ids.addAll(ids(chunk));
+        }
+        return ids;
+    }
+
+    private static List<Integer> ids(List<Row> chunk) {
+        return chunk.stream().map(row -> ((Number) row.get("id")).intValue()).toList();
+    }
+
+    private static List<Integer> range(int from, int to) {
+        var ids = new ArrayList<Integer>();
+        for (int id = from; id <= to; id++) {
+            ids.add(id);
+        }
+        return ids;
+    }
+}
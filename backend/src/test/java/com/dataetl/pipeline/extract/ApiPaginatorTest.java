@@ -0,0 +1,157 @@
+package com.dataetl.pipeline.extract;
+
+import com.dataetl.pipeline.RecordSchema;
+import com.dataetl.pipeline.Row;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ApiPaginatorTest {
+
+    private static final URI BASE = URI.create("https://api.example.com/items?since=2024-01-01T00:00:00Z");
+    private static final int TOTAL = 95;
+
+    @Test
+    void offsetPagesWithTotalHeaderAreFetchedConcurrently() {
+        var inFlight = new AtomicInteger();
+        var maxInFlight = new AtomicInteger();
+        var requested = new CopyOnWriteArrayList<URI>();
+        Function<URI, Mono<ResponseEntity<Flux<DataBuffer>>>> fetch = uri -> {
+            requested.add(uri);
+            int offset = intParam(uri, "offset");
+            var headers = new HttpHeaders();
+            headers.add("X-Total-Count", String.valueOf(TOTAL));
+            return Mono.fromCallable(() -> {
+                    maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                    return ResponseEntity.ok().headers(headers).body(
+                        body("{\"data\":" + items(offset, intParam(uri, "limit")) + "}")
+                            .delaySubscription(java.time.Duration.ofMillis(20))
+                            .doFinally(s -> inFlight.decrementAndGet()));
+                });
+        };
+
+        var ids = ids(paginate(Map.of("type", "offset", "pageSize", 10, "totalHeader", "X-Total-Count", "concurrency", 3), fetch));
+
+        assertEquals(IntStream.range(0, TOTAL).boxed().collect(Collectors.toSet()), Set.copyOf(ids));
+        assertEquals(TOTAL, ids.size());
+        assertEquals(10, requested.size());
+        assertTrue(maxInFlight.get() > 1, "remaining pages should overlap");
+        assertTrue(requested.stream().allMatch(uri -> uri.getQuery().contains("since=")));
+    }
+
+    @Test
+    void pagesWithoutTotalStopAtShortPage() {
+        Function<URI, Mono<ResponseEntity<Flux<DataBuffer>>>> fetch = uri -> {
+            int page = intParam(uri, "page");
+            return Mono.just(ResponseEntity.ok(body(items((page - 1) * 10, 10))));
+        };
+
+        var ids = ids(paginate(Map.of("type", "page", "pageSize", 10), fetch));
+
+        assertEquals(TOTAL, ids.size());
+    }
+
+    @Test
+    void cursorPagesFollowTheBodyCursor() {
+        Function<URI, Mono<ResponseEntity<Flux<DataBuffer>>>> fetch = uri -> {
+            var cursor = param(uri, "cursor");
+            int offset = cursor == null ? 0 : Integer.parseInt(cursor.substring(2));
+            var next = offset + 10 < TOTAL ? "\"c-" + (offset + 10) + "\"" : "null";
+            return Mono.just(ResponseEntity.ok(body("{\"next\":" + next + ",\"items\":" + items(offset, 10) + "}")));
+        };
+
+        var ids = ids(paginate(Map.of("type", "cursor", "cursorPath", "$.next"), "$.items", fetch));
+
+        assertEquals(IntStream.range(0, TOTAL).boxed().toList(), ids);
+    }
+
+    @Test
+    void linkPagesFollowTheLinkHeaderOnTheSameOriginOnly() {
+        Function<URI, Mono<ResponseEntity<Flux<DataBuffer>>>> fetch = uri -> {
+            var page = param(uri, "p");
+            int offset = page == null ? 0 : Integer.parseInt(page);
+            var headers = new HttpHeaders();
+            if (offset + 10 < TOTAL) {
+                headers.add(HttpHeaders.LINK, "</items?p=" + (offset + 10) + ">; rel=\"next\", </items?p=0>; rel=\"first\"");
+            }
+            return Mono.just(ResponseEntity.ok().headers(headers).body(body(items(offset, 10))));
+        };
+        assertEquals(IntStream.range(0, TOTAL).boxed().toList(), ids(paginate(Map.of("type", "link"), fetch)));
+
+        Function<URI, Mono<ResponseEntity<Flux<DataBuffer>>>> foreign = uri -> {
+            var headers = new HttpHeaders();
+            headers.add(HttpHeaders.LINK, "<https://evil.example.net/steal>; rel=next");
+            return Mono.just(ResponseEntity.ok().headers(headers).body(body(items(0, 10))));
+        };
+        assertThrows(IllegalArgumentException.class, () -> paginate(Map.of("type", "link"), foreign).collectList().block());
+    }
+
+    @Test
+    void rejectsInvalidSpecs() {
+        assertThrows(IllegalArgumentException.class, () -> ApiPaginator.Spec.from(Map.of("type", "scroll")));
+        assertThrows(IllegalArgumentException.class, () -> ApiPaginator.Spec.from(Map.of("type", "cursor")));
+        assertThrows(IllegalArgumentException.class, () -> ApiPaginator.Spec.from(Map.of("type", "offset", "concurrency", 500)));
+    }
+
+    private static Flux<List<Row>> paginate(Map<String, Object> options, Function<URI, Mono<ResponseEntity<Flux<DataBuffer>>>> fetch) {
+        return paginate(options, null, fetch);
+    }
+
+    private static Flux<List<Row>> paginate(Map<String, Object> options, String recordPath,
+                                            Function<URI, Mono<ResponseEntity<Flux<DataBuffer>>>> fetch) {
+        var spec = ApiPaginator.Spec.from(options);
+        var defaultPath = spec.type() == ApiPaginator.Type.OFFSET ? "$.data" : recordPath;
+        return new ApiPaginator(spec, BASE, defaultPath, new RecordSchema(), fetch, "test").rows();
+    }
+
+    private static List<Integer> ids(Flux<List<Row>> batches) {
+        var ids = new ArrayList<Integer>();
+        for (var batch : batches.collectList().block()) {
+            batch.forEach(row -> ids.add((Integer) row.get("id")));
+        }
+        return ids;
+    }
+
+    private static String items(int from, int count) {
+        return IntStream.range(from, Math.min(from + count, TOTAL))
+            .mapToObj(id -> "{\"id\":" + id + ",\"name\":\"n" + id + "\"}")
+            .collect(Collectors.joining(",", "[", "]"));
+    }
+
+    /** Splits the body into small buffers so records straddle buffer boundaries. */
+    private static Flux<DataBuffer> body(String json) {
+        var bytes = json.getBytes(StandardCharsets.UTF_8);
+        return Flux.range(0, (bytes.length + 63) / 64)
+            .map(i -> DefaultDataBufferFactory.sharedInstance.wrap(
+                java.util.Arrays.copyOfRange(bytes, i * 64, Math.min(bytes.length, (i + 1) * 64))));
+    }
+
+    private static String param(URI uri, String name) {
+        return UriComponentsBuilder.fromUri(uri).build().getQueryParams().getFirst(name);
+    }
+
+    private static int intParam(URI uri, String name) {
+        return Integer.parseInt(param(uri, name));
+    }
+}
@@ -0,0 +1,177 @@
+package com.dataetl.pipeline.extract;
+
+import com.dataetl.model.SourceConfig;
+import com.dataetl.model.enums.SourceType;
+import com.dataetl.pipeline.Row;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+/** Checkpoints of {@link CsvExtractor}, for whole files and for files split into ranges. */
+@Timeout(20)
+class CsvExtractorTest {
+
+    private static final int ROWS = 1000;
+
+    @TempDir
+    Path dir;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private ThreadPoolTaskExecutor executor;
+    private Path file;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(4);
+        executor.initialize();
+
+        var csv = new StringBuilder("id,name\n");
+        for (int id = 0; id < ROWS; id++) {
+            csv.append(id).append(",item-").append(id).append('\n');
+        }
+        file = dir.resolve("items.csv");
+        Files.writeString(file, csv, StandardCharsets.UTF_8);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    void wholeFileResumesAfterTheLastReturnedChunk() throws Exception {
+        var extractor = new CsvExtractor(executor, Long.MAX_VALUE, 2, 10);
+        var read = new ArrayList<Integer>();
+        String checkpoint;
+        try (var cursor = extractor.open(file, source(), null)) {
+            for (int chunk = 0; chunk < 3; chunk++) {
+                read.addAll(ids(cursor.nextChunk(10)));
+            }
+            checkpoint = cursor.checkpoint();
+        }
+
+        var map = objectMapper.readTree(checkpoint);
+        assertEquals("csv", map.get("type").asText());
+        assertEquals(Files.size(file), map.get("size").asLong());
+        assertEquals(Files.getLastModifiedTime(file).toMillis(), map.get("modified").asLong());
+        assertEquals(1, map.get("ranges").size());
+        assertEquals(Files.size(file), map.get("ranges").get(0).get(1).asLong());
+
+        try (var cursor = extractor.open(file, source(), checkpoint)) {
+            read.addAll(readAll(cursor));
+        }
+        assertEquals(range(0, ROWS), read);
+    }
+
+    @Test
+    void splitFileResumesEveryRangeFromItsOwnPosition() throws Exception {
+        var extractor = new CsvExtractor(executor, 0, 2, 10);
+        var read = new ArrayList<Integer>();
+        String checkpoint;
+        try (var cursor = extractor.open(file, source(), null)) {
+            // Stop with both ranges part-way: readers have run ahead of what was returned
+            for (int chunk = 0; chunk < 20; chunk++) {
+                read.addAll(ids(cursor.nextChunk(10)));
+            }
+            checkpoint = cursor.checkpoint();
+        }
+
+        var ranges = objectMapper.readTree(checkpoint).get("ranges");
+        assertEquals(2, ranges.size());
+        assertEquals(Files.size(file), ranges.get(1).get(1).asLong());
+        assertNotEquals(ranges.get(0).get(1).asLong(), ranges.get(1).get(1).asLong());
+
+        try (var cursor = extractor.open(file, source(), checkpoint)) {
+            read.addAll(readAll(cursor));
+        }
+        // Each range carried on where its own returned chunks ended: nothing lost, nothing read twice
+        read.sort(null);
+        assertEquals(range(0, ROWS), read);
+    }
+
+    @Test
+    void changedFileStartsOver() throws Exception {
+        var extractor = new CsvExtractor(executor, Long.MAX_VALUE, 2, 10);
+        String checkpoint;
+        try (var cursor = extractor.open(file, source(), null)) {
+            cursor.nextChunk(10);
+            checkpoint = cursor.checkpoint();
+        }
+
+        // Same size, touched since
+        Files.setLastModifiedTime(file, FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() - 60_000));
+        try (var cursor = extractor.open(file, source(), checkpoint)) {
+            assertEquals(range(0, ROWS), readAll(cursor));
+            checkpoint = cursor.checkpoint();
+        }
+
+        // Same modification time, grown since
+        var modified = Files.getLastModifiedTime(file);
+        Files.writeString(file, ROWS + ",item-" + ROWS + "\n", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+        Files.setLastModifiedTime(file, modified);
+        try (var cursor = extractor.open(file, source(), checkpoint)) {
+            assertEquals(range(0, ROWS + 1), readAll(cursor));
+        }
+    }
+
+    @Test
+    void checkpointOutsideTheFileStartsOver() throws Exception {
+        var extractor = new CsvExtractor(executor, Long.MAX_VALUE, 2, 10);
+        var size = Files.size(file);
+        var modified = Files.getLastModifiedTime(file).toMillis();
+
+        for (var ranges : List.of("[[0," + size + "]]", "[[100,50]]", "[[100," + (size + 1) + "]]", "[]")) {
+            var checkpoint = "{\"type\":\"csv\",\"size\":" + size + ",\"modified\":" + modified + ",\"ranges\":" + ranges + "}";
+            try (var cursor = extractor.open(file, source(), checkpoint)) {
+                assertEquals(range(0, ROWS), readAll(cursor), ranges);
+            }
+        }
+        // Another extractor's checkpoint
+        try (var cursor = extractor.open(file, source(), "{\"type\":\"api\",\"page\":\"x\",\"skip\":3}")) {
+            assertEquals(range(0, ROWS), readAll(cursor));
+        }
+    }
+
+    private static List<Integer> readAll(RecordCursor cursor) throws Exception {
+        var ids = new ArrayList<Integer>();
+        for (List<Row> chunk; !(chunk = cursor.nextChunk(10)).isEmpty(); ) {
+            ids.addAll(ids(chunk));
+        }
+        return ids;
+    }
+
+    private static List<Integer> ids(List<Row> chunk) {
+        return chunk.stream().map(row -> Integer.parseInt(String.valueOf(row.get("id")))).toList();
+    }
+
+    private static List<Integer> range(int from, int to) {
+        var ids = new ArrayList<Integer>();
+        for (int id = from; id < to; id++) {
+            ids.add(id);
+        }
+        return ids;
+    }
+
+    private static SourceConfig source() {
+        var config = new SourceConfig();
+        config.setName("items");
+        config.setType(SourceType.CSV);
+        return config;
+    }
+}
@@ -0,0 +1,87 @@
+package com.dataetl.pipeline.extract;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CsvRangeSplitterTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void rangesAlignToRecordsEvenWithQuotedLineBreaks() throws IOException {
+        var csv = new StringBuilder("id,note,amount\n");
+        for (int i = 0; i < 5_000; i++) {
+            // Every third record carries line breaks and doubled quotes inside a quoted field
+            var note = i % 3 == 0 ? "\"line one\nline \"\"two\"\"\r\nline three\"" : "plain " + i;
+            csv.append(i).append(',').append(note).append(',').append(i * 7).append(i % 2 == 0 ? "\n" : "\r\n");
+        }
+        var file = dir.resolve("large.csv");
+        Files.writeString(file, csv, StandardCharsets.UTF_8);
+
+        var executor = Executors.newFixedThreadPool(4);
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            var single = new MappedCsvParser(channel, 0, Long.MAX_VALUE, (byte) ',', StandardCharsets.UTF_8);
+            single.readAll();
+            long dataStart = single.position();
+            var expected = readRange(single);
+
+            for (int parts : new int[]{2, 7, 16, 64}) {
+                var ranges = CsvRangeSplitter.split(channel, dataStart, parts, executor);
+                assertTrue(ranges.size() > 1, "file should split into several ranges");
+                assertEquals(dataStart, ranges.get(0).start());
+                assertEquals(channel.size(), ranges.get(ranges.size() - 1).end());
+
+                var actual = new ArrayList<List<String>>();
+                for (int i = 0; i < ranges.size(); i++) {
+                    var range = ranges.get(i);
+                    if (i > 0) {
+                        assertEquals(ranges.get(i - 1).end(), range.start());
+                    }
+                    var parser = new MappedCsvParser(channel, range.start(), range.end(), (byte) ',', StandardCharsets.UTF_8);
+                    actual.addAll(readRange(parser));
+                    assertEquals(range.end(), parser.position(), "range must end on a record boundary");
+                }
+                assertEquals(expected, actual);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void fileWithoutBoundariesStaysOneRange() throws IOException {
+        var file = dir.resolve("one.csv");
+        Files.writeString(file, "id,note\n1,\"" + "x\n".repeat(1_000) + "\"\n", StandardCharsets.UTF_8);
+
+        var executor = Executors.newFixedThreadPool(2);
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            var ranges = CsvRangeSplitter.split(channel, 8, 8, executor);
+            assertEquals(List.of(new CsvRangeSplitter.Range(8, channel.size())), ranges);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static List<List<String>> readRange(MappedCsvParser parser) throws IOException {
+        var rows = new ArrayList<List<String>>();
+        List<String> row;
+        while ((row = parser.readAll()) != null) {
+            rows.add(row);
+        }
+        return rows;
+    }
+}
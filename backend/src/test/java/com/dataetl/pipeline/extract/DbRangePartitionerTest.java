@@ -0,0 +1,65 @@
+package com.dataetl.pipeline.extract;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/** How the quantile query fails on PostgreSQL — the happy path needs a real server. */
+class DbRangePartitionerTest {
+
+    @Test
+    void missingAggregateFallsBackToEvenCuts() throws Exception {
+        var conn = postgres(new SQLException("function percentile_disc(numeric[]) does not exist", "42883"));
+
+        var partitions = DbRangePartitioner.partition(conn, "(SELECT id FROM t) AS etl_src", null, "id", 4);
+
+        assertEquals(4, partitions.size());
+        assertEquals(List.of(25L), partitions.get(0).bounds());
+        assertEquals(List.of(75L), partitions.get(3).bounds());
+    }
+
+    @Test
+    void otherErrorsAreNotMaskedByTheFallback() throws Exception {
+        var conn = postgres(new SQLException("canceling statement due to statement timeout", "57014"));
+
+        var e = assertThrows(SQLException.class,
+            () -> DbRangePartitioner.partition(conn, "(SELECT id FROM t) AS etl_src", null, "id", 4));
+
+        assertEquals("57014", e.getSQLState());
+        verify(conn, never()).prepareStatement(contains("MIN("));
+    }
+
+    /** A PostgreSQL connection whose quantile query fails; MIN/MAX returns 0 and 100. */
+    private static Connection postgres(SQLException quantileError) throws SQLException {
+        var conn = mock(Connection.class);
+        var meta = mock(DatabaseMetaData.class);
+        when(meta.getDatabaseProductName()).thenReturn("PostgreSQL");
+        when(conn.getMetaData()).thenReturn(meta);
+
+        var quantiles = mock(PreparedStatement.class);
+        when(quantiles.executeQuery()).thenThrow(quantileError);
+        var minMax = mock(PreparedStatement.class);
+        var rs = mock(ResultSet.class);
+        when(rs.next()).thenReturn(true);
+        when(rs.getObject(1)).thenReturn(0L);
+        when(rs.getObject(2)).thenReturn(100L);
+        when(minMax.executeQuery()).thenReturn(rs);
+        when(conn.prepareStatement(anyString())).thenAnswer(call ->
+            call.<String>getArgument(0).contains("percentile_disc") ? quantiles : minMax);
+        return conn;
+    }
+}
@@ -0,0 +1,105 @@
+package com.dataetl.pipeline.extract;
+
+import com.dataetl.model.SourceConfig;
+import com.dataetl.model.enums.SourceType;
+import com.dataetl.service.JobHistoryService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+class HostCircuitBreakerTest {
+
+    private static final Duration OPEN = Duration.ofSeconds(60);
+
+    private final HostCircuitBreaker breaker = new HostCircuitBreaker(new SimpleMeterRegistry(), 3, OPEN);
+
+    @Test
+    void opensAfterConsecutiveFailuresAndFailsFast() {
+        breaker.admit("api.example.com").failed(new IOException("connection reset"));
+        breaker.admit("api.example.com").failed(error(503));
+        // A response below 500 shows the host is up and resets the count
+        breaker.admit("api.example.com").failed(error(404));
+        breaker.admit("api.example.com").failed(error(500));
+        breaker.admit("api.example.com").failed(error(502));
+        assertFalse(breaker.isOpen("api.example.com"));
+
+        breaker.admit("api.example.com").failed(new IOException("timeout"));
+
+        assertTrue(breaker.isOpen("API.example.com"));
+        assertThrows(CircuitOpenException.class, () -> breaker.admit("api.example.com"));
+        assertFalse(breaker.isOpen("other.example.com"), "circuits are per host");
+    }
+
+    @Test
+    void halfOpenLetsOneProbeThroughAndItsOutcomeDecides() {
+        for (int i = 0; i < 3; i++) {
+            breaker.admit("api.example.com").failed(error(500));
+        }
+        var circuit = breaker.circuit("api.example.com");
+        long afterCoolDown = System.nanoTime() + OPEN.toNanos();
+
+        assertEquals(HostCircuitBreaker.State.HALF_OPEN, circuit.state(afterCoolDown));
+        var probe = circuit.admit(afterCoolDown);
+        assertThrows(CircuitOpenException.class, () -> circuit.admit(afterCoolDown), "one probe at a time");
+
+        probe.failed(error(500));
+        assertTrue(breaker.isOpen("api.example.com"), "a failed probe reopens the circuit");
+
+        long afterSecondCoolDown = System.nanoTime() + OPEN.toNanos();
+        circuit.admit(afterSecondCoolDown).abandoned();
+        circuit.admit(afterSecondCoolDown).succeeded();
+        assertEquals(HostCircuitBreaker.State.CLOSED, circuit.state(afterSecondCoolDown));
+        breaker.admit("api.example.com").succeeded();
+    }
+
+    @Test
+    void openCircuitCutsRetriesShortAndFailsLaterJobsUpFront(@TempDir Path cacheDir) {
+        var requests = new AtomicInteger();
+        var webClient = WebClient.builder()
+            .exchangeFunction(request -> {
+                requests.incrementAndGet();
+                return Mono.just(ClientResponse.create(HttpStatus.SERVICE_UNAVAILABLE).build());
+            })
+            .build();
+        var registry = new SimpleMeterRegistry();
+        var extractor = new ApiExtractor(webClient,
+            new HostRateLimiter(registry, 100, 100, 4, 4, Duration.ofMinutes(1)),
+            new HostCircuitBreaker(registry, 1, OPEN),
+            new ApiResponseCache(cacheDir, 1024),
+            mock(JobHistoryService.class));
+        var config = new SourceConfig();
+        config.setName("down");
+        config.setType(SourceType.API);
+        config.setConnectionString("https://1.1.1.1/items");
+
+        long start = System.nanoTime();
+        // The first 503 opens the circuit, so none of the backoff retries is waited for
+        assertThrows(WebClientResponseException.class, () -> extractor.open(config));
+        assertTrue(System.nanoTime() - start < Duration.ofSeconds(2).toNanos());
+        assertEquals(1, requests.get());
+
+        assertThrows(CircuitOpenException.class, () -> extractor.open(config));
+        assertEquals(1, requests.get());
+    }
+
+    private static WebClientResponseException error(int status) {
+        return WebClientResponseException.create(status, "status " + status, new HttpHeaders(), new byte[0], null);
+    }
+}
@@ -0,0 +1,103 @@
+package com.dataetl.pipeline.extract;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HostRateLimiterTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void tokensRefillAtTheConfiguredRate() {
+        var limit = new HostRateLimiter(registry, 2, 2, 8, 8, Duration.ofMinutes(5)).limit("api.example.com");
+        long now = System.nanoTime();
+
+        assertEquals(0, limit.tryAcquire(now));
+        assertEquals(0, limit.tryAcquire(now));
+        long wait = limit.tryAcquire(now);
+        assertTrue(wait > SECOND / 3 && wait <= SECOND / 2, "one token takes half a second at 2/s, got " + wait);
+        assertEquals(0, limit.tryAcquire(now + SECOND / 2));
+    }
+
+    @Test
+    void concurrencyGrowsWhileSaturatedAndHalvesOnThrottling() {
+        var limiter = new HostRateLimiter(registry, 1000, 1000, 4, 32, Duration.ofMinutes(5));
+        var limit = limiter.limit("api.example.com");
+        long now = System.nanoTime();
+
+        for (int i = 0; i < 4; i++) {
+            assertEquals(0, limit.tryAcquire(now));
+        }
+        assertEquals(-1, limit.tryAcquire(now), "all four slots are taken");
+
+        limit.release(HttpStatus.OK, new HttpHeaders(), now);
+        assertEquals(4.25, limit.concurrencyLimit(), 1e-9);
+
+        limit.release(HttpStatus.TOO_MANY_REQUESTS, new HttpHeaders(), now);
+        assertEquals(2.125, limit.concurrencyLimit(), 1e-9);
+        // A burst of 429s from the same overload counts once
+        limit.release(HttpStatus.TOO_MANY_REQUESTS, new HttpHeaders(), now + 1);
+        assertEquals(2.125, limit.concurrencyLimit(), 1e-9);
+        assertEquals(2.0, registry.get("etl.api.limiter.throttled").counter().count());
+        assertEquals(2.125, registry.get("etl.api.limiter.concurrency").tag("host", "api.example.com").gauge().value(), 1e-9);
+    }
+
+    @Test
+    void retryAfterAndExhaustedQuotaPauseTheHost() {
+        var limit = new HostRateLimiter(registry, 1000, 1000, 4, 32, Duration.ofMinutes(5)).limit("api.example.com");
+        long now = System.nanoTime();
+
+        assertEquals(0, limit.tryAcquire(now));
+        var retryAfter = new HttpHeaders();
+        retryAfter.add(HttpHeaders.RETRY_AFTER, "3");
+        limit.release(HttpStatus.TOO_MANY_REQUESTS, retryAfter, now);
+        assertEquals(3 * SECOND, limit.tryAcquire(now));
+
+        assertEquals(0, limit.tryAcquire(now + 3 * SECOND));
+        var quota = new HttpHeaders();
+        quota.add("X-RateLimit-Remaining", "0");
+        quota.add("X-RateLimit-Reset", "60");
+        limit.release(HttpStatus.OK, quota, now + 3 * SECOND);
+        assertEquals(60 * SECOND, limit.tryAcquire(now + 3 * SECOND));
+    }
+
+    @Test
+    void remainingQuotaIsSpreadOverItsWindow() {
+        var limit = new HostRateLimiter(registry, 1000, 1000, 4, 32, Duration.ofMinutes(5)).limit("api.example.com");
+        long now = System.nanoTime();
+
+        assertEquals(0, limit.tryAcquire(now));
+        var quota = new HttpHeaders();
+        quota.add("X-RateLimit-Remaining", "100");
+        quota.add("X-RateLimit-Reset", "50");
+        limit.release(HttpStatus.OK, quota, now);
+
+        assertEquals(2.0, limit.rate(now), 1e-9);
+        assertEquals(1000.0, limit.rate(now + 51 * SECOND), 1e-9);
+    }
+
+    @Test
+    void waitersAreAdmittedWhenASlotFrees() throws Exception {
+        var limiter = new HostRateLimiter(registry, 1000, 1000, 1, 1, Duration.ofMinutes(5));
+        var first = limiter.acquire("api.example.com").block(Duration.ofSeconds(1));
+        var second = limiter.acquire("API.example.com").toFuture();
+
+        Thread.sleep(50);
+        assertFalse(second.isDone(), "the only slot is taken");
+
+        first.complete(HttpStatus.OK, new HttpHeaders());
+        second.get(1, TimeUnit.SECONDS).abandon();
+        assertEquals(0, limiter.limit("api.example.com").inFlight());
+    }
+}
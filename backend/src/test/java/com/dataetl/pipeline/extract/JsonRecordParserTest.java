@@ -0,0 +1,70 @@
+package com.dataetl.pipeline.extract;
+
+import com.dataetl.pipeline.RecordSchema;
+import com.dataetl.pipeline.Row;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class JsonRecordParserTest {
+
+    @Test
+    void rootArrayWithNestedValues() throws IOException {
+        var rows = parse("[{\"id\":1,\"tags\":[\"a\",{\"b\":2.5}],\"big\":12345678901},{\"id\":\"x\",\"ok\":true,\"n\":null}]", null, 3);
+
+        assertEquals(2, rows.size());
+        assertEquals(Map.of("id", 1, "tags", List.of("a", Map.of("b", 2.5)), "big", 12345678901L), rows.get(0).toMap());
+        assertEquals("{id=x, ok=true, n=null}", rows.get(1).toString());
+    }
+
+    @Test
+    void recordPathSkipsEverythingElse() throws IOException {
+        var body = "{\"meta\":{\"data\":{\"items\":[{\"id\":0}]}},\"data\":{\"count\":2,\"items\":[{\"id\":1},{\"id\":2}],\"next\":[1,2]}}";
+        var rows = parse(body, "$.data.items", 5);
+
+        assertEquals(List.of("{id=1}", "{id=2}"), rows.stream().map(Row::toString).toList());
+    }
+
+    @Test
+    void jsonLinesAreSeparateRootValues() throws IOException {
+        var rows = parse("{\"id\":1}\n{\"id\":2,\"extra\":\"e\"}\n{\"id\":3}\n", "$", 1);
+
+        assertEquals(List.of("{id=1}", "{id=2, extra=e}", "{id=3}"), rows.stream().map(Row::toString).toList());
+    }
+
+    @Test
+    void truncatedBodyFails() {
+        assertThrows(IOException.class, () -> parse("[{\"id\":1},{\"id\":", null, 4));
+    }
+
+    @Test
+    void rejectsUnsupportedPaths() {
+        assertThrows(IllegalArgumentException.class, () -> JsonRecordParser.parsePath("$.data[*].items"));
+    }
+
+    /** Feeds the body in slices of sliceSize bytes, like network buffers arriving. */
+    private static List<Row> parse(String body, String recordPath, int sliceSize) throws IOException {
+        var parser = new JsonRecordParser(recordPath, new RecordSchema());
+        var bytes = body.getBytes(StandardCharsets.UTF_8);
+        var rows = new ArrayList<Row>();
+        for (int offset = 0; offset < bytes.length; offset += sliceSize) {
+            parser.feed(Arrays.copyOfRange(bytes, offset, Math.min(offset + sliceSize, bytes.length)));
+            for (Row row; (row = parser.next()) != null; ) {
+                rows.add(row);
+            }
+        }
+        parser.endOfInput();
+        for (Row row; (row = parser.next()) != null; ) {
+            rows.add(row);
+        }
+        return rows;
+    }
+}
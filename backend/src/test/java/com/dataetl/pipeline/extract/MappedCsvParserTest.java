@@ -0,0 +1,85 @@
+package com.dataetl.pipeline.extract;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MappedCsvParserTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void parsesQuotedFieldsEmbeddedNewlinesAndMixedLineEnds() throws IOException {
+        var rows = parse("﻿id,name,note\r\n1,\"Smith, J\",\"said \"\"hi\"\"\"\n\n2,Ann,\"line1\nline2\"\r3,,\n",
+            ',', StandardCharsets.UTF_8);
+
+        assertEquals(List.of(
+            List.of("id", "name", "note"),
+            List.of("1", "Smith, J", "said \"hi\""),
+            List.of("2", "Ann", "line1\nline2"),
+            List.of("3", "", "")), rows);
+    }
+
+    @Test
+    void honoursDelimiterAndEncoding() throws IOException {
+        var rows = parse("id;city\n1;Zürich", ';', StandardCharsets.ISO_8859_1);
+
+        assertEquals(List.of(List.of("id", "city"), List.of("1", "Zürich")), rows);
+    }
+
+    @Test
+    void skipsUnwantedColumnsAndReportsFieldCount() throws IOException {
+        var file = write("a,b,c\n", StandardCharsets.UTF_8);
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            var parser = new MappedCsvParser(channel, 0, Long.MAX_VALUE, (byte) ',', StandardCharsets.UTF_8);
+            var seen = new ArrayList<String>();
+            int fields = parser.readRecord(new boolean[]{false, true, false}, (column, value) -> seen.add(column + "=" + value));
+
+            assertEquals(3, fields);
+            assertEquals(List.of("1=b"), seen);
+            assertEquals(-1, parser.readRecord(null, (column, value) -> { }));
+        }
+    }
+
+    @Test
+    void rejectsUnterminatedQuote() throws IOException {
+        assertThrows(IOException.class, () -> parse("id\n\"open", ',', StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void rejectsEncodingsThatAreNotAsciiCompatible() {
+        assertThrows(IllegalArgumentException.class, () -> parse("id\n1", ',', StandardCharsets.UTF_16LE));
+    }
+
+    private List<List<String>> parse(String content, char delimiter, Charset charset) throws IOException {
+        var file = write(content, charset);
+        var rows = new ArrayList<List<String>>();
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            var parser = new MappedCsvParser(channel, 0, Long.MAX_VALUE, (byte) delimiter, charset);
+            List<String> row;
+            while ((row = parser.readAll()) != null) {
+                rows.add(row);
+            }
+        }
+        return rows;
+    }
+
+    private Path write(String content, Charset charset) throws IOException {
+        var file = Files.createTempFile(dir, "test", ".csv");
+        Files.write(file, content.getBytes(charset));
+        return file;
+    }
+}
@@ -0,0 +1,47 @@
+package com.dataetl.pipeline.extract;
+
+import org.h2.jdbc.JdbcConnection;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SourcePoolCacheTest {
+
+    private final SourcePoolCache cache = new SourcePoolCache(1, 2, Duration.ofMinutes(1), Duration.ofSeconds(5));
+
+    @AfterEach
+    void closePools() {
+        cache.closeAll();
+    }
+
+    @Test
+    void reusesConnectionsForTheSameUrl() throws Exception {
+        var url = "jdbc:h2:mem:pool_a;DB_CLOSE_DELAY=-1";
+        String first;
+        try (var lease = cache.borrow(url)) {
+            first = lease.connection().unwrap(JdbcConnection.class).toString();
+        }
+        try (var lease = cache.borrow(url)) {
+            assertEquals(first, lease.connection().unwrap(JdbcConnection.class).toString(),
+                "second borrow should get the pooled physical connection");
+        }
+    }
+
+    @Test
+    void evictionWaitsForLeasedConnections() throws Exception {
+        var leased = cache.borrow("jdbc:h2:mem:pool_b;DB_CLOSE_DELAY=-1");
+
+        // Capacity is one source — this evicts pool_b while its connection is still out
+        try (var other = cache.borrow("jdbc:h2:mem:pool_c;DB_CLOSE_DELAY=-1")) {
+            assertFalse(leased.connection().isClosed());
+            assertTrue(leased.connection().isValid(1));
+        }
+        leased.close();
+        assertTrue(leased.connection().isClosed());
+    }
+}
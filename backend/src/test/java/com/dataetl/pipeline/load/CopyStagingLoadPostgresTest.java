@@ -0,0 +1,206 @@
+package com.dataetl.pipeline.load;
+
+import com.dataetl.model.SourceConfig;
+import com.dataetl.model.enums.SourceType;
+import com.dataetl.pipeline.RecordKey;
+import com.dataetl.pipeline.RecordSchema;
+import com.dataetl.pipeline.Row;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * The COPY path of {@link UpsertWriter} against a real PostgreSQL — H2 has neither COPY nor
+ * ON CONFLICT. Works in a temp table that shadows unified_data for the test's connection
+ * only; its CHECK constraint refuses records named "bad". Only runs when pointed at a database:
+ *
+ * mvn test -Dtest=CopyStagingLoadPostgresTest -Dit.pg-url=jdbc:postgresql://localhost:5432/etl \
+ *     -Dit.pg-user=etl -Dit.pg-password=...
+ */
+@EnabledIfSystemProperty(named = "it.pg-url", matches = ".+")
+class CopyStagingLoadPostgresTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final List<String> checkpoints = new ArrayList<>();
+    private final Set<String> rejected = new HashSet<>();
+    // Batched upsert statements the writer issued
+    private final AtomicInteger statements = new AtomicInteger();
+    private SingleConnectionDataSource dataSource;
+    private JdbcTemplate jdbc;
+    private TransactionTemplate transactions;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new SingleConnectionDataSource(System.getProperty("it.pg-url"),
+            System.getProperty("it.pg-user"), System.getProperty("it.pg-password"), true);
+        jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("""
+            CREATE TEMP TABLE unified_data (
+                id BIGSERIAL PRIMARY KEY, source_config_id BIGINT, external_id VARCHAR(512) NOT NULL,
+                source_type VARCHAR(10) NOT NULL, source_name VARCHAR(255), payload JSONB NOT NULL,
+                payload_hash BYTEA, ingested_at TIMESTAMPTZ, updated_at TIMESTAMPTZ,
+                CONSTRAINT uq_unified_data UNIQUE (source_config_id, external_id),
+                CONSTRAINT ck_not_bad CHECK (payload->>'name' <> 'bad'))
+            """);
+        transactions = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbc.execute("DROP TABLE unified_data");
+        dataSource.destroy();
+    }
+
+    @Test
+    void sessionSwitchesToCopyOnceTheThresholdIsPassed() throws Exception {
+        var writer = writer(10, 1000);
+        var config = source();
+        var schema = new RecordSchema();
+        var records = new ArrayList<Row>();
+        for (int id = 0; id < 8; id++) {
+            records.add(row(schema, id, "item-" + id));
+        }
+        LoadCounts counts;
+        try (var load = open(writer, config, schema)) {
+            load.write(records.subList(0, 4), "chunk-1");
+            // 4 + 4 passes no threshold of 10 — still batched
+            load.write(records.subList(4, 8), "chunk-2");
+            // 8 + 4 does: the third chunk is staged, not upserted
+            load.write(List.of(row(schema, 8, "first"), row(schema, 9, "item-9"), row(schema, 8, "last"),
+                row(schema, 10, "item-10")), "chunk-3");
+            assertEquals(2, statements.get());
+            assertEquals(List.of("chunk-1", "chunk-2"), checkpoints);
+
+            load.finish();
+            counts = load.counts();
+        }
+
+        assertEquals(List.of("chunk-1", "chunk-2", "chunk-3"), checkpoints);
+        // The superseded duplicate counts as unchanged; the last one staged is stored
+        assertEquals(new LoadCounts(11, 0, 1), counts);
+        assertEquals("last", jdbc.queryForObject(
+            "SELECT payload->>'name' FROM unified_data WHERE external_id = '8'", String.class));
+    }
+
+    @Test
+    void mergeOnlyRewritesRowsWhoseHashChanged() throws Exception {
+        var writer = writer(1, 1000);
+        var config = source();
+        var schema = new RecordSchema();
+        var first = new ArrayList<Row>();
+        var second = new ArrayList<Row>();
+        for (int id = 0; id < 10; id++) {
+            first.add(row(schema, id, "item-" + id));
+            second.add(row(schema, id, id == 3 ? "changed" : "item-" + id));
+        }
+        second.add(row(schema, 10, "item-10"));
+
+        load(writer, config, first);
+        var counts = load(writer, config, second);
+
+        assertEquals(new LoadCounts(1, 1, 9), counts);
+        assertEquals(0, statements.get());
+    }
+
+    @Test
+    void checkpointsAreReportedOnlyOnceTheirRowsAreMerged() throws Exception {
+        var writer = writer(1, 5);
+        var config = source();
+        var schema = new RecordSchema();
+        try (var load = open(writer, config, schema)) {
+            load.write(List.of(row(schema, 0, "a"), row(schema, 1, "b"), row(schema, 2, "c")), "chunk-1");
+            assertEquals(List.of(), checkpoints);
+            // The fifth row completes a round mid-chunk: chunk 1 is committed, chunk 2 is not yet
+            load.write(List.of(row(schema, 3, "d"), row(schema, 4, "e"), row(schema, 5, "f")), "chunk-2");
+            assertEquals(List.of("chunk-1"), checkpoints);
+            assertEquals(5, jdbc.queryForObject("SELECT COUNT(*) FROM unified_data", Long.class));
+
+            load.finish();
+        }
+        assertEquals(List.of("chunk-1", "chunk-2"), checkpoints);
+        assertEquals(6, jdbc.queryForObject("SELECT COUNT(*) FROM unified_data", Long.class));
+    }
+
+    @Test
+    void recordsBreakingTheMergeAreIsolatedAndTheRoundCommits() throws Exception {
+        var writer = writer(1, 1000);
+        var config = source();
+        var schema = new RecordSchema();
+        var records = new ArrayList<Row>();
+        for (int id = 0; id < 20; id++) {
+            records.add(row(schema, id, id == 0 || id == 11 || id == 19 ? "bad" : "item-" + id));
+        }
+        // A bad duplicate followed by a good one: the full merge never sees it, nor may the bisection
+        records.add(row(schema, 20, "bad"));
+        records.add(row(schema, 20, "item-20"));
+
+        var counts = load(writer, config, records);
+
+        assertEquals(Set.of("0", "11", "19"), rejected);
+        assertEquals(new LoadCounts(18, 0, 1, 3), counts);
+        var stored = new HashSet<>(jdbc.queryForList("SELECT external_id FROM unified_data", String.class));
+        assertEquals(18, stored.size());
+        assertEquals(List.of("chunk"), checkpoints);
+    }
+
+    private UpsertWriter writer(long thresholdRows, int mergeRows) {
+        return new UpsertWriter(jdbc, transactions, objectMapper, null, 1, thresholdRows, mergeRows, 0, 1, 0) {
+            @Override
+            LoadCounts upsertStatement(Connection conn, List<HashedRow> batch, SourceConfig config) throws SQLException {
+                statements.incrementAndGet();
+                return super.upsertStatement(conn, batch, config);
+            }
+        };
+    }
+
+    private LoadCounts load(UpsertWriter writer, SourceConfig config, List<Row> records) throws Exception {
+        try (var load = open(writer, config, records.get(0).schema())) {
+            load.write(records, "chunk");
+            load.finish();
+            return load.counts();
+        }
+    }
+
+    private UpsertWriter.LoadSession open(UpsertWriter writer, SourceConfig config, RecordSchema schema) {
+        checkpoints.clear();
+        return writer.open(config, RecordKey.forSource(config, schema), checkpoints::add,
+            (payload, reason) -> {
+                try {
+                    rejected.add(objectMapper.readTree(payload).get("id").asText());
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+    }
+
+    private static Row row(RecordSchema schema, int id, String name) {
+        var row = new Row(schema);
+        row.set("id", id);
+        row.set("name", name);
+        return row;
+    }
+
+    private static SourceConfig source() {
+        var config = new SourceConfig();
+        config.setId(1L);
+        config.setName("copy");
+        config.setType(SourceType.CSV);
+        return config;
+    }
+}
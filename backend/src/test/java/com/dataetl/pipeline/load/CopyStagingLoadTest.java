@@ -0,0 +1,15 @@
+package com.dataetl.pipeline.load;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CopyStagingLoadTest {
+
+    @Test
+    void escapesCopyTextFormatSpecials() {
+        var out = new StringBuilder();
+        CopyStagingLoad.appendField(out, "{\"note\":\"tab\there\\\\n\",\"path\":\"C:\\\\x\"}\r\n");
+        assertEquals("{\"note\":\"tab\\there\\\\\\\\n\",\"path\":\"C:\\\\\\\\x\"}\\r\\n", out.toString());
+    }
+}
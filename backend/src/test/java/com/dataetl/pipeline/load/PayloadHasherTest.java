@@ -0,0 +1,68 @@
+package com.dataetl.pipeline.load;
+
+import com.dataetl.pipeline.RecordSchema;
+import com.dataetl.pipeline.Row;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class PayloadHasherTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final PayloadHasher hasher = new PayloadHasher(objectMapper, Set.of("_ingested_at"));
+
+    @Test
+    void fieldOrderDoesNotChangeTheCanonicalPayload() throws Exception {
+        var first = new Row(new RecordSchema());
+        first.set("name", "widget");
+        first.set("id", 7);
+        first.set("attributes", nested("size", "L", "color", "red"));
+
+        var second = new Row(new RecordSchema());
+        second.set("id", 7);
+        second.set("attributes", nested("color", "red", "size", "L"));
+        second.set("name", "widget");
+
+        var hashed = hasher.write(first);
+        assertEquals("{\"attributes\":{\"color\":\"red\",\"size\":\"L\"},\"id\":7,\"name\":\"widget\"}", hashed.payload());
+        assertEquals(hashed.payload(), hasher.write(second).payload());
+        assertArrayEquals(hashed.hash(), hasher.write(second).hash());
+        // The shared mapper still writes rows in schema order
+        assertEquals("{\"name\":\"widget\",\"id\":7,\"attributes\":{\"size\":\"L\",\"color\":\"red\"}}",
+            objectMapper.writeValueAsString(first));
+    }
+
+    @Test
+    void unhashedFieldsAreStoredButDoNotChangeTheHash() throws Exception {
+        var schema = new RecordSchema();
+        var row = new Row(schema);
+        row.set("id", 7);
+        row.set("price", 9.5);
+        row.set("_ingested_at", "2026-01-01T00:00:00Z");
+        var first = hasher.write(row);
+        row.set("_ingested_at", "2026-01-02T00:00:00Z");
+        var rerun = hasher.write(row);
+        row.set("price", 9.75);
+        var changed = hasher.write(row);
+
+        assertEquals("{\"id\":7,\"price\":9.5,\"_ingested_at\":\"2026-01-02T00:00:00Z\"}", rerun.payload());
+        assertEquals(32, first.hash().length);
+        assertArrayEquals(first.hash(), rerun.hash());
+        assertFalse(Arrays.equals(first.hash(), changed.hash()));
+    }
+
+    private static Map<String, Object> nested(String k1, Object v1, String k2, Object v2) {
+        var map = new LinkedHashMap<String, Object>();
+        map.put(k1, v1);
+        map.put(k2, v2);
+        return map;
+    }
+}
@@ -0,0 +1,144 @@
+package com.dataetl.pipeline.load;
+
+import com.dataetl.model.SourceConfig;
+import com.dataetl.model.enums.SourceType;
+import com.dataetl.pipeline.RecordKey;
+import com.dataetl.pipeline.RecordSchema;
+import com.dataetl.pipeline.Row;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compares load sessions writing batched upserts and COPY bulk loads with the old
+ * one-statement-per-row path against a real PostgreSQL, where the round trips are what costs.
+ * Works in a temp table that shadows unified_data for the benchmark's connection only. Only
+ * runs when pointed at a database:
+ *
+ * mvn test -Dtest=UpsertWriterBenchmarkTest -Dbenchmark.pg-url=jdbc:postgresql://localhost:5432/etl \
+ *     -Dbenchmark.pg-user=etl -Dbenchmark.pg-password=...
+ */
+class UpsertWriterBenchmarkTest {
+
+    private static final String LEGACY_SQL = """
+        INSERT INTO unified_data
+            (source_config_id, external_id, source_type, source_name, payload, ingested_at, updated_at)
+        VALUES
+            (?, ?, ?, ?, CAST(? AS jsonb), NOW(), NOW())
+        ON CONFLICT (source_config_id, external_id)
+        DO UPDATE SET
+            payload = CAST(EXCLUDED.payload AS jsonb),
+            updated_at = NOW()
+        """;
+
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark.pg-url", matches = ".+")
+    void benchmarkAgainstRowByRowUpserts() throws Exception {
+        var dataSource = new SingleConnectionDataSource(System.getProperty("benchmark.pg-url"),
+            System.getProperty("benchmark.pg-user"), System.getProperty("benchmark.pg-password"), true);
+        try {
+            var jdbc = new JdbcTemplate(dataSource);
+            jdbc.execute("""
+                CREATE TEMP TABLE unified_data (
+                    id BIGSERIAL PRIMARY KEY, source_config_id BIGINT, external_id VARCHAR(512) NOT NULL,
+                    source_type VARCHAR(10) NOT NULL, source_name VARCHAR(255), payload JSONB NOT NULL,
+                    payload_hash BYTEA, ingested_at TIMESTAMPTZ, updated_at TIMESTAMPTZ,
+                    CONSTRAINT uq_unified_data UNIQUE (source_config_id, external_id))
+                """);
+            var objectMapper = new ObjectMapper();
+            var transactions = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+            // Threshold 0: a session never switches to COPY
+            var writer = new UpsertWriter(jdbc, transactions, objectMapper, null, 1, 0, 1, 0, 1, 0);
+            // Threshold 1: every chunk of a session goes through COPY
+            var bulkWriter = new UpsertWriter(jdbc, transactions, objectMapper, null, 1, 1, 100_000, 0, 1, 0);
+            int rows = 20_000;
+
+            // Inserts on the first pass, updates of every row on the second — each pass changes
+            // every payload, or the hash check would skip the second pass's writes
+            long legacyNanos = 0;
+            long batchedNanos = 0;
+            long bulkNanos = 0;
+            for (int pass = 0; pass < 2; pass++) {
+                var records = records(rows, pass);
+                long start = System.nanoTime();
+                upsertRowByRow(dataSource.getConnection(), objectMapper, records, source(1));
+                legacyNanos += System.nanoTime() - start;
+
+                start = System.nanoTime();
+                load(writer, source(2), records);
+                batchedNanos += System.nanoTime() - start;
+
+                start = System.nanoTime();
+                load(bulkWriter, source(3), records);
+                bulkNanos += System.nanoTime() - start;
+            }
+
+            assertEquals(rows, jdbc.queryForObject("SELECT COUNT(*) FROM unified_data WHERE source_config_id = 1", Long.class));
+            assertEquals(rows, jdbc.queryForObject("SELECT COUNT(*) FROM unified_data WHERE source_config_id = 2", Long.class));
+            assertEquals(rows, jdbc.queryForObject("SELECT COUNT(*) FROM unified_data WHERE source_config_id = 3", Long.class));
+            double speedup = (double) legacyNanos / batchedNanos;
+            System.out.printf("upsert: row by row %d ms, batched %d ms (%.1fx), COPY %d ms (%.1fx) over %d rows x 2 passes%n",
+                legacyNanos / 1_000_000, batchedNanos / 1_000_000, speedup,
+                bulkNanos / 1_000_000, (double) legacyNanos / bulkNanos, rows);
+            assertTrue(speedup > 5.0, "expected a clear speedup, got " + speedup);
+        } finally {
+            dataSource.destroy();
+        }
+    }
+
+    private static void load(UpsertWriter writer, SourceConfig config, List<Row> records) throws Exception {
+        try (var load = writer.open(config, RecordKey.forSource(config, records.get(0).schema()))) {
+            for (int from = 0; from < records.size(); from += 1000) {
+                load.write(records.subList(from, from + 1000));
+            }
+            load.finish();
+        }
+    }
+
+    private static void upsertRowByRow(Connection conn, ObjectMapper objectMapper, List<Row> records,
+                                       SourceConfig config) throws Exception {
+        try (var stmt = conn.prepareStatement(LEGACY_SQL)) {
+            for (var record : records) {
+                stmt.setLong(1, config.getId());
+                stmt.setString(2, String.valueOf(record.get("id")));
+                stmt.setString(3, config.getType().name());
+                stmt.setString(4, config.getName());
+                stmt.setString(5, objectMapper.writeValueAsString(record));
+                stmt.executeUpdate();
+            }
+        }
+    }
+
+    private static List<Row> records(int count, int pass) {
+        var schema = new RecordSchema();
+        var records = new ArrayList<Row>(count);
+        for (int i = 0; i < count; i++) {
+            var row = new Row(schema);
+            row.set("id", i);
+            row.set("name", "product-" + i);
+            row.set("price", i * 0.25 + pass);
+            row.set("category", "category-" + i % 20);
+            records.add(row);
+        }
+        return records;
+    }
+
+    private static SourceConfig source(long id) {
+        var config = new SourceConfig();
+        config.setId(id);
+        config.setName("bench-" + id);
+        config.setType(SourceType.CSV);
+        return config;
+    }
+}
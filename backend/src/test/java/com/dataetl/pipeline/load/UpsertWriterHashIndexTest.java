@@ -0,0 +1,165 @@
+package com.dataetl.pipeline.load;
+
+import com.dataetl.model.SourceConfig;
+import com.dataetl.model.enums.SourceType;
+import com.dataetl.pipeline.RecordKey;
+import com.dataetl.pipeline.RecordSchema;
+import com.dataetl.pipeline.Row;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * The in-memory hash index that drops unchanged records before they are sent, on H2 with a
+ * MERGE standing in for the upsert statement (see {@link UpsertWriterIsolationTest}). The
+ * MERGE writes every row it gets, so what reaches it is exactly what the index let through.
+ */
+class UpsertWriterHashIndexTest {
+
+    private static final String URL = "jdbc:h2:mem:upsert_hash_index_test;DB_CLOSE_DELAY=-1;DATABASE_TO_UPPER=false";
+
+    private static JdbcTemplate jdbc;
+    private static TransactionTemplate transactions;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    // External IDs the writer sent to the database, in order
+    private final List<String> sent = new CopyOnWriteArrayList<>();
+    private UpsertWriter writer;
+
+    @BeforeAll
+    static void setUp() throws Exception {
+        try (var conn = DriverManager.getConnection(URL); var stmt = conn.createStatement()) {
+            stmt.execute("""
+                CREATE TABLE unified_data (
+                    id BIGINT AUTO_INCREMENT PRIMARY KEY, source_config_id BIGINT, external_id VARCHAR(512) NOT NULL,
+                    source_name VARCHAR(255), payload VARCHAR(256) NOT NULL, payload_hash VARBINARY(32),
+                    CONSTRAINT uq_unified_data UNIQUE (source_config_id, external_id))
+                """);
+        }
+        var dataSource = new DriverManagerDataSource(URL);
+        jdbc = new JdbcTemplate(dataSource);
+        transactions = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+    }
+
+    @AfterAll
+    static void tearDown() {
+        jdbc.execute("DROP TABLE unified_data");
+    }
+
+    @BeforeEach
+    void newWriter() {
+        jdbc.update("DELETE FROM unified_data");
+        writer = new UpsertWriter(jdbc, transactions, objectMapper, null, 1, 0, 1, 1000, 1, 0) {
+            @Override
+            LoadCounts upsertStatement(Connection conn, List<HashedRow> batch, SourceConfig config) throws SQLException {
+                try (var stmt = conn.prepareStatement("""
+                        MERGE INTO unified_data (source_config_id, external_id, source_name, payload, payload_hash)
+                        KEY (source_config_id, external_id) VALUES (?, ?, ?, ?, ?)
+                        """)) {
+                    for (var row : batch) {
+                        stmt.setLong(1, config.getId());
+                        stmt.setString(2, row.externalId());
+                        stmt.setString(3, config.getName());
+                        stmt.setString(4, row.payload());
+                        stmt.setBytes(5, row.hash());
+                        stmt.executeUpdate();
+                        sent.add(row.externalId());
+                    }
+                }
+                return new LoadCounts(0, batch.size(), 0);
+            }
+        };
+    }
+
+    @Test
+    void unchangedRecordsAreDroppedBeforeTheyAreSent() throws Exception {
+        var config = source("items");
+        load(config, records(10, Set.of()));
+        sent.clear();
+
+        var counts = load(config, records(11, Set.of(3)));
+
+        assertEquals(List.of("3", "10"), sent);
+        assertEquals(new LoadCounts(0, 2, 9), counts);
+    }
+
+    @Test
+    void recordWhoseHashOnlySharesItsPrefixIsSent() throws Exception {
+        var config = source("items");
+        load(config, records(10, Set.of()));
+        sent.clear();
+
+        // The stored hash of record 4 differs from its new hash in the last byte only — a
+        // record whose hash merely shares a prefix must not pass for unchanged
+        var hash = new PayloadHasher(objectMapper, Set.of()).write(records(10, Set.of(4)).get(4)).hash();
+        hash[31] ^= 1;
+        jdbc.update("UPDATE unified_data SET payload_hash = ? WHERE external_id = '4'", (Object) hash);
+
+        var counts = load(config, records(10, Set.of(4)));
+
+        assertEquals(List.of("4"), sent);
+        assertEquals(new LoadCounts(0, 1, 9), counts);
+    }
+
+    @Test
+    void renamedSourceReachesItsUnchangedRecords() throws Exception {
+        load(source("items"), records(10, Set.of()));
+        sent.clear();
+
+        load(source("catalogue"), records(10, Set.of()));
+
+        assertEquals(10, sent.size());
+        assertEquals(List.of("catalogue"),
+            jdbc.queryForList("SELECT DISTINCT source_name FROM unified_data", String.class));
+
+        // Once renamed, they are unchanged again
+        sent.clear();
+        load(source("catalogue"), records(10, Set.of()));
+        assertEquals(List.of(), sent);
+    }
+
+    private LoadCounts load(SourceConfig config, List<Row> records) throws Exception {
+        try (var load = writer.open(config, RecordKey.forSource(config, records.get(0).schema()))) {
+            load.write(records);
+            load.finish();
+            return load.counts();
+        }
+    }
+
+    // The given IDs carry a changed name
+    private static List<Row> records(int count, Set<Integer> changed) {
+        var schema = new RecordSchema();
+        var records = new ArrayList<Row>();
+        for (int id = 0; id < count; id++) {
+            var row = new Row(schema);
+            row.set("id", id);
+            row.set("name", changed.contains(id) ? "changed-" + id : "item-" + id);
+            records.add(row);
+        }
+        return records;
+    }
+
+    private static SourceConfig source(String name) {
+        var config = new SourceConfig();
+        config.setId(1L);
+        config.setName(name);
+        config.setType(SourceType.CSV);
+        return config;
+    }
+}
@@ -0,0 +1,170 @@
+package com.dataetl.pipeline.load;
+
+import com.dataetl.model.SourceConfig;
+import com.dataetl.model.enums.SourceType;
+import com.dataetl.pipeline.RecordKey;
+import com.dataetl.pipeline.RecordSchema;
+import com.dataetl.pipeline.Row;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Savepoint bisection through a real load session on H2. H2 has no ON CONFLICT, so a MERGE
+ * stands in for the upsert statement; payload is VARCHAR(64) there, and an oversized record
+ * fails its statement with a value-too-long error (SQLSTATE 22001) like jsonb would on bad JSON.
+ */
+class UpsertWriterIsolationTest {
+
+    private static final String URL = "jdbc:h2:mem:upsert_isolation_test;DB_CLOSE_DELAY=-1;DATABASE_TO_UPPER=false";
+
+    private static final String MERGE_SQL = """
+        MERGE INTO unified_data (source_config_id, external_id, payload)
+        KEY (source_config_id, external_id) VALUES (?, ?, ?)
+        """;
+
+    private static JdbcTemplate jdbc;
+    private static TransactionTemplate transactions;
+
+    // Rows per statement the writer issued, in order
+    private final List<Integer> statements = new CopyOnWriteArrayList<>();
+    private final List<String> checkpoints = new CopyOnWriteArrayList<>();
+    private final Set<String> rejected = new HashSet<>();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private UpsertWriter writer;
+
+    @BeforeAll
+    static void setUp() throws Exception {
+        try (var conn = DriverManager.getConnection(URL); var stmt = conn.createStatement()) {
+            stmt.execute("""
+                CREATE TABLE unified_data (
+                    id BIGINT AUTO_INCREMENT PRIMARY KEY, source_config_id BIGINT, external_id VARCHAR(512) NOT NULL,
+                    payload VARCHAR(64) NOT NULL, CONSTRAINT uq_unified_data UNIQUE (source_config_id, external_id))
+                """);
+        }
+        var dataSource = new DriverManagerDataSource(URL);
+        jdbc = new JdbcTemplate(dataSource);
+        transactions = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+    }
+
+    @AfterAll
+    static void tearDown() {
+        jdbc.execute("DROP TABLE unified_data");
+    }
+
+    @BeforeEach
+    void newWriter() {
+        jdbc.update("DELETE FROM unified_data");
+        writer = new UpsertWriter(jdbc, transactions, objectMapper, null, 1, 0, 1, 0, 1, 0) {
+            @Override
+            LoadCounts upsertStatement(Connection conn, List<HashedRow> batch, SourceConfig config) throws SQLException {
+                statements.add(batch.size());
+                try (var stmt = conn.prepareStatement(MERGE_SQL)) {
+                    for (var row : batch) {
+                        stmt.setLong(1, config.getId());
+                        stmt.setString(2, row.externalId());
+                        stmt.setString(3, row.payload());
+                        stmt.executeUpdate();
+                    }
+                }
+                return new LoadCounts(batch.size(), 0, 0);
+            }
+        };
+    }
+
+    @Test
+    void badRecordsAreIsolatedAndTheRestCommit() throws Exception {
+        var config = source();
+        var records = records(0, 20, Set.of(0, 10, 19));
+        LoadCounts counts;
+        try (var load = open(config, records)) {
+            load.write(records, "chunk-1");
+            load.finish();
+            counts = load.counts();
+        }
+
+        assertEquals(Set.of("0", "10", "19"), rejected);
+        assertEquals(new LoadCounts(17, 0, 0, 3), counts);
+        var stored = new HashSet<>(jdbc.queryForList("SELECT external_id FROM unified_data", String.class));
+        assertEquals(17, stored.size());
+        for (int id = 0; id < 20; id++) {
+            assertEquals(!rejected.contains(String.valueOf(id)), stored.contains(String.valueOf(id)));
+        }
+        assertEquals(List.of("chunk-1"), checkpoints);
+    }
+
+    @Test
+    void chunkWhereEveryRecordFailsIsRejectedRecordByRecord() throws Exception {
+        var config = source();
+        var good = records(0, 5, Set.of());
+        var bad = records(5, 8, Set.of(5, 6, 7, 8, 9, 10, 11, 12));
+        LoadCounts counts;
+        try (var load = open(config, good)) {
+            load.write(good, "chunk-1");
+            load.write(bad, "chunk-2");
+            load.finish();
+            counts = load.counts();
+        }
+
+        assertEquals(8, rejected.size());
+        assertEquals(new LoadCounts(5, 0, 0, 8), counts);
+        // The first chunk's rows stay committed
+        assertEquals(5, jdbc.queryForObject("SELECT COUNT(*) FROM unified_data", Long.class));
+        // One statement for the first chunk; for the second, the failed batch plus a full
+        // bisection tree (2n - 1 statements) that ends at the eight single records
+        var second = statements.subList(1, statements.size());
+        assertEquals(1 + 15, second.size());
+        assertEquals(8, second.stream().filter(size -> size == 1).count());
+        assertTrue(second.stream().allMatch(size -> size >= 1));
+        assertEquals(List.of("chunk-1", "chunk-2"), checkpoints);
+    }
+
+    private UpsertWriter.LoadSession open(SourceConfig config, List<Row> records) {
+        return writer.open(config, RecordKey.forSource(config, records.get(0).schema()), checkpoints::add,
+            (payload, reason) -> {
+                try {
+                    rejected.add(objectMapper.readTree(payload).get("id").asText());
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+    }
+
+    private static List<Row> records(int from, int count, Set<Integer> oversized) {
+        var schema = new RecordSchema();
+        var records = new ArrayList<Row>(count);
+        for (int id = from; id < from + count; id++) {
+            var row = new Row(schema);
+            row.set("id", id);
+            row.set("name", oversized.contains(id) ? "x".repeat(100) : "item-" + id);
+            records.add(row);
+        }
+        return records;
+    }
+
+    private static SourceConfig source() {
+        var config = new SourceConfig();
+        config.setId(1L);
+        config.setName("isolation");
+        config.setType(SourceType.CSV);
+        return config;
+    }
+}
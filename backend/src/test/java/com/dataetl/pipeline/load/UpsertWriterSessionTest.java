@@ -0,0 +1,267 @@
+package com.dataetl.pipeline.load;
+
+import com.dataetl.model.SourceConfig;
+import com.dataetl.model.enums.SourceType;
+import com.dataetl.pipeline.RecordKey;
+import com.dataetl.pipeline.RecordSchema;
+import com.dataetl.pipeline.Row;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Load sessions with several writer threads, on H2 with a MERGE standing in for the upsert
+ * statement (see {@link UpsertWriterIsolationTest}).
+ */
+@Timeout(20)
+class UpsertWriterSessionTest {
+
+    private static final String URL = "jdbc:h2:mem:upsert_session_test;DB_CLOSE_DELAY=-1;DATABASE_TO_UPPER=false";
+    private static final int WRITERS = 3;
+
+    private static JdbcTemplate jdbc;
+    private static TransactionTemplate transactions;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final List<String> checkpoints = new CopyOnWriteArrayList<>();
+    // Thread that wrote each external ID, every time it was written
+    private final Map<String, List<String>> writtenBy = new ConcurrentHashMap<>();
+    // Set by a test to hold up or break the statement writing a given external ID
+    private volatile String blockOn;
+    private volatile String failOn;
+    private final CountDownLatch release = new CountDownLatch(1);
+    private ThreadPoolTaskExecutor executor;
+    private UpsertWriter writer;
+
+    @BeforeAll
+    static void setUp() throws Exception {
+        try (var conn = DriverManager.getConnection(URL); var stmt = conn.createStatement()) {
+            stmt.execute("""
+                CREATE TABLE unified_data (
+                    id BIGINT AUTO_INCREMENT PRIMARY KEY, source_config_id BIGINT, external_id VARCHAR(512) NOT NULL,
+                    payload VARCHAR(256) NOT NULL, CONSTRAINT uq_unified_data UNIQUE (source_config_id, external_id))
+                """);
+        }
+        var dataSource = new DriverManagerDataSource(URL);
+        jdbc = new JdbcTemplate(dataSource);
+        transactions = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+    }
+
+    @AfterAll
+    static void tearDown() {
+        jdbc.execute("DROP TABLE unified_data");
+    }
+
+    @BeforeEach
+    void newWriter() {
+        jdbc.update("DELETE FROM unified_data");
+        executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(WRITERS);
+        executor.setQueueCapacity(0);
+        executor.initialize();
+        writer = new UpsertWriter(jdbc, transactions, objectMapper, executor, WRITERS, 0, 1, 0, 1, 0) {
+            @Override
+            LoadCounts upsertStatement(Connection conn, List<HashedRow> batch, SourceConfig config) throws SQLException {
+                for (var row : batch) {
+                    if (row.externalId().equals(failOn)) {
+                        throw new SQLException("connection lost", "08006");
+                    }
+                    if (row.externalId().equals(blockOn)) {
+                        try {
+                            release.await();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                    }
+                }
+                try (var stmt = conn.prepareStatement("""
+                        MERGE INTO unified_data (source_config_id, external_id, payload)
+                        KEY (source_config_id, external_id) VALUES (?, ?, ?)
+                        """)) {
+                    for (var row : batch) {
+                        stmt.setLong(1, config.getId());
+                        stmt.setString(2, row.externalId());
+                        stmt.setString(3, row.payload());
+                        stmt.executeUpdate();
+                        writtenBy.computeIfAbsent(row.externalId(), id -> new CopyOnWriteArrayList<>())
+                            .add(Thread.currentThread().getName());
+                    }
+                }
+                return new LoadCounts(batch.size(), 0, 0);
+            }
+        };
+    }
+
+    @AfterEach
+    void shutDown() {
+        release.countDown();
+        executor.shutdown();
+    }
+
+    @Test
+    void recordsAreRoutedByExternalIdAndTheLastDuplicateWins() throws Exception {
+        var schema = new RecordSchema();
+        LoadCounts counts;
+        try (var load = open(schema)) {
+            for (int chunk = 0; chunk < 5; chunk++) {
+                var records = new ArrayList<Row>();
+                for (int id = 0; id < 30; id++) {
+                    records.add(row(schema, id, "pass-" + chunk));
+                }
+                load.write(records, "chunk-" + chunk);
+            }
+            load.finish();
+            counts = load.counts();
+        }
+
+        assertEquals(150, counts.total());
+        assertEquals(30, writtenBy.size());
+        // Every write of an ID came from the same writer thread, and the rows were spread over several
+        writtenBy.forEach((id, threads) -> assertEquals(1, threads.stream().distinct().count(), id));
+        assertTrue(writtenBy.values().stream().map(threads -> threads.get(0)).distinct().count() > 1);
+        assertEquals(30, jdbc.queryForObject(
+            "SELECT COUNT(*) FROM unified_data WHERE payload LIKE '%pass-4%'", Long.class));
+        assertEquals("chunk-4", checkpoints.get(checkpoints.size() - 1));
+    }
+
+    @Test
+    void laterChunksWaitForEveryPartOfEarlierOnes() {
+        var reported = new ArrayList<String>();
+        var commits = new UpsertWriter.Commits(reported::add);
+
+        commits.expect(0, 2, "chunk-0");
+        commits.expect(1, 1, "chunk-1");
+        commits.expect(2, 3, null);
+        commits.expect(3, 1, "chunk-3");
+
+        // Chunk 1 is complete, but one part of chunk 0 is still out
+        commits.committed(1);
+        commits.committed(0);
+        assertEquals(List.of(), reported);
+        // Chunk 0 and 1 commit together — only the later checkpoint is reported
+        commits.committed(0);
+        assertEquals(List.of("chunk-1"), reported);
+        // A chunk without a checkpoint still holds back the ones after it
+        commits.committed(3);
+        commits.committed(2);
+        commits.committed(2);
+        assertEquals(List.of("chunk-1"), reported);
+        commits.committed(2);
+        assertEquals(List.of("chunk-1", "chunk-3"), reported);
+    }
+
+    @Test
+    void aFailedWriterFailsTheJobAndTheOthersAreStopped() throws Exception {
+        failOn = "7";
+        var schema = new RecordSchema();
+        var load = open(schema);
+        Exception thrown;
+        try (load) {
+            // Every chunk routes a part to the failing writer; writing fails once it has died
+            thrown = assertThrows(Exception.class, () -> {
+                for (int chunk = 0; chunk < 1000; chunk++) {
+                    load.write(List.of(row(schema, 7, "bad"), row(schema, 8, "ok"), row(schema, 9, "ok")),
+                        "chunk-" + chunk);
+                }
+            });
+        }
+
+        assertTrue(thrown.getMessage().contains("connection lost"), thrown.getMessage());
+        // No chunk was committed as a whole, and no writer thread is left running
+        assertEquals(List.of(), checkpoints);
+        awaitWritersDone();
+    }
+
+    @Test
+    void finishAfterAWriterFailedStopsTheOthers() throws Exception {
+        failOn = "7";
+        var schema = new RecordSchema();
+        try (var load = open(schema)) {
+            load.write(List.of(row(schema, 7, "bad")), "chunk-0");
+            // Let the failing writer die before finishing
+            while (executor.getActiveCount() == WRITERS) {
+                Thread.sleep(10);
+            }
+            var thrown = assertThrows(RuntimeException.class, load::finish);
+            assertTrue(thrown.getMessage().contains("connection lost"), thrown.getMessage());
+        }
+        awaitWritersDone();
+        assertEquals(List.of(), checkpoints);
+    }
+
+    @Test
+    void closingWithoutFinishDropsQueuedParts() throws Exception {
+        blockOn = "1";
+        var schema = new RecordSchema();
+        var load = open(schema);
+        // The same ID always lands on the same writer: one part in progress, two queued
+        for (int chunk = 0; chunk < 3; chunk++) {
+            load.write(List.of(row(schema, 1, "pass-" + chunk)), "chunk-" + chunk);
+        }
+
+        var closing = new Thread(() -> {
+            try {
+                load.close();
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        closing.start();
+        // close() clears the queue before it waits for the writer to take the ABORT marker
+        Thread.sleep(200);
+        release.countDown();
+        closing.join(TimeUnit.SECONDS.toMillis(10));
+
+        assertEquals(List.of("chunk-0"), checkpoints);
+        assertEquals(1, writtenBy.get("1").size());
+        awaitWritersDone();
+    }
+
+    // A writer's task completes just before its thread counts as idle
+    private void awaitWritersDone() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (executor.getActiveCount() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, executor.getActiveCount());
+    }
+
+    private UpsertWriter.LoadSession open(RecordSchema schema) {
+        var config = new SourceConfig();
+        config.setId(1L);
+        config.setName("session");
+        config.setType(SourceType.CSV);
+        return writer.open(config, RecordKey.forSource(config, schema), checkpoints::add, null);
+    }
+
+    private static Row row(RecordSchema schema, int id, String name) {
+        var row = new Row(schema);
+        row.set("id", id);
+        row.set("name", name);
+        return row;
+    }
+}
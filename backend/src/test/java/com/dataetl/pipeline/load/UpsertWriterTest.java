@@ -0,0 +1,36 @@
+package com.dataetl.pipeline.load;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UpsertWriterTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void refusesRecordsTheDatabaseWouldReject() throws Exception {
+        assertNull(UpsertWriter.refusal("a".repeat(512), "{}"));
+        assertNotNull(UpsertWriter.refusal("a".repeat(513), "{}"));
+
+        var withNul = objectMapper.writeValueAsString(Map.of("name", "bad" + (char) 0 + "value"));
+        var withEscapedBackslash = objectMapper.writeValueAsString(Map.of("path", "C:\\u0000"));
+        assertNotNull(UpsertWriter.refusal("1", withNul));
+        assertNull(UpsertWriter.refusal("1", withEscapedBackslash));
+    }
+
+    @Test
+    void onlyDataAndConstraintErrorsAreBlamedOnRecords() {
+        assertTrue(UpsertWriter.isRecordError(new SQLException("value too long", "22001")));
+        assertTrue(UpsertWriter.isRecordError(new SQLException("unique violation", "23505")));
+        assertFalse(UpsertWriter.isRecordError(new SQLException("connection lost", "08006")));
+        assertFalse(UpsertWriter.isRecordError(new SQLException("no state")));
+    }
+}
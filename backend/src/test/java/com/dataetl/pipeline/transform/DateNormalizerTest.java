@@ -0,0 +1,180 @@
+package com.dataetl.pipeline.transform;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DateNormalizerTest {
+
+    // The DateTimeFormatter chain DateNormalizer replaced — kept as the reference implementation
+    private static final List<DateTimeFormatter> LEGACY_FORMATTERS = List.of(
+        DateTimeFormatter.ofPattern("MM/dd/yyyy"),
+        DateTimeFormatter.ofPattern("dd-MM-yyyy"),
+        DateTimeFormatter.ofPattern("yyyy-MM-dd"),
+        DateTimeFormatter.ofPattern("M/d/yyyy"),
+        DateTimeFormatter.ofPattern("d/M/yyyy")
+    );
+    private static final Pattern LEGACY_PATTERN =
+        Pattern.compile("\\d{1,4}[/\\-]\\d{1,2}[/\\-]\\d{2,4}");
+
+    private static String legacyNormalize(String value) {
+        if (!LEGACY_PATTERN.matcher(value).matches()) {
+            return null;
+        }
+        for (var formatter : LEGACY_FORMATTERS) {
+            try {
+                return LocalDate.parse(value.trim(), formatter).toString();
+            } catch (DateTimeParseException ignored) {
+                // Try next format
+            }
+        }
+        return null;
+    }
+
+    @Test
+    void matchesLegacyFormatterChain() {
+        var firsts = List.of("0", "1", "01", "02", "12", "13", "29", "31", "32", "0012", "2020", "0000", "1999");
+        var seconds = List.of("0", "1", "01", "02", "09", "12", "13", "28", "29", "30", "31", "32");
+        var thirds = List.of("20", "202", "2020", "2021", "2024", "1900", "2000", "0000", "0001", "29", "31");
+        int checked = 0;
+        for (var first : firsts) {
+            for (var second : seconds) {
+                for (var third : thirds) {
+                    for (var sep : List.of("/", "-")) {
+                        var value = first + sep + second + sep + third;
+                        assertEquals(LEGACY_PATTERN.matcher(value).matches(), DateNormalizer.looksLikeDate(value), value);
+                        assertEquals(legacyNormalize(value), DateNormalizer.parseAny(value), value);
+                        checked++;
+                    }
+                }
+            }
+        }
+        for (var odd : List.of("12/31-2020", "2020/12/31", "12/31/2020 ", "a2/31/2020", "", "1-1", "12/31/20201")) {
+            assertEquals(legacyNormalize(odd), DateNormalizer.parseAny(odd), odd);
+        }
+        assertTrue(checked > 3000);
+    }
+
+    @Test
+    void clampsDayToMonthEndLikeSmartResolver() {
+        assertEquals("2021-02-28", DateNormalizer.parseAny("02/30/2021"));
+        assertEquals("2024-02-29", DateNormalizer.parseAny("02/31/2024"));
+        assertEquals("2021-04-30", DateNormalizer.parseAny("31-04-2021"));
+    }
+
+    @Test
+    void ambiguousValuesFollowTheColumnsLearnedFormat() {
+        var normalizer = new DateNormalizer(3, 16);
+        assertEquals("2020-12-25", normalizer.normalize("d", "25/12/2020"));
+        assertEquals("2020-12-31", normalizer.normalize("d", "31/12/2020"));
+        // Still sampling: the legacy precedence (month first) applies
+        assertEquals("2020-03-04", normalizer.normalize("d", "03/04/2020"));
+        // Locked to day-first: the same value now reads as 3 April
+        assertEquals("2020-04-03", normalizer.normalize("d", "03/04/2020"));
+        // Values the locked format rejects still go through the full chain
+        assertEquals("2020-01-15", normalizer.normalize("d", "2020-01-15"));
+    }
+
+    @Test
+    void datesAfterPlaceholderValuesAreStillNormalized() {
+        var normalizer = new DateNormalizer(3, 16);
+        assertNull(normalizer.normalize("shipped", "N/A"));
+        assertNull(normalizer.normalize("shipped", "pending"));
+        assertNull(normalizer.normalize("shipped", "TBD"));
+        // Sampled without a date, but the first real date restarts learning
+        assertEquals("2020-12-25", normalizer.normalize("shipped", "25/12/2020"));
+        assertNull(normalizer.normalize("shipped", "pending"));
+        assertEquals("2020-12-31", normalizer.normalize("shipped", "31/12/2020"));
+        // Locked to day-first by the dates, not by the placeholders
+        assertEquals("2020-04-03", normalizer.normalize("shipped", "03/04/2020"));
+        assertNull(normalizer.normalize("shipped", "N/A"));
+    }
+
+    @Test
+    void blankValuesDoNotCountAsSamples() {
+        var normalizer = new DateNormalizer(2, 1);
+        for (int i = 0; i < 5; i++) {
+            assertNull(normalizer.normalize("shipped", i % 2 == 0 ? "" : "  "));
+        }
+        assertEquals("2020-12-25", normalizer.normalize("shipped", "25/12/2020"));
+        assertEquals("2020-12-31", normalizer.normalize("shipped", "31/12/2020"));
+        // Locked to day-first on the two dates, not skipped after the blanks
+        assertEquals("2020-04-03", normalizer.normalize("shipped", "03/04/2020"));
+        // A one-entry memo evicts, but never changes an answer
+        assertEquals("2020-04-05", normalizer.normalize("shipped", "05/04/2020"));
+        assertEquals("2020-04-03", normalizer.normalize("shipped", "03/04/2020"));
+    }
+
+    /**
+     * Date-heavy workload: 4 date columns per row in the formats the legacy chain found
+     * slowest (d/M/yyyy needs four thrown exceptions). Run with -Dbenchmark=true.
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void benchmarkAgainstLegacyChain() {
+        int rows = 100_000;
+        var columns = List.of("created", "updated", "shipped", "iso");
+        var values = new ArrayList<String[]>(rows);
+        for (int i = 0; i < rows; i++) {
+            int day = 13 + i % 16;
+            int month = 1 + i % 12;
+            int year = 2000 + i % 25;
+            values.add(new String[] {
+                day + "/" + month + "/" + year,                       // d/M/yyyy — last in the chain
+                String.format("%02d-%02d-%d", day, month, year),      // dd-MM-yyyy
+                month + "/" + (1 + i % 28) + "/" + year,              // M/d/yyyy
+                String.format("%d-%02d-%02d", year, month, 1 + i % 28) // yyyy-MM-dd
+            });
+        }
+
+        for (int warmup = 0; warmup < 2; warmup++) {
+            runLegacy(values);
+            runNormalizer(values, columns);
+        }
+
+        long legacyStart = System.nanoTime();
+        long legacyHits = runLegacy(values);
+        long legacyNanos = System.nanoTime() - legacyStart;
+
+        long fastStart = System.nanoTime();
+        long fastHits = runNormalizer(values, columns);
+        long fastNanos = System.nanoTime() - fastStart;
+
+        assertEquals(legacyHits, fastHits);
+        double speedup = (double) legacyNanos / fastNanos;
+        System.out.printf("date normalization: legacy %d ms, DateNormalizer %d ms, speedup %.1fx over %d values%n",
+            legacyNanos / 1_000_000, fastNanos / 1_000_000, speedup, rows * columns.size());
+        assertTrue(speedup > 2.0, "expected a clear speedup, got " + speedup);
+    }
+
+    private static long runLegacy(List<String[]> values) {
+        long hits = 0;
+        for (var row : values) {
+            for (var value : row) {
+                if (legacyNormalize(value) != null) hits++;
+            }
+        }
+        return hits;
+    }
+
+    private static long runNormalizer(List<String[]> values, List<String> columns) {
+        var normalizer = new DateNormalizer(100, 4096);
+        long hits = 0;
+        for (var row : values) {
+            for (int c = 0; c < row.length; c++) {
+                if (normalizer.normalize(columns.get(c), row[c]) != null) hits++;
+            }
+        }
+        return hits;
+    }
+}
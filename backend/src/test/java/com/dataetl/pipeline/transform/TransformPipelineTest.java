@@ -0,0 +1,120 @@
+package com.dataetl.pipeline.transform;
+
+import com.dataetl.model.SourceConfig;
+import com.dataetl.model.enums.SourceType;
+import com.dataetl.pipeline.RecordSchema;
+import com.dataetl.pipeline.Row;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TransformPipelineTest {
+
+    private final ForkJoinPool pool = new ForkJoinPool(4);
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdown();
+    }
+
+    @Test
+    void orderedSlicesKeepInputOrder() {
+        var pipeline = new TransformPipeline(pool, true, 4, 100, 4096);
+        var schema = new RecordSchema();
+        var context = pipeline.newContext(source(null), schema);
+
+        var result = pipeline.transformChunk(records(schema, 1000), context);
+
+        assertEquals(expectedValid(1000), ids(result.valid()));
+        assertEquals(expectedRejected(1000), ids(result.rejected().stream().map(TransformPipeline.Rejected::raw).toList()));
+    }
+
+    @Test
+    void unorderedSlicesYieldEveryRecordExactlyOnce() {
+        var pipeline = new TransformPipeline(pool, false, 4, 100, 4096);
+        var schema = new RecordSchema();
+        var context = pipeline.newContext(source(null), schema);
+
+        var result = pipeline.transformChunk(records(schema, 1000), context);
+
+        var valid = new ArrayList<>(ids(result.valid()));
+        valid.sort(null);
+        assertEquals(expectedValid(1000), valid);
+        var rejected = new ArrayList<>(ids(result.rejected().stream().map(TransformPipeline.Rejected::raw).toList()));
+        rejected.sort(null);
+        assertEquals(expectedRejected(1000), rejected);
+    }
+
+    @Test
+    void recordsWithoutKeyAreValidUnlessKeyColumnsAreConfigured() {
+        var pipeline = new TransformPipeline(pool, true, 4, 100, 4096);
+
+        // No keyColumns: the loader identifies a keyless record by its content
+        var schema = new RecordSchema();
+        var context = pipeline.newContext(source(null), schema);
+        assertTrue(pipeline.transform(row(schema, Map.of("name", "widget", "price", "3")), context).isValid());
+        assertEquals("Record contains no data",
+            pipeline.transform(row(schema, Map.of("name", " ")), context).errorReason());
+        assertEquals("Record contains insufficient data (only identifier field present)",
+            pipeline.transform(row(schema, Map.of("id", 7)), context).errorReason());
+
+        // Configured keyColumns are required
+        var keyed = new RecordSchema();
+        var keyedContext = pipeline.newContext(source("sku"), keyed);
+        assertEquals("Missing value for key column(s) sku",
+            pipeline.transform(row(keyed, Map.of("id", 7, "name", "widget")), keyedContext).errorReason());
+        assertTrue(pipeline.transform(row(keyed, Map.of("sku", "W-7", "name", "widget")), keyedContext).isValid());
+    }
+
+    // Every seventh record carries nothing but its ID and is rejected
+    private static List<Row> records(RecordSchema schema, int count) {
+        var records = new ArrayList<Row>(count);
+        for (int id = 0; id < count; id++) {
+            records.add(id % 7 == 0 ? row(schema, Map.of("id", id)) : row(schema, Map.of("id", id, "name", "item-" + id)));
+        }
+        return records;
+    }
+
+    private static List<Integer> expectedValid(int count) {
+        var ids = new ArrayList<Integer>();
+        for (int id = 0; id < count; id++) {
+            if (id % 7 != 0) ids.add(id);
+        }
+        return ids;
+    }
+
+    private static List<Integer> expectedRejected(int count) {
+        var ids = new ArrayList<Integer>();
+        for (int id = 0; id < count; id += 7) {
+            ids.add(id);
+        }
+        return ids;
+    }
+
+    private static List<Integer> ids(List<Row> rows) {
+        return rows.stream().map(row -> (Integer) row.get("id")).toList();
+    }
+
+    private static Row row(RecordSchema schema, Map<String, Object> values) {
+        var row = new Row(schema);
+        values.forEach(row::set);
+        return row;
+    }
+
+    private static SourceConfig source(String keyColumns) {
+        var config = new SourceConfig();
+        config.setName("transform");
+        config.setType(SourceType.CSV);
+        if (keyColumns != null) {
+            config.setAuthConfig(Map.of("keyColumns", keyColumns));
+        }
+        return config;
+    }
+}
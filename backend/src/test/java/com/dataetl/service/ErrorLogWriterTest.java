@@ -0,0 +1,143 @@
+package com.dataetl.service;
+
+import com.dataetl.model.SourceConfig;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ErrorLogWriterTest {
+
+    private JdbcTemplate jdbc;
+    private ThreadPoolTaskExecutor executor;
+    private ThreadPoolTaskScheduler scheduler;
+
+    @BeforeEach
+    void setUp() {
+        jdbc = new JdbcTemplate(new DriverManagerDataSource("jdbc:h2:mem:error_log_writer_test;DB_CLOSE_DELAY=-1"));
+        jdbc.execute("CREATE DOMAIN IF NOT EXISTS jsonb AS VARCHAR");
+        jdbc.execute("CREATE TABLE IF NOT EXISTS error_log (id BIGINT AUTO_INCREMENT PRIMARY KEY, job_id BIGINT,"
+            + " raw_data TEXT, error_reason TEXT, occurred_at TIMESTAMP WITH TIME ZONE)");
+        jdbc.execute("CREATE TABLE IF NOT EXISTS error_summary (id BIGINT AUTO_INCREMENT PRIMARY KEY, job_id BIGINT,"
+            + " error_reason TEXT, error_count BIGINT, first_at TIMESTAMP WITH TIME ZONE,"
+            + " last_at TIMESTAMP WITH TIME ZONE, samples jsonb)");
+        jdbc.execute("DELETE FROM error_log");
+        jdbc.execute("DELETE FROM error_summary");
+        executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(2);
+        executor.initialize();
+        scheduler = new ThreadPoolTaskScheduler();
+        scheduler.initialize();
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+        scheduler.shutdown();
+    }
+
+    @Test
+    void closeWritesEveryEntryReportedFromAnyThread() {
+        var writer = writer(Duration.ofMinutes(1));
+        var errors = writer.open(source(true), 7L);
+
+        var reporters = new ArrayList<CompletableFuture<Void>>();
+        for (int t = 0; t < 4; t++) {
+            int thread = t;
+            reporters.add(CompletableFuture.runAsync(() -> {
+                for (int i = 0; i < 255; i++) {
+                    errors.add("{\"row\":" + i + "}", "bad row " + thread + "/" + i);
+                }
+            }));
+        }
+        reporters.forEach(CompletableFuture::join);
+        errors.close();
+
+        assertEquals(1020, jdbc.queryForObject("SELECT COUNT(*) FROM error_log WHERE job_id = 7", Integer.class));
+        assertEquals(1020, jdbc.queryForObject("SELECT COUNT(DISTINCT error_reason) FROM error_log", Integer.class));
+        // The summary stays bounded however many distinct reasons the job reported
+        assertEquals(ErrorLogWriter.MAX_REASONS + 1,
+            jdbc.queryForObject("SELECT COUNT(*) FROM error_summary WHERE job_id = 7", Integer.class));
+        assertEquals(1020, jdbc.queryForObject("SELECT SUM(error_count) FROM error_summary", Integer.class));
+    }
+
+    @Test
+    void flushesOnTheIntervalWhileTheJobRuns() throws Exception {
+        var writer = writer(Duration.ofMillis(50));
+        try (var errors = writer.open(source(true), 8L)) {
+            errors.add(null, "only error");
+
+            long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+            while (jdbc.queryForObject("SELECT COUNT(*) FROM error_log", Integer.class) == 0
+                    && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(1, jdbc.queryForObject("SELECT COUNT(*) FROM error_log", Integer.class));
+        }
+    }
+
+    @Test
+    void batchesAreWrittenInTheOrderTheyWereReported() {
+        // Interval flushes race the full-batch flushes of the reporting thread
+        var writer = writer(Duration.ofMillis(1));
+        var errors = writer.open(source(true), 10L);
+        for (int i = 0; i < 5000; i++) {
+            errors.add(null, String.valueOf(i));
+        }
+        errors.close();
+
+        var reasons = jdbc.queryForList("SELECT error_reason FROM error_log WHERE job_id = 10 ORDER BY id", String.class);
+        assertEquals(5000, reasons.size());
+        for (int i = 0; i < reasons.size(); i++) {
+            assertEquals(String.valueOf(i), reasons.get(i));
+        }
+    }
+
+    @Test
+    void summarisesEachReasonWithABoundedSample() {
+        var writer = writer(Duration.ofMinutes(1));
+        var errors = writer.open(source(false), 9L);
+        for (int i = 0; i < 10_000; i++) {
+            errors.add("{\"row\":" + i + "}", i % 10 == 0 ? "Missing value for key column(s) id" : "Load failed: bad date");
+        }
+
+        var running = writer.running(9L).orElseThrow();
+        assertEquals(List.of("Load failed: bad date", "Missing value for key column(s) id"),
+            running.stream().map(ErrorLogWriter.ReasonSummary::reason).toList());
+        assertEquals(9000, running.get(0).count());
+        assertEquals(3, running.get(0).samples().size());
+        errors.close();
+
+        assertTrue(writer.running(9L).isEmpty());
+        // Full capture is opt-in — without it only the summary is stored
+        assertEquals(0, jdbc.queryForObject("SELECT COUNT(*) FROM error_log", Integer.class));
+        assertEquals(1000, jdbc.queryForObject(
+            "SELECT error_count FROM error_summary WHERE job_id = 9 AND error_reason LIKE 'Missing%'", Integer.class));
+        var samples = jdbc.queryForObject(
+            "SELECT samples FROM error_summary WHERE job_id = 9 AND error_reason LIKE 'Missing%'", String.class);
+        assertEquals(3, samples.split("row").length - 1);
+    }
+
+    private ErrorLogWriter writer(Duration flushInterval) {
+        return new ErrorLogWriter(jdbc, executor, scheduler, new ObjectMapper(), 100, flushInterval, 3);
+    }
+
+    private static SourceConfig source(boolean captureAllErrors) {
+        var config = new SourceConfig();
+        config.setAuthConfig(Map.of("captureAllErrors", captureAllErrors));
+        return config;
+    }
+}
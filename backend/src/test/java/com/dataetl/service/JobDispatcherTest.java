@@ -0,0 +1,197 @@
+package com.dataetl.service;
+
+import com.dataetl.model.SourceConfig;
+import com.dataetl.model.enums.JobLane;
+import com.dataetl.model.enums.SourceType;
+import com.dataetl.pipeline.EtlOrchestrator;
+import com.dataetl.repository.SourceConfigRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.dataetl.service.JobDispatcher.Admission.Status.ALREADY_RUNNING;
+import static com.dataetl.service.JobDispatcher.Admission.Status.QUEUED;
+import static com.dataetl.service.JobDispatcher.Admission.Status.REJECTED;
+import static com.dataetl.service.JobDispatcher.Admission.Status.STARTED;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class JobDispatcherTest {
+
+    private EtlOrchestrator orchestrator;
+    private SourceConfigRepository sources;
+    private JobCapacity capacity;
+    private ThreadPoolTaskScheduler scheduler;
+    private final AtomicReference<String> shortage = new AtomicReference<>();
+    private final AtomicInteger running = new AtomicInteger();
+    private final AtomicInteger maxRunning = new AtomicInteger();
+    private final List<Long> started = new CopyOnWriteArrayList<>();
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @BeforeEach
+    void setUp() {
+        orchestrator = mock(EtlOrchestrator.class);
+        sources = mock(SourceConfigRepository.class);
+        capacity = mock(JobCapacity.class);
+        when(sources.findById(anyLong())).thenAnswer(call -> Optional.of(source(call.getArgument(0))));
+        when(capacity.shortage()).thenAnswer(call -> shortage.get());
+        doAnswer(call -> {
+            started.add(call.getArgument(0));
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            release.await(5, TimeUnit.SECONDS);
+            running.decrementAndGet();
+            return null;
+        }).when(orchestrator).runJob(anyLong(), any());
+        scheduler = new ThreadPoolTaskScheduler();
+        scheduler.initialize();
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        scheduler.shutdown();
+    }
+
+    @Test
+    void globalSlotsBoundRunningJobs() throws Exception {
+        var dispatcher = dispatcher(2, 4, 20);
+        for (long id = 1; id <= 5; id++) {
+            var admission = dispatcher.dispatch(id, JobLane.MANUAL);
+            assertEquals(id <= 2 ? STARTED : QUEUED, admission.status());
+            assertEquals(id <= 2 ? 0 : id - 2, admission.position());
+        }
+        assertEquals(3, dispatcher.snapshot().queued().size());
+        awaitStarted(2);
+
+        release.countDown();
+        awaitStarted(5);
+        assertTrue(maxRunning.get() <= 2);
+    }
+
+    @Test
+    void sourceIsQueuedOrRunningOnlyOnce() throws Exception {
+        var dispatcher = dispatcher(8, 4, 20);
+        assertEquals(STARTED, dispatcher.dispatch(1L, JobLane.SCHEDULED).status());
+        awaitStarted(1);
+
+        assertEquals(ALREADY_RUNNING, dispatcher.dispatch(1L, JobLane.MANUAL).status());
+        release.countDown();
+        Thread.sleep(100);
+        assertEquals(List.of(1L), started);
+    }
+
+    @Test
+    void fullLaneRejectsTheJob() {
+        var dispatcher = dispatcher(1, 4, 1);
+        assertEquals(STARTED, dispatcher.dispatch(1L, JobLane.MANUAL).status());
+        assertEquals(QUEUED, dispatcher.dispatch(2L, JobLane.MANUAL).status());
+
+        var rejected = dispatcher.dispatch(3L, JobLane.MANUAL);
+        assertEquals(REJECTED, rejected.status());
+        assertEquals("queue_full", rejected.reason());
+        // Other lanes have their own room
+        assertEquals(QUEUED, dispatcher.dispatch(4L, JobLane.BACKFILL).status());
+    }
+
+    @Test
+    void apiSourcesShareTheirHostsSlots() throws Exception {
+        var dispatcher = dispatcher(8, 1, 20);
+        assertEquals(STARTED, dispatcher.dispatch(10L, JobLane.MANUAL).status());
+        assertEquals(QUEUED, dispatcher.dispatch(11L, JobLane.MANUAL).status());
+        // A CSV job behind the blocked one starts anyway
+        assertEquals(STARTED, dispatcher.dispatch(1L, JobLane.MANUAL).status());
+
+        release.countDown();
+        awaitStarted(3);
+    }
+
+    @Test
+    void lanesTakeTurnsByWeightOnceCapacityReturns() throws Exception {
+        release.countDown();
+        shortage.set("heap");
+        var dispatcher = dispatcher(1, 4, 20);
+        for (long id = 1; id <= 6; id++) {
+            assertEquals(QUEUED, dispatcher.dispatch(id, JobLane.MANUAL).status());
+        }
+        dispatcher.dispatch(7L, JobLane.BACKFILL);
+        dispatcher.dispatch(8L, JobLane.BACKFILL);
+        assertEquals("heap", dispatcher.snapshot().waitingFor());
+
+        shortage.set(null);
+        awaitStarted(8);
+        // MANUAL has three times the weight of BACKFILL, but BACKFILL is never starved
+        assertEquals(List.of(1L, 7L, 2L, 3L, 4L, 8L, 5L, 6L), started);
+    }
+
+    @Test
+    void refusedStartGivesItsSlotsBack() throws Exception {
+        var refuse = new AtomicInteger(1);
+        var executor = new SimpleAsyncTaskExecutor();
+        Executor refusing = task -> {
+            if (refuse.getAndDecrement() > 0) {
+                throw new TaskRejectedException("no threads left");
+            }
+            executor.execute(task);
+        };
+        var dispatcher = dispatcher(refusing, 1, 1, 20);
+
+        var refused = dispatcher.dispatch(10L, JobLane.MANUAL);
+        assertEquals(REJECTED, refused.status());
+        assertEquals("start_failed", refused.reason());
+        assertTrue(dispatcher.snapshot().running().isEmpty());
+        // Neither the global slot nor the host's slot is still taken
+        assertEquals(STARTED, dispatcher.dispatch(11L, JobLane.MANUAL).status());
+        awaitStarted(1);
+        assertEquals(List.of(11L), started);
+    }
+
+    private JobDispatcher dispatcher(int maxConcurrent, int maxPerHost, int laneCapacity) {
+        return dispatcher(new SimpleAsyncTaskExecutor(), maxConcurrent, maxPerHost, laneCapacity);
+    }
+
+    private JobDispatcher dispatcher(Executor executor, int maxConcurrent, int maxPerHost, int laneCapacity) {
+        return new JobDispatcher(orchestrator, sources, executor, scheduler, capacity,
+            maxConcurrent, 2, maxPerHost, laneCapacity, laneCapacity, laneCapacity, Duration.ofMillis(20));
+    }
+
+    private void awaitStarted(int jobs) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (started.size() < jobs && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(jobs, started.size());
+    }
+
+    // IDs from 10 are API sources on one host, the others CSV files
+    private static SourceConfig source(long id) {
+        var config = new SourceConfig();
+        config.setId(id);
+        config.setName("source-" + id);
+        if (id >= 10) {
+            config.setType(SourceType.API);
+            config.setConnectionString("https://api.example.com/items?feed=" + id);
+        } else {
+            config.setType(SourceType.CSV);
+            config.setConnectionString("data/source-" + id + ".csv");
+        }
+        return config;
+    }
+}
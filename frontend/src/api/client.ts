@@ -5,6 +5,7 @@ import type {
   JobHistory,
   JobDetail,
   PageResponse,
+  TriggerResult,
   UnifiedData,
 } from '../types'
 
@@ -125,8 +126,10 @@ export const getJobs = (page = 0, size = 20): Promise<PageResponse<JobHistory>>
 export const getJobDetail = (id: number): Promise<JobDetail> =>
   api.get<JobDetail>(`/jobs/${id}`).then(r => r.data)
 
-export const triggerJob = (sourceConfigId: number): Promise<{ message: string; status: string }> =>
-  api.post('/jobs/trigger', { sourceConfigId }).then(r => r.data)
+// 202 with status STARTED or QUEUED (position in its lane); 409 when the source is already
+// queued or running, 429 when the lane's queue is full, 503 while the server shuts down
+export const triggerJob = (sourceConfigId: number): Promise<TriggerResult> =>
+  api.post<TriggerResult>('/jobs/trigger', { sourceConfigId }).then(r => r.data)
 
 // --- Data ---
 
@@ -1,4 +1,5 @@
 import { useState } from 'react'
+import { isAxiosError } from 'axios'
 import { useNavigate } from 'react-router-dom'
 import { useJobs } from '../hooks/useJobs'
 import { useSources } from '../hooks/useSources'
@@ -6,7 +7,7 @@ import { triggerJob } from '../api/client'
 import { StatusBadge } from '../components/shared/StatusBadge'
 import { SourceTypeBadge } from '../components/shared/SourceTypeBadge'
 import { LoadingSpinner } from '../components/shared/LoadingSpinner'
-import type { JobHistory, SourceConfig } from '../types'
+import type { JobHistory, SourceConfig, TriggerResult } from '../types'
 
 // ── Stats Cards ──────────────────────────────────────────────────────────────
 
@@ -39,13 +40,22 @@ function StatsCards({ jobs }: { jobs: JobHistory[] }) {
 
 // ── Source Card ───────────────────────────────────────────────────────────────
 
-function SourceCard({ source, onTrigger }: { source: SourceConfig; onTrigger: () => void }) {
+function SourceCard({ source, onTrigger }: { source: SourceConfig; onTrigger: () => Promise<TriggerResult> }) {
   const [triggering, setTriggering] = useState(false)
+  const [notice, setNotice] = useState<string | null>(null)
 
   const handleTrigger = async () => {
     setTriggering(true)
+    setNotice(null)
     try {
-      await onTrigger()
+      const result = await onTrigger()
+      if (result.status === 'QUEUED') {
+        setNotice(`Queued — position ${result.position}`)
+      }
+    } catch (err) {
+      // 409 (already queued or running), 429 (queue full) and 503 (shutting down) carry a message for the user
+      const message = isAxiosError<{ error?: string }>(err) ? err.response?.data?.error : undefined
+      setNotice(message ?? 'Trigger failed')
     } finally {
       // Keep spinner briefly to give feedback even if fast
       setTimeout(() => setTriggering(false), 1500)
@@ -71,6 +81,8 @@ function SourceCard({ source, onTrigger }: { source: SourceConfig; onTrigger: ()
         <p>Last run: <span className="font-mono text-frost-dim/70">{lastRun}</span></p>
       </div>
 
+      {notice && <p className="text-xs text-frost-dim/70">{notice}</p>}
+
       <button
         onClick={handleTrigger}
         disabled={triggering || !source.isActive}
@@ -180,8 +192,9 @@ export function Dashboard() {
   const jobs = jobsPage?.content ?? []
 
   const handleTrigger = async (sourceId: number) => {
-    await triggerJob(sourceId)
+    const result = await triggerJob(sourceId)
     await refetch()
+    return result
   }
 
   return (
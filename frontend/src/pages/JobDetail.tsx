@@ -48,6 +48,7 @@ export function JobDetail() {
     { label: 'Status', value: <StatusBadge status={job.status} /> },
     { label: 'Triggered By', value: <span className="font-mono text-sm">{job.triggeredBy}</span> },
     { label: 'Records Processed', value: job.recordsProcessed.toLocaleString() },
+    { label: 'Inserted / Updated / Unchanged', value: `${job.recordsInserted.toLocaleString()} / ${job.recordsUpdated.toLocaleString()} / ${job.recordsUnchanged.toLocaleString()}` },
     { label: 'Error Count', value: <span className={job.errorCount > 0 ? 'text-coral' : ''}>{job.errorCount}</span> },
     { label: 'Duration', value: job.durationMs != null ? `${job.durationMs}ms` : '—' },
     { label: 'Started', value: new Date(job.startTime).toLocaleString() },
@@ -78,12 +79,14 @@ export function JobDetail() {
         </div>
       </div>
 
-      {/* Error Log */}
+      {/* Error Summary */}
       <section>
         <h2 className="text-lg font-headline font-semibold text-frost mb-4">
-          Error Log
+          Error Summary
           {errors.length > 0 && (
-            <span className="ml-2 text-sm font-mono text-coral">({errors.length} errors)</span>
+            <span className="ml-2 text-sm font-mono text-coral">
+              ({errors.reduce((sum, err) => sum + err.count, 0).toLocaleString()} errors, {errors.length} {errors.length === 1 ? 'reason' : 'reasons'})
+            </span>
           )}
         </h2>
 
@@ -95,22 +98,30 @@ export function JobDetail() {
           <div className="space-y-3">
             {errors.map(err => (
               <div
-                key={err.id}
+                key={err.errorReason}
                 className="bg-coral/5 border border-coral/20 rounded-xl p-4"
               >
                 <div className="flex items-center justify-between mb-2">
-                  <span className="text-xs font-mono text-coral">Error #{err.id}</span>
+                  <span className="text-xs font-mono text-coral">{err.count.toLocaleString()} {err.count === 1 ? 'occurrence' : 'occurrences'}</span>
                   <span className="text-xs font-mono text-frost-dim/40">
-                    {new Date(err.occurredAt).toLocaleString()}
+                    {err.firstOccurredAt ? new Date(err.firstOccurredAt).toLocaleString() : '—'}
+                    {' → '}
+                    {err.lastOccurredAt ? new Date(err.lastOccurredAt).toLocaleString() : '—'}
                   </span>
                 </div>
                 <p className="text-sm text-coral mb-2">{err.errorReason}</p>
-                {err.rawData && (
+                {err.samples.length > 0 && (
                   <div className="mt-2">
-                    <p className="text-xs text-frost-dim/40 mb-1">Raw Data:</p>
-                    <pre className="text-xs font-mono bg-carbon/50 border border-steel/30 rounded p-3 overflow-x-auto text-frost-dim/70 whitespace-pre-wrap break-all">
-                      {err.rawData}
-                    </pre>
+                    <p className="text-xs text-frost-dim/40 mb-1">
+                      Sample Raw Data ({err.samples.length} of {err.count.toLocaleString()}):
+                    </p>
+                    <div className="space-y-2">
+                      {err.samples.map((sample, i) => (
+                        <pre key={i} className="text-xs font-mono bg-carbon/50 border border-steel/30 rounded p-3 overflow-x-auto text-frost-dim/70 whitespace-pre-wrap break-all">
+                          {sample}
+                        </pre>
+                      ))}
+                    </div>
                   </div>
                 )}
               </div>
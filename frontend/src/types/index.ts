@@ -24,6 +24,9 @@ export interface JobHistory {
   status: JobStatus
   recordsProcessed: number
   errorCount: number
+  recordsInserted: number
+  recordsUpdated: number
+  recordsUnchanged: number
   startTime: string
   endTime: string | null
   triggeredBy: TriggerType
@@ -37,9 +40,24 @@ export interface ErrorLogEntry {
   occurredAt: string
 }
 
+export interface ErrorSummary {
+  errorReason: string
+  count: number
+  firstOccurredAt: string | null
+  lastOccurredAt: string | null
+  samples: string[]
+}
+
 export interface JobDetail {
   job: JobHistory
-  errors: ErrorLogEntry[]
+  errors: ErrorSummary[]
+}
+
+export interface TriggerResult {
+  message: string
+  status: 'STARTED' | 'QUEUED'
+  lane: 'MANUAL' | 'BACKFILL'
+  position: number
 }
 
 export interface PageResponse<T> {